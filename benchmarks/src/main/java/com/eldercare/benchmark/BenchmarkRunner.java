@@ -0,0 +1,31 @@
+package com.eldercare.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 基准测试入口：接受JMH的全部命令行参数，未指定结果文件时默认以JSON格式写入results/jmh-<标签>.json
+ * 标签由系统属性bench.label指定（如版本号），默认dev；不同版本的结果文件可用CompareResults对比
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            File resultFile = new File("results", "jmh-" + System.getProperty("bench.label", "dev") + ".json");
+            resultFile.getParentFile().mkdirs();
+            options.result(resultFile.getPath());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.eldercare.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次JMH的JSON结果：按"基准方法 + 参数"逐项列出得分变化，超出阈值的退化项标记出来
+ * 用法：java -cp benchmarks.jar com.eldercare.benchmark.CompareResults <基线.json> <本次.json> [阈值百分比，默认10]
+ * 有退化项时以状态码1退出，可用于持续集成
+ */
+public class CompareResults {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法：CompareResults <基线.json> <本次.json> [阈值百分比]");
+            return;
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(args[0]);
+        Map<String, Score> current = read(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format("%-60s %14s %14s %9s", "基准", "基线", "本次", "变化"));
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-60s %14s %14.3f %9s  %s", entry.getKey(), "-", now.value, "新增", now.unit));
+                continue;
+            }
+            double change = (now.value - before.value) / before.value * 100;
+            // 吞吐量越大越好，耗时越小越好
+            boolean worse = now.higherIsBetter ? change < -threshold : change > threshold;
+            if (worse) {
+                regressions++;
+            }
+            System.out.println(String.format("%-60s %14.3f %14.3f %+8.1f%%  %s%s", entry.getKey(), before.value, now.value,
+                    change, now.unit, worse ? "  <-- 退化" : ""));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.println(String.format("%-60s %14.3f %14s %9s", name, baseline.get(name).value, "-", "已删除"));
+            }
+        }
+        System.out.println("退化项（超过" + threshold + "%）：" + regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(String file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            JsonArray results = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : results) {
+                JsonObject result = element.getAsJsonObject();
+                StringBuilder name = new StringBuilder(result.get("benchmark").getAsString()
+                        .replace("com.eldercare.benchmark.", ""));
+                if (result.has("params")) {
+                    Map<String, String> params = new LinkedHashMap<>();
+                    for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue().getAsString());
+                    }
+                    name.append(params);
+                }
+                JsonObject metric = result.getAsJsonObject("primaryMetric");
+                String mode = result.get("mode").getAsString();
+                scores.put(name.toString(), new Score(metric.get("score").getAsDouble(),
+                        metric.get("scoreUnit").getAsString(), "thrpt".equals(mode)));
+            }
+        }
+        return scores;
+    }
+
+    private static final class Score {
+        private final double value;
+        private final String unit;
+        private final boolean higherIsBetter;
+
+        private Score(double value, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
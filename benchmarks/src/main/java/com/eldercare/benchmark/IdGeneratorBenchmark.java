@@ -0,0 +1,40 @@
+package com.eldercare.benchmark;
+
+import com.eldercare.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdGenerator吞吐量基准（单线程与多线程竞争）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Benchmark
+    public long nextRawId() {
+        return IdGenerator.nextRawId("HR");
+    }
+
+    @Benchmark
+    public String generateHealthRecordId() {
+        return IdGenerator.generateHealthRecordId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateHealthRecordIdContended() {
+        return IdGenerator.generateHealthRecordId();
+    }
+}
@@ -0,0 +1,61 @@
+package com.eldercare.benchmark;
+
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportService Excel导出基准（健康记录、服务申请）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ReportBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int rows;
+
+    private List<HealthRecord> healthRecords;
+    private List<ServiceRequest> serviceRequests;
+    private String healthRecordFile;
+    private String serviceRequestFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path dir = SyntheticData.useTempDataDir();
+        SyntheticData data = new SyntheticData();
+        healthRecords = data.healthRecords(rows, 100);
+        serviceRequests = data.serviceRequests(rows, 100);
+        healthRecordFile = dir.resolve("health_records.xlsx").toString();
+        serviceRequestFile = dir.resolve("service_requests.xlsx").toString();
+    }
+
+    @Benchmark
+    public void exportHealthRecords() throws IOException {
+        ReportService.getInstance().exportHealthRecordsToExcel(healthRecords, healthRecordFile);
+    }
+
+    @Benchmark
+    public void exportServiceRequests() throws IOException {
+        ReportService.getInstance().exportServiceRequestsToExcel(serviceRequests, serviceRequestFile);
+    }
+}
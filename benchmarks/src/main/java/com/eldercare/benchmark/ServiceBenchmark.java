@@ -0,0 +1,87 @@
+package com.eldercare.benchmark;
+
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.service.CommunityService;
+import com.eldercare.service.HealthAlertService;
+import com.eldercare.service.HealthRecordService;
+import com.eldercare.util.DataStorageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务查询基准：按老人查询健康记录、读取全部社区留言、健康预警检查
+ * 每组参数在独立的JVM中运行（业务层单例会缓存数据）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int ELDER_COUNT = 100;
+
+    // 健康记录、社区留言的数据量
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    private HealthRecord normalRecord;
+    private HealthRecord abnormalRecord;
+    private int nextElder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticData.useTempDataDir();
+        SyntheticData data = new SyntheticData();
+        List<HealthRecord> healthRecords = data.healthRecords(records, ELDER_COUNT);
+        List<CommunityMessage> messages = data.communityMessages(records, ELDER_COUNT);
+        DataStorageUtil.saveData("health_records", healthRecords);
+        DataStorageUtil.saveData("community_messages", messages);
+        normalRecord = data.healthRecord(0, SyntheticData.elderId(0), false);
+        abnormalRecord = data.healthRecord(1, SyntheticData.elderId(1), true);
+    }
+
+    /**
+     * 每轮开始前清空预警数据，异常检查会不断追加预警，否则后面几轮读写的文件越来越大
+     */
+    @Setup(Level.Iteration)
+    public void resetAlerts() {
+        DataStorageUtil.deleteData("health_alerts");
+    }
+
+    @Benchmark
+    public List<HealthRecord> getRecordsByElderId() throws IOException, ClassNotFoundException {
+        nextElder = (nextElder + 1) % ELDER_COUNT;
+        return HealthRecordService.getInstance().getRecordsByElderId(SyntheticData.elderId(nextElder));
+    }
+
+    @Benchmark
+    public List<CommunityMessage> getAllMessages() throws IOException, ClassNotFoundException {
+        return CommunityService.getInstance().getAllMessages();
+    }
+
+    @Benchmark
+    public List<String> checkHealthAlertNormal() {
+        return HealthAlertService.getInstance().checkHealthAlert(normalRecord);
+    }
+
+    @Benchmark
+    public List<String> checkHealthAlertAbnormal() {
+        return HealthAlertService.getInstance().checkHealthAlert(abnormalRecord);
+    }
+}
@@ -0,0 +1,54 @@
+package com.eldercare.benchmark;
+
+import com.eldercare.model.HealthRecord;
+import com.eldercare.util.DataStorageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataStorageUtil整表保存、读取基准（健康记录列表，1千~100万条）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StorageBenchmark {
+    private static final String DATA_KEY = "bench_health_records";
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int records;
+
+    private List<HealthRecord> data;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticData.useTempDataDir();
+        data = new SyntheticData().healthRecords(records, 100);
+        DataStorageUtil.saveData(DATA_KEY, data);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        DataStorageUtil.saveData(DATA_KEY, data);
+    }
+
+    @Benchmark
+    public Object load() throws IOException, ClassNotFoundException {
+        return DataStorageUtil.getData(DATA_KEY);
+    }
+}
@@ -0,0 +1,101 @@
+package com.eldercare.benchmark;
+
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.util.DataStorageUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据：固定随机种子，同样的参数每次生成相同的数据，不同版本的结果可以直接对比
+ * 数据写入独立的临时数据目录（系统属性eldercare.data.dir），不影响开发数据
+ */
+public class SyntheticData {
+    private static final long SEED = 20240101L;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final String[] SERVICE_TYPES = {"日常照护", "健康咨询", "康复辅助", "饮食服务", "药品配送", "紧急求助"};
+    private static final String[] STATUSES = {"待处理", "处理中", "已完成", "已取消"};
+
+    private final Random random = new Random(SEED);
+
+    /**
+     * 创建临时数据目录并设为当前数据目录；同时把业务日志级别调为WARN（业务层每次操作都会记录日志，会干扰测量）
+     * 须在业务类首次使用之前调用
+     * @return 临时数据目录
+     */
+    public static Path useTempDataDir() throws IOException {
+        Path dir = Files.createTempDirectory("eldercare-bench");
+        System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, dir.toString());
+        if (System.getProperty("eldercare.log.level") == null) {
+            System.setProperty("eldercare.log.level", "WARN");
+        }
+        return dir;
+    }
+
+    public static String elderId(int index) {
+        return String.format("ELDER_BENCH_%05d", index);
+    }
+
+    /**
+     * 健康记录（平均分布在elderCount位老人上，约一成为异常值）
+     */
+    public List<HealthRecord> healthRecords(int count, int elderCount) {
+        List<HealthRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(healthRecord(i, elderId(i % elderCount), random.nextInt(10) == 0));
+        }
+        return records;
+    }
+
+    /**
+     * 单条健康记录
+     * @param abnormal true-血压、心率超出正常范围（会触发预警）
+     */
+    public HealthRecord healthRecord(int index, String elderId, boolean abnormal) {
+        int systolic = abnormal ? 150 + random.nextInt(30) : 100 + random.nextInt(35);
+        int diastolic = abnormal ? 95 + random.nextInt(15) : 65 + random.nextInt(20);
+        int heartRate = abnormal ? 105 + random.nextInt(30) : 60 + random.nextInt(35);
+        return new HealthRecord(String.format("HR_BENCH_%08d", index), elderId, systolic + "/" + diastolic, heartRate,
+                new Date(BASE_TIME + (long) index * 60_000));
+    }
+
+    /**
+     * 社区留言
+     */
+    public List<CommunityMessage> communityMessages(int count, int elderCount) {
+        List<CommunityMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CommunityMessage message = new CommunityMessage();
+            message.setMessageId(String.format("MSG_BENCH_%08d", i));
+            message.setElderId(elderId(i % elderCount));
+            message.setElderName("老人" + (i % elderCount));
+            message.setContent("今天天气不错，大家一起去花园散步吧。留言编号" + i);
+            message.setMessageType(i % 3 == 0 ? "活动" : "日常");
+            message.setCreateTimeMillis(BASE_TIME + (long) i * 60_000);
+            message.setLikeCount(random.nextInt(20));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * 服务申请
+     */
+    public List<ServiceRequest> serviceRequests(int count, int elderCount) {
+        List<ServiceRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(new ServiceRequest(String.format("SR_BENCH_%08d", i), elderId(i % elderCount),
+                    SERVICE_TYPES[random.nextInt(SERVICE_TYPES.length)], "需要协助，申请编号" + i,
+                    new Date(BASE_TIME + (long) random.nextInt(365) * DAY_MILLIS), STATUSES[random.nextInt(STATUSES.length)]));
+        }
+        return requests;
+    }
+}
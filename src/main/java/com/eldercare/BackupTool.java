@@ -0,0 +1,220 @@
+package com.eldercare;
+
+import com.eldercare.model.Elder;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.util.BackupArchive;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DateFormatUtil;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 备份与恢复工具（备份由服务端或界面程序配置-Deldercare.backup.dir后连续进行，见ContinuousBackup）
+ * 用法：java [-Deldercare.data.dir=数据目录] -cp ... com.eldercare.BackupTool 命令 备份目录 ...
+ * list 备份目录：列出全部备份
+ * backup 备份目录：立即备份数据目录（可在服务运行时执行；单独执行的备份不含修改日志，只能原样恢复）
+ * restore 备份目录 "yyyy-MM-dd HH:mm:ss"|latest 目标目录：把全部数据恢复到该时间点，写入空的目标目录
+ * restore-elder 备份目录 "yyyy-MM-dd HH:mm:ss"|latest 老人ID：把一位老人的数据恢复到该时间点，写回数据目录
+ * 按老人恢复的数据：老人信息、健康记录（含按月的冷数据分段）、健康预警、服务申请、家属关联；其他老人的数据不变，
+ * 正在运行的服务端和界面程序通过数据目录监视自动重新加载
+ */
+public class BackupTool {
+    private static final String USAGE = "用法：java com.eldercare.BackupTool list|backup 备份目录\n"
+            + "      java com.eldercare.BackupTool restore 备份目录 \"yyyy-MM-dd HH:mm:ss\"|latest 目标目录\n"
+            + "      java com.eldercare.BackupTool restore-elder 备份目录 \"yyyy-MM-dd HH:mm:ss\"|latest 老人ID";
+    // 以下数据标识与各Service中的一致
+    private static final String ELDER_DATA_KEY = "elders";
+    private static final String HEALTH_DATA_KEY = "health_records";
+    private static final String ALERT_DATA_KEY = "health_alerts";
+    private static final String SERVICE_DATA_KEY = "service_requests";
+    private static final String RELATION_DATA_KEY = "family_elder_relations";
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if (args.length < 2) {
+            System.out.println(USAGE);
+            return;
+        }
+        BackupArchive archive = new BackupArchive(Paths.get(args[1]));
+        switch (args[0]) {
+            case "list":
+                list(archive);
+                break;
+            case "backup":
+                BackupArchive.Manifest manifest = archive.backup();
+                System.out.println("备份完成：" + manifest.getName() + "，" + manifest.getFileCount() + "个文件");
+                break;
+            case "restore":
+                if (args.length < 4) {
+                    System.out.println(USAGE);
+                    return;
+                }
+                printResult(archive.restore(parseTime(args[2]), Paths.get(args[3])));
+                System.out.println("已恢复到目录：" + Paths.get(args[3]).toAbsolutePath());
+                break;
+            case "restore-elder":
+                if (args.length < 4) {
+                    System.out.println(USAGE);
+                    return;
+                }
+                restoreElder(archive, parseTime(args[2]), args[3].trim());
+                break;
+            default:
+                System.out.println(USAGE);
+        }
+    }
+
+    private static void list(BackupArchive archive) throws IOException {
+        List<BackupArchive.Manifest> manifests = archive.listBackups();
+        if (manifests.isEmpty()) {
+            System.out.println("备份目录中没有备份：" + archive.getDir().toAbsolutePath());
+            return;
+        }
+        for (BackupArchive.Manifest manifest : manifests) {
+            System.out.println(DateFormatUtil.formatDateTime(manifest.getTime()) + "  " + manifest.getName()
+                    + "  文件" + manifest.getFileCount() + "个，" + manifest.getTotalBytes() / 1024 + "KB"
+                    + (manifest.getHistoryId() == 0 ? "（无修改日志）" : "，日志来源" + manifest.getHistoryId() + "，序号" + manifest.getLsn()));
+        }
+    }
+
+    private static void printResult(BackupArchive.RestoreResult result) {
+        System.out.println("起点备份：" + result.getBase().getName() + "，重放修改" + result.getReplayed() + "条，数据时间："
+                + DateFormatUtil.formatDateTime(result.getRestoredTo()));
+    }
+
+    /**
+     * 先把全部数据恢复到临时目录，再用其中该老人的数据替换数据目录中该老人的数据（其他老人的数据不变）
+     */
+    private static void restoreElder(BackupArchive archive, long atMillis, String elderId)
+            throws IOException, ClassNotFoundException {
+        Path staging = Files.createTempDirectory("eldercare-restore-");
+        try {
+            printResult(archive.restore(atMillis, staging));
+            mergeList(staging, ELDER_DATA_KEY, false, item -> elderId.equals(((Elder) item).getElderId()));
+            // 健康记录分为热数据和按月的冷数据分段，逐个合并
+            Predicate<Object> healthRecordOfElder = item -> elderId.equals(((HealthRecord) item).getElderId());
+            mergeList(staging, HEALTH_DATA_KEY, false, healthRecordOfElder);
+            for (String key : healthSegmentKeys(staging)) {
+                mergeList(staging, key, true, healthRecordOfElder);
+            }
+            mergeList(staging, ALERT_DATA_KEY, false, item -> elderId.equals(((Map<?, ?>) item).get("elderId")));
+            mergeList(staging, SERVICE_DATA_KEY, false, item -> elderId.equals(((ServiceRequest) item).getElderId()));
+            mergeRelations(staging, elderId);
+            System.out.println("已恢复老人" + elderId + "的数据到：" + DataStorageUtil.getDataDir().toAbsolutePath());
+        } finally {
+            try (Stream<Path> files = Files.walk(staging)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * 用恢复出的数据中属于该老人的条目替换数据目录中属于该老人的条目
+     * @param compress 数据目录中没有该文件时是否压缩保存（已有文件保持原格式）
+     */
+    private static void mergeList(Path staging, String key, boolean compress, Predicate<Object> belongs)
+            throws IOException, ClassNotFoundException {
+        List<Object> restored = new ArrayList<>();
+        Object data = readRestored(staging, key);
+        if (data != null) {
+            for (Object item : (List<?>) data) {
+                if (belongs.test(item)) {
+                    restored.add(item);
+                }
+            }
+        }
+        if (restored.isEmpty() && !Files.exists(DataStorageUtil.getDataFile(DataStorageUtil.fileNameOf(key)))) {
+            return;
+        }
+        int[] removed = new int[1];
+        DataStorageUtil.updateData(key, compress, current -> {
+            ArrayList<Object> merged = new ArrayList<>();
+            if (current != null) {
+                for (Object item : (List<?>) current) {
+                    if (belongs.test(item)) {
+                        removed[0]++;
+                    } else {
+                        merged.add(item);
+                    }
+                }
+            }
+            merged.addAll(restored);
+            return merged;
+        });
+        System.out.println(key + "：替换" + removed[0] + "条为" + restored.size() + "条");
+    }
+
+    // 家属关联保存为 家属ID -> 老人ID列表
+    @SuppressWarnings("unchecked")
+    private static void mergeRelations(Path staging, String elderId) throws IOException, ClassNotFoundException {
+        Object data = readRestored(staging, RELATION_DATA_KEY);
+        List<String> families = new ArrayList<>();
+        if (data != null) {
+            for (Map.Entry<String, List<String>> entry : ((Map<String, List<String>>) data).entrySet()) {
+                if (entry.getValue() != null && entry.getValue().contains(elderId)) {
+                    families.add(entry.getKey());
+                }
+            }
+        }
+        DataStorageUtil.updateData(RELATION_DATA_KEY, current -> {
+            HashMap<String, List<String>> merged = new HashMap<>();
+            if (current != null) {
+                for (Map.Entry<String, List<String>> entry : ((Map<String, List<String>>) current).entrySet()) {
+                    List<String> elderIds = new ArrayList<>(entry.getValue() == null ? List.of() : entry.getValue());
+                    elderIds.remove(elderId);
+                    merged.put(entry.getKey(), elderIds);
+                }
+            }
+            for (String family : families) {
+                merged.computeIfAbsent(family, k -> new ArrayList<>()).add(elderId);
+            }
+            return merged;
+        });
+        System.out.println(RELATION_DATA_KEY + "：关联家属" + families.size() + "位");
+    }
+
+    // 恢复出的数据和数据目录中的健康记录冷数据分段（数据标识的并集）
+    private static Set<String> healthSegmentKeys(Path staging) throws IOException {
+        String prefix = HEALTH_DATA_KEY + ".";
+        Set<String> keys = new TreeSet<>(DataStorageUtil.listKeys(prefix));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(staging, prefix + "*" + DataStorageUtil.DATA_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                keys.add(fileName.substring(0, fileName.length() - DataStorageUtil.DATA_FILE_SUFFIX.length()));
+            }
+        }
+        return keys;
+    }
+
+    private static Object readRestored(Path staging, String key) throws IOException, ClassNotFoundException {
+        return DataStorageUtil.readDataFile(staging.resolve(DataStorageUtil.fileNameOf(key)));
+    }
+
+    private static long parseTime(String text) {
+        if ("latest".equalsIgnoreCase(text.trim())) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return LocalDateTime.parse(text.trim(), DateFormatUtil.getFormatter("yyyy-MM-dd HH:mm:ss"))
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式应为 yyyy-MM-dd HH:mm:ss 或 latest：" + text, e);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.eldercare;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.Elder;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.model.User;
+import com.eldercare.service.ActivityService;
+import com.eldercare.service.CommunityService;
+import com.eldercare.service.DispatchService;
+import com.eldercare.service.ElderService;
+import com.eldercare.service.HealthAlertService;
+import com.eldercare.service.HealthRecordService;
+import com.eldercare.service.RelationService;
+import com.eldercare.service.ServiceRequestService;
+import com.eldercare.service.UserService;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DeferredSaver;
+import com.eldercare.util.PasswordHasher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 测试数据生成程序
+ * 功能：通过业务层生成接近生产规模的数据（老人、账号、家属关联、多年的健康记录、服务申请、活动、社区留言），用于复现大数据量下的性能问题
+ * 固定随机种子，同样的参数每次生成相同结构的数据；数据写入指定的空目录，不影响开发数据
+ *
+ * 用法：
+ *   java -cp ... com.eldercare.DataGenerator <数据目录> [老人数=200] [健康记录年数=2] [随机种子=20240101]
+ *   生成后的账号密码统一为 Test@1234（老人elder_00001、家属family_00001、护工care_00001，管理员admin）
+ *   之后用 -Deldercare.data.dir=<数据目录> 启动系统或压测程序（com.eldercare.LoadDriver）
+ */
+public class DataGenerator {
+    public static final String PASSWORD = "Test@1234";
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // 健康记录按批导入，避免单次保存的列表过大
+    private static final int HEALTH_BATCH_SIZE = 50_000;
+    // 最近多少天的健康记录参与预警检查（更早的视为已处理的历史数据）
+    private static final int ALERT_DAYS = 14;
+
+    private static final String[] SURNAMES = {"王", "李", "张", "刘", "陈", "杨", "赵", "黄", "周", "吴", "徐", "孙", "马", "朱", "胡", "郭"};
+    private static final String[] GIVEN_NAMES = {"秀英", "桂英", "建国", "淑珍", "玉兰", "志强", "国华", "凤英", "德明", "素芳", "海林", "文华", "长生", "春梅", "福生", "兰芝"};
+    private static final String[] HEALTH_STATUSES = {"良好", "高血压", "糖尿病", "冠心病", "关节炎", "轻度认知障碍", "术后康复", "行动不便"};
+    private static final String[] SERVICE_TYPES = {"日常照护", "健康咨询", "康复辅助", "饮食服务", "药品配送", "紧急求助"};
+    private static final String[] SERVICE_CONTENTS = {"行动不便，需要护工协助洗澡和更衣", "想咨询近期血压偏高的问题，是否需要调整用药",
+            "术后需要康复训练指导，每周两次", "这几天腿脚不便，申请送餐到房间", "常用药快吃完了，请帮忙到药房配药", "身体不适有些头晕，请尽快来房间看看"};
+    private static final String[] ACTIVITY_NAMES = {"太极拳晨练", "书法兴趣班", "健康讲座", "手工编织", "合唱团排练", "棋牌友谊赛", "园艺种植", "生日会"};
+    private static final String[] LOCATIONS = {"活动室A", "活动室B", "多功能厅", "花园", "阅览室"};
+    private static final String[] MESSAGES = {"今天天气不错，大家一起去花园散步吧", "书法班的作品展什么时候开始？", "感谢护工小李的细心照顾",
+            "谁有兴趣周末一起下象棋？", "今天的午饭很好吃", "提醒大家注意保暖，最近降温了"};
+
+    private final Random random;
+    private final int elderCount;
+    private final int years;
+    private final PrintStream console;
+
+    private final List<String> elderIds = new ArrayList<>();
+    private final List<String> caregiverIds = new ArrayList<>();
+    private int familyCount;
+    private int healthRecordCount;
+    private int alertRecordCount;
+    private int requestCount;
+    private int activityCount;
+    private int registrationCount;
+    private int messageCount;
+
+    public DataGenerator(int elderCount, int years, long seed, PrintStream console) {
+        this.elderCount = elderCount;
+        this.years = years;
+        this.random = new Random(seed);
+        this.console = console;
+    }
+
+    /**
+     * 主方法
+     * @param args 数据目录 [老人数] [健康记录年数] [随机种子]
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("用法：java -cp ... com.eldercare.DataGenerator <数据目录> [老人数=200] [健康记录年数=2] [随机种子=20240101]");
+            System.exit(1);
+        }
+        PrintStream console = System.out;
+        try {
+            Path dataDir = Paths.get(args[0]).toAbsolutePath();
+            int elderCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+            int years = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 20240101L;
+            if (elderCount < 1 || years < 1) {
+                throw new IllegalArgumentException("老人数和年数必须大于0");
+            }
+            if (Files.isDirectory(dataDir)) {
+                try (Stream<Path> files = Files.list(dataDir)) {
+                    if (files.anyMatch(file -> file.getFileName().toString().endsWith(".ser"))) {
+                        throw new IllegalArgumentException("数据目录中已有数据文件，请指定空目录：" + dataDir);
+                    }
+                }
+            }
+            // 必须在任何业务类读取数据之前设置
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, dataDir.toString());
+
+            // 业务层每次操作都会记录日志，生成大量数据时只保留警告（须在任何业务类初始化日志之前设置）
+            if (System.getProperty("eldercare.log.level") == null) {
+                System.setProperty("eldercare.log.level", "WARN");
+            }
+
+            console.println("[DataGenerator] 生成数据到：" + dataDir + "（老人" + elderCount + "位，健康记录" + years + "年，种子" + seed + "）");
+            long start = System.currentTimeMillis();
+            DataGenerator generator = new DataGenerator(elderCount, years, seed, console);
+            generator.generate();
+            console.println(generator.summary());
+            console.printf("[DataGenerator] 完成，用时%.1f秒%n", (System.currentTimeMillis() - start) / 1000.0);
+            System.exit(0);
+        } catch (Exception e) {
+            console.println("[DataGenerator] 生成失败：" + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 按依赖顺序生成全部数据
+     */
+    public void generate() throws IOException, ClassNotFoundException {
+        long now = System.currentTimeMillis();
+        // 所有账号使用同一个密码，只计算一次哈希（PBKDF2每次计算需要约100毫秒）
+        String passwordHash = PasswordHasher.hash(PASSWORD);
+
+        generateAccountsAndElders(passwordHash);
+        progress("账号与老人");
+        generateRelations(passwordHash);
+        progress("家属关联");
+        generateHealthRecords(now);
+        progress("健康记录");
+        generateServiceRequests(now);
+        progress("服务申请");
+        generateActivities(now);
+        progress("活动");
+        generateMessages(now);
+        progress("社区留言");
+
+        DeferredSaver.flushAll();
+    }
+
+    /**
+     * 管理员、护工账号（每10位老人配1名护工）、老人账号与老人档案
+     */
+    private void generateAccountsAndElders(String passwordHash) throws IOException, ClassNotFoundException {
+        UserService userService = UserService.getInstance();
+        ElderService elderService = ElderService.getInstance();
+        userService.addUser(new User("admin", passwordHash, "admin"));
+        for (int i = 1; i <= Math.max(1, elderCount / 10); i++) {
+            String caregiverId = String.format("care_%05d", i);
+            userService.addUser(new User(caregiverId, passwordHash, "caregiver"));
+            caregiverIds.add(caregiverId);
+        }
+        for (int i = 1; i <= elderCount; i++) {
+            String userId = String.format("elder_%05d", i);
+            userService.addUser(new User(userId, passwordHash, "elder"));
+            Elder elder = new Elder(null, userId, randomName(), 60 + random.nextInt(41),
+                    "13" + String.format("%09d", random.nextInt(1_000_000_000)), pick(HEALTH_STATUSES));
+            elderService.addElder(elder);
+            elderIds.add(elder.getElderId());
+        }
+    }
+
+    /**
+     * 家属账号与关联：每位老人1-2名家属，约三成家属同时关联两位老人（如夫妻）
+     */
+    private void generateRelations(String passwordHash) throws IOException, ClassNotFoundException {
+        UserService userService = UserService.getInstance();
+        RelationService relationService = RelationService.getInstance();
+        for (int i = 0; i < elderIds.size(); i++) {
+            int families = 1 + random.nextInt(2);
+            for (int j = 0; j < families; j++) {
+                String familyId = String.format("family_%05d", ++familyCount);
+                userService.addUser(new User(familyId, passwordHash, "family"));
+                relationService.addRelation(familyId, elderIds.get(i));
+                if (random.nextInt(10) < 3) {
+                    relationService.addRelation(familyId, elderIds.get(random.nextInt(elderIds.size())));
+                }
+            }
+        }
+    }
+
+    /**
+     * 健康记录：每位老人每天一次测量（约一成的天数漏测），部分老人血压长期偏高；
+     * 最近ALERT_DAYS天的记录按录入流程做预警检查
+     */
+    private void generateHealthRecords(long now) throws IOException, ClassNotFoundException {
+        HealthRecordService recordService = HealthRecordService.getInstance();
+        HealthAlertService alertService = HealthAlertService.getInstance();
+        int days = years * 365;
+        long today = now - now % DAY_MILLIS;
+        List<HealthRecord> batch = new ArrayList<>(HEALTH_BATCH_SIZE);
+        List<HealthRecord> recent = new ArrayList<>();
+        for (String elderId : elderIds) {
+            boolean hypertensive = random.nextInt(4) == 0;
+            int baseSystolic = hypertensive ? 138 : 112 + random.nextInt(15);
+            int baseHeartRate = 66 + random.nextInt(14);
+            for (int day = days; day >= 1; day--) {
+                if (random.nextInt(10) == 0) {
+                    continue;
+                }
+                int systolic = clamp(baseSystolic + (int) (random.nextGaussian() * 8), 85, 200);
+                int diastolic = clamp(systolic * 2 / 3 + (int) (random.nextGaussian() * 5), 55, 120);
+                int heartRate = clamp(baseHeartRate + (int) (random.nextGaussian() * 9), 50, 150);
+                // 早上6点到9点之间测量
+                long time = today - day * DAY_MILLIS + 6 * 3_600_000L + random.nextInt(3 * 3_600_000);
+                HealthRecord record = new HealthRecord(null, elderId, systolic + "/" + diastolic, heartRate, new Date(time));
+                batch.add(record);
+                if (day <= ALERT_DAYS) {
+                    recent.add(record);
+                }
+                if (batch.size() >= HEALTH_BATCH_SIZE) {
+                    healthRecordCount += recordService.addHealthRecords(batch);
+                    batch = new ArrayList<>(HEALTH_BATCH_SIZE);
+                }
+            }
+        }
+        healthRecordCount += recordService.addHealthRecords(batch);
+        for (HealthRecord record : recent) {
+            if (!alertService.checkHealthAlert(record).isEmpty()) {
+                alertRecordCount++;
+            }
+        }
+    }
+
+    /**
+     * 服务申请：每位老人平均每月约1次；7天前的申请已由护工处理完成（少量取消），最近的申请处于待处理或处理中
+     */
+    private void generateServiceRequests(long now) throws IOException, ClassNotFoundException {
+        ServiceRequestService requestService = ServiceRequestService.getInstance();
+        DispatchService dispatchService = DispatchService.getInstance();
+        int days = years * 365;
+        for (String elderId : elderIds) {
+            int count = Math.max(1, (int) (days / 30.0 * (0.5 + random.nextDouble())));
+            for (int i = 0; i < count; i++) {
+                int daysAgo = random.nextInt(days);
+                int typeIndex = random.nextInt(SERVICE_TYPES.length);
+                ServiceRequest request = new ServiceRequest(null, elderId, SERVICE_TYPES[typeIndex], SERVICE_CONTENTS[typeIndex],
+                        new Date(now - daysAgo * DAY_MILLIS - random.nextInt((int) DAY_MILLIS)), ServiceStatus.PENDING.getLabel());
+                requestService.submitRequest(request);
+                requestCount++;
+                String requestId = request.getRequestId();
+                if (daysAgo >= 7) {
+                    if (random.nextInt(20) == 0) {
+                        requestService.updateRequestStatus(requestId, ServiceStatus.CANCELLED.getLabel());
+                    } else {
+                        String caregiverId = pick(caregiverIds);
+                        dispatchService.claim(requestId, caregiverId);
+                        dispatchService.start(requestId, caregiverId);
+                        requestService.updateRequestStatus(requestId, ServiceStatus.COMPLETED.getLabel());
+                    }
+                } else if (random.nextBoolean()) {
+                    String caregiverId = pick(caregiverIds);
+                    dispatchService.claim(requestId, caregiverId);
+                    dispatchService.start(requestId, caregiverId);
+                }
+            }
+        }
+        for (String caregiverId : caregiverIds) {
+            dispatchService.endShift(caregiverId);
+        }
+    }
+
+    /**
+     * 活动：覆盖过去的年份和未来4周，每周约5场；报名人数为老人总数的5%-20%（超过名额进入候补）
+     */
+    private void generateActivities(long now) throws IOException, ClassNotFoundException {
+        ActivityService activityService = ActivityService.getInstance();
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+        int pastWeeks = years * 52;
+        for (int week = -pastWeeks; week < 4; week++) {
+            for (int i = 0; i < 5; i++) {
+                long day = now + (week * 7L + random.nextInt(7)) * DAY_MILLIS;
+                int hour = 8 + random.nextInt(9);
+                String time = dayFormat.format(new Date(day)) + String.format(" %02d:00-%02d:30", hour, hour + 1);
+                Activity activity = new Activity(null, pick(ACTIVITY_NAMES), time, pick(LOCATIONS), "社区组织的集体活动", null);
+                activity.setCapacity(10 + random.nextInt(31));
+                activityService.createActivity(activity);
+                activityCount++;
+
+                int registrations = Math.max(1, elderIds.size() * (5 + random.nextInt(16)) / 100);
+                for (int j = 0; j < registrations; j++) {
+                    ActivityService.RegistrationResult result = activityService.register(activity.getActivityId(), pick(elderIds));
+                    if (result == ActivityService.RegistrationResult.REGISTERED || result == ActivityService.RegistrationResult.WAITLISTED) {
+                        registrationCount++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 社区留言：每位老人0-5条，分布在最近90天
+     */
+    private void generateMessages(long now) throws IOException, ClassNotFoundException {
+        CommunityService communityService = CommunityService.getInstance();
+        ElderService elderService = ElderService.getInstance();
+        for (Elder elder : elderService.queryElders(null)) {
+            int count = random.nextInt(6);
+            for (int i = 0; i < count; i++) {
+                CommunityMessage message = new CommunityMessage();
+                message.setElderId(elder.getElderId());
+                message.setElderName(elder.getName());
+                message.setContent(pick(MESSAGES));
+                message.setMessageType(random.nextInt(3) == 0 ? "活动" : "日常");
+                message.setCreateTimeMillis(now - (long) random.nextInt(90 * 24) * 3_600_000L);
+                message.setLikeCount(random.nextInt(20));
+                communityService.postMessage(message);
+                messageCount++;
+            }
+        }
+    }
+
+    /**
+     * 生成结果统计
+     */
+    public String summary() {
+        return "[DataGenerator] 护工" + caregiverIds.size() + "名，老人" + elderIds.size() + "位，家属" + familyCount + "名，"
+                + "健康记录" + healthRecordCount + "条（预警" + alertRecordCount + "条），服务申请" + requestCount + "条，"
+                + "活动" + activityCount + "场（报名" + registrationCount + "人次），社区留言" + messageCount + "条";
+    }
+
+    private void progress(String step) {
+        console.println("[DataGenerator] 已生成：" + step);
+    }
+
+    private String randomName() {
+        return pick(SURNAMES) + pick(GIVEN_NAMES);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String pick(List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
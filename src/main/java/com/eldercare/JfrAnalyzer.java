@@ -0,0 +1,297 @@
+package com.eldercare;
+
+import com.eldercare.util.JfrEvents;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JFR录制文件分析工具：汇总界面刷新、业务方法、数据读写的耗时热点，以及CPU采样热点、锁竞争和GC停顿
+ * 对耗时较长的界面刷新，拆分出其中数据读写、业务方法（最外层）和界面自身各占多少时间
+ * 用法：java -cp ... com.eldercare.JfrAnalyzer <录制文件.jfr> [每项显示条数，默认10] [慢刷新阈值毫秒，默认100]
+ * 录制配置见resources/jfr/eldercare.jfc
+ */
+public class JfrAnalyzer {
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String GC_PAUSE = "jdk.GCPhasePause";
+    private static final String APP_PACKAGE = "com.eldercare.";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("用法：java com.eldercare.JfrAnalyzer <录制文件.jfr> [每项显示条数] [慢刷新阈值毫秒]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long slowMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        new JfrAnalyzer().analyze(file, top, slowMillis);
+    }
+
+    // 按名称汇总的耗时统计
+    private final Map<String, Stat> uiStats = new HashMap<>();
+    private final Map<String, Stat> serviceStats = new HashMap<>();
+    private final Map<String, Stat> storageStats = new HashMap<>();
+    private final Map<String, Stat> monitorStats = new HashMap<>();
+    // 方法 -> 采样次数（自身：栈顶方法；业务：栈中最内层的本系统方法；界面线程：界面线程的栈顶方法）
+    private final Map<String, Integer> selfSamples = new HashMap<>();
+    private final Map<String, Integer> appSamples = new HashMap<>();
+    private final Map<String, Integer> edtSamples = new HashMap<>();
+    private final List<RecordedEvent> uiEvents = new ArrayList<>();
+    // 线程ID -> 该线程的业务方法/数据读写事件（用于拆分慢刷新）
+    private final Map<Long, List<RecordedEvent>> nestedByThread = new HashMap<>();
+    private int executionSampleCount;
+    private Duration gcPause = Duration.ZERO;
+    private int gcPauseCount;
+    private Instant firstEvent;
+    private Instant lastEvent;
+
+    public void analyze(Path file, int top, long slowMillis) throws IOException {
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                accept(recording.readEvent());
+            }
+        }
+
+        System.out.println("录制文件：" + file);
+        if (firstEvent != null) {
+            System.out.println("时间范围：" + firstEvent + " ~ " + lastEvent
+                    + "（" + Duration.between(firstEvent, lastEvent).toMillis() + " ms）");
+        }
+
+        printStats("界面刷新（按总耗时）", uiStats, top);
+        printStats("业务方法（按总耗时，嵌套调用会重复计入外层）", serviceStats, top);
+        printStats("数据读写（按总耗时）", storageStats, top);
+        printSlowRefreshes(slowMillis, top);
+        printSamples("CPU热点：栈顶方法（共" + executionSampleCount + "次采样）", selfSamples, top);
+        printSamples("CPU热点：本系统方法（栈中最内层的com.eldercare方法）", appSamples, top);
+        printSamples("界面线程热点（含表格绘制）", edtSamples, top);
+        printStats("锁竞争（按等待总时间）", monitorStats, top);
+        System.out.println();
+        System.out.println("GC停顿：" + gcPauseCount + "次，共" + formatMillis(gcPause) + " ms");
+    }
+
+    private void accept(RecordedEvent event) {
+        Instant start = event.getStartTime();
+        Instant end = event.getEndTime();
+        if (firstEvent == null || start.isBefore(firstEvent)) {
+            firstEvent = start;
+        }
+        if (lastEvent == null || end.isAfter(lastEvent)) {
+            lastEvent = end;
+        }
+
+        switch (event.getEventType().getName()) {
+            case JfrEvents.UI_REFRESH_EVENT:
+                stat(uiStats, event.getString("frame") + "." + event.getString("method")).add(event.getDuration(), 0);
+                uiEvents.add(event);
+                break;
+            case JfrEvents.SERVICE_CALL_EVENT:
+                stat(serviceStats, event.getString("service") + "." + event.getString("method")).add(event.getDuration(), 0);
+                addNested(event);
+                break;
+            case JfrEvents.STORAGE_EVENT:
+                stat(storageStats, event.getString("key") + " " + event.getString("operation"))
+                        .add(event.getDuration(), event.getLong("bytes"));
+                addNested(event);
+                break;
+            case EXECUTION_SAMPLE:
+                acceptSample(event);
+                break;
+            case MONITOR_ENTER:
+                stat(monitorStats, event.getClass("monitorClass") == null ? "未知" : event.getClass("monitorClass").getName())
+                        .add(event.getDuration(), 0);
+                break;
+            case GC_PAUSE:
+                gcPause = gcPause.plus(event.getDuration());
+                gcPauseCount++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addNested(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        if (thread != null) {
+            nestedByThread.computeIfAbsent(thread.getJavaThreadId(), k -> new ArrayList<>()).add(event);
+        }
+    }
+
+    private void acceptSample(RecordedEvent event) {
+        executionSampleCount++;
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String topMethod = methodName(frames.get(0));
+        selfSamples.merge(topMethod, 1, Integer::sum);
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                appSamples.merge(methodName(frame), 1, Integer::sum);
+                break;
+            }
+        }
+        RecordedThread thread = event.getThread("sampledThread");
+        if (thread != null && thread.getJavaName() != null && thread.getJavaName().startsWith("AWT-EventQueue")) {
+            edtSamples.merge(topMethod, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 慢刷新拆分：同一线程、时间落在刷新区间内的数据读写和最外层业务方法各占多少，剩余为界面自身（表格模型、组件更新等）
+     */
+    private void printSlowRefreshes(long slowMillis, int top) {
+        List<RecordedEvent> slow = new ArrayList<>();
+        for (RecordedEvent event : uiEvents) {
+            if (event.getDuration().toMillis() >= slowMillis) {
+                slow.add(event);
+            }
+        }
+        System.out.println();
+        System.out.println("==== 慢界面刷新（>= " + slowMillis + " ms，共" + slow.size() + "次） ====");
+        slow.sort(Comparator.comparing((RecordedEvent event) -> event.getDuration()).reversed());
+        for (RecordedEvent ui : slow.subList(0, Math.min(top, slow.size()))) {
+            List<RecordedEvent> nested = new ArrayList<>();
+            RecordedThread thread = ui.getThread();
+            List<RecordedEvent> candidates = thread == null ? Collections.emptyList()
+                    : nestedByThread.getOrDefault(thread.getJavaThreadId(), Collections.emptyList());
+            for (RecordedEvent event : candidates) {
+                if (!event.getStartTime().isBefore(ui.getStartTime()) && !event.getEndTime().isAfter(ui.getEndTime())) {
+                    nested.add(event);
+                }
+            }
+            nested.sort(Comparator.comparing((RecordedEvent event) -> event.getStartTime()));
+
+            Duration storage = Duration.ZERO;
+            Duration outerService = Duration.ZERO;
+            int serviceCalls = 0;
+            Instant outerEnd = Instant.MIN;
+            Map<String, Integer> callCounts = new HashMap<>();
+            List<Instant[]> covered = new ArrayList<>();
+            for (RecordedEvent event : nested) {
+                if (JfrEvents.STORAGE_EVENT.equals(event.getEventType().getName())) {
+                    storage = storage.plus(event.getDuration());
+                    covered.add(new Instant[]{event.getStartTime(), event.getEndTime()});
+                } else {
+                    serviceCalls++;
+                    callCounts.merge(event.getString("service") + "." + event.getString("method"), 1, Integer::sum);
+                    if (!event.getStartTime().isBefore(outerEnd)) {
+                        outerService = outerService.plus(event.getDuration());
+                        outerEnd = event.getEndTime();
+                        covered.add(new Instant[]{event.getStartTime(), event.getEndTime()});
+                    }
+                }
+            }
+            Duration self = ui.getDuration().minus(union(covered));
+
+            System.out.println(String.format("%s.%s  %s ms（%s）",
+                    ui.getString("frame"), ui.getString("method"), formatMillis(ui.getDuration()),
+                    ui.getBoolean("eventDispatchThread") ? "界面线程" : "后台线程"));
+            System.out.println(String.format("    数据读写 %s ms，业务方法 %s ms（共%d次调用），界面自身 %s ms",
+                    formatMillis(storage), formatMillis(outerService), serviceCalls, formatMillis(self)));
+            callCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(3)
+                    .forEach(entry -> System.out.println("    调用最多：" + entry.getKey() + " × " + entry.getValue()));
+        }
+    }
+
+    // 区间并集总长度
+    private static Duration union(List<Instant[]> intervals) {
+        intervals.sort(Comparator.comparing(interval -> interval[0]));
+        Duration total = Duration.ZERO;
+        Instant currentStart = null;
+        Instant currentEnd = null;
+        for (Instant[] interval : intervals) {
+            if (currentEnd == null || interval[0].isAfter(currentEnd)) {
+                if (currentEnd != null) {
+                    total = total.plus(Duration.between(currentStart, currentEnd));
+                }
+                currentStart = interval[0];
+                currentEnd = interval[1];
+            } else if (interval[1].isAfter(currentEnd)) {
+                currentEnd = interval[1];
+            }
+        }
+        if (currentEnd != null) {
+            total = total.plus(Duration.between(currentStart, currentEnd));
+        }
+        return total;
+    }
+
+    private static void printStats(String title, Map<String, Stat> stats, int top) {
+        System.out.println();
+        System.out.println("==== " + title + " ====");
+        if (stats.isEmpty()) {
+            System.out.println("  （无事件）");
+            return;
+        }
+        System.out.println(String.format("  %-50s %8s %12s %10s %10s %12s", "名称", "次数", "总耗时ms", "平均ms", "最大ms", "字节数"));
+        stats.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, Stat> entry) -> entry.getValue().total).reversed())
+                .limit(top)
+                .forEach(entry -> {
+                    Stat stat = entry.getValue();
+                    System.out.println(String.format("  %-50s %8d %12s %10s %10s %12d", entry.getKey(), stat.count,
+                            formatMillis(stat.total), formatMillis(stat.total.dividedBy(stat.count)),
+                            formatMillis(stat.max), stat.bytes));
+                });
+    }
+
+    private static void printSamples(String title, Map<String, Integer> samples, int top) {
+        System.out.println();
+        System.out.println("==== " + title + " ====");
+        if (samples.isEmpty()) {
+            System.out.println("  （无采样）");
+            return;
+        }
+        samples.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(top)
+                .forEach(entry -> System.out.println(String.format("  %6d  %s", entry.getValue(), entry.getKey())));
+    }
+
+    private static Stat stat(Map<String, Stat> stats, String name) {
+        return stats.computeIfAbsent(name, k -> new Stat());
+    }
+
+    private static String methodName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private static String formatMillis(Duration duration) {
+        return String.format("%.2f", duration.toNanos() / 1_000_000.0);
+    }
+
+    private static final class Stat {
+        private int count;
+        private Duration total = Duration.ZERO;
+        private Duration max = Duration.ZERO;
+        private long bytes;
+
+        private void add(Duration duration, long eventBytes) {
+            count++;
+            total = total.plus(duration);
+            if (duration.compareTo(max) > 0) {
+                max = duration;
+            }
+            bytes += eventBytes;
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.eldercare;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.Elder;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.model.User;
+import com.eldercare.service.ActivityService;
+import com.eldercare.service.CommunityService;
+import com.eldercare.service.DispatchService;
+import com.eldercare.service.ElderService;
+import com.eldercare.service.HealthAlertService;
+import com.eldercare.service.HealthRecordService;
+import com.eldercare.service.RelationService;
+import com.eldercare.service.ServiceRequestService;
+import com.eldercare.service.UserService;
+import com.eldercare.service.WorkLogService;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DeferredSaver;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 并发压测程序（无界面）
+ * 功能：模拟多名老人、护工、家属同时按日常流程操作系统，统计每种操作的吞吐量和p50/p99/p999延迟
+ * 每个模拟用户一个线程，先登录，然后按权重随机执行本角色的操作（闭环：上一个操作完成才开始下一个）；预热阶段的操作不计入统计
+ *
+ * 用法（数据目录一般由com.eldercare.DataGenerator生成）：
+ *   java -cp ... com.eldercare.LoadDriver <数据目录> [持续秒数=60] [老人数=20] [护工数=5] [家属数=10] [预热秒数=10]
+ *   -Dload.thinkMillis=0   每次操作之间的思考时间（毫秒，默认0即满负荷）
+ *   -Dload.seed=42         随机种子
+ *   -Dload.quiet=false     保留业务层INFO日志（默认只输出警告，避免日志输出影响测量）
+ * 压测会修改数据目录中的数据，需要重复压测时请复制一份生成的数据目录
+ */
+public class LoadDriver {
+    private static final int THINK_MILLIS = Integer.getInteger("load.thinkMillis", 0);
+    private static final long SEED = Long.getLong("load.seed", 42L);
+    private static final String[] SERVICE_TYPES = {"日常照护", "健康咨询", "康复辅助", "饮食服务", "药品配送"};
+
+    // 统计区间（System.nanoTime），区间外开始的操作不计入
+    private final long measureFrom;
+    private final long stopAt;
+
+    // 模拟用户可操作的数据（启动前一次性读取）
+    private final List<Elder> elders;
+    private final List<String> caregiverIds;
+    private final Map<String, List<String>> eldersByFamily;
+    private final List<String> activityIds;
+
+    private LoadDriver(long measureFrom, long stopAt, List<Elder> elders, List<String> caregiverIds,
+                       Map<String, List<String>> eldersByFamily, List<String> activityIds) {
+        this.measureFrom = measureFrom;
+        this.stopAt = stopAt;
+        this.elders = elders;
+        this.caregiverIds = caregiverIds;
+        this.eldersByFamily = eldersByFamily;
+        this.activityIds = activityIds;
+    }
+
+    /**
+     * 主方法
+     * @param args 数据目录 [持续秒数] [老人数] [护工数] [家属数] [预热秒数]
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("用法：java -cp ... com.eldercare.LoadDriver <数据目录> [持续秒数=60] [老人数=20] [护工数=5] [家属数=10] [预热秒数=10]");
+            System.exit(1);
+        }
+        PrintStream console = System.out;
+        try {
+            Path dataDir = Paths.get(args[0]).toAbsolutePath();
+            int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+            int elderUsers = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+            int caregiverUsers = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+            int familyUsers = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+            int warmupSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+            if (!Files.isDirectory(dataDir)) {
+                throw new IllegalArgumentException("数据目录不存在：" + dataDir);
+            }
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, dataDir.toString());
+            if (Boolean.parseBoolean(System.getProperty("load.quiet", "true")) && System.getProperty("eldercare.log.level") == null) {
+                System.setProperty("eldercare.log.level", "WARN");
+            }
+
+            console.println("[LoadDriver] 读取数据：" + dataDir);
+            List<Elder> elders = ElderService.getInstance().queryElders(null);
+            List<String> caregiverIds = new ArrayList<>();
+            Map<String, List<String>> eldersByFamily = new HashMap<>();
+            for (User user : UserService.getInstance().getAllUsers()) {
+                if ("caregiver".equals(user.getRole())) {
+                    caregiverIds.add(user.getUserId());
+                } else if ("family".equals(user.getRole())) {
+                    List<String> elderIds = RelationService.getInstance().getElderIdsByFamily(user.getUserId());
+                    if (!elderIds.isEmpty()) {
+                        eldersByFamily.put(user.getUserId(), elderIds);
+                    }
+                }
+            }
+            List<String> activityIds = new ArrayList<>();
+            for (Activity activity : ActivityService.getInstance().getUpcomingActivities(28)) {
+                activityIds.add(activity.getActivityId());
+            }
+            checkUsers("老人", elderUsers, elders.size());
+            checkUsers("护工", caregiverUsers, caregiverIds.size());
+            checkUsers("家属", familyUsers, eldersByFamily.size());
+
+            long now = System.nanoTime();
+            LoadDriver driver = new LoadDriver(now + warmupSeconds * 1_000_000_000L,
+                    now + (warmupSeconds + seconds) * 1_000_000_000L, elders, caregiverIds, eldersByFamily, activityIds);
+            console.println("[LoadDriver] 开始压测：老人" + elderUsers + "、护工" + caregiverUsers + "、家属" + familyUsers
+                    + "，预热" + warmupSeconds + "秒，统计" + seconds + "秒，思考时间" + THINK_MILLIS + "ms");
+            Map<String, OperationStats> results = driver.run(elderUsers, caregiverUsers, familyUsers);
+            DeferredSaver.flushAll();
+            printReport(console, results, seconds);
+            System.exit(0);
+        } catch (Exception e) {
+            console.println("[LoadDriver] 压测失败：" + e.getMessage());
+            e.printStackTrace(console);
+            System.exit(1);
+        }
+    }
+
+    private static void checkUsers(String role, int requested, int available) {
+        if (requested > 0 && available == 0) {
+            throw new IllegalArgumentException("数据目录中没有可用的" + role + "账号，请先用DataGenerator生成数据");
+        }
+    }
+
+    /**
+     * 启动全部模拟用户，等待结束后合并各线程的统计
+     */
+    private Map<String, OperationStats> run(int elderUsers, int caregiverUsers, int familyUsers) throws InterruptedException {
+        List<VirtualUser> users = new ArrayList<>();
+        Random random = new Random(SEED);
+        List<Elder> shuffledElders = new ArrayList<>(elders);
+        Collections.shuffle(shuffledElders, random);
+        List<String> families = new ArrayList<>(eldersByFamily.keySet());
+        Collections.sort(families);
+        Collections.shuffle(families, random);
+        for (int i = 0; i < elderUsers; i++) {
+            users.add(new ElderUser(shuffledElders.get(i % shuffledElders.size()), random.nextLong()));
+        }
+        for (int i = 0; i < caregiverUsers; i++) {
+            users.add(new CaregiverUser(caregiverIds.get(i % caregiverIds.size()), random.nextLong()));
+        }
+        for (int i = 0; i < familyUsers; i++) {
+            users.add(new FamilyUser(families.get(i % families.size()), random.nextLong()));
+        }
+
+        CountDownLatch done = new CountDownLatch(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            VirtualUser user = users.get(i);
+            Thread thread = new Thread(() -> {
+                try {
+                    user.run();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + user.getClass().getSimpleName() + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        Map<String, OperationStats> merged = new TreeMap<>();
+        for (VirtualUser user : users) {
+            user.stats.forEach((name, stats) -> merged.computeIfAbsent(name, k -> new OperationStats()).merge(stats));
+        }
+        return merged;
+    }
+
+    /**
+     * 输出统计结果（延迟单位：毫秒）
+     */
+    private static void printReport(PrintStream out, Map<String, OperationStats> results, int seconds) {
+        out.println();
+        out.println(String.format("  %-36s %8s %6s %10s %9s %9s %9s %9s %9s",
+                "操作", "次数", "失败", "吞吐/秒", "平均", "p50", "p99", "p999", "最大"));
+        OperationStats total = new OperationStats();
+        for (Map.Entry<String, OperationStats> entry : results.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue(), seconds);
+            total.merge(entry.getValue());
+        }
+        printRow(out, "（合计）", total, seconds);
+        for (Map.Entry<String, OperationStats> entry : results.entrySet()) {
+            if (entry.getValue().firstError != null) {
+                out.println("  " + entry.getKey() + " 失败示例：" + entry.getValue().firstError);
+            }
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, OperationStats stats, int seconds) {
+        LatencyHistogram latency = stats.latency;
+        out.println(String.format("  %-36s %8d %6d %10.1f %9s %9s %9s %9s %9s", name, latency.getCount(), stats.errors,
+                latency.getCount() / (double) seconds, millis(latency.getMean()), millis(latency.percentile(50)),
+                millis(latency.percentile(99)), millis(latency.percentile(99.9)), millis(latency.getMax())));
+    }
+
+    private static String millis(double micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    /**
+     * 单个操作的统计（每个模拟用户各自一份，结束后合并，记录时无需加锁）
+     */
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long errors;
+        String firstError;
+
+        void merge(OperationStats other) {
+            latency.merge(other.latency);
+            errors += other.errors;
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * 模拟用户：登录后循环执行本角色的操作直到压测结束
+     */
+    private abstract class VirtualUser implements Runnable {
+        final Map<String, OperationStats> stats = new HashMap<>();
+        final Random random;
+        final String userId;
+
+        VirtualUser(String userId, long seed) {
+            this.userId = userId;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public void run() {
+            timed("login", () -> UserService.getInstance().login(userId, DataGenerator.PASSWORD));
+            while (System.nanoTime() < stopAt) {
+                step();
+                if (THINK_MILLIS > 0) {
+                    try {
+                        Thread.sleep(THINK_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按权重随机执行一个操作
+         */
+        abstract void step();
+
+        /**
+         * 执行并记录一次操作（失败也记录耗时）
+         */
+        void timed(String name, Operation operation) {
+            long start = System.nanoTime();
+            String error = null;
+            try {
+                operation.run();
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            long end = System.nanoTime();
+            if (start < measureFrom || start >= stopAt) {
+                return;
+            }
+            OperationStats operationStats = stats.computeIfAbsent(name, k -> new OperationStats());
+            operationStats.latency.record((end - start) / 1000);
+            if (error != null) {
+                operationStats.errors++;
+                if (operationStats.firstError == null) {
+                    operationStats.firstError = error;
+                }
+            }
+        }
+
+        /**
+         * 按权重选择操作序号
+         */
+        int choose(int... weights) {
+            int total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            int value = random.nextInt(total);
+            for (int i = 0; i < weights.length; i++) {
+                value -= weights[i];
+                if (value < 0) {
+                    return i;
+                }
+            }
+            return weights.length - 1;
+        }
+
+        String randomElderId() {
+            return elders.get(random.nextInt(elders.size())).getElderId();
+        }
+    }
+
+    /**
+     * 老人：看活动、报名、提交服务申请、查看申请进度和健康记录、浏览和发布社区留言
+     */
+    private class ElderUser extends VirtualUser {
+        private final Elder elder;
+
+        ElderUser(Elder elder, long seed) {
+            super(elder.getUserId(), seed);
+            this.elder = elder;
+        }
+
+        @Override
+        void step() {
+            String elderId = elder.getElderId();
+            switch (choose(20, 10, 5, 5, 15, 15, 20, 5)) {
+                case 0:
+                    timed("elder.viewWeekActivities", () -> ActivityService.getInstance().getActivitiesForElderThisWeek(elderId));
+                    break;
+                case 1:
+                    timed("elder.viewUpcomingActivities", () -> ActivityService.getInstance().getUpcomingActivities());
+                    break;
+                case 2:
+                    if (!activityIds.isEmpty()) {
+                        String activityId = activityIds.get(random.nextInt(activityIds.size()));
+                        timed("elder.registerActivity", () -> ActivityService.getInstance().register(activityId, elderId));
+                    }
+                    break;
+                case 3:
+                    timed("elder.submitRequest", () -> {
+                        String serviceType = SERVICE_TYPES[random.nextInt(SERVICE_TYPES.length)];
+                        ServiceRequestService.getInstance().submitRequest(new ServiceRequest(null, elderId, serviceType,
+                                "压测提交的服务申请，类型：" + serviceType, new Date(), ServiceStatus.PENDING.getLabel()));
+                    });
+                    break;
+                case 4:
+                    timed("elder.viewRequests", () -> ServiceRequestService.getInstance().getRequestsByElderId(elderId));
+                    break;
+                case 5:
+                    timed("elder.viewHealthRecords", () -> HealthRecordService.getInstance().getRecentRecordsByElderId(elderId));
+                    break;
+                case 6:
+                    timed("elder.viewMessages", () -> CommunityService.getInstance().getAllMessages());
+                    break;
+                default:
+                    timed("elder.postMessage", () -> {
+                        CommunityMessage message = new CommunityMessage();
+                        message.setElderId(elderId);
+                        message.setElderName(elder.getName());
+                        message.setContent("压测留言");
+                        message.setMessageType("日常");
+                        CommunityService.getInstance().postMessage(message);
+                    });
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 护工：接单并处理服务申请、录入健康数据、查看老人列表和未处理预警、查看工作队列、写工作日志
+     */
+    private class CaregiverUser extends VirtualUser {
+        CaregiverUser(String caregiverId, long seed) {
+            super(caregiverId, seed);
+        }
+
+        @Override
+        public void run() {
+            timed("caregiver.startShift", () -> DispatchService.getInstance().startShift(userId));
+            super.run();
+        }
+
+        @Override
+        void step() {
+            switch (choose(25, 20, 15, 15, 15, 5)) {
+                case 0:
+                    ServiceRequest[] claimed = new ServiceRequest[1];
+                    timed("caregiver.claimNext", () -> claimed[0] = DispatchService.getInstance().claimNext(userId));
+                    if (claimed[0] != null) {
+                        String requestId = claimed[0].getRequestId();
+                        timed("caregiver.completeRequest", () -> {
+                            DispatchService.getInstance().start(requestId, userId);
+                            ServiceRequestService.getInstance().updateRequestStatus(requestId, ServiceStatus.COMPLETED.getLabel());
+                        });
+                    }
+                    break;
+                case 1:
+                    timed("caregiver.recordVitals", () -> {
+                        // 约一成的测量值异常，会触发预警和家属通知
+                        boolean abnormal = random.nextInt(10) == 0;
+                        int systolic = abnormal ? 150 + random.nextInt(30) : 105 + random.nextInt(30);
+                        int diastolic = abnormal ? 95 + random.nextInt(15) : 65 + random.nextInt(20);
+                        int heartRate = abnormal ? 105 + random.nextInt(30) : 60 + random.nextInt(35);
+                        HealthRecordService.getInstance().addHealthRecord(
+                                new HealthRecord(null, randomElderId(), systolic + "/" + diastolic, heartRate, new Date()));
+                    });
+                    break;
+                case 2:
+                    timed("caregiver.viewElders", () -> ElderService.getInstance().queryElders(null));
+                    break;
+                case 3:
+                    timed("caregiver.viewPendingAlerts", () -> HealthAlertService.getInstance().getAlertsByStatus("未处理"));
+                    break;
+                case 4:
+                    timed("caregiver.viewQueue", () -> DispatchService.getInstance().getQueue(userId));
+                    break;
+                default:
+                    timed("caregiver.saveWorkLog", () -> WorkLogService.getInstance().saveLog(userId, LocalDate.now().toString(),
+                            "压测工作日志 " + System.currentTimeMillis()));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 家属：查看关联老人、健康记录、预警（并确认未处理的预警）、服务申请和活动安排
+     */
+    private class FamilyUser extends VirtualUser {
+        private final List<String> elderIds;
+
+        FamilyUser(String familyUserId, long seed) {
+            super(familyUserId, seed);
+            this.elderIds = eldersByFamily.get(familyUserId);
+        }
+
+        @Override
+        void step() {
+            String elderId = elderIds.get(random.nextInt(elderIds.size()));
+            switch (choose(20, 25, 20, 15, 10)) {
+                case 0:
+                    timed("family.viewElders", () -> RelationService.getInstance().getEldersByFamily(userId));
+                    break;
+                case 1:
+                    timed("family.viewHealthRecords", () -> HealthRecordService.getInstance().getRecentRecordsByElderId(elderId));
+                    break;
+                case 2:
+                    List<Map<String, Object>> alerts = new ArrayList<>();
+                    timed("family.viewAlerts", () -> alerts.addAll(HealthAlertService.getInstance().getAlertsByElderId(elderId)));
+                    for (Map<String, Object> alert : alerts) {
+                        if ("未处理".equals(alert.get("status"))) {
+                            String alertId = (String) alert.get("alertId");
+                            timed("family.acknowledgeAlert", () -> HealthAlertService.getInstance().acknowledgeAlert(alertId));
+                            break;
+                        }
+                    }
+                    break;
+                case 3:
+                    timed("family.viewRequests", () -> ServiceRequestService.getInstance().getRequestsByElderId(elderId));
+                    break;
+                default:
+                    timed("family.viewActivities", () -> ActivityService.getInstance().getActivitiesForElderThisWeek(elderId));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 延迟直方图（微秒）：对数-线性分桶，每个2的幂区间再均分32格，相对误差约3%，
+     * 记录和合并都是O(1)，长时间压测也不需要保存每个样本
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+        private long count;
+        private long sum;
+        private long max;
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts[indexOf(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        void merge(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        /**
+         * 百分位延迟（取所在分桶的中点，不超过实际最大值）
+         * @param percent 百分位，如99.9
+         */
+        long percentile(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, valueOf(i));
+                }
+            }
+            return max;
+        }
+
+        private static int indexOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+        }
+
+        private static long valueOf(int index) {
+            if (index < SUB_COUNT) {
+                return index;
+            }
+            int shift = index / SUB_COUNT - 1;
+            long lower = (long) (index % SUB_COUNT + SUB_COUNT) << shift;
+            return lower + ((1L << shift) >> 1);
+        }
+    }
+}
@@ -1,12 +1,45 @@
 // src/main/java/com/eldercare/MainApp.java
 package com.eldercare;
 
+import com.eldercare.client.RemoteServices;
+import com.eldercare.server.ReplicationPrimary;
+import com.eldercare.service.ReminderService;
 import com.eldercare.ui.LoginFrame;
+import com.eldercare.util.ContinuousBackup;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import java.io.IOException;
 
 public class Main {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
+
     public static void main(String[] args) {
+        // 配置了服务端地址（-Deldercare.server.url）时作为远程客户端运行，定时提醒由服务端负责
+        if (!RemoteServices.installFromSystemProperty()) {
+            // 后台启动定时提醒（恢复持久化的提醒，不阻塞界面启动；多个实例共用数据目录时只有一个实例执行提醒）
+            Thread reminderStarter = new Thread(() -> ReminderService.getInstance().start(), "eldercare-reminder-start");
+            reminderStarter.setDaemon(true);
+            reminderStarter.start();
+            // 监视数据目录，多台电脑共用数据目录时能看到其他实例的修改
+            StorageWatcher.start();
+            // 配置了复制端口（-Deldercare.replication.port）时作为主库向备库推送数据修改
+            try {
+                ReplicationPrimary.startFromSystemProperty();
+            } catch (IOException e) {
+                LOGGER.error("数据复制启动失败", e);
+            }
+            // 配置了备份目录（-Deldercare.backup.dir）时做在线增量备份并归档数据修改
+            try {
+                ContinuousBackup.startFromSystemProperty();
+            } catch (IOException e) {
+                LOGGER.error("连续备份启动失败", e);
+            }
+        }
+
         // 使用SwingUtilities确保线程安全
         SwingUtilities.invokeLater(() -> {
             try {
@@ -16,9 +49,9 @@ public class Main {
                 // 显示登录窗口
                 new LoginFrame().setVisible(true);
 
-                System.out.println("养老院管理系统启动成功");
+                LOGGER.info("养老院管理系统启动成功");
             } catch (Exception e) {
-                e.printStackTrace();
+                LOGGER.error("养老院管理系统启动失败", e);
                 JOptionPane.showMessageDialog(null,
                         "系统启动失败: " + e.getMessage(),
                         "错误",
@@ -0,0 +1,447 @@
+package com.eldercare.client;
+
+import com.eldercare.server.ElderCareServer;
+import com.eldercare.server.InvalidationLog;
+import com.eldercare.server.JsonCodec;
+import com.eldercare.util.MetricsRegistry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 远程业务调用客户端
+ * 功能：把业务方法调用发送到服务端（ElderCareServer）执行；查询结果缓存在本地，
+ * 后台线程长轮询服务端的数据变更并使受影响的缓存过期；多个调用可合并为一次往返（batch）
+ * 服务端暂时连不上时，查询返回已过期的缓存结果（降级为可能不是最新的数据），无缓存的查询和写操作抛出IOException
+ */
+public class RemoteClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteClient.class);
+    private static final MetricsRegistry.Timer CALL_TIMER = MetricsRegistry.timer("remote.call");
+    private static final MetricsRegistry.CacheStats REMOTE_CACHE = MetricsRegistry.cache("remote");
+    private static final MetricsRegistry.Counter FALLBACK_COUNTER = MetricsRegistry.counter("remote.staleFallbacks");
+    private static final int MAX_CACHE_ENTRIES = 2000;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    private static final long POLL_WAIT_MILLIS = 25_000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final URI baseUri;
+    private final HttpClient http;
+    private volatile String sessionToken;
+    private volatile boolean online = true;
+    private volatile boolean closed;
+    // 调用键 -> 缓存结果（按访问顺序淘汰），由自身锁保护
+    private final Map<String, CacheEntry> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+    // 缓存失效次数：查询期间发生过失效的结果不放入缓存，避免把旧数据当成最新
+    private final AtomicLong invalidations = new AtomicLong();
+    private Thread invalidationListener;
+
+    /**
+     * 一次业务方法调用（用于批量调用）
+     */
+    public static final class Call {
+        private final String service;
+        private final String method;
+        private final Type resultType;
+        private final Object[] args;
+
+        public Call(String service, String method, Type resultType, Object... args) {
+            this.service = service;
+            this.method = method;
+            this.resultType = resultType;
+            this.args = args;
+        }
+
+        private String cacheKey() {
+            return service + "." + method + JsonCodec.GSON.toJson(args);
+        }
+    }
+
+    /**
+     * 服务端返回的业务错误（区别于连接失败）
+     */
+    public static class RemoteServiceException extends IOException {
+        private final int status;
+
+        public RemoteServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static final class CacheEntry {
+        final JsonElement value;
+        final List<String> stores;
+        volatile boolean stale;
+
+        CacheEntry(JsonElement value, List<String> stores) {
+            this.value = value;
+            this.stores = stores;
+        }
+    }
+
+    /**
+     * @param serverUrl 服务端地址，如 http://192.168.1.10:8088
+     */
+    public RemoteClient(String serverUrl) {
+        this.baseUri = URI.create(serverUrl.endsWith("/") ? serverUrl : serverUrl + "/");
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * 最近一次与服务端通信是否成功
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * 调用业务方法（不缓存）；写方法成功后本地立即使相关缓存过期，随后的查询能读到自己的修改
+     * @param resultType 返回值类型（void方法传Void.class）
+     */
+    public <T> T call(String service, String method, Type resultType, Object... args) throws IOException {
+        JsonElement result = invoke(service, method, args);
+        if (!InvalidationLog.isQuery(method)) {
+            invalidate(List.of(InvalidationLog.storesOf(service).get(0)));
+        }
+        return JsonCodec.GSON.fromJson(result, resultType);
+    }
+
+    /**
+     * 调用查询方法，结果缓存到服务端通知数据变更为止；连不上服务端时返回已过期的缓存结果
+     */
+    public <T> T query(String service, String method, Type resultType, Object... args) throws IOException {
+        Call call = new Call(service, method, resultType, args);
+        String key = call.cacheKey();
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry != null && !entry.stale) {
+            REMOTE_CACHE.hit();
+            return JsonCodec.GSON.fromJson(entry.value, resultType);
+        }
+        REMOTE_CACHE.miss();
+        long generation = invalidations.get();
+        JsonElement result;
+        try {
+            result = invoke(service, method, args);
+        } catch (RemoteServiceException e) {
+            throw e;
+        } catch (IOException e) {
+            if (entry == null) {
+                throw e;
+            }
+            FALLBACK_COUNTER.increment();
+            LOGGER.debug("服务端不可用，使用缓存结果：{}.{}", service, method);
+            return JsonCodec.GSON.fromJson(entry.value, resultType);
+        }
+        store(key, service, result, generation);
+        return JsonCodec.GSON.fromJson(result, resultType);
+    }
+
+    /**
+     * 批量调用：缓存中没有的查询和全部写调用合并为一次往返，按顺序执行
+     * @return 各调用的结果，与calls顺序一致
+     * @throws IOException 任一调用失败时抛出第一个错误
+     */
+    public List<Object> batch(List<Call> calls) throws IOException {
+        Object[] results = new Object[calls.size()];
+        List<Integer> pending = new ArrayList<>();
+        JsonArray body = new JsonArray();
+        List<CacheEntry> staleEntries = new ArrayList<>();
+        synchronized (cache) {
+            for (int i = 0; i < calls.size(); i++) {
+                Call call = calls.get(i);
+                CacheEntry entry = InvalidationLog.isQuery(call.method) ? cache.get(call.cacheKey()) : null;
+                if (entry != null && !entry.stale) {
+                    REMOTE_CACHE.hit();
+                    results[i] = JsonCodec.GSON.fromJson(entry.value, call.resultType);
+                    continue;
+                }
+                pending.add(i);
+                staleEntries.add(entry);
+                JsonObject json = new JsonObject();
+                json.addProperty("service", call.service);
+                json.addProperty("method", call.method);
+                json.add("args", JsonCodec.GSON.toJsonTree(call.args));
+                body.add(json);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        long generation = invalidations.get();
+        JsonArray responses;
+        try {
+            responses = post("api/batch", body).getAsJsonObject().getAsJsonArray("results");
+        } catch (RemoteServiceException e) {
+            throw e;
+        } catch (IOException e) {
+            // 连不上服务端：全部是有缓存的查询时降级返回缓存结果
+            if (staleEntries.contains(null)) {
+                throw e;
+            }
+            FALLBACK_COUNTER.increment();
+            for (int i = 0; i < pending.size(); i++) {
+                results[pending.get(i)] = JsonCodec.GSON.fromJson(staleEntries.get(i).value, calls.get(pending.get(i)).resultType);
+            }
+            return Arrays.asList(results);
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            Call call = calls.get(pending.get(i));
+            JsonElement result = unwrap(responses.get(i).getAsJsonObject());
+            if (InvalidationLog.isQuery(call.method)) {
+                store(call.cacheKey(), call.service, result, generation);
+            } else {
+                invalidate(List.of(InvalidationLog.storesOf(call.service).get(0)));
+            }
+            results[pending.get(i)] = JsonCodec.GSON.fromJson(result, call.resultType);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 调用业务方法，返回原始JSON结果
+     */
+    public JsonElement invoke(String service, String method, Object... args) throws IOException {
+        return unwrap(post("api/" + service + "/" + method, JsonCodec.GSON.toJsonTree(args)).getAsJsonObject());
+    }
+
+    /**
+     * 使依赖指定数据的缓存过期（过期结果保留，供连不上服务端时降级使用）
+     * @param stores 存储key，包含InvalidationLog.ALL时全部过期
+     */
+    public void invalidate(Collection<String> stores) {
+        invalidations.incrementAndGet();
+        boolean all = stores.contains(InvalidationLog.ALL);
+        synchronized (cache) {
+            for (CacheEntry entry : cache.values()) {
+                if (all || entry.stores.contains(InvalidationLog.ALL) || containsAny(entry.stores, stores)) {
+                    entry.stale = true;
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        invalidate(List.of(InvalidationLog.ALL));
+    }
+
+    /**
+     * 启动后台线程监听服务端数据变更
+     */
+    public synchronized void startInvalidationListener() {
+        if (invalidationListener != null) {
+            return;
+        }
+        invalidationListener = new Thread(this::pollChanges, "eldercare-remote-invalidation");
+        invalidationListener.setDaemon(true);
+        invalidationListener.start();
+    }
+
+    public void close() {
+        closed = true;
+        Thread listener = invalidationListener;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * 长轮询数据变更；连接中断期间无法得知哪些数据变了，恢复后全部缓存过期
+     */
+    private void pollChanges() {
+        long since = 0;
+        long retryMillis = 1000;
+        boolean connected = true;
+        while (!closed) {
+            try {
+                if (sessionToken == null) {
+                    Thread.sleep(1000);
+                    continue;
+                }
+                HttpRequest request = newRequest("api/changes?since=" + since + "&wait=" + POLL_WAIT_MILLIS)
+                        .timeout(REQUEST_TIMEOUT.plusMillis(POLL_WAIT_MILLIS))
+                        .GET()
+                        .build();
+                JsonObject changes = send(request).getAsJsonObject();
+                since = changes.get("sequence").getAsLong();
+                if (changes.get("reset").getAsBoolean() || !connected) {
+                    invalidateAll();
+                } else {
+                    List<String> stores = new ArrayList<>();
+                    changes.getAsJsonArray("stores").forEach(store -> stores.add(store.getAsString()));
+                    if (!stores.isEmpty()) {
+                        invalidate(stores);
+                    }
+                }
+                if (!connected) {
+                    LOGGER.info("已恢复与服务端的连接：{}", baseUri);
+                }
+                connected = true;
+                retryMillis = 1000;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (connected) {
+                    LOGGER.warn("监听服务端数据变更失败，{}毫秒后重试：{}", retryMillis, e.getMessage());
+                    invalidateAll();
+                }
+                connected = false;
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private void store(String key, String service, JsonElement result, long generation) {
+        synchronized (cache) {
+            // 查询期间有数据变更时不缓存（结果可能是变更前的）
+            if (invalidations.get() == generation) {
+                cache.put(key, new CacheEntry(result, InvalidationLog.storesOf(service)));
+            } else {
+                cache.remove(key);
+            }
+        }
+    }
+
+    private JsonElement post(String path, JsonElement body) throws IOException {
+        long start = CALL_TIMER.start();
+        try {
+            HttpRequest request = newRequest(path)
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json; charset=utf-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(JsonCodec.GSON.toJson(body), StandardCharsets.UTF_8))
+                    .build();
+            return send(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("远程调用被中断", e);
+        } finally {
+            CALL_TIMER.stop(start);
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Accept-Encoding", "gzip");
+        String token = sessionToken;
+        if (token != null) {
+            builder.header(ElderCareServer.SESSION_HEADER, token);
+        }
+        return builder;
+    }
+
+    private JsonElement send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            online = false;
+            String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            throw new IOException("无法连接服务器（" + baseUri + "）：" + reason, e);
+        }
+        online = true;
+        String text;
+        InputStream in = response.body();
+        if ("gzip".equalsIgnoreCase(response.headers().firstValue("Content-Encoding").orElse(""))) {
+            in = new GZIPInputStream(in);
+        }
+        try (InputStream body = in) {
+            text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        JsonElement json = JsonParser.parseString(text);
+        if (response.statusCode() != 200) {
+            throwError(json.getAsJsonObject());
+        }
+        return json;
+    }
+
+    /**
+     * 单次调用的响应：成功返回result，失败时抛出对应异常
+     */
+    private static JsonElement unwrap(JsonObject response) throws IOException {
+        if (response.has("error")) {
+            throwError(response);
+        }
+        return response.get("result");
+    }
+
+    /**
+     * 按状态码转换服务端错误：参数、业务规则错误与本地调用时一致，抛IllegalArgumentException/IllegalStateException，
+     * 界面无需区分本地还是远程
+     */
+    private static void throwError(JsonObject error) throws IOException {
+        int status = error.has("status") ? error.get("status").getAsInt() : 500;
+        String message = error.get("error").getAsString();
+        String type = error.has("type") ? error.get("type").getAsString() : "";
+        if (status == 400 && "IllegalStateException".equals(type)) {
+            throw new IllegalStateException(message);
+        }
+        if (status == 400) {
+            throw new IllegalArgumentException(message);
+        }
+        if (status == 401 || status == 403) {
+            throw new IllegalStateException(message);
+        }
+        throw new RemoteServiceException(status, message);
+    }
+
+    private static boolean containsAny(List<String> entryStores, Collection<String> changed) {
+        for (String store : changed) {
+            if (entryStores.contains(store)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,745 @@
+package com.eldercare.client;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.Elder;
+import com.eldercare.model.HealthRecord;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.User;
+import com.eldercare.server.JsonCodec;
+import com.eldercare.service.ActivityService;
+import com.eldercare.service.CommunityService;
+import com.eldercare.service.DispatchService;
+import com.eldercare.service.ElderService;
+import com.eldercare.service.HealthRecordService;
+import com.eldercare.service.RelationService;
+import com.eldercare.service.ServiceRequestService;
+import com.eldercare.service.StatisticsService;
+import com.eldercare.service.SyncService;
+import com.eldercare.service.UserService;
+import com.eldercare.service.WorkLogService;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 远程客户端模式
+ * 功能：把各业务类的getInstance替换为远程代理，界面代码不变即可连接服务端（ElderCareServer）使用；
+ * 代理把方法调用转发给服务端，查询结果由RemoteClient缓存，服务端数据变更时自动过期
+ * 启动：java -Deldercare.server.url=http://服务端地址:8088 ... com.eldercare.Main
+ * 说明：家属通知监听（RelationService.addFamilyListener）在远程模式下只在本机生效，收不到服务端的通知；
+ *       报表导出（ReportService）仍在本机执行
+ */
+public final class RemoteServices {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteServices.class);
+
+    private static final Type ELDER_LIST = new TypeToken<List<Elder>>() {}.getType();
+    private static final Type USER_LIST = new TypeToken<List<User>>() {}.getType();
+    private static final Type RECORD_LIST = new TypeToken<List<HealthRecord>>() {}.getType();
+    private static final Type REQUEST_LIST = new TypeToken<List<ServiceRequest>>() {}.getType();
+    private static final Type ACTIVITY_LIST = new TypeToken<List<Activity>>() {}.getType();
+    private static final Type MESSAGE_LIST = new TypeToken<List<CommunityMessage>>() {}.getType();
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {}.getType();
+    private static final Type COUNT_MAP = new TypeToken<Map<String, Integer>>() {}.getType();
+    private static final Type LOG_MAP = new TypeToken<SortedMap<String, String>>() {}.getType();
+    private static final Type CALENDAR = new TypeToken<SortedMap<LocalDate, List<Activity>>>() {}.getType();
+    private static final Type FILL_LIST = new TypeToken<List<StatisticsService.ActivityFill>>() {}.getType();
+    private static final Type VERSION_MAP = new TypeToken<Map<String, Long>>() {}.getType();
+    // 增量同步各类数据的实体类型
+    private static final Map<String, Type> STORE_TYPES = Map.of(
+            ChangeEvent.USERS, User.class,
+            ChangeEvent.ELDERS, Elder.class,
+            ChangeEvent.HEALTH_RECORDS, HealthRecord.class,
+            ChangeEvent.SERVICE_REQUESTS, ServiceRequest.class,
+            ChangeEvent.ACTIVITIES, Activity.class,
+            ChangeEvent.COMMUNITY_MESSAGES, CommunityMessage.class,
+            ChangeEvent.RELATIONS, STRING_LIST,
+            ChangeEvent.HEALTH_ALERTS, new TypeToken<Map<String, Object>>() {}.getType());
+
+    private static volatile RemoteClient client;
+
+    private RemoteServices() {}
+
+    /**
+     * 系统属性eldercare.server.url配置了服务端地址时切换到远程模式
+     * @return 是否已切换到远程模式
+     */
+    public static boolean installFromSystemProperty() {
+        String serverUrl = System.getProperty("eldercare.server.url");
+        if (serverUrl == null || serverUrl.trim().isEmpty()) {
+            return false;
+        }
+        install(serverUrl.trim());
+        return true;
+    }
+
+    /**
+     * 切换到远程模式：之后各业务类的getInstance返回远程代理
+     * @param serverUrl 服务端地址，如 http://192.168.1.10:8088
+     */
+    public static synchronized void install(String serverUrl) {
+        if (client != null) {
+            return;
+        }
+        RemoteClient remote = new RemoteClient(serverUrl);
+        UserService.useRemoteProxy(new RemoteUserService(remote));
+        ElderService.useRemoteProxy(new RemoteElderService(remote));
+        HealthRecordService.useRemoteProxy(new RemoteHealthRecordService(remote));
+        ServiceRequestService.useRemoteProxy(new RemoteServiceRequestService(remote));
+        DispatchService.useRemoteProxy(new RemoteDispatchService(remote));
+        ActivityService.useRemoteProxy(new RemoteActivityService(remote));
+        CommunityService.useRemoteProxy(new RemoteCommunityService(remote));
+        RelationService.useRemoteProxy(new RemoteRelationService(remote));
+        WorkLogService.useRemoteProxy(new RemoteWorkLogService(remote));
+        StatisticsService.useRemoteProxy(new RemoteStatisticsService(remote));
+        SyncService.useRemoteProxy(new RemoteSyncService(remote));
+        remote.startInvalidationListener();
+        client = remote;
+        LOGGER.info("远程客户端模式，服务端：{}", serverUrl);
+    }
+
+    public static boolean isRemote() {
+        return client != null;
+    }
+
+    /**
+     * 远程客户端（未切换到远程模式时为null）
+     */
+    public static RemoteClient getClient() {
+        return client;
+    }
+
+    static class RemoteUserService extends UserService {
+        private final RemoteClient client;
+
+        RemoteUserService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public User login(String userId, String password) throws IOException {
+            JsonElement result = client.invoke("UserService", "login", userId, password);
+            if (result == null || result.isJsonNull()) {
+                return null;
+            }
+            // 会话令牌不随User序列化，单独取出；之后的调用都带上该令牌
+            JsonObject json = result.getAsJsonObject();
+            User user = JsonCodec.GSON.fromJson(json, User.class);
+            String token = json.get("sessionToken").getAsString();
+            user.setSessionToken(token);
+            client.setSessionToken(token);
+            client.invalidateAll();
+            return user;
+        }
+
+        @Override
+        public void logout(String sessionToken) {
+            try {
+                client.call("UserService", "logout", Void.class, sessionToken);
+            } catch (IOException e) {
+                LOGGER.warn("远程退出登录失败：{}", e.getMessage());
+            }
+            if (sessionToken != null && sessionToken.equals(client.getSessionToken())) {
+                client.setSessionToken(null);
+            }
+        }
+
+        @Override
+        public User getSessionUser(String sessionToken) {
+            try {
+                return client.call("UserService", "getSessionUser", User.class, sessionToken);
+            } catch (IOException e) {
+                LOGGER.warn("远程校验会话失败：{}", e.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        public void addUser(User user) throws IOException {
+            client.call("UserService", "addUser", Void.class, user);
+        }
+
+        @Override
+        public List<User> getAllUsers() throws IOException {
+            return client.query("UserService", "getAllUsers", USER_LIST);
+        }
+
+        @Override
+        public void registerUser(String userId, String password, String role) throws IOException {
+            client.call("UserService", "registerUser", Void.class, userId, password, role);
+        }
+
+        @Override
+        public boolean verifyPassword(String userId, String password) throws IOException {
+            return client.call("UserService", "verifyPassword", boolean.class, userId, password);
+        }
+
+        @Override
+        public void changePassword(String sessionToken, String oldPassword, String newPassword) throws IOException {
+            client.call("UserService", "changePassword", Void.class, sessionToken, oldPassword, newPassword);
+        }
+
+        @Override
+        public void updateUserPassword(String userId, String newPassword) throws IOException {
+            client.call("UserService", "updateUserPassword", Void.class, userId, newPassword);
+        }
+
+        @Override
+        public void updateUserRole(String userId, String newRole) throws IOException {
+            client.call("UserService", "updateUserRole", Void.class, userId, newRole);
+        }
+
+        @Override
+        public User getUserById(String userId) throws IOException {
+            return client.query("UserService", "getUserById", User.class, userId);
+        }
+
+        @Override
+        public void deleteUser(String userId) throws IOException {
+            client.call("UserService", "deleteUser", Void.class, userId);
+        }
+    }
+
+    static class RemoteElderService extends ElderService {
+        private final RemoteClient client;
+
+        RemoteElderService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void addElder(Elder elder) throws IOException {
+            client.call("ElderService", "addElder", Void.class, elder);
+        }
+
+        @Override
+        public List<Elder> queryElders(String nameKeyword) throws IOException {
+            return client.query("ElderService", "queryElders", ELDER_LIST, nameKeyword);
+        }
+
+        @Override
+        public Elder getElderById(String elderId) throws IOException {
+            return client.query("ElderService", "getElderById", Elder.class, elderId);
+        }
+
+        /**
+         * 逐个老人查询，命中缓存的直接返回，其余合并为一次往返；各老人的结果分别缓存，之后单独查询也能命中
+         */
+        @Override
+        public List<Elder> getEldersByIds(Collection<String> elderIds) throws IOException {
+            List<RemoteClient.Call> calls = new ArrayList<>();
+            if (elderIds != null) {
+                for (String elderId : elderIds) {
+                    calls.add(new RemoteClient.Call("ElderService", "getElderById", Elder.class, elderId));
+                }
+            }
+            List<Elder> elders = new ArrayList<>();
+            for (Object elder : client.batch(calls)) {
+                if (elder != null) {
+                    elders.add((Elder) elder);
+                }
+            }
+            return elders;
+        }
+
+        @Override
+        public Elder getElderByUserId(String userId) throws IOException {
+            return client.query("ElderService", "getElderByUserId", Elder.class, userId);
+        }
+
+        @Override
+        public boolean deleteElder(String elderId) throws IOException {
+            return client.call("ElderService", "deleteElder", boolean.class, elderId);
+        }
+
+        @Override
+        public void updateElder(Elder elder) throws IOException {
+            client.call("ElderService", "updateElder", Void.class, elder);
+        }
+    }
+
+    static class RemoteHealthRecordService extends HealthRecordService {
+        private final RemoteClient client;
+
+        RemoteHealthRecordService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void addHealthRecord(HealthRecord record) throws IOException {
+            client.call("HealthRecordService", "addHealthRecord", Void.class, record);
+        }
+
+        @Override
+        public int addHealthRecords(List<HealthRecord> records) throws IOException {
+            return client.call("HealthRecordService", "addHealthRecords", int.class, records);
+        }
+
+        @Override
+        public List<HealthRecord> getRecordsByElderId(String elderId) throws IOException {
+            return client.query("HealthRecordService", "getRecordsByElderId", RECORD_LIST, elderId);
+        }
+
+        @Override
+        public List<HealthRecord> getRecordsByElderId(String elderId, long fromMillis, long toMillis) throws IOException {
+            return client.query("HealthRecordService", "getRecordsByElderId", RECORD_LIST, elderId, fromMillis, toMillis);
+        }
+
+        @Override
+        public List<HealthRecord> getRecentRecordsByElderId(String elderId) throws IOException {
+            return client.query("HealthRecordService", "getRecentRecordsByElderId", RECORD_LIST, elderId);
+        }
+    }
+
+    static class RemoteServiceRequestService extends ServiceRequestService {
+        private final RemoteClient client;
+
+        RemoteServiceRequestService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void submitRequest(ServiceRequest request) throws IOException {
+            client.call("ServiceRequestService", "submitRequest", Void.class, request);
+        }
+
+        @Override
+        public boolean updateRequestStatus(String requestId, String newStatus) throws IOException {
+            return client.call("ServiceRequestService", "updateRequestStatus", boolean.class, requestId, newStatus);
+        }
+
+        @Override
+        public List<ServiceRequest> getRequestsByElderId(String elderId) throws IOException {
+            return client.query("ServiceRequestService", "getRequestsByElderId", REQUEST_LIST, elderId);
+        }
+
+        /**
+         * 各老人的申请按单个老人查询缓存，未命中的合并为一次往返
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, List<ServiceRequest>> getRequestsByElderIds(Collection<String> elderIds) throws IOException {
+            Map<String, List<ServiceRequest>> result = new LinkedHashMap<>();
+            if (elderIds == null || elderIds.isEmpty()) {
+                return result;
+            }
+            List<String> ids = new ArrayList<>(elderIds);
+            List<RemoteClient.Call> calls = new ArrayList<>();
+            for (String elderId : ids) {
+                calls.add(new RemoteClient.Call("ServiceRequestService", "getRequestsByElderId", REQUEST_LIST, elderId));
+            }
+            List<Object> requests = client.batch(calls);
+            for (int i = 0; i < ids.size(); i++) {
+                result.put(ids.get(i).trim(), (List<ServiceRequest>) requests.get(i));
+            }
+            return result;
+        }
+
+        @Override
+        public ServiceRequest getRequestById(String requestId) throws IOException {
+            return client.query("ServiceRequestService", "getRequestById", ServiceRequest.class, requestId);
+        }
+
+        @Override
+        public List<ServiceRequest> getRequestsByStatus(String status) throws IOException {
+            return client.query("ServiceRequestService", "getRequestsByStatus", REQUEST_LIST, status);
+        }
+
+        @Override
+        public int getStatusCount(String status) throws IOException {
+            return client.query("ServiceRequestService", "getStatusCount", int.class, status);
+        }
+
+        @Override
+        public Map<String, Integer> getStatusCounts() throws IOException {
+            return client.query("ServiceRequestService", "getStatusCounts", COUNT_MAP);
+        }
+    }
+
+    static class RemoteDispatchService extends DispatchService {
+        private final RemoteClient client;
+
+        RemoteDispatchService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void startShift(String caregiverId) throws IOException {
+            client.call("DispatchService", "startShift", Void.class, caregiverId);
+        }
+
+        @Override
+        public int endShift(String caregiverId) throws IOException {
+            return client.call("DispatchService", "endShift", int.class, caregiverId);
+        }
+
+        @Override
+        public boolean isOnShift(String caregiverId) {
+            try {
+                return client.call("DispatchService", "isOnShift", boolean.class, caregiverId);
+            } catch (IOException e) {
+                LOGGER.warn("远程查询护工在班状态失败：{}", e.getMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public List<String> getOnShiftCaregivers() {
+            try {
+                return client.call("DispatchService", "getOnShiftCaregivers", STRING_LIST);
+            } catch (IOException e) {
+                LOGGER.warn("远程查询在班护工失败：{}", e.getMessage());
+                return new ArrayList<>();
+            }
+        }
+
+        @Override
+        public ServiceRequest claimNext(String caregiverId) throws IOException {
+            return client.call("DispatchService", "claimNext", ServiceRequest.class, caregiverId);
+        }
+
+        @Override
+        public boolean claim(String requestId, String caregiverId) throws IOException {
+            return client.call("DispatchService", "claim", boolean.class, requestId, caregiverId);
+        }
+
+        @Override
+        public boolean assign(String requestId, String caregiverId) throws IOException {
+            return client.call("DispatchService", "assign", boolean.class, requestId, caregiverId);
+        }
+
+        @Override
+        public boolean start(String requestId, String caregiverId) throws IOException {
+            return client.call("DispatchService", "start", boolean.class, requestId, caregiverId);
+        }
+
+        @Override
+        public boolean release(String requestId, String caregiverId) throws IOException {
+            return client.call("DispatchService", "release", boolean.class, requestId, caregiverId);
+        }
+
+        @Override
+        public List<ServiceRequest> getQueue(String caregiverId) throws IOException {
+            return client.query("DispatchService", "getQueue", REQUEST_LIST, caregiverId);
+        }
+
+        @Override
+        public List<ServiceRequest> getUnassignedRequests() throws IOException {
+            return client.query("DispatchService", "getUnassignedRequests", REQUEST_LIST);
+        }
+
+        @Override
+        public int getQueueSize(String caregiverId) throws IOException {
+            return client.query("DispatchService", "getQueueSize", int.class, caregiverId);
+        }
+
+        @Override
+        public int getUnassignedCount() throws IOException {
+            return client.query("DispatchService", "getUnassignedCount", int.class);
+        }
+    }
+
+    static class RemoteActivityService extends ActivityService {
+        private final RemoteClient client;
+
+        RemoteActivityService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void initDefaultActivities() throws IOException {
+            client.call("ActivityService", "initDefaultActivities", Void.class);
+        }
+
+        @Override
+        public void createActivity(Activity activity) throws IOException {
+            client.call("ActivityService", "createActivity", Void.class, activity);
+        }
+
+        @Override
+        public boolean registerActivity(String activityId, String elderId) throws IOException {
+            return client.call("ActivityService", "registerActivity", boolean.class, activityId, elderId);
+        }
+
+        @Override
+        public RegistrationResult register(String activityId, String elderId) throws IOException {
+            return client.call("ActivityService", "register", RegistrationResult.class, activityId, elderId);
+        }
+
+        @Override
+        public boolean cancelRegistration(String activityId, String elderId) throws IOException {
+            return client.call("ActivityService", "cancelRegistration", boolean.class, activityId, elderId);
+        }
+
+        @Override
+        public List<Activity> getAllActivities() throws IOException {
+            return client.query("ActivityService", "getAllActivities", ACTIVITY_LIST);
+        }
+
+        @Override
+        public Activity getActivityById(String activityId) throws IOException {
+            return client.query("ActivityService", "getActivityById", Activity.class, activityId);
+        }
+
+        @Override
+        public List<Activity> getUpcomingActivities() throws IOException {
+            return client.query("ActivityService", "getUpcomingActivities", ACTIVITY_LIST);
+        }
+
+        @Override
+        public List<Activity> getUpcomingActivities(int days) throws IOException {
+            return client.query("ActivityService", "getUpcomingActivities", ACTIVITY_LIST, days);
+        }
+
+        @Override
+        public List<Activity> getActivitiesBetween(long from, long to) throws IOException {
+            return client.query("ActivityService", "getActivitiesBetween", ACTIVITY_LIST, from, to);
+        }
+
+        @Override
+        public List<Activity> getActivitiesForElder(String elderId, long from, long to) throws IOException {
+            return client.query("ActivityService", "getActivitiesForElder", ACTIVITY_LIST, elderId, from, to);
+        }
+
+        @Override
+        public List<Activity> getActivitiesForElderThisWeek(String elderId) throws IOException {
+            return client.query("ActivityService", "getActivitiesForElderThisWeek", ACTIVITY_LIST, elderId);
+        }
+
+        @Override
+        public List<Activity> findScheduleConflicts(String elderId, String activityId) throws IOException {
+            return client.query("ActivityService", "findScheduleConflicts", ACTIVITY_LIST, elderId, activityId);
+        }
+
+        @Override
+        public SortedMap<LocalDate, List<Activity>> getActivityCalendar(LocalDate fromDate, LocalDate toDate) throws IOException {
+            return client.query("ActivityService", "getActivityCalendar", CALENDAR, fromDate, toDate);
+        }
+    }
+
+    static class RemoteCommunityService extends CommunityService {
+        private final RemoteClient client;
+
+        RemoteCommunityService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void postMessage(CommunityMessage message) throws IOException {
+            client.call("CommunityService", "postMessage", Void.class, message);
+        }
+
+        @Override
+        public List<CommunityMessage> getAllMessages() throws IOException {
+            return client.query("CommunityService", "getAllMessages", MESSAGE_LIST);
+        }
+
+        @Override
+        public List<CommunityMessage> getMessagesByElderId(String elderId) throws IOException {
+            return client.query("CommunityService", "getMessagesByElderId", MESSAGE_LIST, elderId);
+        }
+
+        @Override
+        public void likeMessage(String messageId) throws IOException {
+            client.call("CommunityService", "likeMessage", Void.class, messageId);
+        }
+
+        @Override
+        public boolean deleteMessage(String messageId, String elderId) throws IOException {
+            return client.call("CommunityService", "deleteMessage", boolean.class, messageId, elderId);
+        }
+    }
+
+    static class RemoteRelationService extends RelationService {
+        private final RemoteClient client;
+
+        RemoteRelationService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public List<String> getElderIdsByFamily(String familyUserId) throws IOException {
+            return client.query("RelationService", "getElderIdsByFamily", STRING_LIST, familyUserId);
+        }
+
+        @Override
+        public List<String> getFamilyUserIdsByElder(String elderId) throws IOException {
+            return client.query("RelationService", "getFamilyUserIdsByElder", STRING_LIST, elderId);
+        }
+
+        @Override
+        public List<Elder> getEldersByFamily(String familyUserId) throws IOException {
+            return client.query("RelationService", "getEldersByFamily", ELDER_LIST, familyUserId);
+        }
+
+        @Override
+        public boolean isAssociated(String familyUserId, String elderId) throws IOException {
+            return client.query("RelationService", "isAssociated", boolean.class, familyUserId, elderId);
+        }
+
+        @Override
+        public boolean addRelation(String familyUserId, String elderId) throws IOException {
+            return client.call("RelationService", "addRelation", boolean.class, familyUserId, elderId);
+        }
+
+        @Override
+        public boolean removeRelation(String familyUserId, String elderId) throws IOException {
+            return client.call("RelationService", "removeRelation", boolean.class, familyUserId, elderId);
+        }
+
+        @Override
+        public int notifyFamilies(String elderId, String message) {
+            try {
+                return client.call("RelationService", "notifyFamilies", int.class, elderId, message);
+            } catch (IOException e) {
+                LOGGER.warn("远程通知家属失败：{}", e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    static class RemoteWorkLogService extends WorkLogService {
+        private final RemoteClient client;
+
+        RemoteWorkLogService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public String getLog(String caregiverId, String date) throws IOException {
+            return client.query("WorkLogService", "getLog", String.class, caregiverId, date);
+        }
+
+        @Override
+        public SortedMap<String, String> getLogsByCaregiver(String caregiverId) throws IOException {
+            return client.query("WorkLogService", "getLogsByCaregiver", LOG_MAP, caregiverId);
+        }
+
+        @Override
+        public boolean saveLog(String caregiverId, String date, String content) throws IOException {
+            return client.call("WorkLogService", "saveLog", boolean.class, caregiverId, date, content);
+        }
+
+        @Override
+        public void compact() throws IOException {
+            client.call("WorkLogService", "compact", Void.class);
+        }
+    }
+
+    static class RemoteStatisticsService extends StatisticsService {
+        private final RemoteClient client;
+
+        RemoteStatisticsService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void rebuild() throws IOException {
+            client.call("StatisticsService", "rebuild", Void.class);
+        }
+
+        @Override
+        public Map<String, Integer> getUsersByRole() throws IOException {
+            return client.query("StatisticsService", "getUsersByRole", COUNT_MAP);
+        }
+
+        @Override
+        public Map<String, Integer> getEldersByAgeBand() throws IOException {
+            return client.query("StatisticsService", "getEldersByAgeBand", COUNT_MAP);
+        }
+
+        @Override
+        public Map<String, Integer> getEldersByHealthStatus() throws IOException {
+            return client.query("StatisticsService", "getEldersByHealthStatus", COUNT_MAP);
+        }
+
+        @Override
+        public List<ActivityFill> getActivityFills() throws IOException {
+            return client.query("StatisticsService", "getActivityFills", FILL_LIST);
+        }
+
+        @Override
+        public Map<String, Integer> getRequestBacklogByType() throws IOException {
+            return client.query("StatisticsService", "getRequestBacklogByType", COUNT_MAP);
+        }
+
+        @Override
+        public Map<String, Integer> getAlertsByDay(int days) throws IOException {
+            return client.query("StatisticsService", "getAlertsByDay", COUNT_MAP, days);
+        }
+
+        @Override
+        public int getPendingAlertCount() throws IOException {
+            return client.query("StatisticsService", "getPendingAlertCount", int.class);
+        }
+    }
+
+    static class RemoteSyncService extends SyncService {
+        private final RemoteClient client;
+
+        RemoteSyncService(RemoteClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public long getVersion(String store) {
+            try {
+                return client.call("SyncService", "getVersion", long.class, store);
+            } catch (IOException e) {
+                throw new IllegalStateException("远程查询数据版本失败：" + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public Map<String, Long> getVersions() {
+            try {
+                return client.call("SyncService", "getVersions", VERSION_MAP);
+            } catch (IOException e) {
+                throw new IllegalStateException("远程查询数据版本失败：" + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * 变更结果中的实体按数据类型还原为对应的模型对象
+         */
+        @Override
+        public ChangeSet getChangesSince(String store, long version) {
+            JsonObject json;
+            try {
+                json = client.invoke("SyncService", "getChangesSince", store, version).getAsJsonObject();
+            } catch (IOException e) {
+                throw new IllegalStateException("远程增量同步失败：" + e.getMessage(), e);
+            }
+            Type entityType = STORE_TYPES.getOrDefault(store, Object.class);
+            return new ChangeSet(store, json.get("fromVersion").getAsLong(), json.get("toVersion").getAsLong(),
+                    json.get("reset").getAsBoolean(), entities(json.getAsJsonArray("inserts"), entityType),
+                    entities(json.getAsJsonArray("updates"), entityType),
+                    JsonCodec.GSON.fromJson(json.getAsJsonArray("tombstones"), STRING_LIST));
+        }
+
+        private static List<Object> entities(JsonArray array, Type entityType) {
+            List<Object> entities = new ArrayList<>();
+            if (array != null) {
+                for (JsonElement element : array) {
+                    entities.add(JsonCodec.GSON.fromJson(element, entityType));
+                }
+            }
+            return entities;
+        }
+    }
+}
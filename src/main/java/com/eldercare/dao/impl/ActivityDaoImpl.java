@@ -3,6 +3,9 @@ package com.eldercare.dao.impl;
 import com.eldercare.dao.ActivityDao;
 import com.eldercare.model.Activity;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,11 +13,12 @@ import java.util.List;
  * 活动DAO空实现：标记数据库操作位置
  */
 public class ActivityDaoImpl implements ActivityDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActivityDaoImpl.class);
 
     @Override
     public void insertActivity(Activity activity) {
         // 预留：插入活动的操作位置
-        System.out.println("[DAO空实现] 准备插入活动（名称：" + activity.getName() + "，时间：" + activity.getTime() + "）");
+        LOGGER.debug("[DAO空实现] 准备插入活动（名称：{}，时间：{}）", activity.getName(), activity.getTime());
 
         // 真实数据库操作模板（核心SQL）：
         // String sql = "INSERT INTO activity (activity_id, name, time, location, description, registered_elder_ids) " +
@@ -25,21 +29,21 @@ public class ActivityDaoImpl implements ActivityDao {
     @Override
     public List<Activity> selectAllActivities() {
         // 预留：查询所有活动的操作位置
-        System.out.println("[DAO空实现] 准备查询数据库中所有活动");
+        LOGGER.debug("[DAO空实现] 准备查询数据库中所有活动");
         return new ArrayList<>();
     }
 
     @Override
     public Activity selectActivityById(String activityId) {
         // 预留：根据ID查询活动的操作位置
-        System.out.println("[DAO空实现] 准备查询活动（ID：" + activityId + "）");
+        LOGGER.debug("[DAO空实现] 准备查询活动（ID：{}）", activityId);
         return null;
     }
 
     @Override
     public int updateActivityRegistration(String activityId, String elderId) {
         // 预留：添加活动报名的操作位置
-        System.out.println("[DAO空实现] 准备为活动（ID：" + activityId + "）添加报名老人（ID：" + elderId + "）");
+        LOGGER.debug("[DAO空实现] 准备为活动（ID：{}）添加报名老人（ID：{}）", activityId, elderId);
 
         // 真实数据库操作模板：更新registered_elder_ids字段（如JSON追加老人ID）
         return 0;
@@ -48,7 +52,7 @@ public class ActivityDaoImpl implements ActivityDao {
     @Override
     public int updateActivityCancelRegistration(String activityId, String elderId) {
         // 预留：取消活动报名的操作位置
-        System.out.println("[DAO空实现] 准备为活动（ID：" + activityId + "）取消老人（ID：" + elderId + "）报名");
+        LOGGER.debug("[DAO空实现] 准备为活动（ID：{}）取消老人（ID：{}）报名", activityId, elderId);
         return 0;
     }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package com.eldercare.dao.impl;
 import com.eldercare.dao.ElderDao;
 import com.eldercare.model.Elder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,11 +14,12 @@ import java.util.List;
  * 后续对接数据库时，需替换此类为真实实现（如基于JDBC/MyBatis）
  */
 public class ElderDaoImpl implements ElderDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElderDaoImpl.class);
 
     @Override
     public void insertElder(Elder elder) {
         // 预留：向数据库插入老人信息的操作位置
-        System.out.println("[DAO空实现] 准备向数据库插入老人：" + elder.getName() + "（ID：" + elder.getElderId() + "）");
+        LOGGER.debug("[DAO空实现] 准备向数据库插入老人：{}（ID：{}）", elder.getName(), elder.getElderId());
 
         // 真实数据库操作模板（JDBC示例，暂不执行）：
         /*
@@ -42,13 +46,13 @@ public class ElderDaoImpl implements ElderDao {
 
             // 5. 执行SQL（插入操作）
             int rows = pstmt.executeUpdate();
-            System.out.println("数据库插入成功，影响行数：" + rows);
+            LOGGER.info("数据库插入成功，影响行数：{}", rows);
 
             // 6. 关闭资源（避免内存泄露）
             pstmt.close();
             conn.close();
         } catch (ClassNotFoundException | SQLException e) {
-            System.err.println("数据库插入失败：" + e.getMessage());
+            LOGGER.warn("数据库插入失败：{}", e.getMessage());
         }
         */
     }
@@ -56,7 +60,7 @@ public class ElderDaoImpl implements ElderDao {
     @Override
     public Elder selectElderById(String elderId) {
         // 预留：根据ID查询老人的操作位置
-        System.out.println("[DAO空实现] 准备从数据库查询老人（ID：" + elderId + "）");
+        LOGGER.debug("[DAO空实现] 准备从数据库查询老人（ID：{}）", elderId);
 
         // 真实数据库操作模板（JDBC示例）：
         /*
@@ -77,7 +81,7 @@ public class ElderDaoImpl implements ElderDao {
                 elder.setHealthStatus(rs.getString("health_status"));
             }
         } catch (SQLException e) {
-            System.err.println("数据库查询失败：" + e.getMessage());
+            LOGGER.warn("数据库查询失败：{}", e.getMessage());
         }
         return elder;
         */
@@ -87,7 +91,7 @@ public class ElderDaoImpl implements ElderDao {
     @Override
     public List<Elder> selectAllElders() {
         // 预留：查询所有老人的操作位置
-        System.out.println("[DAO空实现] 准备从数据库查询所有老人");
+        LOGGER.debug("[DAO空实现] 准备从数据库查询所有老人");
 
         // 真实数据库操作模板：查询所有老人并封装为List<Elder>
         return new ArrayList<>(); // 空实现返回空列表
@@ -96,7 +100,7 @@ public class ElderDaoImpl implements ElderDao {
     @Override
     public int deleteElderById(String elderId) {
         // 预留：根据ID删除老人的操作位置
-        System.out.println("[DAO空实现] 准备从数据库删除老人（ID：" + elderId + "）");
+        LOGGER.debug("[DAO空实现] 准备从数据库删除老人（ID：{}）", elderId);
 
         // 真实数据库操作模板：执行DELETE SQL，返回影响行数
         return 0; // 空实现返回0，代表无数据影响
@@ -105,7 +109,7 @@ public class ElderDaoImpl implements ElderDao {
     @Override
     public int updateElder(Elder elder) {
         // 预留：更新老人信息的操作位置
-        System.out.println("[DAO空实现] 准备更新数据库中老人（ID：" + elder.getElderId() + "）");
+        LOGGER.debug("[DAO空实现] 准备更新数据库中老人（ID：{}）", elder.getElderId());
 
         // 真实数据库操作模板：执行UPDATE SQL，返回影响行数
         return 0; // 空实现返回0
@@ -3,6 +3,9 @@ package com.eldercare.dao.impl;
 import com.eldercare.dao.ServiceRequestDao;
 import com.eldercare.model.ServiceRequest;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,11 +13,12 @@ import java.util.List;
  * 服务申请DAO空实现：标记数据库操作位置
  */
 public class ServiceRequestDaoImpl implements ServiceRequestDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceRequestDaoImpl.class);
 
     @Override
     public void insertServiceRequest(ServiceRequest request) {
         // 预留：插入服务申请的操作位置
-        System.out.println("[DAO空实现] 准备插入服务申请（老人ID：" + request.getElderId() + "，类型：" + request.getServiceType() + "）");
+        LOGGER.debug("[DAO空实现] 准备插入服务申请（老人ID：{}，类型：{}）", request.getElderId(), request.getServiceType());
 
         // 真实数据库操作模板（核心SQL）：
         // String sql = "INSERT INTO service_request (request_id, elder_id, service_type, content, request_time, status) " +
@@ -24,14 +28,14 @@ public class ServiceRequestDaoImpl implements ServiceRequestDao {
     @Override
     public List<ServiceRequest> selectRequestsByElderId(String elderId) {
         // 预留：查询老人服务申请的操作位置
-        System.out.println("[DAO空实现] 准备查询老人（ID：" + elderId + "）的所有服务申请");
+        LOGGER.debug("[DAO空实现] 准备查询老人（ID：{}）的所有服务申请", elderId);
         return new ArrayList<>();
     }
 
     @Override
     public int updateRequestStatus(String requestId, String newStatus) {
         // 预留：更新服务申请状态的操作位置
-        System.out.println("[DAO空实现] 准备更新服务申请（ID：" + requestId + "）状态为：" + newStatus);
+        LOGGER.debug("[DAO空实现] 准备更新服务申请（ID：{}）状态为：{}", requestId, newStatus);
 
         // 真实数据库操作模板（核心SQL）：
         // String sql = "UPDATE service_request SET status = ? WHERE request_id = ?";
@@ -41,7 +45,7 @@ public class ServiceRequestDaoImpl implements ServiceRequestDao {
     @Override
     public int deleteRequestsByElderId(String elderId) {
         // 预留：批量删除老人服务申请的操作位置
-        System.out.println("[DAO空实现] 准备批量删除老人（ID：" + elderId + "）的所有服务申请");
+        LOGGER.debug("[DAO空实现] 准备批量删除老人（ID：{}）的所有服务申请", elderId);
         return 0;
     }
 }
\ No newline at end of file
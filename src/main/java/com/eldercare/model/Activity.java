@@ -1,6 +1,19 @@
 package com.eldercare.model;
 
+import com.eldercare.util.IdDictionary;
+import com.eldercare.util.IntHashSet;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,6 +23,24 @@ import java.util.List;
  */
 public class Activity implements Serializable {
     private static final long serialVersionUID = 1L;
+    // 未填写结束时间的活动按默认时长计算结束时间（分钟）
+    private static final long DEFAULT_DURATION_MINUTES = 60;
+    // 活动时间严格解析：2025-02-30、25:00等不存在的日期时间解析失败，而不是顺延为月末或次日
+    private static final DateTimeFormatter START_FORMATTER =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm").withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter END_FORMATTER =
+            DateTimeFormatter.ofPattern("HH:mm").withResolverStyle(ResolverStyle.STRICT);
+    // 序列化格式保持不变：报名列表仍以List<String>形式写入activities.ser，兼容已有数据文件
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("activityId", String.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("time", String.class),
+            new ObjectStreamField("location", String.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("registeredElderIds", List.class),
+            new ObjectStreamField("capacity", int.class),
+            new ObjectStreamField("waitlistElderIds", List.class)
+    };
 
     // 活动唯一ID，格式如ACTIVITY_20251201_001
     private String activityId;
@@ -17,16 +48,24 @@ public class Activity implements Serializable {
     private String name;
     // 活动时间，格式如"2025-12-10 09:00-11:00"
     private String time;
+    // 由time解析出的开始/结束时间（毫秒时间戳，结束时间不包含），解析失败时均为0
+    private transient long startMillis;
+    private transient long endMillis;
     // 活动地点，如"养老院1楼多功能厅"
     private String location;
     // 活动详细描述
     private String description;
-    // 已报名老人ID列表，与Elder.elderId对应
-    private List<String> registeredElderIds;
+    // 已报名老人集合（IdDictionary代理键），与Elder.elderId对应
+    private transient IntHashSet registrations;
+    // 名额上限，0表示不限人数
+    private int capacity;
+    // 候补老人集合（IdDictionary代理键，按候补先后顺序）
+    private transient IntHashSet waitlist;
 
     // 无参构造方法，初始化报名列表为空
     public Activity() {
-        this.registeredElderIds = new ArrayList<>();
+        this.registrations = new IntHashSet();
+        this.waitlist = new IntHashSet();
     }
 
     // 全参构造方法
@@ -37,7 +76,8 @@ public class Activity implements Serializable {
         this.setLocation(location);
         this.description = description;
         // 如果传入的报名列表为null，初始化为空列表
-        this.registeredElderIds = (registeredElderIds == null) ? new ArrayList<>() : registeredElderIds;
+        this.setRegisteredElderIds(registeredElderIds);
+        this.waitlist = new IntHashSet();
     }
 
     // Getter和Setter方法
@@ -73,12 +113,47 @@ public class Activity implements Serializable {
         // 时间格式校验：支持"2025-12-10 09:00"和"2025-12-10 09:00-11:00"两种格式
         String regex = "^\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}(-\\d{2}:\\d{2})?$";
         if (time != null && time.matches(regex)) {
+            long[] range = parseTime(time.trim());
+            if (range == null) {
+                throw new IllegalArgumentException("活动时间不是有效日期：" + time);
+            }
             this.time = time.trim();
+            this.startMillis = range[0];
+            this.endMillis = range[1];
         } else {
             throw new IllegalArgumentException("时间格式错误（示例：2025-12-10 09:00 或 2025-12-10 09:00-11:00）");
         }
     }
 
+    /**
+     * 活动开始时间（毫秒时间戳）
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * 活动结束时间（毫秒时间戳，不包含；未填写结束时间时为开始时间加默认时长）
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * 活动时间是否已成功解析（旧数据中无法解析的时间不参与时间索引）
+     */
+    public boolean isScheduled() {
+        return endMillis > startMillis;
+    }
+
+    /**
+     * 判断两个活动时间是否冲突（时段重叠）
+     */
+    public boolean overlaps(Activity other) {
+        return isScheduled() && other.isScheduled()
+                && startMillis < other.endMillis && other.startMillis < endMillis;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -102,31 +177,210 @@ public class Activity implements Serializable {
                 : description.trim();
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("名额上限不能为负数（0表示不限人数）");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 名额是否已满（不限人数时始终返回false）
+     */
+    public boolean isFull() {
+        return capacity > 0 && registrations.size() >= capacity;
+    }
+
+    /**
+     * 获取已报名老人ID列表（按报名先后顺序解码的快照，修改返回值不影响活动本身）
+     */
     public List<String> getRegisteredElderIds() {
-        return registeredElderIds;
+        List<String> elderIds = new ArrayList<>(registrations.size());
+        registrations.forEach(code -> elderIds.add(IdDictionary.decode(code)));
+        return elderIds;
     }
 
     public void setRegisteredElderIds(List<String> registeredElderIds) {
-        this.registeredElderIds = (registeredElderIds == null) ? new ArrayList<>() : registeredElderIds;
+        this.registrations = new IntHashSet(registeredElderIds == null ? 8 : registeredElderIds.size());
+        if (registeredElderIds != null) {
+            for (String elderId : registeredElderIds) {
+                addRegistration(elderId);
+            }
+        }
+    }
+
+    /**
+     * 判断老人是否已报名
+     * @param elderId 老人ID
+     */
+    public boolean isRegistered(String elderId) {
+        return registrations.contains(IdDictionary.lookup(elderId));
+    }
+
+    /**
+     * 已报名人数
+     */
+    public int getRegisteredCount() {
+        return registrations.size();
     }
 
     /**
      * 添加老人报名
      * @param elderId 老人ID
+     * @return true-新增报名，false-ID为空或已报名
      */
-    public void addRegistration(String elderId) {
-        if (elderId != null && !elderId.trim().isEmpty() && !registeredElderIds.contains(elderId.trim())) {
-            registeredElderIds.add(elderId.trim());
+    public boolean addRegistration(String elderId) {
+        if (elderId != null && !elderId.trim().isEmpty()) {
+            return registrations.add(IdDictionary.encode(elderId.trim()));
         }
+        return false;
     }
 
     /**
      * 取消老人报名
      * @param elderId 老人ID
+     * @return true-取消成功，false-未报名
+     */
+    public boolean removeRegistration(String elderId) {
+        return registrations.remove(IdDictionary.lookup(elderId));
+    }
+
+    /**
+     * 获取候补老人ID列表（按候补先后顺序的快照）
+     */
+    public List<String> getWaitlistElderIds() {
+        List<String> elderIds = new ArrayList<>(waitlist.size());
+        waitlist.forEach(code -> elderIds.add(IdDictionary.decode(code)));
+        return elderIds;
+    }
+
+    /**
+     * 判断老人是否在候补名单中
+     */
+    public boolean isWaitlisted(String elderId) {
+        return waitlist.contains(IdDictionary.lookup(elderId));
+    }
+
+    /**
+     * 候补人数
+     */
+    public int getWaitlistCount() {
+        return waitlist.size();
+    }
+
+    /**
+     * 加入候补名单（排在队尾）
+     * @return true-加入成功，false-ID为空或已在候补名单中
+     */
+    public boolean addToWaitlist(String elderId) {
+        if (elderId != null && !elderId.trim().isEmpty()) {
+            return waitlist.add(IdDictionary.encode(elderId.trim()));
+        }
+        return false;
+    }
+
+    /**
+     * 退出候补名单
+     * @return true-退出成功，false-不在候补名单中
+     */
+    public boolean removeFromWaitlist(String elderId) {
+        return waitlist.remove(IdDictionary.lookup(elderId));
+    }
+
+    /**
+     * 取出候补名单队首的老人（先到先得）
+     * @return 老人ID；候补名单为空返回null
+     */
+    public String pollWaitlist() {
+        int first = waitlist.first();
+        if (first == 0) {
+            return null;
+        }
+        waitlist.remove(first);
+        return IdDictionary.decode(first);
+    }
+
+    /**
+     * 复制活动（报名集合、候补名单为独立副本，修改副本不影响原活动）
+     */
+    public Activity copy() {
+        Activity copy = new Activity();
+        copy.activityId = activityId;
+        copy.name = name;
+        copy.time = time;
+        copy.startMillis = startMillis;
+        copy.endMillis = endMillis;
+        copy.location = location;
+        copy.description = description;
+        copy.capacity = capacity;
+        registrations.forEach(copy.registrations::add);
+        waitlist.forEach(copy.waitlist::add);
+        return copy;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("activityId", activityId);
+        fields.put("name", name);
+        fields.put("time", time);
+        fields.put("location", location);
+        fields.put("description", description);
+        fields.put("registeredElderIds", getRegisteredElderIds());
+        fields.put("capacity", capacity);
+        fields.put("waitlistElderIds", getWaitlistElderIds());
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        activityId = (String) fields.get("activityId", null);
+        name = (String) fields.get("name", null);
+        time = (String) fields.get("time", null);
+        long[] range = time == null ? null : parseTime(time);
+        if (range != null) {
+            startMillis = range[0];
+            endMillis = range[1];
+        }
+        location = (String) fields.get("location", null);
+        description = (String) fields.get("description", null);
+        setRegisteredElderIds((List<String>) fields.get("registeredElderIds", null));
+        // 旧数据文件没有以下字段，按不限人数、无候补处理
+        capacity = fields.get("capacity", 0);
+        waitlist = new IntHashSet();
+        List<String> waitlistElderIds = (List<String>) fields.get("waitlistElderIds", null);
+        if (waitlistElderIds != null) {
+            for (String elderId : waitlistElderIds) {
+                addToWaitlist(elderId);
+            }
+        }
+    }
+
+    /**
+     * 解析活动时间字符串
+     * @param time 如"2025-12-10 09:00"或"2025-12-10 09:00-11:00"（结束时间早于开始时间视为跨天）
+     * @return [开始, 结束)毫秒时间戳；无法解析或日期时间不存在返回null
      */
-    public void removeRegistration(String elderId) {
-        if (elderId != null) {
-            registeredElderIds.remove(elderId.trim());
+    private static long[] parseTime(String time) {
+        try {
+            LocalDateTime start = LocalDateTime.parse(time.substring(0, 16), START_FORMATTER);
+            LocalDateTime end;
+            if (time.length() > 16) {
+                end = start.with(LocalTime.parse(time.substring(17), END_FORMATTER));
+                if (!end.isAfter(start)) {
+                    end = end.plusDays(1);
+                }
+            } else {
+                end = start.plusMinutes(DEFAULT_DURATION_MINUTES);
+            }
+            ZoneId zone = ZoneId.systemDefault();
+            return new long[]{start.atZone(zone).toInstant().toEpochMilli(), end.atZone(zone).toInstant().toEpochMilli()};
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return null;
         }
     }
 
@@ -137,7 +391,9 @@ public class Activity implements Serializable {
                 ", name='" + name + '\'' +
                 ", time='" + time + '\'' +
                 ", location='" + location + '\'' +
-                ", registeredCount=" + registeredElderIds.size() +
+                ", registeredCount=" + registrations.size() +
+                ", capacity=" + capacity +
+                ", waitlistCount=" + waitlist.size() +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.eldercare.model;
+
+import java.io.Serializable;
+
+/**
+ * 数据变更事件模型类
+ * 功能：业务层每次新增、修改、删除实体后发布一条事件，携带变更前后的实体快照，
+ * 订阅方（如统计服务）据此增量更新自身数据，无需重新读取全部数据
+ */
+public class ChangeEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // 实体类型，与DataStorageUtil的存储key一致
+    public static final String USERS = "users";
+    public static final String ELDERS = "elders";
+    public static final String ACTIVITIES = "activities";
+    public static final String SERVICE_REQUESTS = "service_requests";
+    public static final String HEALTH_ALERTS = "health_alerts";
+    public static final String HEALTH_RECORDS = "health_records";
+    public static final String RELATIONS = "family_elder_relations";
+    public static final String COMMUNITY_MESSAGES = "community_messages";
+    public static final String WORK_LOGS = "work_logs";
+
+    /**
+     * 变更类型（RELOAD：数据文件被其他程序实例修改，整类数据重新加载，实体ID和快照均为null）
+     */
+    public enum Operation {
+        CREATE, UPDATE, DELETE, RELOAD
+    }
+
+    // 事件序号（进程内单调递增）
+    private final long sequence;
+    // 实体类型
+    private final String entityType;
+    // 实体ID
+    private final String entityId;
+    // 变更类型
+    private final Operation operation;
+    // 变更前的实体快照（新增时为null；高频修改如活动报名只提供变更后快照，此时也为null）
+    private final Object before;
+    // 变更后的实体快照（删除时为null）
+    private final Object after;
+    // 发生时间（毫秒时间戳）
+    private final long timestamp;
+
+    public ChangeEvent(long sequence, String entityType, String entityId, Operation operation,
+                       Object before, Object after, long timestamp) {
+        this.sequence = sequence;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.before = before;
+        this.after = after;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Object getBefore() {
+        return before;
+    }
+
+    public Object getAfter() {
+        return after;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "sequence=" + sequence +
+                ", entityType='" + entityType + '\'' +
+                ", entityId='" + entityId + '\'' +
+                ", operation=" + operation +
+                '}';
+    }
+}
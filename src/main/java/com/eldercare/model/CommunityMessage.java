@@ -1,5 +1,13 @@
 package com.eldercare.model;
 
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.IdDictionary;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -9,6 +17,17 @@ import java.util.Date;
  */
 public class CommunityMessage implements Serializable {
     private static final long serialVersionUID = 1L;
+    // 序列化格式保持不变：创建时间仍以Date写入community_messages.ser，兼容已有数据文件
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("messageId", String.class),
+            new ObjectStreamField("elderId", String.class),
+            new ObjectStreamField("elderName", String.class),
+            new ObjectStreamField("content", String.class),
+            new ObjectStreamField("createTime", Date.class),
+            new ObjectStreamField("messageType", String.class),
+            new ObjectStreamField("likeCount", int.class),
+            new ObjectStreamField("commentCount", int.class)
+    };
 
     // 消息ID
     private String messageId;
@@ -18,8 +37,8 @@ public class CommunityMessage implements Serializable {
     private String elderName;
     // 消息内容
     private String content;
-    // 创建时间
-    private Date createTime;
+    // 创建时间（毫秒时间戳）
+    private long createTime;
     // 消息类型："text", "image", "video"
     private String messageType;
     // 点赞数
@@ -29,7 +48,7 @@ public class CommunityMessage implements Serializable {
 
     // 构造方法
     public CommunityMessage() {
-        this.createTime = new Date();
+        this.createTime = CachedClock.currentTimeMillis();
         this.likeCount = 0;
         this.commentCount = 0;
     }
@@ -39,7 +58,7 @@ public class CommunityMessage implements Serializable {
     public void setMessageId(String messageId) { this.messageId = messageId; }
 
     public String getElderId() { return elderId; }
-    public void setElderId(String elderId) { this.elderId = elderId; }
+    public void setElderId(String elderId) { this.elderId = IdDictionary.canonical(elderId); }
 
     public String getElderName() { return elderName; }
     public void setElderName(String elderName) { this.elderName = elderName; }
@@ -47,8 +66,11 @@ public class CommunityMessage implements Serializable {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
 
-    public Date getCreateTime() { return createTime; }
-    public void setCreateTime(Date createTime) { this.createTime = createTime; }
+    public Date getCreateTime() { return new Date(createTime); }
+    public void setCreateTime(Date createTime) { this.createTime = (createTime == null) ? CachedClock.currentTimeMillis() : createTime.getTime(); }
+
+    public long getCreateTimeMillis() { return createTime; }
+    public void setCreateTimeMillis(long createTime) { this.createTime = createTime; }
 
     public String getMessageType() { return messageType; }
     public void setMessageType(String messageType) { this.messageType = messageType; }
@@ -69,6 +91,54 @@ public class CommunityMessage implements Serializable {
      */
     public void addComment() { this.commentCount++; }
 
+    /**
+     * 复制消息（变更事件携带副本，之后点赞等修改不影响已发布的事件）
+     */
+    public CommunityMessage copy() {
+        CommunityMessage copy = new CommunityMessage();
+        copy.messageId = messageId;
+        copy.elderId = elderId;
+        copy.elderName = elderName;
+        copy.content = content;
+        copy.createTime = createTime;
+        copy.messageType = messageType;
+        copy.likeCount = likeCount;
+        copy.commentCount = commentCount;
+        return copy;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("messageId", messageId);
+        fields.put("elderId", elderId);
+        fields.put("elderName", elderName);
+        fields.put("content", content);
+        fields.put("createTime", new Date(createTime));
+        fields.put("messageType", messageType);
+        fields.put("likeCount", likeCount);
+        fields.put("commentCount", commentCount);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        messageId = (String) fields.get("messageId", null);
+        elderId = (String) fields.get("elderId", null);
+        elderName = (String) fields.get("elderName", null);
+        content = (String) fields.get("content", null);
+        Date time = (Date) fields.get("createTime", null);
+        createTime = (time == null) ? 0L : time.getTime();
+        messageType = (String) fields.get("messageType", null);
+        likeCount = fields.get("likeCount", 0);
+        commentCount = fields.get("commentCount", 0);
+    }
+
+    // 反序列化后将老人ID替换为字典中的唯一实例，避免每条记录各持有一份相同字符串
+    private Object readResolve() {
+        this.elderId = IdDictionary.canonical(elderId);
+        return this;
+    }
+
     @Override
     public String toString() {
         return "CommunityMessage{" +
@@ -76,7 +146,7 @@ public class CommunityMessage implements Serializable {
                 ", elderId='" + elderId + '\'' +
                 ", elderName='" + elderName + '\'' +
                 ", content='" + (content.length() > 50 ? content.substring(0, 50) + "..." : content) + '\'' +
-                ", createTime=" + createTime +
+                ", createTime=" + DateFormatUtil.formatDateTime(createTime) +
                 ", likeCount=" + likeCount +
                 ", commentCount=" + commentCount +
                 '}';
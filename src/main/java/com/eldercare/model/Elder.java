@@ -1,5 +1,7 @@
 package com.eldercare.model;
 
+import com.eldercare.util.IdDictionary;
+
 import java.io.Serializable;
 
 /**
@@ -43,7 +45,7 @@ public class Elder implements Serializable {
     public void setElderId(String elderId) {
         // 老人ID非空校验
         if (elderId != null && !elderId.trim().isEmpty()) {
-            this.elderId = elderId.trim();
+            this.elderId = IdDictionary.canonical(elderId.trim());
         } else {
             throw new IllegalArgumentException("老人ID不能为空");
         }
@@ -113,6 +115,26 @@ public class Elder implements Serializable {
                 : healthStatus.trim();
     }
 
+    /**
+     * 复制老人信息（变更事件发布副本，调用方之后修改原对象不影响订阅方收到的快照）
+     */
+    public Elder copy() {
+        Elder copy = new Elder();
+        copy.elderId = elderId;
+        copy.userId = userId;
+        copy.name = name;
+        copy.age = age;
+        copy.phone = phone;
+        copy.healthStatus = healthStatus;
+        return copy;
+    }
+
+    // 反序列化后将老人ID替换为字典中的唯一实例，避免每条记录各持有一份相同字符串
+    private Object readResolve() {
+        this.elderId = IdDictionary.canonical(elderId);
+        return this;
+    }
+
     @Override
     public String toString() {
         return "Elder{" +
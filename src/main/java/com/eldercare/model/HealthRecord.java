@@ -1,5 +1,13 @@
 package com.eldercare.model;
 
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.IdDictionary;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -8,17 +16,25 @@ import java.util.Date;
  */
 public class HealthRecord implements Serializable {
     private static final long serialVersionUID = 1L;
+    // 序列化格式保持不变：记录时间仍以Date写入health_records.ser，兼容已有数据文件
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("recordId", String.class),
+            new ObjectStreamField("elderId", String.class),
+            new ObjectStreamField("bloodPressure", String.class),
+            new ObjectStreamField("heartRate", int.class),
+            new ObjectStreamField("recordTime", Date.class)
+    };
 
     // 核心字段：记录唯一ID、关联老人ID、血压、心率、记录时间
     private String recordId;       // 唯一标识（如HEALTH_20251201_001）
     private String elderId;        // 关联的老人ID（与Elder.elderId对应）
     private String bloodPressure;  // 血压（如“120/80 mmHg”）
     private int heartRate;         // 心率（正常范围：60-100次/分钟）
-    private Date recordTime;       // 记录时间（默认当前时间）
+    private long recordTime;       // 记录时间（毫秒时间戳，默认当前时间）
 
     // 1. 无参构造（默认记录时间为当前时间）
     public HealthRecord() {
-        this.recordTime = new Date();
+        this.recordTime = CachedClock.currentTimeMillis();
     }
 
     // 2. 全参构造
@@ -28,7 +44,7 @@ public class HealthRecord implements Serializable {
         this.setBloodPressure(bloodPressure);
         this.setHeartRate(heartRate);
         // 记录时间允许指定，为空则默认当前时间
-        this.recordTime = (recordTime == null) ? new Date() : recordTime;
+        this.setRecordTime(recordTime);
     }
 
     // 3. Getter/Setter方法
@@ -51,7 +67,7 @@ public class HealthRecord implements Serializable {
     public void setElderId(String elderId) {
         // 必须关联存在的老人ID（此处仅做非空校验，实际业务需关联查询）
         if (elderId != null && !elderId.trim().isEmpty()) {
-            this.elderId = elderId.trim();
+            this.elderId = IdDictionary.canonical(elderId.trim());
         } else {
             throw new IllegalArgumentException("必须关联老人ID");
         }
@@ -84,12 +100,47 @@ public class HealthRecord implements Serializable {
         }
     }
 
+    // 返回新的Date副本，外部修改不会影响记录本身
     public Date getRecordTime() {
-        return recordTime;
+        return new Date(recordTime);
     }
 
     public void setRecordTime(Date recordTime) {
-        this.recordTime = (recordTime == null) ? new Date() : recordTime;
+        this.recordTime = (recordTime == null) ? CachedClock.currentTimeMillis() : recordTime.getTime();
+    }
+
+    public long getRecordTimeMillis() {
+        return recordTime;
+    }
+
+    public void setRecordTimeMillis(long recordTime) {
+        this.recordTime = recordTime;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("recordId", recordId);
+        fields.put("elderId", elderId);
+        fields.put("bloodPressure", bloodPressure);
+        fields.put("heartRate", heartRate);
+        fields.put("recordTime", new Date(recordTime));
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        recordId = (String) fields.get("recordId", null);
+        elderId = (String) fields.get("elderId", null);
+        bloodPressure = (String) fields.get("bloodPressure", null);
+        heartRate = fields.get("heartRate", 0);
+        Date time = (Date) fields.get("recordTime", null);
+        recordTime = (time == null) ? 0L : time.getTime();
+    }
+
+    // 反序列化后将老人ID替换为字典中的唯一实例，避免每条记录各持有一份相同字符串
+    private Object readResolve() {
+        this.elderId = IdDictionary.canonical(elderId);
+        return this;
     }
 
     // 4. toString方法（调试用）
@@ -100,7 +151,7 @@ public class HealthRecord implements Serializable {
                 ", elderId='" + elderId + '\'' +
                 ", bloodPressure='" + bloodPressure + '\'' +
                 ", heartRate=" + heartRate +
-                ", recordTime=" + recordTime +
+                ", recordTime=" + DateFormatUtil.formatDateTime(recordTime) +
                 '}';
     }
 }
\ No newline at end of file
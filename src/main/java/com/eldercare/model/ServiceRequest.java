@@ -1,5 +1,16 @@
 package com.eldercare.model;
 
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.IdDictionary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -8,7 +19,18 @@ import java.util.Date;
  * 功能：对应老人或家属提交的照护、咨询等服务需求，包含申请信息和状态管理
  */
 public class ServiceRequest implements Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceRequest.class);
     private static final long serialVersionUID = 1L;
+    // 序列化格式保持不变：申请时间仍以Date写入service_requests.ser，兼容已有数据文件
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("requestId", String.class),
+            new ObjectStreamField("elderId", String.class),
+            new ObjectStreamField("serviceType", String.class),
+            new ObjectStreamField("content", String.class),
+            new ObjectStreamField("requestTime", Date.class),
+            new ObjectStreamField("status", String.class),
+            new ObjectStreamField("assigneeId", String.class)
+    };
 
     // 申请唯一ID，格式如SERVICE_20251201_001
     private String requestId;
@@ -18,15 +40,17 @@ public class ServiceRequest implements Serializable {
     private String serviceType;
     // 申请内容，详细需求描述
     private String content;
-    // 申请时间，默认当前时间
-    private Date requestTime;
-    // 状态：待处理/已完成/已取消
-    private String status;
+    // 申请时间（毫秒时间戳），默认当前时间
+    private long requestTime;
+    // 状态：待处理/处理中/已完成/已取消（数据文件中保存中文名称）
+    private ServiceStatus status;
+    // 处理人（护工用户ID），为空表示尚未派单
+    private String assigneeId;
 
     // 无参构造方法，默认时间为当前，状态为"待处理"
     public ServiceRequest() {
-        this.requestTime = new Date();
-        this.status = "待处理";
+        this.requestTime = CachedClock.currentTimeMillis();
+        this.status = ServiceStatus.PENDING;
     }
 
     // 全参构造方法
@@ -35,7 +59,7 @@ public class ServiceRequest implements Serializable {
         this.setElderId(elderId);
         this.setServiceType(serviceType);
         this.setContent(content);
-        this.requestTime = (requestTime == null) ? new Date() : requestTime;
+        this.setRequestTime(requestTime);
         this.setStatus(status);
     }
 
@@ -58,7 +82,7 @@ public class ServiceRequest implements Serializable {
 
     public void setElderId(String elderId) {
         if (elderId != null && !elderId.trim().isEmpty()) {
-            this.elderId = elderId.trim();
+            this.elderId = IdDictionary.canonical(elderId.trim());
         } else {
             throw new IllegalArgumentException("必须关联老人ID");
         }
@@ -90,29 +114,116 @@ public class ServiceRequest implements Serializable {
         }
     }
 
+    // 返回新的Date副本，外部修改不会影响申请本身
     public Date getRequestTime() {
-        return requestTime;
+        return new Date(requestTime);
     }
 
     public void setRequestTime(Date requestTime) {
-        this.requestTime = (requestTime == null) ? new Date() : requestTime;
+        this.requestTime = (requestTime == null) ? CachedClock.currentTimeMillis() : requestTime.getTime();
+    }
+
+    public long getRequestTimeMillis() {
+        return requestTime;
+    }
+
+    public void setRequestTimeMillis(long requestTime) {
+        this.requestTime = requestTime;
     }
 
     public String getStatus() {
+        return status.getLabel();
+    }
+
+    public ServiceStatus getServiceStatus() {
         return status;
     }
 
+    /**
+     * 直接设置状态（创建申请时使用，不校验状态流转；已有申请的状态变更使用transitionTo）
+     * @param status 状态名称（待处理/处理中/已完成/已取消）
+     */
     public void setStatus(String status) {
-        // 状态合法性校验（仅允许3种状态）
-        if (status != null && (
-                "待处理".equals(status) ||
-                        "已完成".equals(status) ||
-                        "已取消".equals(status)
-        )) {
-            this.status = status;
-        } else {
-            throw new IllegalArgumentException("状态必须是待处理、已完成或已取消");
+        this.status = ServiceStatus.fromLabel(status);
+    }
+
+    /**
+     * 按状态机变更状态
+     * @param next 目标状态
+     * @throws IllegalStateException 当前状态不允许变更为目标状态
+     */
+    public void transitionTo(ServiceStatus next) {
+        if (!status.canTransitionTo(next)) {
+            throw new IllegalStateException("服务申请状态不能从" + status.getLabel() + "变更为" + next.getLabel());
         }
+        this.status = next;
+    }
+
+    public String getAssigneeId() {
+        return assigneeId;
+    }
+
+    public void setAssigneeId(String assigneeId) {
+        this.assigneeId = (assigneeId == null || assigneeId.trim().isEmpty()) ? null : assigneeId.trim();
+    }
+
+    /**
+     * 复制申请（服务层返回副本，调用方修改不影响内存中的申请）
+     */
+    public ServiceRequest copy() {
+        ServiceRequest copy = new ServiceRequest();
+        copy.requestId = requestId;
+        copy.elderId = elderId;
+        copy.serviceType = serviceType;
+        copy.content = content;
+        copy.requestTime = requestTime;
+        copy.status = status;
+        copy.assigneeId = assigneeId;
+        return copy;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("requestId", requestId);
+        fields.put("elderId", elderId);
+        fields.put("serviceType", serviceType);
+        fields.put("content", content);
+        fields.put("requestTime", new Date(requestTime));
+        fields.put("status", status.getLabel());
+        fields.put("assigneeId", assigneeId);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        requestId = (String) fields.get("requestId", null);
+        elderId = (String) fields.get("elderId", null);
+        serviceType = (String) fields.get("serviceType", null);
+        content = (String) fields.get("content", null);
+        Date time = (Date) fields.get("requestTime", null);
+        requestTime = (time == null) ? 0L : time.getTime();
+        String label = (String) fields.get("status", null);
+        status = storedStatusOf(label);
+        assigneeId = (String) fields.get("assigneeId", null);
+    }
+
+    // 早期版本可保存任意状态名称：无法识别的按待处理读入并记录日志，不因一条申请使整个数据文件无法读取
+    private ServiceStatus storedStatusOf(String label) {
+        if (label == null) {
+            return ServiceStatus.PENDING;
+        }
+        try {
+            return ServiceStatus.fromLabel(label);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("服务申请{}的状态无法识别：{}，按待处理读入", requestId, label);
+            return ServiceStatus.PENDING;
+        }
+    }
+
+    // 反序列化后将老人ID替换为字典中的唯一实例，避免每条记录各持有一份相同字符串
+    private Object readResolve() {
+        this.elderId = IdDictionary.canonical(elderId);
+        return this;
     }
 
     @Override
@@ -121,8 +232,9 @@ public class ServiceRequest implements Serializable {
                 "requestId='" + requestId + '\'' +
                 ", elderId='" + elderId + '\'' +
                 ", serviceType='" + serviceType + '\'' +
-                ", requestTime=" + requestTime +
-                ", status='" + status + '\'' +
+                ", requestTime=" + DateFormatUtil.formatDateTime(requestTime) +
+                ", status='" + status.getLabel() + '\'' +
+                ", assigneeId='" + assigneeId + '\'' +
                 '}'; // 内容字段可能较长，不打印
     }
 }
\ No newline at end of file
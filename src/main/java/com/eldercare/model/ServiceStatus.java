@@ -0,0 +1,64 @@
+package com.eldercare.model;
+
+/**
+ * 服务申请状态
+ * 状态流转：待处理→处理中→已完成；待处理、处理中可直接完成或取消；处理中可退回待处理（护工退单）
+ * 已完成、已取消为终态，不能再变更
+ */
+public enum ServiceStatus {
+    PENDING("待处理"),
+    IN_PROGRESS("处理中"),
+    COMPLETED("已完成"),
+    CANCELLED("已取消");
+
+    private final String label;
+
+    ServiceStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * 状态中文名称（界面显示及数据文件中保存的值）
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == CANCELLED;
+    }
+
+    /**
+     * 是否允许从当前状态变更为目标状态（相同状态不算变更）
+     */
+    public boolean canTransitionTo(ServiceStatus next) {
+        switch (this) {
+            case PENDING:
+                return next == IN_PROGRESS || next == COMPLETED || next == CANCELLED;
+            case IN_PROGRESS:
+                return next == PENDING || next == COMPLETED || next == CANCELLED;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 根据中文名称解析状态
+     * @param label 状态名称（待处理/处理中/已完成/已取消）
+     */
+    public static ServiceStatus fromLabel(String label) {
+        if (label != null) {
+            for (ServiceStatus status : values()) {
+                if (status.label.equals(label.trim())) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("状态必须是待处理、处理中、已完成或已取消");
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
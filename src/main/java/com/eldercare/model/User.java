@@ -12,10 +12,12 @@ public class User implements Serializable {
 
     // 登录账号（唯一标识），如admin、family_001
     private String userId;
-    // 登录密码（实际项目需加密存储，此处简化）
+    // 登录密码（PBKDF2加盐哈希，旧数据中的明文在首次登录时自动迁移）
     private String password;
     // 角色：admin（管理员）、elder（老人）、family（家属）、caregiver（护工）
     private String role;
+    // 登录会话令牌（仅内存有效，不序列化）
+    private transient String sessionToken;
 
     // 无参构造方法（序列化、反射创建对象必需）
     public User() {}
@@ -59,6 +61,26 @@ public class User implements Serializable {
         }
     }
 
+    /**
+     * 直接设置已编码的密码哈希（由UserService在哈希完成后调用，不做明文长度校验）
+     * @param passwordHash PasswordHasher生成的哈希字符串
+     */
+    public void setPasswordHash(String passwordHash) {
+        if (passwordHash != null && !passwordHash.isEmpty()) {
+            this.password = passwordHash;
+        } else {
+            throw new IllegalArgumentException("密码哈希不能为空");
+        }
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
     public String getRole() {
         return role;
     }
@@ -72,6 +94,26 @@ public class User implements Serializable {
         }
     }
 
+    /**
+     * 复制用户（不含会话令牌），用于发布变更事件时保存快照
+     */
+    public User copy() {
+        User copy = new User();
+        copy.userId = userId;
+        copy.password = password;
+        copy.role = role;
+        return copy;
+    }
+
+    /**
+     * 复制用户（不含密码哈希和会话令牌），用于返回给界面或远程客户端
+     */
+    public User copyWithoutPassword() {
+        User copy = copy();
+        copy.password = null;
+        return copy;
+    }
+
     /**
      * 校验角色是否合法（私有，仅内部使用）
      * @param role 角色标识
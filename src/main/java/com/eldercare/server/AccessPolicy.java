@@ -0,0 +1,226 @@
+package com.eldercare.server;
+
+import com.eldercare.model.CommunityMessage;
+import com.eldercare.model.Elder;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.User;
+import com.eldercare.service.ElderService;
+import com.eldercare.service.RelationService;
+import com.eldercare.service.ServiceRequestService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 远程调用的权限规则
+ * 功能：按"业务类.方法"规定可调用的角色，与各角色界面（AdminFrame/CaregiverFrame/ElderFrame/FamilyFrame）能做的操作一致；
+ * 涉及具体老人或账号的方法再校验数据归属：老人只能操作本人，家属只能操作已关联的老人，护工只能以本人身份接单、写日志
+ * 未列出的查询方法所有已登录角色均可调用，未列出的写方法仅管理员可调用
+ */
+final class AccessPolicy {
+    private static final String ADMIN = "admin";
+    private static final String ELDER = "elder";
+    private static final String FAMILY = "family";
+    private static final String CAREGIVER = "caregiver";
+    private static final Set<String> ALL_ROLES = Set.of(ADMIN, ELDER, FAMILY, CAREGIVER);
+
+    /**
+     * 无需登录的方法
+     */
+    static final Set<String> PUBLIC_METHODS = Set.of("UserService.login", "UserService.registerUser");
+    // 未登录时可自行注册的角色（管理员、护工账号须由管理员创建）
+    private static final Set<String> SELF_SERVICE_ROLES = Set.of(ELDER, FAMILY);
+
+    /**
+     * 数据归属校验方式
+     */
+    private enum Scope {
+        // 不校验
+        NONE,
+        // 参数为本人账号（管理员不受限）
+        SELF,
+        // 参数必须为本人账号（管理员同样受限，如密码校验）
+        SELF_ONLY,
+        // 参数为老人ID或带老人ID的对象：老人须为本人，家属须已关联（管理员、护工不受限）
+        ELDER,
+        // 参数为服务申请ID：按申请所属老人校验，同ELDER
+        REQUEST
+    }
+
+    private static final class Rule {
+        final Set<String> roles;
+        final Scope scope;
+        final int argIndex;
+
+        Rule(Set<String> roles, Scope scope, int argIndex) {
+            this.roles = roles;
+            this.scope = scope;
+            this.argIndex = argIndex;
+        }
+    }
+
+    private static final Map<String, Rule> RULES = Map.ofEntries(
+            // 账号：管理员管理账号，各角色可修改自己的密码、退出登录
+            rule("UserService.addUser", Set.of(ADMIN)),
+            rule("UserService.getAllUsers", Set.of(ADMIN)),
+            rule("UserService.updateUserPassword", Set.of(ADMIN)),
+            rule("UserService.updateUserRole", Set.of(ADMIN)),
+            rule("UserService.deleteUser", Set.of(ADMIN)),
+            rule("UserService.verifyPassword", ALL_ROLES, Scope.SELF_ONLY, 0),
+            rule("UserService.changePassword", ALL_ROLES),
+            rule("UserService.logout", ALL_ROLES),
+            // 老人信息：管理员增删，老人修改本人信息
+            rule("ElderService.addElder", Set.of(ADMIN)),
+            rule("ElderService.deleteElder", Set.of(ADMIN)),
+            rule("ElderService.updateElder", Set.of(ADMIN, ELDER), Scope.ELDER, 0),
+            // 健康记录与预警：护工录入，家属可确认预警
+            rule("HealthRecordService.addHealthRecord", Set.of(ADMIN, CAREGIVER)),
+            rule("HealthRecordService.addHealthRecords", Set.of(ADMIN, CAREGIVER)),
+            rule("HealthAlertService.checkHealthAlert", Set.of(ADMIN, CAREGIVER)),
+            rule("HealthAlertService.acknowledgeAlert", Set.of(ADMIN, CAREGIVER, FAMILY)),
+            // 服务申请：老人、家属为本人/关联老人提交，护工处理，家属可取消关联老人的申请
+            rule("ServiceRequestService.submitRequest", Set.of(ADMIN, ELDER, FAMILY), Scope.ELDER, 0),
+            rule("ServiceRequestService.updateRequestStatus", Set.of(ADMIN, CAREGIVER, FAMILY), Scope.REQUEST, 0),
+            // 派单：护工以本人身份上班、接单，管理员可指派
+            rule("DispatchService.startShift", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("DispatchService.endShift", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("DispatchService.claimNext", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("DispatchService.claim", Set.of(ADMIN, CAREGIVER), Scope.SELF, 1),
+            rule("DispatchService.start", Set.of(ADMIN, CAREGIVER), Scope.SELF, 1),
+            rule("DispatchService.release", Set.of(ADMIN, CAREGIVER), Scope.SELF, 1),
+            rule("DispatchService.assign", Set.of(ADMIN)),
+            rule("DispatchService.getQueue", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("DispatchService.getUnassignedRequests", Set.of(ADMIN, CAREGIVER)),
+            // 工作日志：护工只读写本人日志
+            rule("WorkLogService.saveLog", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("WorkLogService.getLog", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            rule("WorkLogService.getLogsByCaregiver", Set.of(ADMIN, CAREGIVER), Scope.SELF, 0),
+            // 活动：管理员创建，老人、家属为本人/关联老人报名或取消
+            rule("ActivityService.createActivity", Set.of(ADMIN)),
+            rule("ActivityService.initDefaultActivities", Set.of(ADMIN)),
+            rule("ActivityService.register", Set.of(ADMIN, ELDER, FAMILY), Scope.ELDER, 1),
+            rule("ActivityService.registerActivity", Set.of(ADMIN, ELDER, FAMILY), Scope.ELDER, 1),
+            rule("ActivityService.cancelRegistration", Set.of(ADMIN, ELDER, FAMILY), Scope.ELDER, 1),
+            // 社区留言：老人以本人身份发布、删除，所有角色可点赞
+            rule("CommunityService.postMessage", Set.of(ADMIN, ELDER), Scope.ELDER, 0),
+            rule("CommunityService.deleteMessage", Set.of(ADMIN, ELDER), Scope.ELDER, 1),
+            rule("CommunityService.likeMessage", ALL_ROLES),
+            // 家属关联：家属只能维护本人的关联，护工可通知家属
+            rule("RelationService.addRelation", Set.of(ADMIN, FAMILY), Scope.SELF, 0),
+            rule("RelationService.removeRelation", Set.of(ADMIN, FAMILY), Scope.SELF, 0),
+            rule("RelationService.notifyFamilies", Set.of(ADMIN, CAREGIVER)),
+            // 统计：仅管理员首页使用
+            rule("StatisticsService.rebuild", Set.of(ADMIN)),
+            rule("StatisticsService.getUsersByRole", Set.of(ADMIN)),
+            rule("StatisticsService.getEldersByAgeBand", Set.of(ADMIN)),
+            rule("StatisticsService.getEldersByHealthStatus", Set.of(ADMIN)),
+            rule("StatisticsService.getAlertsByDay", Set.of(ADMIN)),
+            rule("StatisticsService.getPendingAlertCount", Set.of(ADMIN)),
+            rule("StatisticsService.getActivityFills", Set.of(ADMIN)));
+
+    private AccessPolicy() {
+    }
+
+    private static Map.Entry<String, Rule> rule(String method, Set<String> roles) {
+        return rule(method, roles, Scope.NONE, -1);
+    }
+
+    private static Map.Entry<String, Rule> rule(String method, Set<String> roles, Scope scope, int argIndex) {
+        return Map.entry(method, new Rule(roles, scope, argIndex));
+    }
+
+    /**
+     * 拒绝访问
+     */
+    static final class AccessDeniedException extends Exception {
+        AccessDeniedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 校验未登录的公开方法调用：远程注册只能注册老人、家属账号（管理员登录后可注册任意角色）
+     * @param user 当前会话用户，未登录为null
+     * @param args 已转换的参数
+     */
+    static void checkPublic(User user, String qualifiedName, Object[] args) throws AccessDeniedException {
+        if ("UserService.registerUser".equals(qualifiedName) && (user == null || !ADMIN.equals(user.getRole()))
+                && !SELF_SERVICE_ROLES.contains(args[2])) {
+            throw new AccessDeniedException("只能自行注册老人或家属账号，其他角色请联系管理员创建");
+        }
+    }
+
+    /**
+     * 校验已登录用户能否调用该方法
+     * @param user 当前会话用户
+     * @param qualifiedName 业务类.方法
+     * @param methodName 方法名（判断是否为查询方法）
+     * @param args 已转换的参数
+     */
+    static void check(User user, String qualifiedName, String methodName, Object[] args)
+            throws AccessDeniedException, IOException, ClassNotFoundException {
+        Rule rule = RULES.get(qualifiedName);
+        if (rule == null) {
+            if (InvalidationLog.isQuery(methodName) || ADMIN.equals(user.getRole())) {
+                return;
+            }
+            throw new AccessDeniedException("仅管理员可执行此操作");
+        }
+        if (!rule.roles.contains(user.getRole())) {
+            throw new AccessDeniedException("当前角色无权执行此操作");
+        }
+        Object arg = rule.argIndex >= 0 && rule.argIndex < args.length ? args[rule.argIndex] : null;
+        switch (rule.scope) {
+            case SELF:
+                if (!ADMIN.equals(user.getRole()) && !user.getUserId().equals(arg)) {
+                    throw new AccessDeniedException("只能操作本人的数据");
+                }
+                break;
+            case SELF_ONLY:
+                if (!user.getUserId().equals(arg)) {
+                    throw new AccessDeniedException("只能操作本人的数据");
+                }
+                break;
+            case ELDER:
+                checkElder(user, elderIdOf(arg));
+                break;
+            case REQUEST:
+                if (ELDER.equals(user.getRole()) || FAMILY.equals(user.getRole())) {
+                    ServiceRequest request = arg == null ? null
+                            : ServiceRequestService.getInstance().getRequestById((String) arg);
+                    checkElder(user, request == null ? null : request.getElderId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 老人只能操作本人，家属只能操作已关联的老人
+    private static void checkElder(User user, String elderId) throws AccessDeniedException, IOException, ClassNotFoundException {
+        if (ELDER.equals(user.getRole())) {
+            Elder own = ElderService.getInstance().getElderByUserId(user.getUserId());
+            if (own == null || !own.getElderId().equals(elderId)) {
+                throw new AccessDeniedException("只能操作本人的数据");
+            }
+        } else if (FAMILY.equals(user.getRole())) {
+            if (elderId == null || !RelationService.getInstance().isAssociated(user.getUserId(), elderId)) {
+                throw new AccessDeniedException("只能操作已关联老人的数据");
+            }
+        }
+    }
+
+    private static String elderIdOf(Object arg) {
+        if (arg instanceof Elder) {
+            return ((Elder) arg).getElderId();
+        }
+        if (arg instanceof ServiceRequest) {
+            return ((ServiceRequest) arg).getElderId();
+        }
+        if (arg instanceof CommunityMessage) {
+            return ((CommunityMessage) arg).getElderId();
+        }
+        return arg instanceof String ? (String) arg : null;
+    }
+}
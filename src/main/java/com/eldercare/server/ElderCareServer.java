@@ -0,0 +1,462 @@
+package com.eldercare.server;
+
+import com.eldercare.model.User;
+import com.eldercare.service.ActivityService;
+import com.eldercare.service.CommunityService;
+import com.eldercare.service.DispatchService;
+import com.eldercare.service.ElderService;
+import com.eldercare.service.HealthAlertService;
+import com.eldercare.service.HealthRecordService;
+import com.eldercare.service.ReminderService;
+import com.eldercare.service.RelationService;
+import com.eldercare.service.ServiceRequestService;
+import com.eldercare.service.StatisticsService;
+import com.eldercare.service.SyncService;
+import com.eldercare.service.UserService;
+import com.eldercare.service.WorkLogService;
+import com.eldercare.util.ContinuousBackup;
+import com.eldercare.util.DeferredSaver;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.StorageWatcher;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 多客户端服务端（无界面）
+ * 功能：用JDK自带的HttpServer对外提供业务层接口，每个请求一个虚拟线程；
+ * 所有工作站共用服务端进程内的一份业务数据，不再各自读写同一批.ser文件而互相覆盖
+ *
+ * 接口（JSON，UTF-8）：
+ *   POST /api/{业务类}/{方法}   请求体为参数数组，如 ["ELDER_xxx"]；无参数时可为空
+ *       成功：200 {"result": 返回值}
+ *       失败：400（参数或业务规则错误）/401（未登录）/403（无权限）/404（方法不存在）/500
+ *             {"error": "错误信息", "type": "异常类名"}
+ *   POST /api/batch            批量调用，请求体为 [{"service":..., "method":..., "args":[...]}, ...]，
+ *                              一次往返按顺序执行多个调用，返回 {"results": [...]}
+ *   GET  /api/changes?since=N  长轮询序号N之后变更的数据，供客户端清除缓存
+ *   GET  /api/health           服务状态（有数据保存失败、等待重试时返回503和DEGRADED）
+ * 除UserService.login、UserService.registerUser外，请求须带登录返回的会话令牌（请求头X-Session-Token），
+ * 各角色可调用的方法见AccessPolicy；未登录时只能注册老人、家属账号
+ * 方法按名称和参数个数匹配；响应超过1KB且客户端支持时使用gzip压缩
+ *
+ * 启动：java -Deldercare.data.dir=<数据目录> -cp ... com.eldercare.server.ElderCareServer [端口=8088]
+ */
+public class ElderCareServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElderCareServer.class);
+
+    public static final String SESSION_HEADER = "X-Session-Token";
+    public static final int DEFAULT_PORT = 8088;
+
+    private static final int MAX_REQUEST_BYTES = 8 * 1024 * 1024;
+    private static final int GZIP_THRESHOLD = 1024;
+    private static final int MAX_BATCH_CALLS = 500;
+    private static final long DEFAULT_POLL_MILLIS = 25_000;
+    private static final long MAX_POLL_MILLIS = 60_000;
+    // 只影响会话、不修改数据的方法（不触发缓存失效）
+    private static final Set<String> SESSION_METHODS = Set.of("UserService.login", "UserService.logout");
+    private static final MetricsRegistry.Timer REQUEST_TIMER = MetricsRegistry.timer("server.request");
+    private static final MetricsRegistry.Counter ERROR_COUNTER = MetricsRegistry.counter("server.errors");
+    private static final MetricsRegistry.Counter BATCH_CALL_COUNTER = MetricsRegistry.counter("server.batchCalls");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, ServiceEndpoint> endpoints = new HashMap<>();
+    private final InvalidationLog invalidationLog = new InvalidationLog(4096);
+    private final long startTime = System.currentTimeMillis();
+
+    public ElderCareServer(int port) throws IOException {
+        register("UserService", UserService.getInstance());
+        register("ElderService", ElderService.getInstance());
+        register("HealthRecordService", HealthRecordService.getInstance());
+        register("HealthAlertService", HealthAlertService.getInstance());
+        register("ServiceRequestService", ServiceRequestService.getInstance());
+        register("ActivityService", ActivityService.getInstance());
+        register("CommunityService", CommunityService.getInstance());
+        // 各界面还会用到的业务类
+        register("RelationService", RelationService.getInstance());
+        register("DispatchService", DispatchService.getInstance());
+        register("WorkLogService", WorkLogService.getInstance());
+        register("StatisticsService", StatisticsService.getInstance());
+        // 增量同步：客户端按版本号只取变化的数据
+        register("SyncService", SyncService.getInstance());
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 256);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    /**
+     * 主方法
+     * @param args [端口]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("eldercare.server.port", DEFAULT_PORT);
+        ElderCareServer server = new ElderCareServer(port);
+        ReminderService.getInstance().start();
+        // 数据目录可能被其他实例（如本地模式的界面程序）同时使用
+        StorageWatcher.start();
+        // 配置了复制端口（-Deldercare.replication.port）时作为主库向备库推送数据修改
+        ReplicationPrimary.startFromSystemProperty();
+        // 配置了备份目录（-Deldercare.backup.dir）时做在线增量备份并归档数据修改
+        ContinuousBackup.startFromSystemProperty();
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            DeferredSaver.flushAll();
+        }, "eldercare-server-shutdown"));
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("服务端已启动，端口：{}，接口数：{}", server.getAddress().getPort(),
+                endpoints.values().stream().mapToInt(endpoint -> endpoint.methods.size()).sum());
+    }
+
+    /**
+     * 停止服务
+     * @param delaySeconds 等待进行中请求完成的最长秒数
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        LOGGER.info("服务端已停止");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void register(String name, Object service) {
+        endpoints.put(name, new ServiceEndpoint(name, service));
+    }
+
+    /**
+     * 处理一个请求（运行在虚拟线程上）
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = REQUEST_TIMER.start();
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            if (path.length == 1 && "health".equals(path[0])) {
+                // 有数据持续保存失败（DeferredSaver等待重试）时报告DEGRADED
+                Map<String, String> failures = DeferredSaver.getFailures();
+                JsonObject status = new JsonObject();
+                status.addProperty("status", failures.isEmpty() ? "UP" : "DEGRADED");
+                status.addProperty("uptimeMillis", System.currentTimeMillis() - startTime);
+                status.addProperty("sequence", invalidationLog.currentSequence());
+                if (!failures.isEmpty()) {
+                    JsonObject unsaved = new JsonObject();
+                    failures.forEach(unsaved::addProperty);
+                    status.add("unsaved", unsaved);
+                }
+                send(exchange, failures.isEmpty() ? 200 : 503, status);
+                return;
+            }
+            String sessionToken = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (path.length == 1 && "changes".equals(path[0])) {
+                send(exchange, 200, changes(exchange.getRequestURI().getRawQuery(), sessionToken));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                throw new ApiException(405, "仅支持POST请求");
+            }
+            if (path.length == 1 && "batch".equals(path[0])) {
+                send(exchange, 200, batch(readBody(exchange), sessionToken));
+                return;
+            }
+            if (path.length != 2) {
+                throw new ApiException(404, "接口不存在：" + exchange.getRequestURI().getPath());
+            }
+            send(exchange, 200, execute(path[0], path[1], toArgs(readBody(exchange)), sessionToken));
+        } catch (ApiException e) {
+            send(exchange, e.status, error(e.status, e.getMessage(), null));
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            send(exchange, 400, error(400, e.getMessage(), e));
+        } catch (Exception e) {
+            ERROR_COUNTER.increment();
+            LOGGER.error("请求处理失败：{}", exchange.getRequestURI(), e);
+            send(exchange, 500, error(500, e.getMessage(), e));
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * 执行一次业务方法调用：校验登录、转换参数、按AccessPolicy校验权限、调用，写方法执行后记录缓存失效
+     */
+    private JsonObject execute(String serviceName, String methodName, JsonArray args, String sessionToken) throws Exception {
+        ServiceEndpoint endpoint = endpoints.get(serviceName);
+        if (endpoint == null) {
+            throw new ApiException(404, "业务类不存在：" + serviceName);
+        }
+        Method method = endpoint.find(methodName, args.size());
+        if (method == null) {
+            throw new ApiException(404, "方法不存在：" + serviceName + "." + methodName + "（" + args.size() + "个参数）");
+        }
+        String qualifiedName = serviceName + "." + methodName;
+        boolean isPublic = AccessPolicy.PUBLIC_METHODS.contains(qualifiedName);
+        User user = isPublic ? UserService.getInstance().getSessionUser(sessionToken) : authenticate(sessionToken);
+        Object[] values = toValues(method, args);
+        try {
+            if (isPublic) {
+                AccessPolicy.checkPublic(user, qualifiedName, values);
+            } else {
+                AccessPolicy.check(user, qualifiedName, methodName, values);
+            }
+        } catch (AccessPolicy.AccessDeniedException e) {
+            throw new ApiException(403, e.getMessage());
+        }
+        JsonObject response = invoke(endpoint, method, qualifiedName, values);
+        if (!InvalidationLog.isQuery(methodName) && !SESSION_METHODS.contains(qualifiedName)) {
+            invalidationLog.record(InvalidationLog.storesOf(serviceName).get(0));
+        }
+        return response;
+    }
+
+    private User authenticate(String sessionToken) throws ApiException {
+        User user = UserService.getInstance().getSessionUser(sessionToken);
+        if (user == null) {
+            throw new ApiException(401, "未登录或会话已过期");
+        }
+        return user;
+    }
+
+    /**
+     * 批量调用：请求体为 [{"service":..., "method":..., "args":[...]}, ...]，按顺序执行，
+     * 返回 {"results": [...]}，每项为单次调用的响应（失败项带status和error，不影响其他调用）
+     */
+    private JsonObject batch(JsonElement body, String sessionToken) throws ApiException {
+        if (!body.isJsonArray()) {
+            throw new IllegalArgumentException("批量请求体必须是调用数组");
+        }
+        JsonArray calls = body.getAsJsonArray();
+        if (calls.size() > MAX_BATCH_CALLS) {
+            throw new ApiException(413, "单次批量调用不能超过" + MAX_BATCH_CALLS + "个");
+        }
+        BATCH_CALL_COUNTER.add(calls.size());
+        JsonArray results = new JsonArray();
+        for (JsonElement element : calls) {
+            try {
+                JsonObject call = element.getAsJsonObject();
+                results.add(execute(call.get("service").getAsString(), call.get("method").getAsString(),
+                        toArgs(call.get("args")), sessionToken));
+            } catch (ApiException e) {
+                results.add(error(e.status, e.getMessage(), null));
+            } catch (IllegalArgumentException | IllegalStateException | JsonParseException
+                     | NullPointerException | UnsupportedOperationException e) {
+                results.add(error(400, e.getMessage(), e));
+            } catch (Exception e) {
+                ERROR_COUNTER.increment();
+                LOGGER.error("批量调用失败：{}", element, e);
+                results.add(error(500, e.getMessage(), e));
+            }
+        }
+        JsonObject response = new JsonObject();
+        response.add("results", results);
+        return response;
+    }
+
+    /**
+     * 长轮询数据变更：GET /api/changes?since=序号&wait=毫秒
+     * 返回 {"sequence": 最新序号, "reset": 是否需清空全部缓存, "stores": [变更的存储key]}
+     */
+    private JsonObject changes(String query, String sessionToken) throws Exception {
+        authenticate(sessionToken);
+        long since = 0;
+        long wait = DEFAULT_POLL_MILLIS;
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("since=")) {
+                    since = Long.parseLong(param.substring("since=".length()));
+                } else if (param.startsWith("wait=")) {
+                    wait = Math.min(Long.parseLong(param.substring("wait=".length())), MAX_POLL_MILLIS);
+                }
+            }
+        }
+        InvalidationLog.Changes changes = invalidationLog.awaitChanges(since, wait);
+        JsonObject response = new JsonObject();
+        response.addProperty("sequence", changes.getSequence());
+        response.addProperty("reset", changes.isReset());
+        JsonArray stores = new JsonArray();
+        changes.getStores().forEach(stores::add);
+        response.add("stores", stores);
+        return response;
+    }
+
+    /**
+     * 读取请求体；过大时返回413
+     */
+    private JsonElement readBody(HttpExchange exchange) throws IOException, ApiException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_REQUEST_BYTES) {
+                    throw new ApiException(413, "请求体过大");
+                }
+            }
+        }
+        String text = body.toString(StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? JsonNull.INSTANCE : JsonParser.parseString(text);
+    }
+
+    /**
+     * 参数数组；无参数时可省略
+     */
+    private static JsonArray toArgs(JsonElement json) {
+        if (json == null || json.isJsonNull()) {
+            return new JsonArray();
+        }
+        if (!json.isJsonArray()) {
+            throw new IllegalArgumentException("参数必须是数组");
+        }
+        return json.getAsJsonArray();
+    }
+
+    /**
+     * 按方法的参数类型转换JSON参数
+     */
+    private static Object[] toValues(Method method, JsonArray args) {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] values = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            values[i] = JsonCodec.GSON.fromJson(args.get(i), types[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 调用业务方法
+     */
+    private JsonObject invoke(ServiceEndpoint endpoint, Method method, String qualifiedName, Object[] values) throws Exception {
+        Object result;
+        try {
+            result = method.invoke(endpoint.service, values);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+        JsonObject response = new JsonObject();
+        JsonElement json = JsonCodec.RESPONSE_GSON.toJsonTree(result);
+        // 会话令牌不随User序列化，登录时单独返回
+        if ("UserService.login".equals(qualifiedName) && result != null) {
+            json.getAsJsonObject().addProperty("sessionToken", ((User) result).getSessionToken());
+        }
+        response.add("result", json);
+        return response;
+    }
+
+    private static JsonObject error(int status, String message, Exception e) {
+        JsonObject error = new JsonObject();
+        error.addProperty("status", status);
+        error.addProperty("error", message == null ? "服务端错误" : message);
+        if (e != null) {
+            error.addProperty("type", e.getClass().getSimpleName());
+        }
+        return error;
+    }
+
+    private void send(HttpExchange exchange, int status, JsonObject json) throws IOException {
+        byte[] bytes = JsonCodec.RESPONSE_GSON.toJson(json).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (bytes.length > GZIP_THRESHOLD && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(status, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(bytes);
+            }
+        } else {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * 返回指定HTTP状态码的请求错误
+     */
+    private static class ApiException extends Exception {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * 一个业务类对外提供的方法（按"方法名/参数个数"索引）
+     * 只公开业务类自身声明的公开实例方法，监听器等无法通过JSON传递的参数类型不公开
+     */
+    private static class ServiceEndpoint {
+        final Object service;
+        final Map<String, Method> methods = new HashMap<>();
+
+        ServiceEndpoint(String name, Object service) {
+            this.service = service;
+            Map<String, Integer> overloads = new HashMap<>();
+            for (Method method : service.getClass().getMethods()) {
+                if (method.getDeclaringClass() != service.getClass() || Modifier.isStatic(method.getModifiers()) || !isRemotable(method)) {
+                    continue;
+                }
+                String key = method.getName() + "/" + method.getParameterCount();
+                if (overloads.merge(key, 1, Integer::sum) > 1) {
+                    // 同名同参数个数无法按JSON区分，不公开
+                    methods.remove(key);
+                    LOGGER.warn("方法重载无法区分，不对外提供：{}.{}", name, key);
+                    continue;
+                }
+                methods.put(key, method);
+            }
+        }
+
+        Method find(String name, int argCount) {
+            return methods.get(name + "/" + argCount);
+        }
+
+        private static boolean isRemotable(Method method) {
+            for (Class<?> type : method.getParameterTypes()) {
+                if (type.getPackageName().equals("java.util.function") || Runnable.class == type
+                        || java.util.concurrent.Callable.class == type) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
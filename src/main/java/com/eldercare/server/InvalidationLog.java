@@ -0,0 +1,155 @@
+package com.eldercare.server;
+
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.util.ChangeEventBus;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 缓存失效日志
+ * 功能：记录服务端最近发生变更的数据（按存储key），远程客户端长轮询"某序号之后有哪些数据变了"，
+ * 据此清除本地缓存；来源包括业务层发布的变更事件和经服务端执行的写方法
+ * 只保留最近的若干条，客户端落后太多（或服务端重启）时返回reset，由客户端清空全部缓存
+ */
+public class InvalidationLog {
+    /**
+     * 代表全部数据（统计类结果依赖所有数据）
+     */
+    public static final String ALL = "*";
+
+    // 各业务类查询结果依赖的数据，第一个为该业务类写方法修改的数据
+    private static final Map<String, List<String>> SERVICE_STORES = Map.ofEntries(
+            Map.entry("UserService", List.of(ChangeEvent.USERS)),
+            Map.entry("ElderService", List.of(ChangeEvent.ELDERS)),
+            Map.entry("HealthRecordService", List.of(ChangeEvent.HEALTH_RECORDS, ChangeEvent.ELDERS)),
+            Map.entry("HealthAlertService", List.of(ChangeEvent.HEALTH_ALERTS)),
+            Map.entry("ServiceRequestService", List.of(ChangeEvent.SERVICE_REQUESTS, ChangeEvent.ELDERS)),
+            Map.entry("DispatchService", List.of(ChangeEvent.SERVICE_REQUESTS)),
+            Map.entry("ActivityService", List.of(ChangeEvent.ACTIVITIES)),
+            Map.entry("CommunityService", List.of(ChangeEvent.COMMUNITY_MESSAGES)),
+            Map.entry("RelationService", List.of(ChangeEvent.RELATIONS, ChangeEvent.ELDERS)),
+            Map.entry("WorkLogService", List.of(ChangeEvent.WORK_LOGS)),
+            Map.entry("StatisticsService", List.of(ALL)));
+    // 查询方法名前缀（其余方法视为写方法）
+    private static final String[] QUERY_PREFIXES = {"get", "query", "find", "is", "verify"};
+
+    private final int capacity;
+    // 环形缓冲：序号为seq的记录存放在 seq % capacity
+    private final String[] stores;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long sequence;
+
+    /**
+     * 变更查询结果
+     */
+    public static final class Changes {
+        private final long sequence;
+        private final boolean reset;
+        private final Set<String> stores;
+
+        Changes(long sequence, boolean reset, Set<String> stores) {
+            this.sequence = sequence;
+            this.reset = reset;
+            this.stores = stores;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean isReset() {
+            return reset;
+        }
+
+        public Set<String> getStores() {
+            return stores;
+        }
+    }
+
+    /**
+     * @param capacity 保留的最近变更条数
+     */
+    public InvalidationLog(int capacity) {
+        this.capacity = capacity;
+        this.stores = new String[capacity];
+        ChangeEventBus.subscribe(event -> record(event.getEntityType()));
+    }
+
+    /**
+     * 业务类查询结果依赖的数据
+     * @param service 业务类名（如ElderService）
+     */
+    public static List<String> storesOf(String service) {
+        return SERVICE_STORES.getOrDefault(service, List.of(ALL));
+    }
+
+    /**
+     * 是否为查询方法（按方法名判断，查询结果可在客户端缓存，写方法执行后需使缓存失效）
+     */
+    public static boolean isQuery(String method) {
+        for (String prefix : QUERY_PREFIXES) {
+            if (method.startsWith(prefix) && method.length() > prefix.length()
+                    && Character.isUpperCase(method.charAt(prefix.length()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录一次数据变更并唤醒等待中的长轮询
+     * @param store 存储key
+     */
+    public void record(String store) {
+        lock.lock();
+        try {
+            sequence++;
+            stores[(int) (sequence % capacity)] = store;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long currentSequence() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 查询since之后的变更；暂无变更时最多等待timeoutMillis毫秒（长轮询）
+     * @param since 客户端已处理到的序号
+     * @param timeoutMillis 最长等待时间
+     * @return 变更的数据（已去重）；无法确定变更范围时reset为true
+     */
+    public Changes awaitChanges(long since, long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            while (sequence == since && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+            if (since > sequence || since < sequence - capacity) {
+                return new Changes(sequence, true, Set.of());
+            }
+            Set<String> result = new LinkedHashSet<>();
+            for (long seq = since + 1; seq <= sequence; seq++) {
+                result.add(stores[(int) (seq % capacity)]);
+            }
+            return new Changes(sequence, false, result);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.eldercare.server;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.User;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 服务端与客户端共用的JSON编解码配置
+ * 功能：统一日期格式（毫秒时间戳、ISO日期），处理Activity中不参与反射序列化的报名/候补名单
+ */
+public final class JsonCodec {
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {}.getType();
+
+    /**
+     * 完整编解码（请求参数、客户端使用）
+     */
+    public static final Gson GSON = builder().create();
+
+    /**
+     * 服务端响应编码：不输出用户密码哈希
+     */
+    public static final Gson RESPONSE_GSON = builder()
+            .addSerializationExclusionStrategy(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getDeclaringClass() == User.class && "password".equals(field.getName());
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            })
+            .create();
+
+    private JsonCodec() {}
+
+    private static GsonBuilder builder() {
+        return new GsonBuilder()
+                .disableHtmlEscaping()
+                .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> new JsonPrimitive(date.getTime()))
+                .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, type, context) -> new Date(json.getAsLong()))
+                .registerTypeAdapter(LocalDate.class, (JsonSerializer<LocalDate>) (date, type, context) -> new JsonPrimitive(date.toString()))
+                .registerTypeAdapter(LocalDate.class, (JsonDeserializer<LocalDate>) (json, type, context) -> LocalDate.parse(json.getAsString()))
+                .registerTypeAdapter(Activity.class, new ActivityAdapter());
+    }
+
+    /**
+     * 活动编解码：报名、候补名单和解析后的时间是transient字段，按公开属性读写
+     */
+    private static class ActivityAdapter implements JsonSerializer<Activity>, JsonDeserializer<Activity> {
+        @Override
+        public JsonElement serialize(Activity activity, Type type, JsonSerializationContext context) {
+            JsonObject json = new JsonObject();
+            json.addProperty("activityId", activity.getActivityId());
+            json.addProperty("name", activity.getName());
+            json.addProperty("time", activity.getTime());
+            json.addProperty("location", activity.getLocation());
+            json.addProperty("description", activity.getDescription());
+            json.addProperty("capacity", activity.getCapacity());
+            json.add("registeredElderIds", context.serialize(activity.getRegisteredElderIds(), STRING_LIST));
+            json.add("waitlistElderIds", context.serialize(activity.getWaitlistElderIds(), STRING_LIST));
+            return json;
+        }
+
+        @Override
+        public Activity deserialize(JsonElement element, Type type, JsonDeserializationContext context) {
+            JsonObject json = element.getAsJsonObject();
+            Activity activity = new Activity();
+            // 属性setter会校验非空，新建活动时ID等为空，只设置有值的属性
+            String activityId = string(json, "activityId");
+            if (activityId != null) {
+                activity.setActivityId(activityId);
+            }
+            String name = string(json, "name");
+            if (name != null) {
+                activity.setName(name);
+            }
+            String time = string(json, "time");
+            if (time != null) {
+                activity.setTime(time);
+            }
+            String location = string(json, "location");
+            if (location != null) {
+                activity.setLocation(location);
+            }
+            activity.setDescription(string(json, "description"));
+            if (json.has("capacity")) {
+                activity.setCapacity(json.get("capacity").getAsInt());
+            }
+            List<String> registered = context.deserialize(array(json, "registeredElderIds"), STRING_LIST);
+            activity.setRegisteredElderIds(registered);
+            List<String> waitlist = context.deserialize(array(json, "waitlistElderIds"), STRING_LIST);
+            for (String elderId : waitlist) {
+                activity.addToWaitlist(elderId);
+            }
+            return activity;
+        }
+
+        private static String string(JsonObject json, String name) {
+            JsonElement value = json.get(name);
+            return value == null || value.isJsonNull() ? null : value.getAsString();
+        }
+
+        private static JsonArray array(JsonObject json, String name) {
+            JsonElement value = json.get(name);
+            return value == null || !value.isJsonArray() ? new JsonArray() : value.getAsJsonArray();
+        }
+    }
+}
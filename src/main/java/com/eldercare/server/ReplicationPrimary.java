@@ -0,0 +1,221 @@
+package com.eldercare.server;
+
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.IdGenerator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.ReplicationLog;
+import com.eldercare.util.StorageLocks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据复制主库服务
+ * 功能：监听TCP端口，把ReplicationLog中已提交的数据文件修改推送给备库（ReplicationStandby）
+ * 备库连接时报告自己的纪元、日志来源和已应用的序号：日志可衔接时只补发之后的修改，否则先发送全量快照再持续推送；
+ * 备库每应用一批修改回复确认，同步模式下写入方据此等待；空闲时定期发送心跳
+ * 纪元（每次提升备库加一）比主库新的备库会被拒绝：说明已有备库被提升，本库是应停止写入的旧主库
+ * 启动：-Deldercare.replication.port=端口 -Deldercare.node.id=节点号 [-Deldercare.replication.mode=sync|async]，
+ * 主库和各备库的节点号必须不同（备库提升后也会生成ID）；由ElderCareServer和本地模式的Main在启动时调用startFromSystemProperty
+ */
+public class ReplicationPrimary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationPrimary.class);
+    // 复制端口的系统属性（未配置时不启动复制）
+    public static final String PORT_PROPERTY = "eldercare.replication.port";
+    // 确认模式的系统属性：async（默认）或sync
+    public static final String MODE_PROPERTY = "eldercare.replication.mode";
+    // 空闲时的心跳间隔（毫秒）
+    private static final long HEARTBEAT_MILLIS = 1_000L;
+
+    private static ReplicationPrimary instance;
+
+    private final ServerSocket serverSocket;
+    private final AtomicInteger standbys = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private ReplicationPrimary(int port) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        MetricsRegistry.gauge("replication.standbys", standbys::get);
+    }
+
+    /**
+     * 系统属性配置了复制端口时启用复制日志并开始监听（重复调用无效果）
+     * @return 是否已启动
+     */
+    public static synchronized boolean startFromSystemProperty() throws IOException {
+        if (instance != null) {
+            return true;
+        }
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return false;
+        }
+        // 备库提升后也会生成ID，主备须使用不同的节点号
+        IdGenerator.requireConfiguredNodeId("主备复制");
+        boolean sync = "sync".equalsIgnoreCase(System.getProperty(MODE_PROPERTY, "async"));
+        ReplicationLog.enable(sync);
+        instance = new ReplicationPrimary(port);
+        Thread acceptor = new Thread(instance::acceptLoop, "eldercare-replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info("数据复制主库已启动，端口：{}", port);
+        return true;
+    }
+
+    /**
+     * 停止监听并断开所有备库
+     */
+    public static synchronized void stop() {
+        if (instance == null) {
+            return;
+        }
+        instance.running = false;
+        try {
+            instance.serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.debug("关闭复制端口失败：{}", e.getMessage());
+        }
+        instance = null;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().name("eldercare-replication-" + socket.getRemoteSocketAddress())
+                        .start(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.warn("接受备库连接失败：{}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        SocketAddress remote = socket.getRemoteSocketAddress();
+        boolean counted = false;
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            ReplicationProtocol.Handshake handshake = ReplicationProtocol.readHandshake(in);
+            long epoch = ReplicationLog.getEpoch();
+            long historyId = ReplicationLog.getHistoryId();
+            if (handshake.epoch > epoch) {
+                ReplicationProtocol.writeReject(out, "备库纪元" + handshake.epoch + "新于主库纪元" + epoch + "，本库已被取代");
+                LOGGER.error("备库{}的纪元{}新于本库{}：已有备库被提升为主库，本库应停止写入", remote, handshake.epoch, epoch);
+                return;
+            }
+            ReplicationProtocol.writeAccept(out, epoch, historyId);
+            standbys.incrementAndGet();
+            ReplicationLog.standbyConnected(1);
+            counted = true;
+            LOGGER.info("备库已连接：{}（已应用序号{}）", remote, handshake.lsn);
+
+            Thread ackReader = Thread.ofVirtual().name("eldercare-replication-ack-" + remote).start(() -> readAcks(in, socket));
+            try {
+                long sent = handshake.historyId == historyId ? handshake.lsn : -1;
+                while (running && !socket.isClosed()) {
+                    List<ReplicationLog.Mutation> batch = sent < 0 ? null : ReplicationLog.awaitAfter(sent, HEARTBEAT_MILLIS);
+                    if (batch == null) {
+                        sent = sendSnapshot(out);
+                        LOGGER.info("已向备库{}发送全量快照（序号{}）", remote, sent);
+                    } else if (batch.isEmpty()) {
+                        ReplicationProtocol.writeHeartbeat(out, ReplicationLog.currentLsn());
+                        out.flush();
+                    } else {
+                        for (ReplicationLog.Mutation mutation : batch) {
+                            ReplicationProtocol.writeMutation(out, mutation);
+                        }
+                        out.flush();
+                        sent = batch.get(batch.size() - 1).getLsn();
+                        MetricsRegistry.counter("replication.mutations_sent").add(batch.size());
+                    }
+                }
+            } finally {
+                ackReader.interrupt();
+            }
+        } catch (IOException e) {
+            LOGGER.info("备库连接断开：{}（{}）", remote, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (counted) {
+                standbys.decrementAndGet();
+                ReplicationLog.standbyConnected(-1);
+            }
+        }
+    }
+
+    private void readAcks(DataInputStream in, Socket socket) {
+        try {
+            while (true) {
+                ReplicationLog.acknowledge(ReplicationProtocol.readAck(in));
+            }
+        } catch (IOException e) {
+            // 备库断开：关闭连接，发送线程随之退出
+            try {
+                socket.close();
+            } catch (IOException closeError) {
+                LOGGER.debug("关闭备库连接失败：{}", closeError.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 发送全量快照：先取当前序号，再逐个读取数据文件（持共享锁）；
+     * 读取期间发生的修改之后会再次发送，重放结果不变
+     * @return 快照对应的序号
+     */
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long lsn = ReplicationLog.currentLsn();
+        List<String> fileNames = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DataStorageUtil.getDataDir())) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (ReplicationLog.isReplicated(fileName)) {
+                    fileNames.add(fileName);
+                }
+            }
+        }
+        ReplicationProtocol.writeSnapshotBegin(out, fileNames.size());
+        for (String fileName : fileNames) {
+            byte[] data;
+            StorageLocks.Handle lock = StorageLocks.shared(fileName);
+            try {
+                Path file = DataStorageUtil.getDataFile(fileName);
+                if (!Files.exists(file)) {
+                    data = null;
+                } else {
+                    data = Files.readAllBytes(file);
+                }
+            } finally {
+                lock.close();
+            }
+            ReplicationProtocol.writeSnapshotFile(out, fileName, data);
+        }
+        ReplicationProtocol.writeSnapshotEnd(out, lsn);
+        out.flush();
+        MetricsRegistry.counter("replication.snapshots_sent").increment();
+        return lsn;
+    }
+}
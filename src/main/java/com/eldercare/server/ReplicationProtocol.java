@@ -0,0 +1,192 @@
+package com.eldercare.server;
+
+import com.eldercare.util.ReplicationLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 数据复制协议（主库与备库之间的TCP帧格式）
+ * 握手：备库发送 魔数、版本、纪元、日志来源、已应用序号；主库回复 接受（纪元、日志来源）或 拒绝（原因）
+ * 主库 -> 备库：M 修改 | S 快照开始 | F 快照文件 | E 快照结束 | H 心跳
+ * 备库 -> 主库：A 已应用序号
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x45435250; // "ECRP"
+    static final int VERSION = 1;
+
+    static final byte MUTATION = 'M';
+    static final byte SNAPSHOT_BEGIN = 'S';
+    static final byte SNAPSHOT_FILE = 'F';
+    static final byte SNAPSHOT_END = 'E';
+    static final byte HEARTBEAT = 'H';
+    static final byte ACK = 'A';
+    private static final byte ACCEPT = 'Y';
+    private static final byte REJECT = 'N';
+    // 单个文件或修改的最大字节数（超过视为数据损坏）
+    private static final int MAX_DATA_BYTES = 512 * 1024 * 1024;
+
+    private ReplicationProtocol() {}
+
+    /**
+     * 备库握手信息
+     */
+    static final class Handshake {
+        final long epoch;
+        final long historyId;
+        final long lsn;
+
+        Handshake(long epoch, long historyId, long lsn) {
+            this.epoch = epoch;
+            this.historyId = historyId;
+            this.lsn = lsn;
+        }
+    }
+
+    static void writeHandshake(DataOutputStream out, Handshake handshake) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(handshake.epoch);
+        out.writeLong(handshake.historyId);
+        out.writeLong(handshake.lsn);
+        out.flush();
+    }
+
+    static Handshake readHandshake(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是数据复制连接");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的复制协议版本：" + version);
+        }
+        return new Handshake(in.readLong(), in.readLong(), in.readLong());
+    }
+
+    static void writeAccept(DataOutputStream out, long epoch, long historyId) throws IOException {
+        out.writeByte(ACCEPT);
+        out.writeLong(epoch);
+        out.writeLong(historyId);
+        out.flush();
+    }
+
+    static void writeReject(DataOutputStream out, String reason) throws IOException {
+        out.writeByte(REJECT);
+        out.writeUTF(reason);
+        out.flush();
+    }
+
+    /**
+     * 读取主库对握手的回复
+     * @return {纪元, 日志来源}
+     * @throws IOException 主库拒绝时异常信息为拒绝原因
+     */
+    static long[] readAccept(DataInputStream in) throws IOException {
+        byte reply = in.readByte();
+        if (reply == REJECT) {
+            throw new IOException("主库拒绝复制：" + in.readUTF());
+        }
+        if (reply != ACCEPT) {
+            throw new IOException("握手回复无效：" + reply);
+        }
+        return new long[]{in.readLong(), in.readLong()};
+    }
+
+    static void writeMutation(DataOutputStream out, ReplicationLog.Mutation mutation) throws IOException {
+        out.writeByte(MUTATION);
+        out.writeLong(mutation.getLsn());
+        out.writeByte(mutation.getOperation().ordinal());
+        out.writeUTF(mutation.getFileName());
+        out.writeLong(mutation.getOffset());
+        writeData(out, mutation.getData());
+    }
+
+    /**
+     * 读取帧类型之后的修改内容
+     */
+    static ReplicationLog.Mutation readMutation(DataInputStream in) throws IOException {
+        long lsn = in.readLong();
+        int operation = in.readByte();
+        if (operation < 0 || operation >= ReplicationLog.Operation.values().length) {
+            throw new IOException("未知的修改类型：" + operation);
+        }
+        String fileName = readFileName(in);
+        long offset = in.readLong();
+        byte[] data = readData(in);
+        return new ReplicationLog.Mutation(lsn, ReplicationLog.Operation.values()[operation], fileName, offset,
+                data == null ? new byte[0] : data);
+    }
+
+    static void writeSnapshotBegin(DataOutputStream out, int fileCount) throws IOException {
+        out.writeByte(SNAPSHOT_BEGIN);
+        out.writeInt(fileCount);
+    }
+
+    /**
+     * @param data 文件内容；快照期间文件被删除时为null
+     */
+    static void writeSnapshotFile(DataOutputStream out, String fileName, byte[] data) throws IOException {
+        out.writeByte(SNAPSHOT_FILE);
+        out.writeUTF(fileName);
+        writeData(out, data);
+    }
+
+    static void writeSnapshotEnd(DataOutputStream out, long lsn) throws IOException {
+        out.writeByte(SNAPSHOT_END);
+        out.writeLong(lsn);
+    }
+
+    static void writeHeartbeat(DataOutputStream out, long lsn) throws IOException {
+        out.writeByte(HEARTBEAT);
+        out.writeLong(lsn);
+    }
+
+    static void writeAck(DataOutputStream out, long lsn) throws IOException {
+        out.writeByte(ACK);
+        out.writeLong(lsn);
+        out.flush();
+    }
+
+    static long readAck(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type != ACK) {
+            throw new IOException("确认帧无效：" + type);
+        }
+        return in.readLong();
+    }
+
+    /**
+     * 读取文件名并校验：只允许数据目录下参与复制的文件，防止写到目录之外
+     */
+    static String readFileName(DataInputStream in) throws IOException {
+        String fileName = in.readUTF();
+        if (fileName.contains("/") || fileName.contains("\\") || fileName.startsWith(".")
+                || !ReplicationLog.isReplicated(fileName)) {
+            throw new IOException("非法的复制文件名：" + fileName);
+        }
+        return fileName;
+    }
+
+    private static void writeData(DataOutputStream out, byte[] data) throws IOException {
+        if (data == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    static byte[] readData(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_DATA_BYTES) {
+            throw new IOException("数据长度非法：" + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+}
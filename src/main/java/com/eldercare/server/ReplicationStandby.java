@@ -0,0 +1,329 @@
+package com.eldercare.server;
+
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.IdGenerator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.ReplicationLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 数据复制备库
+ * 功能：连接主库（ReplicationPrimary），把主库的数据文件修改按序应用到本机数据目录（-Deldercare.data.dir），
+ * 每批修改应用后保存已应用的序号并向主库确认；断线后自动重连，日志无法衔接时由主库发送全量快照
+ * 提升（promote）：停止跟随主库并把纪元加一，之后本目录可作为主库使用，旧主库会拒绝纪元更新的备库连接
+ * 运行：java -Deldercare.data.dir=备库目录 -Deldercare.node.id=节点号（与主库不同） com.eldercare.server.ReplicationStandby 主库地址:端口
+ * 控制台命令：status 查看状态；promote 提升为主库并启动服务端（ElderCareServer）；quit 退出
+ */
+public class ReplicationStandby {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationStandby.class);
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    // 超过该时间没有收到主库任何数据（含心跳）视为断线
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+    private static final long MAX_RETRY_MILLIS = 10_000L;
+
+    private final String host;
+    private final int port;
+    // 以下状态与复制状态文件一致，由本对象锁保护
+    private long epoch;
+    private long historyId;
+    private long appliedLsn;
+    private volatile long primaryLsn;
+    private volatile boolean connected;
+    private volatile boolean following;
+    private volatile Socket socket;
+    private Thread thread;
+
+    /**
+     * @param host 主库地址
+     * @param port 主库复制端口
+     */
+    public ReplicationStandby(String host, int port) throws IOException {
+        this.host = host;
+        this.port = port;
+        Properties state = ReplicationLog.readState();
+        this.epoch = Long.parseLong(state.getProperty("epoch", "0"));
+        this.historyId = Long.parseLong(state.getProperty("historyId", "0"));
+        this.appliedLsn = Long.parseLong(state.getProperty("lsn", "0"));
+        MetricsRegistry.gauge("replication.standby.lsn", this::getAppliedLsn);
+        MetricsRegistry.gauge("replication.standby.lag", () -> Math.max(0, primaryLsn - getAppliedLsn()));
+    }
+
+    /**
+     * 主方法
+     * @param args [主库地址:端口]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || !args[0].contains(":")) {
+            System.out.println("用法：java -Deldercare.data.dir=备库目录 -Deldercare.node.id=节点号 com.eldercare.server.ReplicationStandby 主库地址:端口");
+            return;
+        }
+        IdGenerator.requireConfiguredNodeId("主备复制");
+        String address = args[0];
+        int colon = address.lastIndexOf(':');
+        ReplicationStandby standby = new ReplicationStandby(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+        standby.start();
+        System.out.println("备库已启动，数据目录：" + DataStorageUtil.getDataDir().toAbsolutePath()
+                + "，输入 status / promote / quit");
+
+        BufferedReader console = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = console.readLine()) != null) {
+            String command = line.trim();
+            if ("status".equals(command)) {
+                System.out.println(standby.status());
+            } else if ("promote".equals(command)) {
+                standby.promote();
+                System.out.println("已提升为主库：" + standby.status());
+                ElderCareServer.main(new String[0]);
+            } else if ("quit".equals(command)) {
+                standby.stop();
+                System.exit(0);
+            } else if (!command.isEmpty()) {
+                System.out.println("未知命令：" + command + "（可用：status / promote / quit）");
+            }
+        }
+    }
+
+    /**
+     * 开始跟随主库（后台线程，断线后自动重连）
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        following = true;
+        thread = new Thread(this::followLoop, "eldercare-replication-standby");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止跟随主库（已应用的修改和序号保留，可再次start）
+     */
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            following = false;
+            current = thread;
+            thread = null;
+        }
+        closeSocket();
+        if (current != null) {
+            try {
+                current.join(READ_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 提升为主库：停止跟随并把纪元加一（旧主库此后拒绝本纪元的备库，防止两个主库同时被跟随）
+     * 之后以本数据目录启动服务端，配置复制端口即可让其他备库改为跟随本库
+     */
+    public void promote() throws IOException {
+        stop();
+        synchronized (this) {
+            epoch++;
+            saveState();
+        }
+        LOGGER.warn("备库已提升为主库：纪元{}，已应用到主库序号{}", epoch, appliedLsn);
+    }
+
+    public synchronized long getAppliedLsn() {
+        return appliedLsn;
+    }
+
+    public synchronized String status() {
+        return (following ? (connected ? "跟随中 " + host + ":" + port : "连接中 " + host + ":" + port) : "未跟随")
+                + "，纪元" + epoch + "，已应用序号" + appliedLsn + "，主库序号" + primaryLsn;
+    }
+
+    private void followLoop() {
+        long retryMillis = 500;
+        while (following) {
+            try {
+                followOnce();
+                retryMillis = 500;
+            } catch (IOException e) {
+                if (following) {
+                    LOGGER.warn("与主库{}:{}的复制连接中断：{}，{}毫秒后重连", host, port, e.getMessage(), retryMillis);
+                }
+            } finally {
+                connected = false;
+            }
+            if (!following) {
+                break;
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    private void followOnce() throws IOException {
+        Socket current = new Socket();
+        socket = current;
+        try (current) {
+            current.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            current.setSoTimeout(READ_TIMEOUT_MILLIS);
+            current.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+            synchronized (this) {
+                ReplicationProtocol.writeHandshake(out, new ReplicationProtocol.Handshake(epoch, historyId, appliedLsn));
+            }
+            long[] accepted = ReplicationProtocol.readAccept(in);
+            long primaryEpoch = accepted[0];
+            long primaryHistoryId = accepted[1];
+            connected = true;
+            LOGGER.info("已连接主库{}:{}（纪元{}）", host, port, primaryEpoch);
+            while (following) {
+                byte type = in.readByte();
+                switch (type) {
+                    case ReplicationProtocol.MUTATION:
+                        applyMutation(ReplicationProtocol.readMutation(in));
+                        break;
+                    case ReplicationProtocol.SNAPSHOT_BEGIN:
+                        receiveSnapshot(in, in.readInt(), primaryEpoch, primaryHistoryId);
+                        break;
+                    case ReplicationProtocol.HEARTBEAT:
+                        primaryLsn = in.readLong();
+                        break;
+                    default:
+                        throw new IOException("未知的复制帧：" + type);
+                }
+                // 已读完主库当前发送的内容：保存序号并确认
+                if (in.available() == 0) {
+                    long lsn;
+                    synchronized (this) {
+                        saveState();
+                        lsn = appliedLsn;
+                    }
+                    ReplicationProtocol.writeAck(out, lsn);
+                }
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private void applyMutation(ReplicationLog.Mutation mutation) throws IOException {
+        synchronized (this) {
+            if (mutation.getLsn() != appliedLsn + 1) {
+                forceSnapshot();
+                throw new IOException("复制序号不连续：期望" + (appliedLsn + 1) + "，收到" + mutation.getLsn());
+            }
+        }
+        try {
+            ReplicationLog.apply(mutation);
+        } catch (IOException e) {
+            // 本地文件与主库不一致：下次连接时重新接收全量快照
+            synchronized (this) {
+                forceSnapshot();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            appliedLsn = mutation.getLsn();
+            if (appliedLsn > primaryLsn) {
+                primaryLsn = appliedLsn;
+            }
+        }
+        MetricsRegistry.counter("replication.mutations_applied").increment();
+    }
+
+    /**
+     * 接收全量快照：逐个替换数据文件，再删除主库上已不存在的数据文件
+     * 接收期间状态中的日志来源置0，中途断线时下次连接重新接收快照
+     */
+    private void receiveSnapshot(DataInputStream in, int fileCount, long primaryEpoch, long primaryHistoryId)
+            throws IOException {
+        synchronized (this) {
+            forceSnapshot();
+        }
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < fileCount; i++) {
+            if (in.readByte() != ReplicationProtocol.SNAPSHOT_FILE) {
+                throw new IOException("快照帧无效");
+            }
+            String fileName = ReplicationProtocol.readFileName(in);
+            byte[] data = ReplicationProtocol.readData(in);
+            if (data != null) {
+                ReplicationLog.apply(new ReplicationLog.Mutation(0, ReplicationLog.Operation.PUT, fileName, 0, data));
+                received.add(fileName);
+            }
+        }
+        if (in.readByte() != ReplicationProtocol.SNAPSHOT_END) {
+            throw new IOException("快照帧无效");
+        }
+        long lsn = in.readLong();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DataStorageUtil.getDataDir())) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (ReplicationLog.isReplicated(fileName) && !received.contains(fileName)) {
+                    ReplicationLog.apply(new ReplicationLog.Mutation(0, ReplicationLog.Operation.DELETE, fileName, 0, new byte[0]));
+                }
+            }
+        }
+        synchronized (this) {
+            epoch = primaryEpoch;
+            historyId = primaryHistoryId;
+            appliedLsn = lsn;
+            primaryLsn = Math.max(primaryLsn, lsn);
+            saveState();
+        }
+        MetricsRegistry.counter("replication.snapshots_applied").increment();
+        LOGGER.info("已应用主库全量快照：{}个文件，序号{}", received.size(), lsn);
+    }
+
+    // 调用方需持有本对象锁
+    private void forceSnapshot() throws IOException {
+        historyId = 0;
+        saveState();
+    }
+
+    // 调用方需持有本对象锁
+    private void saveState() throws IOException {
+        Properties state = new Properties();
+        state.setProperty("epoch", String.valueOf(epoch));
+        state.setProperty("historyId", String.valueOf(historyId));
+        state.setProperty("lsn", String.valueOf(appliedLsn));
+        ReplicationLog.writeState(state);
+    }
+
+    private void closeSocket() {
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                LOGGER.debug("关闭复制连接失败：{}", e.getMessage());
+            }
+        }
+    }
+}
@@ -3,37 +3,155 @@ package com.eldercare.service;
 import com.eldercare.dao.ActivityDao;
 import com.eldercare.dao.impl.ActivityDaoImpl;
 import com.eldercare.model.Activity;
-import com.eldercare.model.Elder;
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DeferredSaver;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.IntervalIndex;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 活动业务逻辑类：处理活动创建、报名管理、默认数据初始化
+ * 活动数据首次访问时加载到内存并按ID建立索引；报名/取消按活动ID分段加锁（不同活动互不阻塞），
+ * 名额满时自动进入候补名单，有人取消时候补队首自动转正；报名高峰的多次保存合并为一次写文件
+ * 活动时间解析后建立区间索引，近期活动、日历视图查询无需遍历全部活动；
+ * 另按老人建立"老人ID -> 已报名（含候补）活动ID"索引，老人日程与时间冲突查询只检查该老人的活动
  */
 public class ActivityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActivityService.class);
     private static final ActivityService INSTANCE = new ActivityService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile ActivityService remoteProxy;
+    // 运行指标
+    private static final MetricsRegistry.Timer REGISTER_TIMER = MetricsRegistry.serviceTimer("ActivityService", "register");
+    private static final MetricsRegistry.Timer CANCEL_TIMER = MetricsRegistry.serviceTimer("ActivityService", "cancelRegistration");
+    private static final MetricsRegistry.CacheStats ACTIVITY_CACHE = MetricsRegistry.cache("activities");
     private static final String ACTIVITY_DATA_KEY = "activities"; // 本地存储key
-    private final ElderService elderService = ElderService.getInstance();
+    // 报名锁分段数（2的幂）
+    private static final int LOCK_STRIPES = 64;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // 老人日程排序：开始时间升序，相同时按活动ID（与时间区间索引的顺序一致）
+    private static final Comparator<Activity> SCHEDULE_ORDER = Comparator.comparingLong(Activity::getStartMillis)
+            .thenComparing(Activity::getActivityId);
     // 预留数据库接口
     private final ActivityDao activityDao = new ActivityDaoImpl();
 
-    private ActivityService() {}
+    // 活动列表写锁（保护活动的新增、加载与重新加载）
+    private final Object writeLock = new Object();
+    // 已加载的活动数据（未加载为null；重新加载时整体替换，不会置空）
+    private volatile ActivityData data;
+    // 报名分段锁：同一活动的报名、取消、候补转正互斥，不同活动大概率落在不同分段
+    private final ReentrantLock[] registrationLocks = new ReentrantLock[LOCK_STRIPES];
+    // 重新加载锁：报名、取消时持有读锁（查找、修改、登记保存一并完成），重新加载替换数据时持有写锁
+    private final ReentrantReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    /**
+     * 活动列表及其索引，作为整体加载和替换
+     */
+    private static final class ActivityData {
+        // 活动列表（保持创建顺序，用于持久化与列表展示；写时复制）
+        volatile List<Activity> list;
+        // 活动ID -> 活动 索引
+        final ConcurrentHashMap<String, Activity> index = new ConcurrentHashMap<>();
+        // 活动时间区间索引（活动ID按开始时间排序）
+        final IntervalIndex<String> timeIndex = new IntervalIndex<>();
+        // 老人ID -> 已报名或候补的活动ID（在活动分段锁内随报名、取消更新；候补转正仍属该活动，不需变更）
+        final ConcurrentHashMap<String, Set<String>> activitiesByElder = new ConcurrentHashMap<>();
+
+        void indexElder(String elderId, String activityId) {
+            activitiesByElder.compute(elderId, (k, ids) -> {
+                Set<String> updated = (ids == null) ? ConcurrentHashMap.newKeySet() : ids;
+                updated.add(activityId);
+                return updated;
+            });
+        }
+
+        void unindexElder(String elderId, String activityId) {
+            activitiesByElder.computeIfPresent(elderId, (k, ids) -> {
+                ids.remove(activityId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+
+        // 登记活动当前的全部报名与候补（加载、新增活动时调用）
+        void indexElders(Activity activity) {
+            for (String elderId : activity.getRegisteredElderIds()) {
+                indexElder(elderId, activity.getActivityId());
+            }
+            for (String elderId : activity.getWaitlistElderIds()) {
+                indexElder(elderId, activity.getActivityId());
+            }
+        }
+    }
+
+    /**
+     * 报名结果
+     */
+    public enum RegistrationResult {
+        REGISTERED("报名成功"),
+        WAITLISTED("名额已满，已加入候补名单"),
+        ALREADY_REGISTERED("已报名，无需重复操作"),
+        ALREADY_WAITLISTED("已在候补名单中，无需重复操作"),
+        ACTIVITY_NOT_FOUND("活动不存在");
+
+        private final String message;
+
+        RegistrationResult(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    protected ActivityService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            registrationLocks[i] = new ReentrantLock();
+        }
+        DataStorageUtil.registerMergeable(ACTIVITY_DATA_KEY, item -> ((Activity) item).getActivityId());
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(ACTIVITY_DATA_KEY), fileName -> reload());
+    }
     public static ActivityService getInstance() {
+        ActivityService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(ActivityService proxy) {
+        remoteProxy = proxy;
+    }
+
     /**
      * 初始化默认活动（首次运行时调用，如健康讲座、手工班）
      */
     public void initDefaultActivities() throws IOException, ClassNotFoundException {
-        List<Activity> activityList = getActivityList();
-        if (!activityList.isEmpty()) {
-            System.out.println("[ActivityService] 已有活动数据，无需初始化默认活动");
+        if (!ensureLoaded().list.isEmpty()) {
+            LOGGER.info("已有活动数据，无需初始化默认活动");
             return;
         }
 
@@ -54,10 +172,14 @@ public class ActivityService {
         craft.setDescription("专业手工老师指导，学习基础剪纸技巧，成品可带回家，材料由养老院提供");
 
         // 3. 保存默认活动
-        activityList.add(lecture);
-        activityList.add(craft);
-        DataStorageUtil.saveData(ACTIVITY_DATA_KEY, activityList);
-        System.out.println("[ActivityService] 默认活动初始化完成，共" + activityList.size() + "个活动");
+        synchronized (writeLock) {
+            addToIndex(lecture);
+            addToIndex(craft);
+            scheduleSave();
+        }
+        ChangeEventBus.publish(ChangeEvent.ACTIVITIES, lecture.getActivityId(), ChangeEvent.Operation.CREATE, null, lecture.copy());
+        ChangeEventBus.publish(ChangeEvent.ACTIVITIES, craft.getActivityId(), ChangeEvent.Operation.CREATE, null, craft.copy());
+        LOGGER.info("默认活动初始化完成，共{}个活动", data.list.size());
 
         // 4. 预留数据库操作：插入默认活动到数据库
         activityDao.insertActivity(lecture);
@@ -80,11 +202,16 @@ public class ActivityService {
             activity.setRegisteredElderIds(new ArrayList<>()); // 初始化报名列表
         }
 
-        // 3. 保存活动
-        List<Activity> activityList = getActivityList();
-        activityList.add(activity);
-        DataStorageUtil.saveData(ACTIVITY_DATA_KEY, activityList);
-        System.out.println("[ActivityService] 新活动创建成功：" + activity.getName() + "（时间：" + activity.getTime() + "）");
+        // 3. 保存活动（保存副本，调用方后续修改传入对象不影响已保存的活动）
+        ensureLoaded();
+        Activity stored = activity.copy();
+        synchronized (writeLock) {
+            addToIndex(stored);
+            scheduleSave();
+        }
+        ChangeEventBus.publish(ChangeEvent.ACTIVITIES, stored.getActivityId(), ChangeEvent.Operation.CREATE, null, activity.copy());
+        ReminderService.getInstance().scheduleActivityReminder(activity);
+        LOGGER.info("新活动创建成功：{}（时间：{}）", activity.getName(), activity.getTime());
 
         // 4. 预留数据库操作：插入新活动到数据库
         activityDao.insertActivity(activity);
@@ -94,98 +221,152 @@ public class ActivityService {
      * 老人报名活动（确保不重复报名）
      * @param activityId 活动ID
      * @param elderId 老人ID
-     * @return true：报名成功；false：活动不存在/老人不存在/已报名
+     * @return true：报名成功或已加入候补名单；false：活动不存在/已报名/已候补
      */
-    // 在 ActivityService.java 中
     public boolean registerActivity(String activityId, String elderId) throws IOException, ClassNotFoundException {
-        InputValidator.validateNotEmpty(activityId, "活动ID");
-        InputValidator.validateNotEmpty(elderId, "老人ID");
+        RegistrationResult result = register(activityId, elderId);
+        return result == RegistrationResult.REGISTERED || result == RegistrationResult.WAITLISTED;
+    }
 
-        // 1. 校验活动是否存在
-        Activity targetActivity = getActivityById(activityId);
-        if (targetActivity == null) {
-            return false;
-        }
+    /**
+     * 老人报名活动：有名额直接报名，名额已满加入候补名单（按先后顺序转正）
+     * @param activityId 活动ID
+     * @param elderId 老人ID
+     * @return 报名结果
+     */
+    public RegistrationResult register(String activityId, String elderId) throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = REGISTER_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(activityId, "活动ID");
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            String trimmedElderId = elderId.trim();
 
-        // 2. 校验是否已报名
-        if (targetActivity.getRegisteredElderIds().contains(elderId.trim())) {
-            System.out.println("[ActivityService] 老人" + elderId + "已报名活动" + activityId + "，无需重复操作");
-            return false;
-        }
+            // 1. 校验活动是否存在
+            Activity activity = lockActivity(activityId.trim());
+            if (activity == null) {
+                LOGGER.debug("未查询到活动：{}", activityId);
+                return RegistrationResult.ACTIVITY_NOT_FOUND;
+            }
 
-        // 3. 更新活动列表并保存到文件
-        List<Activity> activityList = getActivityList();
-        
-        // 找到对应的活动并更新
-        for (Activity activity : activityList) {
-            if (activity.getActivityId().equals(activityId)) {
-                activity.addRegistration(elderId.trim());
-                break;
+            // 2. 在活动所在分段锁内完成"查重 + 名额判断 + 报名/候补"，并登记保存（报名高峰时多次保存合并为一次写文件）
+            RegistrationResult result;
+            Activity snapshot = null;
+            try {
+                if (activity.isRegistered(trimmedElderId)) {
+                    result = RegistrationResult.ALREADY_REGISTERED;
+                } else if (activity.isWaitlisted(trimmedElderId)) {
+                    result = RegistrationResult.ALREADY_WAITLISTED;
+                } else if (activity.isFull()) {
+                    activity.addToWaitlist(trimmedElderId);
+                    result = RegistrationResult.WAITLISTED;
+                } else {
+                    activity.addRegistration(trimmedElderId);
+                    result = RegistrationResult.REGISTERED;
+                }
+                if (result == RegistrationResult.REGISTERED || result == RegistrationResult.WAITLISTED) {
+                    data.indexElder(trimmedElderId, activity.getActivityId());
+                    snapshot = activity.copy();
+                    scheduleSave();
+                }
+            } finally {
+                unlockActivity(activity);
+            }
+
+            if (result == RegistrationResult.ALREADY_REGISTERED || result == RegistrationResult.ALREADY_WAITLISTED) {
+                LOGGER.info("老人{}活动{}{}", elderId, activityId, result.getMessage());
+                return result;
+            }
+
+            // 3. 通知变更
+            ChangeEventBus.publish(ChangeEvent.ACTIVITIES, activity.getActivityId(), ChangeEvent.Operation.UPDATE, null, snapshot);
+            LOGGER.info("老人{}{}：{}", elderId, result.getMessage(), activity.getName());
+
+            // 4. 预留数据库操作
+            if (result == RegistrationResult.REGISTERED) {
+                activityDao.updateActivityRegistration(activity.getActivityId(), trimmedElderId);
             }
+            return result;
+        } finally {
+            sample.close();
         }
-        
-        // 5. 保存更新后的活动列表
-        DataStorageUtil.saveData(ACTIVITY_DATA_KEY, activityList);
-        
-        System.out.println("[ActivityService] 老人" + elderId + "报名活动成功：" + targetActivity.getName());
-        
-        // 6. 预留数据库操作
-        activityDao.updateActivityRegistration(activityId, elderId);
-        
-        return true;
     }
 
     /**
-     * 老人取消报名活动
+     * 老人取消报名活动（已报名者取消后，候补名单队首自动转正；候补者取消则退出候补名单）
      * @param activityId 活动ID
      * @param elderId 老人ID
-     * @return true：取消成功；false：活动不存在/老人未报名
+     * @return true：取消成功；false：活动不存在/老人未报名且未候补
      */
     public boolean cancelRegistration(String activityId, String elderId) throws IOException, ClassNotFoundException {
-        InputValidator.validateNotEmpty(activityId, "活动ID");
-        InputValidator.validateNotEmpty(elderId, "老人ID");
+        MetricsRegistry.Sample sample = CANCEL_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(activityId, "活动ID");
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            String trimmedElderId = elderId.trim();
 
-        // 1. 校验活动是否存在
-        Activity targetActivity = getActivityById(activityId);
-        if (targetActivity == null) {
-            return false;
-        }
+            // 1. 校验活动是否存在
+            Activity activity = lockActivity(activityId.trim());
+            if (activity == null) {
+                LOGGER.debug("未查询到活动：{}", activityId);
+                return false;
+            }
 
-        // 2. 校验是否已报名
-        if (!targetActivity.getRegisteredElderIds().contains(elderId.trim())) {
-            System.out.println("[ActivityService] 老人" + elderId + "未报名活动" + activityId);
-            return false;
-        }
+            // 2. 在活动所在分段锁内完成"取消 + 候补转正"，并登记保存
+            boolean wasRegistered;
+            String promotedElderId = null;
+            Activity snapshot;
+            try {
+                wasRegistered = activity.removeRegistration(trimmedElderId);
+                if (wasRegistered) {
+                    if (!activity.isFull()) {
+                        promotedElderId = activity.pollWaitlist();
+                        if (promotedElderId != null) {
+                            activity.addRegistration(promotedElderId);
+                        }
+                    }
+                } else if (!activity.removeFromWaitlist(trimmedElderId)) {
+                    LOGGER.info("老人{}未报名活动{}", elderId, activityId);
+                    return false;
+                }
+                data.unindexElder(trimmedElderId, activity.getActivityId());
+                snapshot = activity.copy();
+                scheduleSave();
+            } finally {
+                unlockActivity(activity);
+            }
 
-        // 3. 更新活动列表并保存到文件
-        List<Activity> activityList = getActivityList();
-        
-        // 找到对应的活动并更新
-        for (Activity activity : activityList) {
-            if (activity.getActivityId().equals(activityId)) {
-                activity.removeRegistration(elderId.trim());
-                break;
+            // 3. 通知变更
+            ChangeEventBus.publish(ChangeEvent.ACTIVITIES, activity.getActivityId(), ChangeEvent.Operation.UPDATE, null, snapshot);
+            LOGGER.info("老人{}{}活动成功：{}", elderId, wasRegistered ? "取消报名" : "退出候补", activity.getName());
+
+            // 4. 预留数据库操作
+            if (wasRegistered) {
+                activityDao.updateActivityCancelRegistration(activity.getActivityId(), trimmedElderId);
             }
+            if (promotedElderId != null) {
+                activityDao.updateActivityRegistration(activity.getActivityId(), promotedElderId);
+                LOGGER.info("候补老人{}自动转正：{}", promotedElderId, activity.getName());
+                RelationService.getInstance().notifyFamilies(promotedElderId,
+                        "老人" + promotedElderId + "已由候补转为正式报名：" + activity.getName());
+            }
+            return true;
+        } finally {
+            sample.close();
         }
-        
-        // 5. 保存更新后的活动列表
-        DataStorageUtil.saveData(ACTIVITY_DATA_KEY, activityList);
-        
-        System.out.println("[ActivityService] 老人" + elderId + "取消报名活动成功：" + targetActivity.getName());
-        
-        // 6. 预留数据库操作
-        activityDao.updateActivityCancelRegistration(activityId, elderId);
-        
-        return true;
     }
+
     /**
      * 查询所有活动（供用户浏览）
      * @return 活动列表
      */
     public List<Activity> getAllActivities() throws IOException, ClassNotFoundException {
-        List<Activity> activityList = getActivityList();
-        System.out.println("[ActivityService] 查询到活动总数：" + activityList.size());
-        return activityList;
+        List<Activity> activityList = ensureLoaded().list;
+        List<Activity> result = new ArrayList<>(activityList.size());
+        for (Activity activity : activityList) {
+            result.add(snapshotOf(activity));
+        }
+        LOGGER.debug("查询到活动总数：{}", result.size());
+        return result;
     }
 
     /**
@@ -195,22 +376,271 @@ public class ActivityService {
      */
     public Activity getActivityById(String activityId) throws IOException, ClassNotFoundException {
         InputValidator.validateNotEmpty(activityId, "活动ID");
-        List<Activity> activityList = getActivityList();
-        for (Activity activity : activityList) {
-            if (activity.getActivityId().equals(activityId.trim())) {
-                return activity;
+        Activity activity = ensureLoaded().index.get(activityId.trim());
+        if (activity == null) {
+            LOGGER.debug("未查询到活动：{}", activityId);
+            return null;
+        }
+        return snapshotOf(activity);
+    }
+
+    /**
+     * 查询尚未结束的活动（含进行中），按开始时间排序
+     * @return 活动列表
+     */
+    public List<Activity> getUpcomingActivities() throws IOException, ClassNotFoundException {
+        return getActivitiesBetween(CachedClock.currentTimeMillis(), Long.MAX_VALUE);
+    }
+
+    /**
+     * 查询未来N天内的活动（含进行中），按开始时间排序
+     * @param days 天数
+     * @return 活动列表
+     */
+    public List<Activity> getUpcomingActivities(int days) throws IOException, ClassNotFoundException {
+        if (days <= 0) {
+            throw new IllegalArgumentException("天数必须大于0");
+        }
+        long now = CachedClock.currentTimeMillis();
+        return getActivitiesBetween(now, now + days * DAY_MILLIS);
+    }
+
+    /**
+     * 查询与指定时间段[from, to)重叠的活动，按开始时间排序（活动时间无法解析的旧数据不在结果中）
+     * @param from 开始时间（毫秒时间戳）
+     * @param to 结束时间（毫秒时间戳，不包含）
+     * @return 活动列表
+     */
+    public List<Activity> getActivitiesBetween(long from, long to) throws IOException, ClassNotFoundException {
+        ActivityData current = ensureLoaded();
+        List<Activity> result = new ArrayList<>();
+        for (String activityId : current.timeIndex.overlapping(from, to)) {
+            Activity activity = current.index.get(activityId);
+            if (activity != null) {
+                result.add(snapshotOf(activity));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询老人在指定时间段内已报名（含候补）的活动：从老人的活动索引取出，只检查该老人的活动
+     * @param elderId 老人ID
+     * @param from 开始时间（毫秒时间戳）
+     * @param to 结束时间（毫秒时间戳，不包含）
+     * @return 活动列表，按开始时间排序
+     */
+    public List<Activity> getActivitiesForElder(String elderId, long from, long to) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(elderId, "老人ID");
+        String trimmedElderId = elderId.trim();
+        ActivityData current = ensureLoaded();
+        List<Activity> result = new ArrayList<>();
+        Set<String> activityIds = current.activitiesByElder.get(trimmedElderId);
+        if (activityIds == null || to <= from) {
+            return result;
+        }
+        for (String activityId : activityIds) {
+            Activity activity = current.index.get(activityId);
+            // 与时间区间索引一致：时间无法解析的活动不在结果中，区间为[开始, 结束)
+            if (activity == null || !activity.isScheduled() || activity.getStartMillis() >= to || activity.getEndMillis() <= from) {
+                continue;
+            }
+            Activity snapshot = snapshotOf(activity);
+            if (snapshot.isRegistered(trimmedElderId) || snapshot.isWaitlisted(trimmedElderId)) { // 读取期间可能已取消
+                result.add(snapshot);
+            }
+        }
+        result.sort(SCHEDULE_ORDER);
+        return result;
+    }
+
+    /**
+     * 查询老人本周（周一至周日）已报名（含候补）的活动
+     * @param elderId 老人ID
+     * @return 活动列表，按开始时间排序
+     */
+    public List<Activity> getActivitiesForElderThisWeek(String elderId) throws IOException, ClassNotFoundException {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate monday = Instant.ofEpochMilli(CachedClock.currentTimeMillis()).atZone(zone).toLocalDate().with(DayOfWeek.MONDAY);
+        return getActivitiesForElder(elderId, startOfDay(monday, zone), startOfDay(monday.plusWeeks(1), zone));
+    }
+
+    /**
+     * 查询老人报名指定活动时与其已报名（含候补）活动的时间冲突
+     * @param elderId 老人ID
+     * @param activityId 准备报名的活动ID
+     * @return 时间冲突的活动列表；无冲突或活动不存在返回空列表
+     */
+    public List<Activity> findScheduleConflicts(String elderId, String activityId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(activityId, "活动ID");
+        Activity target = ensureLoaded().index.get(activityId.trim());
+        if (target == null || !target.isScheduled()) {
+            return new ArrayList<>();
+        }
+        List<Activity> conflicts = getActivitiesForElder(elderId, target.getStartMillis(), target.getEndMillis());
+        conflicts.removeIf(activity -> activity.getActivityId().equals(target.getActivityId()));
+        return conflicts;
+    }
+
+    /**
+     * 日历视图：按开始日期分组查询活动
+     * @param fromDate 开始日期（包含）
+     * @param toDate 结束日期（包含）
+     * @return 日期 -> 当天开始的活动（按开始时间排序），没有活动的日期不在结果中
+     */
+    public SortedMap<LocalDate, List<Activity>> getActivityCalendar(LocalDate fromDate, LocalDate toDate) throws IOException, ClassNotFoundException {
+        if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("日期范围非法");
+        }
+        ActivityData current = ensureLoaded();
+        ZoneId zone = ZoneId.systemDefault();
+        SortedMap<LocalDate, List<Activity>> calendar = new TreeMap<>();
+        for (String activityId : current.timeIndex.startingBetween(startOfDay(fromDate, zone), startOfDay(toDate.plusDays(1), zone))) {
+            Activity activity = current.index.get(activityId);
+            if (activity != null) {
+                LocalDate date = Instant.ofEpochMilli(activity.getStartMillis()).atZone(zone).toLocalDate();
+                calendar.computeIfAbsent(date, d -> new ArrayList<>()).add(snapshotOf(activity));
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * 活动数据文件被其他实例修改：先写出本实例未保存的修改，再把活动数据整体替换为重新加载的数据；
+     * 写出失败时推迟到DeferredSaver重试写出成功后再重新加载
+     * 替换期间持有写锁和重新加载锁的写锁，进行中的新增、报名、取消要么已登记保存并在此写出，要么等替换后基于新数据进行
+     */
+    private void reload() {
+        synchronized (writeLock) {
+            if (data == null) {
+                return;
+            }
+            reloadLock.writeLock().lock();
+            try {
+                // 后台写文件只需活动分段锁，持有重新加载锁写出不会互相等待
+                if (!DeferredSaver.flush(ACTIVITY_DATA_KEY)) {
+                    LOGGER.warn("活动数据尚未写出，暂不重新加载，写出后再重新加载");
+                    DeferredSaver.whenSaved(ACTIVITY_DATA_KEY, this::reload);
+                    return;
+                }
+                data = load();
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("重新加载活动数据失败，继续使用内存数据：{}", e.getMessage());
+            } finally {
+                reloadLock.writeLock().unlock();
             }
         }
-        System.out.println("[ActivityService] 未查询到活动：" + activityId);
-        return null;
     }
 
     /**
-     * 私有辅助方法：统一读取活动列表
+     * 首次访问时加载活动数据并建立索引
+     * @return 当前活动数据
      */
+    private ActivityData ensureLoaded() throws IOException, ClassNotFoundException {
+        ActivityData current = data;
+        if (current != null) {
+            ACTIVITY_CACHE.hit();
+            return current;
+        }
+        synchronized (writeLock) {
+            if (data != null) {
+                ACTIVITY_CACHE.hit();
+                return data;
+            }
+            ACTIVITY_CACHE.miss();
+            data = load();
+            return data;
+        }
+    }
+
     @SuppressWarnings("unchecked")
-    private List<Activity> getActivityList() throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(ACTIVITY_DATA_KEY);
-        return data == null ? new ArrayList<>() : (List<Activity>) data;
+    private ActivityData load() throws IOException, ClassNotFoundException {
+        Object stored = DataStorageUtil.getData(ACTIVITY_DATA_KEY);
+        ActivityData loaded = new ActivityData();
+        loaded.list = stored == null ? new ArrayList<>() : (List<Activity>) stored;
+        for (Activity activity : loaded.list) {
+            loaded.index.put(activity.getActivityId(), activity);
+            indexTime(loaded, activity);
+            loaded.indexElders(activity);
+        }
+        return loaded;
+    }
+
+    /**
+     * 取当前数据中的活动并加锁（重新加载锁的读锁和活动分段锁），调用方需调用unlockActivity解锁
+     * 持有读锁期间数据不会被重新加载替换，修改的总是会被保存的活动对象
+     * @return 已加锁的活动；活动不存在返回null（不持有锁）
+     */
+    private Activity lockActivity(String activityId) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        reloadLock.readLock().lock();
+        Activity activity = data.index.get(activityId);
+        if (activity == null) {
+            reloadLock.readLock().unlock();
+            return null;
+        }
+        lockFor(activityId).lock();
+        return activity;
+    }
+
+    private void unlockActivity(Activity activity) {
+        lockFor(activity.getActivityId()).unlock();
+        reloadLock.readLock().unlock();
+    }
+
+    // 调用方需持有writeLock；写时复制，遍历活动列表的线程不受新增影响
+    private void addToIndex(Activity activity) {
+        ActivityData current = data;
+        List<Activity> updated = new ArrayList<>(current.list);
+        updated.add(activity);
+        current.index.put(activity.getActivityId(), activity);
+        indexTime(current, activity);
+        current.indexElders(activity);
+        current.list = updated;
+    }
+
+    private void indexTime(ActivityData target, Activity activity) {
+        if (activity.isScheduled()) {
+            target.timeIndex.put(activity.getActivityId(), activity.getStartMillis(), activity.getEndMillis());
+        } else {
+            LOGGER.warn("活动时间无法解析，不参与时间查询：{}（{}）", activity.getActivityId(), activity.getTime());
+        }
+    }
+
+    private static long startOfDay(LocalDate date, ZoneId zone) {
+        return date.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 在活动分段锁内复制活动（调用方拿到的是快照，与原来每次从文件读取的语义一致）
+     */
+    private Activity snapshotOf(Activity activity) {
+        ReentrantLock lock = lockFor(activity.getActivityId());
+        lock.lock();
+        try {
+            return activity.copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String activityId) {
+        int h = activityId.hashCode();
+        return registrationLocks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * 登记保存活动数据（后台合并写文件，快照在写文件时逐个活动加锁生成）
+     * 调用方需持有writeLock或重新加载锁的读锁，重新加载据此保证登记过的修改先写出
+     */
+    private void scheduleSave() {
+        DeferredSaver.schedule(ACTIVITY_DATA_KEY, () -> {
+            List<Activity> current = data.list;
+            ArrayList<Activity> snapshot = new ArrayList<>(current.size());
+            for (Activity activity : current) {
+                snapshot.add(snapshotOf(activity));
+            }
+            return snapshot;
+        });
     }
 }
\ No newline at end of file
@@ -1,11 +1,16 @@
 // src/main/java/com/eldercare/service/CommunityService.java
 package com.eldercare.service;
 
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.CommunityMessage;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -13,15 +18,26 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class CommunityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommunityService.class);
     private static final CommunityService INSTANCE = new CommunityService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile CommunityService remoteProxy;
     private static final String COMMUNITY_DATA_KEY = "community_messages";
 
-    private CommunityService() {}
+    protected CommunityService() {}
 
     public static CommunityService getInstance() {
+        CommunityService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(CommunityService proxy) {
+        remoteProxy = proxy;
+    }
+
     /**
      * 发布新消息
      */
@@ -29,25 +45,27 @@ public class CommunityService {
         InputValidator.validateNotEmpty(message.getElderId(), "发布者ID");
         InputValidator.validateNotEmpty(message.getContent(), "消息内容");
 
-        message.setMessageId(IdGenerator.generateActivityId()); // 复用生成器
+        message.setMessageId(IdGenerator.generateMessageId());
 
-        List<CommunityMessage> messages = getAllMessages();
-        messages.add(message);
-
-        DataStorageUtil.saveData(COMMUNITY_DATA_KEY, messages);
-        System.out.println("[CommunityService] 新消息发布成功：" + message.getElderName());
+        // 在存储锁内读取、追加并保存，避免覆盖其他实例同时发布的消息
+        DataStorageUtil.updateData(COMMUNITY_DATA_KEY, data -> {
+            List<CommunityMessage> messages = messagesOf(data);
+            messages.add(message);
+            return messages;
+        });
+        ChangeEventBus.publish(ChangeEvent.COMMUNITY_MESSAGES, message.getMessageId(), ChangeEvent.Operation.CREATE, null, message.copy());
+        LOGGER.info("新消息发布成功：{}", message.getElderName());
     }
 
     /**
      * 获取所有消息（按时间倒序）
      */
     public List<CommunityMessage> getAllMessages() throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(COMMUNITY_DATA_KEY);
-        List<CommunityMessage> messages = data == null ? new ArrayList<>() : (List<CommunityMessage>) data;
+        List<CommunityMessage> messages = messagesOf(DataStorageUtil.getData(COMMUNITY_DATA_KEY));
 
         // 按时间倒序排序
         return messages.stream()
-                .sorted(Comparator.comparing(CommunityMessage::getCreateTime).reversed())
+                .sorted(Comparator.comparingLong(CommunityMessage::getCreateTimeMillis).reversed())
                 .collect(Collectors.toList());
     }
 
@@ -64,27 +82,49 @@ public class CommunityService {
      * 点赞消息
      */
     public void likeMessage(String messageId) throws IOException, ClassNotFoundException {
-        List<CommunityMessage> messages = getAllMessages();
-        for (CommunityMessage msg : messages) {
-            if (msg.getMessageId().equals(messageId)) {
-                msg.addLike();
-                break;
+        CommunityMessage[] changed = new CommunityMessage[2];
+        DataStorageUtil.updateData(COMMUNITY_DATA_KEY, data -> {
+            List<CommunityMessage> messages = messagesOf(data);
+            for (CommunityMessage msg : messages) {
+                if (msg.getMessageId().equals(messageId)) {
+                    changed[0] = msg.copy();
+                    msg.addLike();
+                    changed[1] = msg.copy();
+                    break;
+                }
             }
+            return messages;
+        });
+        if (changed[1] != null) {
+            ChangeEventBus.publish(ChangeEvent.COMMUNITY_MESSAGES, messageId, ChangeEvent.Operation.UPDATE, changed[0], changed[1]);
         }
-        DataStorageUtil.saveData(COMMUNITY_DATA_KEY, messages);
     }
 
     /**
      * 删除消息
      */
     public boolean deleteMessage(String messageId, String elderId) throws IOException, ClassNotFoundException {
-        List<CommunityMessage> messages = getAllMessages();
-        boolean removed = messages.removeIf(msg ->
-                msg.getMessageId().equals(messageId) && msg.getElderId().equals(elderId));
+        CommunityMessage[] removed = new CommunityMessage[1];
+        DataStorageUtil.updateData(COMMUNITY_DATA_KEY, data -> {
+            List<CommunityMessage> messages = messagesOf(data);
+            for (CommunityMessage msg : messages) {
+                if (msg.getMessageId().equals(messageId) && msg.getElderId().equals(elderId)) {
+                    removed[0] = msg;
+                    break;
+                }
+            }
+            messages.remove(removed[0]);
+            return messages;
+        });
 
-        if (removed) {
-            DataStorageUtil.saveData(COMMUNITY_DATA_KEY, messages);
+        if (removed[0] != null) {
+            ChangeEventBus.publish(ChangeEvent.COMMUNITY_MESSAGES, messageId, ChangeEvent.Operation.DELETE, removed[0].copy(), null);
         }
-        return removed;
+        return removed[0] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CommunityMessage> messagesOf(Object data) {
+        return data == null ? new ArrayList<>() : (List<CommunityMessage>) data;
     }
 }
\ No newline at end of file
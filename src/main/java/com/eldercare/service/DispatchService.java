@@ -0,0 +1,562 @@
+package com.eldercare.service;
+
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 服务派单业务逻辑类：待处理申请按优先级排队，护工接单、管理员指派、护工下班时重新分配
+ * 优先级：申请时间减去紧急度加成（服务类型 + 申请内容中的紧急程度），值越小越先处理；
+ * 紧急度相当于"提前申请了若干分钟"，因此等待较久的普通申请最终也会排到新的紧急申请之前，不会一直积压
+ * 并发：每张工单的归属变更在工单锁内完成，待派单池的移除是原子操作，同一申请不会被两名护工同时接走；
+ * 多个实例共用数据目录时从待派单池接单还要经过ServiceRequestService的跨实例接单锁，已被其他实例接走的申请从本实例的派单中移除
+ * 已开始处理（处理中）的申请留在原护工队列，护工下班时不参与重新分配
+ */
+public class DispatchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatchService.class);
+    private static final long MINUTE_MILLIS = 60L * 1000;
+    // 指派时工单正被接单线程取出处理，每次等待其完成的最长时间（毫秒）
+    private static final long HANDOFF_WAIT_MILLIS = 50L;
+    // 服务类型紧急度加成（分钟），未列出的类型为0
+    private static final Map<String, Integer> TYPE_URGENCY_MINUTES = new HashMap<>();
+    // 申请内容中"紧急程度"标记的加成（分钟），标记由老人/家属提交申请时写入内容
+    private static final Map<String, Integer> LEVEL_URGENCY_MINUTES = new HashMap<>();
+
+    static {
+        TYPE_URGENCY_MINUTES.put("紧急求助", 240);
+        TYPE_URGENCY_MINUTES.put("药品配送", 60);
+        TYPE_URGENCY_MINUTES.put("康复辅助", 30);
+        TYPE_URGENCY_MINUTES.put("健康咨询", 30);
+        TYPE_URGENCY_MINUTES.put("日常照护", 20);
+        TYPE_URGENCY_MINUTES.put("饮食服务", 20);
+        LEVEL_URGENCY_MINUTES.put("紧急", 120);
+        LEVEL_URGENCY_MINUTES.put("重要", 30);
+    }
+
+    // 工单排序：优先级值升序，相同时按申请ID
+    private static final Comparator<Ticket> TICKET_ORDER = Comparator.<Ticket>comparingLong(ticket -> ticket.priority)
+            .thenComparing(ticket -> ticket.requestId);
+    // 单例需在排序规则初始化之后创建
+    private static final DispatchService INSTANCE = new DispatchService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile DispatchService remoteProxy;
+    // 运行指标
+    private static final MetricsRegistry.Timer CLAIM_NEXT_TIMER = MetricsRegistry.serviceTimer("DispatchService", "claimNext");
+    private static final MetricsRegistry.Timer ASSIGN_TIMER = MetricsRegistry.serviceTimer("DispatchService", "assign");
+
+    // 加载锁
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+    // 申请ID -> 工单（仅包含待处理、处理中的申请）
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    // 待派单池
+    private final ConcurrentSkipListSet<Ticket> unassigned = new ConcurrentSkipListSet<>(TICKET_ORDER);
+    // 护工ID -> 该护工的工作队列
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Ticket>> queues = new ConcurrentHashMap<>();
+    // 在班护工
+    private final Set<String> onShift = ConcurrentHashMap.newKeySet();
+
+    protected DispatchService() {
+        MetricsRegistry.gauge("dispatch.unassigned", unassigned::size);
+        MetricsRegistry.gauge("dispatch.queued", () -> tickets.size() - unassigned.size());
+        MetricsRegistry.gauge("dispatch.onShift", onShift::size);
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(ChangeEvent.SERVICE_REQUESTS), fileName -> reload());
+    }
+
+    public static DispatchService getInstance() {
+        DispatchService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
+        return INSTANCE;
+    }
+
+    public static void useRemoteProxy(DispatchService proxy) {
+        remoteProxy = proxy;
+    }
+
+    /**
+     * 护工上班：之后可接单，其他护工下班时的工单会分配给在班护工
+     * @param caregiverId 护工用户ID
+     */
+    public void startShift(String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(caregiverId, "护工ID");
+        ensureLoaded();
+        if (onShift.add(caregiverId)) {
+            LOGGER.info("护工上班：{}（在班{}人）", caregiverId, onShift.size());
+        }
+    }
+
+    /**
+     * 护工下班：其工作队列中尚未开始处理的申请重新分配给当前工单最少的在班护工，无人在班时退回待派单池
+     * @param caregiverId 护工用户ID
+     * @return 重新分配的申请数
+     */
+    public int endShift(String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(caregiverId, "护工ID");
+        ensureLoaded();
+        onShift.remove(caregiverId);
+        ConcurrentSkipListSet<Ticket> queue = queues.get(caregiverId);
+        int moved = 0;
+        if (queue != null) {
+            for (Ticket ticket : queue) {
+                if (ticket.started) {
+                    continue;
+                }
+                String target = leastLoadedCaregiver();
+                if (moveTicket(ticket, caregiverId, target)) {
+                    moved++;
+                }
+            }
+        }
+        LOGGER.info("护工下班：{}，重新分配{}条申请（在班{}人）", caregiverId, moved, onShift.size());
+        return moved;
+    }
+
+    public boolean isOnShift(String caregiverId) {
+        return caregiverId != null && onShift.contains(caregiverId);
+    }
+
+    public List<String> getOnShiftCaregivers() {
+        List<String> result = new ArrayList<>(onShift);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * 护工接下一单：从待派单池取出优先级最高的申请放入该护工的工作队列（接单即视为上班）
+     * @param caregiverId 护工用户ID
+     * @return 接到的申请；待派单池为空返回null
+     */
+    public ServiceRequest claimNext(String caregiverId) throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = CLAIM_NEXT_TIMER.time();
+        try {
+            startShift(caregiverId);
+            Ticket ticket;
+            while ((ticket = unassigned.pollFirst()) != null) {
+                synchronized (ticket) {
+                    try {
+                        if (ticket.done) {
+                            continue; // 取出前已完成/取消
+                        }
+                        if (!claimTicket(ticket, caregiverId)) {
+                            continue; // 已被其他实例接走
+                        }
+                    } finally {
+                        handedOff(ticket);
+                    }
+                }
+                LOGGER.info("护工{}接单：{}", caregiverId, ticket.requestId);
+                return ServiceRequestService.getInstance().getRequestById(ticket.requestId);
+            }
+            return null;
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 护工接指定的申请（仅限待派单的申请，多名护工同时接同一申请时只有一人成功）
+     * @param requestId 申请ID
+     * @param caregiverId 护工用户ID
+     * @return true：接单成功；false：申请已被接走、已处理或不存在
+     */
+    public boolean claim(String requestId, String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(requestId, "申请ID");
+        startShift(caregiverId);
+        Ticket ticket = tickets.get(requestId.trim());
+        if (ticket == null || !moveTicket(ticket, null, caregiverId)) {
+            return false;
+        }
+        LOGGER.info("护工{}接单：{}", caregiverId, requestId);
+        return true;
+    }
+
+    /**
+     * 管理员指派申请给指定护工（可从待派单池或其他护工的队列中改派）
+     * @param requestId 申请ID
+     * @param caregiverId 护工用户ID，必须在班
+     * @return true：指派成功；false：申请已处理或不存在
+     */
+    public boolean assign(String requestId, String caregiverId) throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = ASSIGN_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(requestId, "申请ID");
+            InputValidator.validateNotEmpty(caregiverId, "护工ID");
+            ensureLoaded();
+            if (!onShift.contains(caregiverId)) {
+                throw new IllegalStateException("护工" + caregiverId + "不在班，无法指派");
+            }
+            Ticket ticket = tickets.get(requestId.trim());
+            while (ticket != null) {
+                int version = ticket.version;
+                String current = ticket.assigneeId;
+                if (caregiverId.equals(current)) {
+                    return true;
+                }
+                if (moveTicket(ticket, current, caregiverId)) {
+                    LOGGER.info("申请{}指派给护工{}{}", requestId, caregiverId, current == null ? "" : "（原处理人：" + current + "）");
+                    return true;
+                }
+                if (ticket.done) {
+                    return false;
+                }
+                // 归属在检查后被其他线程改变则按最新归属重试；工单正被claimNext取出处理时等它交接完成，不空转
+                awaitHandoff(ticket, version);
+                ensureLoaded();
+                ticket = tickets.get(requestId.trim()); // 期间重新加载过则换成新的工单
+            }
+            return false;
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 护工开始处理申请：申请状态变为处理中（未派单的申请先由该护工接单）
+     * @param requestId 申请ID
+     * @param caregiverId 护工用户ID
+     * @return true：已开始处理；false：申请已被其他护工接走、已处理或不存在
+     */
+    public boolean start(String requestId, String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(requestId, "申请ID");
+        startShift(caregiverId);
+        Ticket ticket = tickets.get(requestId.trim());
+        if (ticket == null) {
+            return false;
+        }
+        if (ticket.assigneeId == null) {
+            moveTicket(ticket, null, caregiverId);
+        }
+        if (!caregiverId.equals(ticket.assigneeId)) {
+            return false;
+        }
+        return ServiceRequestService.getInstance().updateRequestStatus(ticket.requestId, ServiceStatus.IN_PROGRESS.getLabel());
+    }
+
+    /**
+     * 护工退单：申请退回待派单池（处理中的申请先恢复为待处理）
+     * @param requestId 申请ID
+     * @param caregiverId 护工用户ID（只能退回自己队列中的申请）
+     * @return true：退单成功；false：申请不在该护工队列中
+     */
+    public boolean release(String requestId, String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(requestId, "申请ID");
+        InputValidator.validateNotEmpty(caregiverId, "护工ID");
+        ensureLoaded();
+        Ticket ticket = tickets.get(requestId.trim());
+        if (ticket == null || !caregiverId.equals(ticket.assigneeId)) {
+            return false;
+        }
+        if (ticket.started) {
+            ServiceRequestService.getInstance().updateRequestStatus(ticket.requestId, ServiceStatus.PENDING.getLabel());
+        }
+        return moveTicket(ticket, caregiverId, null);
+    }
+
+    /**
+     * 查询护工的工作队列（按优先级排序）
+     * @param caregiverId 护工用户ID
+     */
+    public List<ServiceRequest> getQueue(String caregiverId) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        ConcurrentSkipListSet<Ticket> queue = queues.get(caregiverId);
+        return queue == null ? new ArrayList<>() : toRequests(queue);
+    }
+
+    /**
+     * 查询待派单的申请（按优先级排序）
+     */
+    public List<ServiceRequest> getUnassignedRequests() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        return toRequests(unassigned);
+    }
+
+    public int getQueueSize(String caregiverId) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        ConcurrentSkipListSet<Ticket> queue = queues.get(caregiverId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    public int getUnassignedCount() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        return unassigned.size();
+    }
+
+    /**
+     * 计算申请的优先级值（越小越优先）
+     */
+    public static long priorityOf(ServiceRequest request) {
+        return request.getRequestTimeMillis() - urgencyMinutesOf(request) * MINUTE_MILLIS;
+    }
+
+    /**
+     * 申请的紧急度加成（分钟）：服务类型加成 + 内容中"紧急程度:xx"标记的加成
+     */
+    public static int urgencyMinutesOf(ServiceRequest request) {
+        int minutes = TYPE_URGENCY_MINUTES.getOrDefault(request.getServiceType(), 0);
+        String content = request.getContent();
+        if (content != null) {
+            int index = content.lastIndexOf("紧急程度:");
+            if (index >= 0) {
+                int start = index + "紧急程度:".length();
+                int end = start;
+                while (end < content.length() && content.charAt(end) != ',' && content.charAt(end) != ']') {
+                    end++;
+                }
+                minutes += LEVEL_URGENCY_MINUTES.getOrDefault(content.substring(start, end).trim(), 0);
+            }
+        }
+        return minutes;
+    }
+
+    /**
+     * 内部方法：新提交的申请进入派单（由ServiceRequestService调用）
+     * 已有处理人的申请直接进入该护工的队列
+     */
+    void enqueue(ServiceRequest request) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        addTicket(request);
+    }
+
+    /**
+     * 内部方法：申请在待处理与处理中之间变更（由ServiceRequestService调用）
+     */
+    void updateStatus(ServiceRequest request) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        Ticket ticket = tickets.get(request.getRequestId());
+        if (ticket == null) {
+            addTicket(request);
+            return;
+        }
+        synchronized (ticket) {
+            ticket.started = request.getServiceStatus() == ServiceStatus.IN_PROGRESS;
+        }
+    }
+
+    /**
+     * 内部方法：申请已完成/取消/删除，从派单中移除（由ServiceRequestService调用）
+     */
+    void complete(String requestId) {
+        if (!loaded) {
+            return; // 尚未加载，加载时只会读取待处理的申请
+        }
+        Ticket ticket = tickets.remove(requestId);
+        if (ticket == null) {
+            return;
+        }
+        synchronized (ticket) {
+            ticket.done = true;
+            if (ticket.assigneeId == null) {
+                unassigned.remove(ticket);
+            } else {
+                queueOf(ticket.assigneeId).remove(ticket);
+            }
+            handedOff(ticket);
+        }
+    }
+
+    /**
+     * 服务申请数据文件被其他实例修改：丢弃派单队列，下次访问时从服务申请重新加载（在岗护工保留）
+     */
+    private void reload() {
+        synchronized (loadLock) {
+            loaded = false;
+            tickets.clear();
+            unassigned.clear();
+            queues.clear();
+        }
+    }
+
+    /**
+     * 首次访问时从服务申请中加载待处理、处理中的申请
+     */
+    private void ensureLoaded() throws IOException, ClassNotFoundException {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            for (ServiceRequest request : ServiceRequestService.getInstance().getRequestsByStatus(ServiceStatus.PENDING.getLabel())) {
+                addTicket(request);
+            }
+            for (ServiceRequest request : ServiceRequestService.getInstance().getRequestsByStatus(ServiceStatus.IN_PROGRESS.getLabel())) {
+                addTicket(request);
+            }
+            loaded = true;
+            LOGGER.info("派单数据加载完成：待派单{}条，已派单{}条", unassigned.size(), tickets.size() - unassigned.size());
+        }
+    }
+
+    private void addTicket(ServiceRequest request) {
+        Ticket ticket = new Ticket(request.getRequestId(), priorityOf(request));
+        if (tickets.putIfAbsent(ticket.requestId, ticket) != null) {
+            return;
+        }
+        synchronized (ticket) {
+            ticket.assigneeId = request.getAssigneeId();
+            ticket.started = request.getServiceStatus() == ServiceStatus.IN_PROGRESS;
+            if (ticket.assigneeId == null) {
+                unassigned.add(ticket);
+            } else {
+                queueOf(ticket.assigneeId).add(ticket);
+            }
+        }
+    }
+
+    /**
+     * 在工单锁内把工单从from转给to（null表示待派单池），并持久化处理人
+     * @return true：转移成功；false：工单已完成或当前归属不是from
+     */
+    private boolean moveTicket(Ticket ticket, String from, String to) throws IOException, ClassNotFoundException {
+        synchronized (ticket) {
+            if (ticket.done || !equalsNullable(ticket.assigneeId, from)) {
+                return false;
+            }
+            boolean removed = (from == null) ? unassigned.remove(ticket) : queueOf(from).remove(ticket);
+            if (!removed) {
+                return false; // 已被claimNext从池中取出，由其完成分配
+            }
+            try {
+                if (from == null) {
+                    return claimTicket(ticket, to);
+                }
+                ticket.assigneeId = to;
+                if (to == null) {
+                    unassigned.add(ticket);
+                } else {
+                    queueOf(to).add(ticket);
+                }
+                // 在工单锁内持久化，保证多次转移按发生顺序写入处理人
+                ServiceRequestService.getInstance().assignRequest(ticket.requestId, to);
+                return true;
+            } finally {
+                handedOff(ticket);
+            }
+        }
+    }
+
+    /**
+     * 在工单锁内把已从待派单池取出的工单交给护工，经跨实例接单锁写入处理人
+     * 已被其他实例接走的工单从本实例的派单中移除（数据文件变化触发重新加载后按文件中的处理人恢复）；
+     * 接单未能保存时工单放回待派单池
+     * @return true：接单成功；false：已被其他实例接走
+     */
+    private boolean claimTicket(Ticket ticket, String caregiverId) throws IOException, ClassNotFoundException {
+        boolean claimed;
+        try {
+            claimed = ServiceRequestService.getInstance().claimRequest(ticket.requestId, caregiverId);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            unassigned.add(ticket);
+            throw e;
+        }
+        if (!claimed) {
+            ticket.done = true;
+            tickets.remove(ticket.requestId, ticket);
+            return false;
+        }
+        ticket.assigneeId = caregiverId;
+        queueOf(caregiverId).add(ticket);
+        return true;
+    }
+
+    /**
+     * 工单归属已交接（成功或放弃），唤醒等待该工单的指派线程；调用方需持有工单锁
+     */
+    private static void handedOff(Ticket ticket) {
+        ticket.version++;
+        ticket.notifyAll();
+    }
+
+    /**
+     * 等待工单归属交接（最多HANDOFF_WAIT_MILLIS，期间重新加载丢弃的工单不会再被交接）
+     * @param version 上次检查时的交接次数
+     */
+    private static void awaitHandoff(Ticket ticket, int version) throws IOException {
+        synchronized (ticket) {
+            if (ticket.done || ticket.version != version) {
+                return;
+            }
+            try {
+                ticket.wait(HANDOFF_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待派单交接时被中断：" + ticket.requestId, e);
+            }
+        }
+    }
+
+    /**
+     * 工单最少的在班护工；无人在班返回null
+     */
+    private String leastLoadedCaregiver() {
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (String caregiverId : onShift) {
+            ConcurrentSkipListSet<Ticket> queue = queues.get(caregiverId);
+            int size = queue == null ? 0 : queue.size();
+            if (size < bestSize) {
+                best = caregiverId;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private ConcurrentSkipListSet<Ticket> queueOf(String caregiverId) {
+        return queues.computeIfAbsent(caregiverId, id -> new ConcurrentSkipListSet<>(TICKET_ORDER));
+    }
+
+    private List<ServiceRequest> toRequests(Set<Ticket> source) throws IOException, ClassNotFoundException {
+        List<ServiceRequest> result = new ArrayList<>(source.size());
+        for (Ticket ticket : source) {
+            ServiceRequest request = ServiceRequestService.getInstance().getRequestById(ticket.requestId);
+            if (request != null) {
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 工单：待处理申请在派单中的状态（归属变更需持有工单锁）
+     */
+    private static final class Ticket {
+        private final String requestId;
+        private final long priority;
+        private volatile String assigneeId;
+        private volatile boolean started;
+        private volatile boolean done;
+        // 归属交接次数（在工单锁内递增），指派线程据此等待claimNext完成交接
+        private volatile int version;
+
+        private Ticket(String requestId, long priority) {
+            this.requestId = requestId;
+            this.priority = priority;
+        }
+    }
+}
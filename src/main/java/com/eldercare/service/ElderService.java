@@ -2,22 +2,38 @@ package com.eldercare.service;
 
 import com.eldercare.dao.ElderDao;
 import com.eldercare.dao.impl.ElderDaoImpl;
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.Elder;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * 老人业务逻辑类：处理老人信息CRUD、关联数据联动
  */
 public class ElderService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElderService.class);
     // 单例模式
     private static final ElderService INSTANCE = new ElderService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile ElderService remoteProxy;
+    // 运行指标
+    private static final MetricsRegistry.Timer ADD_TIMER = MetricsRegistry.serviceTimer("ElderService", "addElder");
+    private static final MetricsRegistry.Timer QUERY_TIMER = MetricsRegistry.serviceTimer("ElderService", "queryElders");
+    private static final MetricsRegistry.Timer GET_TIMER = MetricsRegistry.serviceTimer("ElderService", "getElderById");
     private static final String ELDER_DATA_KEY = "elders"; // 本地存储key
     // 关联其他service（处理数据联动）
     private final HealthRecordService healthRecordService = HealthRecordService.getInstance();
@@ -27,34 +43,50 @@ public class ElderService {
 
     protected ElderService() {}
     public static ElderService getInstance() {
+        ElderService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(ElderService proxy) {
+        remoteProxy = proxy;
+    }
+
     /**
      * 添加老人信息
      * @param elder 老人对象（需包含姓名、年龄、手机号等核心信息）
      */
     public void addElder(Elder elder) throws IOException, ClassNotFoundException {
-        // 1. 输入校验（调用util工具，避免重复代码）
-        InputValidator.validateNotEmpty(elder.getName(), "老人姓名");
-        InputValidator.validateAge(elder.getAge());
-        InputValidator.validatePhone(elder.getPhone());
-        // 健康状况允许为空，默认“未填写”
-        if (!InputValidator.isNotEmpty(elder.getHealthStatus())) {
-            elder.setHealthStatus("未填写");
-        }
+        MetricsRegistry.Sample sample = ADD_TIMER.time();
+        try {
+            // 1. 输入校验（调用util工具，避免重复代码）
+            InputValidator.validateNotEmpty(elder.getName(), "老人姓名");
+            InputValidator.validateAge(elder.getAge());
+            InputValidator.validatePhone(elder.getPhone());
+            // 健康状况允许为空，默认“未填写”
+            if (!InputValidator.isNotEmpty(elder.getHealthStatus())) {
+                elder.setHealthStatus("未填写");
+            }
 
-        // 2. 生成唯一老人ID
-        elder.setElderId(IdGenerator.generateElderId());
+            // 2. 生成唯一老人ID
+            elder.setElderId(IdGenerator.generateElderId());
 
-        // 3. 读取已有老人列表并添加
-        List<Elder> elderList = getElderList();
-        elderList.add(elder);
-        DataStorageUtil.saveData(ELDER_DATA_KEY, elderList);
-        System.out.println("[ElderService] 老人添加成功：" + elder.getName() + "（ID：" + elder.getElderId() + "）");
+            // 3. 在存储锁内读取已有老人列表并添加（避免覆盖其他实例同时做的修改）
+            DataStorageUtil.updateData(ELDER_DATA_KEY, data -> {
+                List<Elder> elderList = elderListOf(data);
+                elderList.add(elder);
+                return elderList;
+            });
+            ChangeEventBus.publish(ChangeEvent.ELDERS, elder.getElderId(), ChangeEvent.Operation.CREATE, null, elder.copy());
+            LOGGER.info("老人添加成功：{}（ID：{}）", elder.getName(), elder.getElderId());
 
-        // 4. 预留数据库操作：插入老人信息到数据库
-        elderDao.insertElder(elder);
+            // 4. 预留数据库操作：插入老人信息到数据库
+            elderDao.insertElder(elder);
+        } finally {
+            sample.close();
+        }
     }
 
     /**
@@ -63,16 +95,21 @@ public class ElderService {
      * @return 匹配的老人列表
      */
     public List<Elder> queryElders(String nameKeyword) throws IOException, ClassNotFoundException {
-        List<Elder> elderList = getElderList();
-        // 模糊查询（忽略大小写）
-        if (InputValidator.isNotEmpty(nameKeyword)) {
-            String keyword = nameKeyword.trim().toLowerCase();
-            elderList = elderList.stream()
-                    .filter(elder -> elder.getName().toLowerCase().contains(keyword))
-                    .collect(Collectors.toList());
+        MetricsRegistry.Sample sample = QUERY_TIMER.time();
+        try {
+            List<Elder> elderList = getElderList();
+            // 模糊查询（忽略大小写）
+            if (InputValidator.isNotEmpty(nameKeyword)) {
+                String keyword = nameKeyword.trim().toLowerCase();
+                elderList = elderList.stream()
+                        .filter(elder -> elder.getName().toLowerCase().contains(keyword))
+                        .collect(Collectors.toList());
+            }
+            LOGGER.debug("查询到老人数量：{}（关键词：{}）", elderList.size(), nameKeyword == null ? "无" : nameKeyword);
+            return elderList;
+        } finally {
+            sample.close();
         }
-        System.out.println("[ElderService] 查询到老人数量：" + elderList.size() + "（关键词：" + (nameKeyword == null ? "无" : nameKeyword) + "）");
-        return elderList;
     }
 
     /**
@@ -81,16 +118,44 @@ public class ElderService {
      * @return 匹配的老人对象；无匹配返回null
      */
     public Elder getElderById(String elderId) throws IOException, ClassNotFoundException {
-        InputValidator.validateNotEmpty(elderId, "老人ID");
-        List<Elder> elderList = getElderList();
-        // 遍历匹配ID
-        for (Elder elder : elderList) {
-            if (elder.getElderId().equals(elderId.trim())) {
-                return elder;
+        MetricsRegistry.Sample sample = GET_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            List<Elder> elderList = getElderList();
+            // 遍历匹配ID
+            for (Elder elder : elderList) {
+                if (elder.getElderId().equals(elderId.trim())) {
+                    return elder;
+                }
             }
+            LOGGER.debug("未查询到老人：{}", elderId);
+            return null;
+        } finally {
+            sample.close();
         }
-        System.out.println("[ElderService] 未查询到老人：" + elderId);
-        return null;
+    }
+
+    /**
+     * 按ID批量查询老人（只读取一次老人数据，用于家属关联老人等批量场景）
+     * @param elderIds 老人ID集合
+     * @return 匹配的老人列表，顺序与传入ID一致；不存在的ID自动忽略
+     */
+    public List<Elder> getEldersByIds(Collection<String> elderIds) throws IOException, ClassNotFoundException {
+        List<Elder> result = new ArrayList<>();
+        if (elderIds == null || elderIds.isEmpty()) {
+            return result;
+        }
+        Map<String, Elder> elderMap = new HashMap<>();
+        for (Elder elder : getElderList()) {
+            elderMap.put(elder.getElderId(), elder);
+        }
+        for (String elderId : elderIds) {
+            Elder elder = elderId == null ? null : elderMap.get(elderId.trim());
+            if (elder != null) {
+                result.add(elder);
+            }
+        }
+        return result;
     }
 
     /**
@@ -99,31 +164,24 @@ public class ElderService {
      * @return 匹配的老人对象；无匹配返回null
      */
     public Elder getElderByUserId(String userId) throws IOException, ClassNotFoundException {
-        System.out.println("[Debug-ElderService] 开始查询用户ID: '" + userId + "' 的老人信息");
-        
         // 检查参数
         if (userId == null || userId.trim().isEmpty()) {
-            System.out.println("[Debug-ElderService] 参数错误：用户ID为空");
+            LOGGER.debug("参数错误：用户ID为空");
             return null;
         }
         
         userId = userId.trim();
-        System.out.println("[Debug-ElderService] 处理后的用户ID: '" + userId + "'");
-        
         List<Elder> elderList = getElderList();
-        System.out.println("[Debug-ElderService] 当前老人列表大小: " + elderList.size());
         
-        // 遍历匹配用户ID
+        // 遍历匹配用户ID（只在查询结束时记录一次日志，不逐条记录）
         for (Elder elder : elderList) {
-            System.out.println("[Debug-ElderService] 检查老人: ID='" + elder.getElderId() + "', UserID='" + elder.getUserId() + "'");
-            
             if (elder.getUserId() != null && elder.getUserId().equals(userId)) {
-                System.out.println("[Debug-ElderService] 找到匹配的老人: " + elder.getName());
+                LOGGER.debug("按用户ID查询老人：{} -> {}（共{}位老人）", userId, elder.getElderId(), elderList.size());
                 return elder;
             }
         }
         
-        System.out.println("[Debug-ElderService] 未查询到关联用户ID的老人：" + userId);
+        LOGGER.debug("未查询到关联用户ID的老人：{}（共{}位老人）", userId, elderList.size());
         return null;
     }
 
@@ -134,21 +192,25 @@ public class ElderService {
      */
     public boolean deleteElder(String elderId) throws IOException, ClassNotFoundException {
         InputValidator.validateNotEmpty(elderId, "老人ID");
-        List<Elder> elderList = getElderList();
         // 检查老人是否存在
         Elder targetElder = getElderById(elderId);
         if (targetElder == null) {
             return false;
         }
 
-        // 1. 删除关联数据（健康记录、服务申请）
+        // 1. 删除关联数据（健康记录、服务申请、家属关联）
         healthRecordService.deleteRecordsByElderId(elderId);
         requestService.deleteRequestsByElderId(elderId);
+        RelationService.getInstance().removeElder(elderId);
 
         // 2. 删除老人本身
-        elderList.removeIf(elder -> elder.getElderId().equals(elderId.trim()));
-        DataStorageUtil.saveData(ELDER_DATA_KEY, elderList);
-        System.out.println("[ElderService] 老人删除成功：" + targetElder.getName() + "（ID：" + elderId + "）");
+        DataStorageUtil.updateData(ELDER_DATA_KEY, data -> {
+            List<Elder> elderList = elderListOf(data);
+            elderList.removeIf(elder -> elder.getElderId().equals(elderId.trim()));
+            return elderList;
+        });
+        ChangeEventBus.publish(ChangeEvent.ELDERS, targetElder.getElderId(), ChangeEvent.Operation.DELETE, targetElder, null);
+        LOGGER.info("老人删除成功：{}（ID：{}）", targetElder.getName(), elderId);
 
         // 3. 预留数据库操作：后续可添加“删除数据库老人记录”的逻辑
         return true;
@@ -170,31 +232,33 @@ public class ElderService {
             throw new IllegalArgumentException("老人不存在，无法更新");
         }
         
-        // 3. 读取所有老人信息
-        List<Elder> elderList = getElderList();
-        
-        // 4. 找到并更新老人信息
-        for (int i = 0; i < elderList.size(); i++) {
-            if (elderList.get(i).getElderId().equals(elder.getElderId())) {
-                elderList.set(i, elder);
-                break;
+        // 3. 在存储锁内读取所有老人信息，找到并更新后保存
+        DataStorageUtil.updateData(ELDER_DATA_KEY, data -> {
+            List<Elder> elderList = elderListOf(data);
+            for (int i = 0; i < elderList.size(); i++) {
+                if (elderList.get(i).getElderId().equals(elder.getElderId())) {
+                    elderList.set(i, elder);
+                    break;
+                }
             }
-        }
-        
-        // 5. 保存到数据存储
-        DataStorageUtil.saveData(ELDER_DATA_KEY, elderList);
-        System.out.println("[ElderService] 老人信息更新成功：" + elder.getElderId());
+            return elderList;
+        });
+        ChangeEventBus.publish(ChangeEvent.ELDERS, elder.getElderId(), ChangeEvent.Operation.UPDATE, existingElder, elder.copy());
+        LOGGER.info("老人信息更新成功：{}", elder.getElderId());
         
-        // 6. 预留数据库操作：后续可添加“更新数据库老人记录”的逻辑
+        // 4. 预留数据库操作：后续可添加“更新数据库老人记录”的逻辑
         elderDao.updateElder(elder);
     }
     
     /**
      * 私有辅助方法：统一读取老人列表
      */
-    @SuppressWarnings("unchecked")
     private List<Elder> getElderList() throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(ELDER_DATA_KEY);
+        return elderListOf(DataStorageUtil.getData(ELDER_DATA_KEY));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Elder> elderListOf(Object data) {
         return data == null ? new ArrayList<>() : (List<Elder>) data;
     }
 }
\ No newline at end of file
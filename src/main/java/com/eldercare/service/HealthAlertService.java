@@ -1,8 +1,12 @@
 // src/main/java/com/eldercare/service/HealthAlertService.java
 package com.eldercare.service;
 
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.HealthRecord;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.IdGenerator;
 
 import java.io.IOException;
 import java.util.*;
@@ -51,7 +55,10 @@ public class HealthAlertService {
 
             // 如果发现异常，保存预警记录
             if (!alerts.isEmpty()) {
-                saveAlertRecord(record.getElderId(), alerts, record.getRecordTime());
+                saveAlertRecord(record.getElderId(), alerts, record.getRecordTimeMillis());
+                // 通知该老人的家属（按反向索引定位家属）
+                RelationService.getInstance().notifyFamilies(record.getElderId(),
+                        "老人" + record.getElderId() + "健康预警：" + String.join("；", alerts));
             }
 
         } catch (Exception e) {
@@ -80,8 +87,7 @@ public class HealthAlertService {
         }
 
         // 按时间倒序排序
-        elderAlerts.sort((a1, a2) ->
-                ((Date) a2.get("alertTime")).compareTo((Date) a1.get("alertTime()")));
+        elderAlerts.sort((a1, a2) -> Long.compare(toMillis(a2.get("alertTime")), toMillis(a1.get("alertTime"))));
 
         return elderAlerts;
     }
@@ -89,20 +95,107 @@ public class HealthAlertService {
     /**
      * 保存预警记录
      */
-    @SuppressWarnings("unchecked")
-    private void saveAlertRecord(String elderId, List<String> alerts, Date recordTime) throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(ALERT_DATA_KEY);
-        List<Map<String, Object>> alertList = data == null ? new ArrayList<>() : (List<Map<String, Object>>) data;
-
+    private synchronized void saveAlertRecord(String elderId, List<String> alerts, long recordTime) throws IOException, ClassNotFoundException {
         Map<String, Object> alertRecord = new HashMap<>();
-        alertRecord.put("alertId", "ALERT_" + System.currentTimeMillis());
+        alertRecord.put("alertId", IdGenerator.generateAlertId());
         alertRecord.put("elderId", elderId);
         alertRecord.put("alerts", new ArrayList<>(alerts));
-        alertRecord.put("alertTime", new Date());
+        alertRecord.put("alertTime", CachedClock.currentTimeMillis());
         alertRecord.put("recordTime", recordTime);
         alertRecord.put("status", "未处理");
 
-        alertList.add(alertRecord);
-        DataStorageUtil.saveData(ALERT_DATA_KEY, alertList);
+        // 在存储锁内读取、追加并保存，避免覆盖其他实例同时写入的预警
+        DataStorageUtil.updateData(ALERT_DATA_KEY, data -> {
+            List<Map<String, Object>> alertList = alertListOf(data);
+            alertList.add(alertRecord);
+            return alertList;
+        });
+        ChangeEventBus.publish(ChangeEvent.HEALTH_ALERTS, (String) alertRecord.get("alertId"), ChangeEvent.Operation.CREATE,
+                null, new HashMap<>(alertRecord));
+
+        // 预警长时间未处理时升级提醒
+        ReminderService.getInstance().scheduleAlertEscalation((String) alertRecord.get("alertId"), (Long) alertRecord.get("alertTime"));
+    }
+
+    /**
+     * 根据ID查询预警记录
+     * @return 预警记录；不存在返回null
+     */
+    public Map<String, Object> getAlertById(String alertId) throws IOException, ClassNotFoundException {
+        for (Map<String, Object> alert : getAlertList()) {
+            if (alertId.equals(alert.get("alertId"))) {
+                return alert;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查询指定状态的预警记录（如"未处理"）
+     */
+    public List<Map<String, Object>> getAlertsByStatus(String status) throws IOException, ClassNotFoundException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> alert : getAlertList()) {
+            if (status.equals(alert.get("status"))) {
+                result.add(alert);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询全部预警记录
+     */
+    public List<Map<String, Object>> getAllAlerts() throws IOException, ClassNotFoundException {
+        return getAlertList();
+    }
+
+    /**
+     * 确认处理预警（状态改为"已处理"，并取消升级提醒）
+     * @param alertId 预警ID
+     * @return true-确认成功，false-预警不存在或已处理
+     */
+    public synchronized boolean acknowledgeAlert(String alertId) throws IOException, ClassNotFoundException {
+        // 在存储锁内读取、修改并保存，其他实例已确认的预警不会被重复确认
+        List<Map<String, Object>> changed = new ArrayList<>();
+        DataStorageUtil.updateData(ALERT_DATA_KEY, data -> {
+            List<Map<String, Object>> alertList = alertListOf(data);
+            for (Map<String, Object> alert : alertList) {
+                if (alertId.equals(alert.get("alertId"))) {
+                    if ("未处理".equals(alert.get("status"))) {
+                        changed.add(new HashMap<>(alert));
+                        alert.put("status", "已处理");
+                        changed.add(new HashMap<>(alert));
+                    }
+                    break;
+                }
+            }
+            return alertList;
+        });
+        if (changed.isEmpty()) {
+            return false;
+        }
+        ChangeEventBus.publish(ChangeEvent.HEALTH_ALERTS, alertId, ChangeEvent.Operation.UPDATE, changed.get(0), changed.get(1));
+        ReminderService.getInstance().cancel(ReminderService.TYPE_ALERT_ESCALATION, alertId);
+        return true;
+    }
+
+    private List<Map<String, Object>> getAlertList() throws IOException, ClassNotFoundException {
+        return alertListOf(DataStorageUtil.getData(ALERT_DATA_KEY));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> alertListOf(Object data) {
+        return data == null ? new ArrayList<>() : (List<Map<String, Object>>) data;
+    }
+
+    /**
+     * 预警时间转换为毫秒时间戳（兼容旧数据中以Date保存的时间）
+     */
+    static long toMillis(Object time) {
+        if (time instanceof Date) {
+            return ((Date) time).getTime();
+        }
+        return time instanceof Long ? (Long) time : 0L;
     }
 }
\ No newline at end of file
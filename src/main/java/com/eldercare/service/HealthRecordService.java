@@ -2,33 +2,98 @@ package com.eldercare.service;
 
 import com.eldercare.dao.HealthRecordDao;
 import com.eldercare.dao.impl.HealthRecordDaoImpl;
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.Elder;
 import com.eldercare.model.HealthRecord;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
  * 健康记录业务逻辑类：处理健康数据添加、查询、关联老人
+ * 分层存储：最近几个月的记录（热数据）保存在health_records.ser并常驻内存；更早的记录按月保存为压缩的冷数据分段
+ * （health_records.yyyy-MM.ser），只在查询的时间范围覆盖该月时才读取，最近读取的几个分段留在内存中
+ * 热数据中的记录跨过保留期后在加载或新增记录时移入冷数据分段（先写分段再保存热数据，中途退出时查询按记录ID去重）
+ * 热数据保留月数由eldercare.health.hot.months指定（默认3，含当月），内存中的冷数据分段数由eldercare.health.cold.cache.segments指定（默认6）
  */
 public class HealthRecordService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HealthRecordService.class);
     private static volatile HealthRecordService INSTANCE;
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile HealthRecordService remoteProxy;
     private static final String HEALTH_DATA_KEY = "health_records";
+    // 冷数据分段的数据标识前缀，后接年月，如"health_records.2025-03"
+    private static final String COLD_DATA_KEY_PREFIX = HEALTH_DATA_KEY + ".";
+    private static final int HOT_MONTHS = Math.max(1, Integer.getInteger("eldercare.health.hot.months", 3));
+    private static final int COLD_CACHE_SEGMENTS = Math.max(1, Integer.getInteger("eldercare.health.cold.cache.segments", 6));
+    // 运行指标
+    private static final MetricsRegistry.Timer ADD_TIMER = MetricsRegistry.serviceTimer("HealthRecordService", "addHealthRecord");
+    private static final MetricsRegistry.Timer QUERY_TIMER = MetricsRegistry.serviceTimer("HealthRecordService", "getRecordsByElderId");
+    private static final MetricsRegistry.Timer RECENT_QUERY_TIMER = MetricsRegistry.serviceTimer("HealthRecordService", "getRecentRecordsByElderId");
+    private static final MetricsRegistry.Timer COLD_LOAD_TIMER = MetricsRegistry.serviceTimer("HealthRecordService", "loadColdSegment");
+    private static final MetricsRegistry.CacheStats HOT_CACHE = MetricsRegistry.cache("health_records");
+    private static final MetricsRegistry.CacheStats COLD_CACHE = MetricsRegistry.cache("health_records.cold");
+    // 按时间倒序（最新记录在前）
+    private static final Comparator<HealthRecord> NEWEST_FIRST =
+            (r1, r2) -> Long.compare(r2.getRecordTimeMillis(), r1.getRecordTimeMillis());
     private ElderService elderService;
     private final HealthRecordDao healthRecordDao = new HealthRecordDaoImpl();
 
+    // 热数据写锁（保护热数据的新增、删除、加载和移入冷数据）
+    private final Object writeLock = new Object();
+    // 热数据（修改时整体替换为新列表，读方不加锁）；null表示未加载
+    private volatile List<HealthRecord> hotRecords;
+    // 热数据加载或上次移入冷数据时的保留期起点（毫秒）
+    private volatile long hotCutoff;
+    // 保留期起点下次后移的时间（下月月初，毫秒），此前不必检查过期记录
+    private volatile long hotExpiresAt;
+    // 冷数据分段缓存：年月 -> 该月记录（按访问顺序淘汰），由本对象锁保护
+    private final LinkedHashMap<String, List<HealthRecord>> coldSegments = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<HealthRecord>> eldest) {
+            return size() > COLD_CACHE_SEGMENTS;
+        }
+    };
+    // 已登记文件监视的冷数据分段（其他实例修改分段时清除缓存）
+    private final Set<String> watchedSegments = new HashSet<>();
+
     protected HealthRecordService() {
         // 延迟初始化
         this.elderService = ElderService.getInstance();
+        DataStorageUtil.registerMergeable(HEALTH_DATA_KEY, item -> ((HealthRecord) item).getRecordId());
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(HEALTH_DATA_KEY), fileName -> reload());
+        MetricsRegistry.gauge("health_records.hot", () -> {
+            List<HealthRecord> records = hotRecords;
+            return records == null ? 0 : records.size();
+        });
     }
 
     public static HealthRecordService getInstance() {
+        HealthRecordService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         if (INSTANCE == null) {
             synchronized (HealthRecordService.class) {
                 if (INSTANCE == null) {
@@ -39,6 +104,10 @@ public class HealthRecordService {
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(HealthRecordService proxy) {
+        remoteProxy = proxy;
+    }
+
     // 安全获取 elderService 的方法
     private ElderService getElderService() {
         if (elderService == null) {
@@ -51,71 +120,358 @@ public class HealthRecordService {
      * 添加健康记录（仅允许为已存在的老人添加）
      */
     public void addHealthRecord(HealthRecord record) throws IOException, ClassNotFoundException {
-        // 1. 输入校验
-        InputValidator.validateNotEmpty(record.getElderId(), "关联老人ID");
-        InputValidator.validateBloodPressure(record.getBloodPressure());
-        InputValidator.validateHeartRate(record.getHeartRate());
+        MetricsRegistry.Sample sample = ADD_TIMER.time();
+        try {
+            // 1. 输入校验
+            InputValidator.validateNotEmpty(record.getElderId(), "关联老人ID");
+            InputValidator.validateBloodPressure(record.getBloodPressure());
+            InputValidator.validateHeartRate(record.getHeartRate());
 
-        // 2. 校验老人是否存在
-        Elder existElder = getElderService().getElderById(record.getElderId());
-        if (existElder == null) {
-            throw new IllegalArgumentException("关联老人不存在（ID：" + record.getElderId() + "），无法添加健康记录");
+            // 2. 校验老人是否存在
+            Elder existElder = getElderService().getElderById(record.getElderId());
+            if (existElder == null) {
+                throw new IllegalArgumentException("关联老人不存在（ID：" + record.getElderId() + "），无法添加健康记录");
+            }
+
+            // 3. 补全记录信息
+            record.setRecordId(IdGenerator.generateHealthRecordId());
+
+            // 4. 保存记录（补录的早期记录直接写入冷数据分段）
+            saveNewRecords(List.of(record));
+            ChangeEventBus.publish(ChangeEvent.HEALTH_RECORDS, record.getRecordId(), ChangeEvent.Operation.CREATE, null, record);
+            LOGGER.info("健康记录添加成功：老人{}（心率：{}）", existElder.getName(), record.getHeartRate());
+
+            // 检查健康指标，异常时保存预警并通知家属
+            HealthAlertService.getInstance().checkHealthAlert(record);
+
+            // 5. 预留数据库操作
+            healthRecordDao.insertHealthRecord(record);
+        } finally {
+            sample.close();
         }
+    }
 
-        // 3. 补全记录信息
-        record.setRecordId(IdGenerator.generateHealthRecordId());
-        if (record.getRecordTime() == null) {
-            record.setRecordTime(new Date());
+    /**
+     * 批量导入历史健康记录（一次读取、一次保存；逐条调用addHealthRecord时每条都要重写整个文件）
+     * 导入的是历史数据，不触发健康预警和家属通知
+     * @param records 健康记录（关联的老人必须已存在）
+     * @return 导入条数
+     */
+    public int addHealthRecords(List<HealthRecord> records) throws IOException, ClassNotFoundException {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        // 1. 输入校验，并一次性校验关联老人是否存在
+        Set<String> elderIds = new HashSet<>();
+        for (HealthRecord record : records) {
+            InputValidator.validateNotEmpty(record.getElderId(), "关联老人ID");
+            InputValidator.validateBloodPressure(record.getBloodPressure());
+            InputValidator.validateHeartRate(record.getHeartRate());
+            elderIds.add(record.getElderId().trim());
+        }
+        List<Elder> existElders = getElderService().getEldersByIds(elderIds);
+        if (existElders.size() < elderIds.size()) {
+            for (Elder elder : existElders) {
+                elderIds.remove(elder.getElderId());
+            }
+            throw new IllegalArgumentException("关联老人不存在（ID：" + elderIds + "），无法导入健康记录");
         }
 
-        // 4. 保存记录
-        List<HealthRecord> recordList = getRecordList();
-        recordList.add(record);
-        DataStorageUtil.saveData(HEALTH_DATA_KEY, recordList);
-        System.out.println("[HealthRecordService] 健康记录添加成功：老人" + existElder.getName() + "（心率：" + record.getHeartRate() + "）");
+        // 2. 补全记录ID并一次保存（历史记录按月写入冷数据分段）
+        for (HealthRecord record : records) {
+            record.setRecordId(IdGenerator.generateHealthRecordId());
+        }
+        saveNewRecords(records);
+        for (HealthRecord record : records) {
+            ChangeEventBus.publish(ChangeEvent.HEALTH_RECORDS, record.getRecordId(), ChangeEvent.Operation.CREATE, null, record);
+        }
+        LOGGER.info("批量导入健康记录：{}条", records.size());
 
-        // 5. 预留数据库操作
-        healthRecordDao.insertHealthRecord(record);
+        // 3. 预留数据库操作
+        for (HealthRecord record : records) {
+            healthRecordDao.insertHealthRecord(record);
+        }
+        return records.size();
     }
 
     /**
      * 查询指定老人的所有健康记录（按时间倒序，最新记录在前）
+     * 需要读取全部冷数据分段，只用于完整历史、导出等场景；日常查看用getRecentRecordsByElderId
      * @param elderId 老人ID
      * @return 健康记录列表（无数据返回空列表）
      */
     public List<HealthRecord> getRecordsByElderId(String elderId) throws IOException, ClassNotFoundException {
-        InputValidator.validateNotEmpty(elderId, "老人ID");
-        List<HealthRecord> recordList = getRecordList();
-        // 筛选指定老人的记录，并按时间倒序排序
-        List<HealthRecord> elderRecords = recordList.stream()
-                .filter(record -> record.getElderId().equals(elderId.trim()))
-                .sorted((r1, r2) -> r2.getRecordTime().compareTo(r1.getRecordTime())) // 时间倒序
-                .collect(Collectors.toList());
-        System.out.println("[HealthRecordService] 查询到老人" + elderId + "的健康记录：" + elderRecords.size() + "条");
-        return elderRecords;
+        return getRecordsByElderId(elderId, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 查询指定老人在时间范围内的健康记录（按时间倒序），只读取范围覆盖的冷数据分段
+     * @param elderId 老人ID
+     * @param fromMillis 起始时间（含，毫秒）
+     * @param toMillis 结束时间（不含，毫秒）
+     * @return 健康记录列表（无数据返回空列表）
+     */
+    public List<HealthRecord> getRecordsByElderId(String elderId, long fromMillis, long toMillis)
+            throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = QUERY_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            String id = elderId.trim();
+            List<HealthRecord> elderRecords = new ArrayList<>();
+            Set<String> hotIds = new HashSet<>();
+            for (HealthRecord record : getHotRecords()) {
+                if (record.getElderId().equals(id) && inRange(record, fromMillis, toMillis)) {
+                    elderRecords.add(record);
+                    hotIds.add(record.getRecordId());
+                }
+            }
+            YearMonth fromMonth = fromMillis == Long.MIN_VALUE ? null : monthOf(fromMillis);
+            YearMonth toMonth = toMillis == Long.MAX_VALUE ? null : monthOf(toMillis - 1);
+            for (String month : listColdMonths()) {
+                YearMonth segmentMonth = YearMonth.parse(month);
+                if ((fromMonth != null && segmentMonth.isBefore(fromMonth)) || (toMonth != null && segmentMonth.isAfter(toMonth))) {
+                    continue;
+                }
+                for (HealthRecord record : getColdSegment(month)) {
+                    if (record.getElderId().equals(id) && inRange(record, fromMillis, toMillis)
+                            && !hotIds.contains(record.getRecordId())) {
+                        elderRecords.add(record);
+                    }
+                }
+            }
+            elderRecords.sort(NEWEST_FIRST);
+            LOGGER.debug("查询到老人{}的健康记录：{}条", elderId, elderRecords.size());
+            return elderRecords;
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 查询指定老人最近几个月（热数据保留期内）的健康记录（按时间倒序），不读取冷数据分段
+     * @param elderId 老人ID
+     * @return 健康记录列表（无数据返回空列表）
+     */
+    public List<HealthRecord> getRecentRecordsByElderId(String elderId) throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = RECENT_QUERY_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            String id = elderId.trim();
+            List<HealthRecord> elderRecords = getHotRecords().stream()
+                    .filter(record -> record.getElderId().equals(id))
+                    .sorted(NEWEST_FIRST)
+                    .collect(Collectors.toList());
+            LOGGER.debug("查询到老人{}的近期健康记录：{}条", elderId, elderRecords.size());
+            return elderRecords;
+        } finally {
+            sample.close();
+        }
     }
 
     /**
      * 内部方法：根据老人ID删除关联健康记录（供ElderService调用，实现数据联动）
+     * 冷数据分段只重写含有该老人记录的月份
      */
     void deleteRecordsByElderId(String elderId) throws IOException, ClassNotFoundException {
-        List<HealthRecord> recordList = getRecordList();
-        // 筛选出非当前老人的记录（即删除当前老人的记录）
-        List<HealthRecord> remainingRecords = recordList.stream()
-                .filter(record -> !record.getElderId().equals(elderId.trim()))
-                .collect(Collectors.toList());
-        // 保存剩余记录
-        DataStorageUtil.saveData(HEALTH_DATA_KEY, remainingRecords);
-        int deleteCount = recordList.size() - remainingRecords.size();
-        System.out.println("[HealthRecordService] 同步删除老人" + elderId + "的健康记录：" + deleteCount + "条");
+        String id = elderId.trim();
+        int deleteCount = 0;
+        synchronized (writeLock) {
+            List<HealthRecord> recordList = getHotRecords();
+            // 筛选出非当前老人的记录（即删除当前老人的记录）
+            List<HealthRecord> remainingRecords = recordList.stream()
+                    .filter(record -> !record.getElderId().equals(id))
+                    .collect(Collectors.toList());
+            // 保存剩余记录
+            DataStorageUtil.saveData(HEALTH_DATA_KEY, remainingRecords);
+            hotRecords = remainingRecords;
+            deleteCount += recordList.size() - remainingRecords.size();
+        }
+        for (String month : listColdMonths()) {
+            if (getColdSegment(month).stream().noneMatch(record -> record.getElderId().equals(id))) {
+                continue;
+            }
+            int[] removed = new int[1];
+            DataStorageUtil.updateData(COLD_DATA_KEY_PREFIX + month, true, data -> {
+                ArrayList<HealthRecord> remaining = new ArrayList<>();
+                for (HealthRecord record : castRecords(data)) {
+                    if (record.getElderId().equals(id)) {
+                        removed[0]++;
+                    } else {
+                        remaining.add(record);
+                    }
+                }
+                return remaining;
+            });
+            invalidateColdSegment(month);
+            deleteCount += removed[0];
+        }
+        LOGGER.info("同步删除老人{}的健康记录：{}条", elderId, deleteCount);
     }
 
     /**
-     * 私有辅助方法：统一读取健康记录列表
+     * 保存新增记录：保留期内的追加到热数据，更早的按月合并到冷数据分段
      */
+    private void saveNewRecords(List<HealthRecord> records) throws IOException, ClassNotFoundException {
+        synchronized (writeLock) {
+            List<HealthRecord> current = getHotRecords();
+            List<HealthRecord> older = new ArrayList<>();
+            ArrayList<HealthRecord> updated = new ArrayList<>(current.size() + records.size());
+            updated.addAll(current);
+            for (HealthRecord record : records) {
+                if (record.getRecordTimeMillis() < hotCutoff) {
+                    older.add(record);
+                } else {
+                    updated.add(record);
+                }
+            }
+            if (!older.isEmpty()) {
+                appendToColdSegments(older);
+            }
+            if (updated.size() > current.size()) {
+                DataStorageUtil.saveData(HEALTH_DATA_KEY, updated);
+                hotRecords = updated;
+            }
+        }
+    }
+
+    /**
+     * 获取热数据：首次访问时加载；跨过保留期（如进入新的月份）时先把过期记录移入冷数据分段
+     */
+    private List<HealthRecord> getHotRecords() throws IOException, ClassNotFoundException {
+        List<HealthRecord> records = hotRecords;
+        if (records != null && CachedClock.currentTimeMillis() < hotExpiresAt) {
+            HOT_CACHE.hit();
+            return records;
+        }
+        synchronized (writeLock) {
+            long now = CachedClock.currentTimeMillis();
+            if (hotRecords != null && now < hotExpiresAt) {
+                HOT_CACHE.hit();
+                return hotRecords;
+            }
+            HOT_CACHE.miss();
+            long cutoff = cutoffOf(now);
+            List<HealthRecord> loaded = hotRecords != null ? hotRecords : castRecords(DataStorageUtil.getData(HEALTH_DATA_KEY));
+            List<HealthRecord> expired = new ArrayList<>();
+            ArrayList<HealthRecord> kept = new ArrayList<>(loaded.size());
+            for (HealthRecord record : loaded) {
+                if (record.getRecordTimeMillis() < cutoff) {
+                    expired.add(record);
+                } else {
+                    kept.add(record);
+                }
+            }
+            if (!expired.isEmpty()) {
+                // 先写冷数据分段再保存热数据：中途退出时记录在两处都有，查询时按记录ID去重，下次加载时再次移出
+                appendToColdSegments(expired);
+                DataStorageUtil.saveData(HEALTH_DATA_KEY, kept);
+                MetricsRegistry.counter("health_records.demoted").add(expired.size());
+                LOGGER.info("健康记录移入冷数据：{}条，热数据保留{}条", expired.size(), kept.size());
+            }
+            hotCutoff = cutoff;
+            hotExpiresAt = monthOf(now).plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            hotRecords = kept;
+            return kept;
+        }
+    }
+
+    // 其他实例修改了热数据文件：下次访问时重新加载
+    private void reload() {
+        synchronized (writeLock) {
+            hotRecords = null;
+        }
+    }
+
+    /**
+     * 按月合并到冷数据分段（按记录ID去重，分段内按时间排序）
+     */
+    private void appendToColdSegments(List<HealthRecord> records) throws IOException, ClassNotFoundException {
+        Map<String, List<HealthRecord>> byMonth = new TreeMap<>();
+        for (HealthRecord record : records) {
+            byMonth.computeIfAbsent(monthOf(record.getRecordTimeMillis()).toString(), k -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<String, List<HealthRecord>> entry : byMonth.entrySet()) {
+            DataStorageUtil.updateData(COLD_DATA_KEY_PREFIX + entry.getKey(), true, data -> {
+                Map<String, HealthRecord> merged = new LinkedHashMap<>();
+                for (HealthRecord record : castRecords(data)) {
+                    merged.put(record.getRecordId(), record);
+                }
+                for (HealthRecord record : entry.getValue()) {
+                    merged.put(record.getRecordId(), record);
+                }
+                ArrayList<HealthRecord> segment = new ArrayList<>(merged.values());
+                segment.sort(Comparator.comparingLong(HealthRecord::getRecordTimeMillis));
+                return segment;
+            });
+            invalidateColdSegment(entry.getKey());
+        }
+    }
+
+    /**
+     * 读取一个月的冷数据分段（优先使用缓存）
+     */
+    private List<HealthRecord> getColdSegment(String month) throws IOException, ClassNotFoundException {
+        synchronized (coldSegments) {
+            List<HealthRecord> cached = coldSegments.get(month);
+            if (cached != null) {
+                COLD_CACHE.hit();
+                return cached;
+            }
+            COLD_CACHE.miss();
+            if (watchedSegments.add(month)) {
+                StorageWatcher.addListener(DataStorageUtil.fileNameOf(COLD_DATA_KEY_PREFIX + month),
+                        fileName -> invalidateColdSegment(month));
+            }
+        }
+        long start = COLD_LOAD_TIMER.start();
+        List<HealthRecord> loaded;
+        try {
+            loaded = castRecords(DataStorageUtil.getData(COLD_DATA_KEY_PREFIX + month));
+        } finally {
+            COLD_LOAD_TIMER.stop(start);
+        }
+        synchronized (coldSegments) {
+            coldSegments.put(month, loaded);
+        }
+        return loaded;
+    }
+
+    private void invalidateColdSegment(String month) {
+        synchronized (coldSegments) {
+            coldSegments.remove(month);
+        }
+    }
+
+    /**
+     * 数据目录中已有的冷数据分段（年月，升序）
+     */
+    private static List<String> listColdMonths() throws IOException {
+        List<String> months = new ArrayList<>();
+        for (String key : DataStorageUtil.listKeys(COLD_DATA_KEY_PREFIX)) {
+            String month = key.substring(COLD_DATA_KEY_PREFIX.length());
+            if (month.matches("\\d{4}-\\d{2}")) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    // 热数据保留期起点：HOT_MONTHS个月前（含当月）的月初
+    private static long cutoffOf(long nowMillis) {
+        return monthOf(nowMillis).minusMonths(HOT_MONTHS - 1L)
+                .atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static YearMonth monthOf(long millis) {
+        return YearMonth.from(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    private static boolean inRange(HealthRecord record, long fromMillis, long toMillis) {
+        return record.getRecordTimeMillis() >= fromMillis && record.getRecordTimeMillis() < toMillis;
+    }
+
     @SuppressWarnings("unchecked")
-    private List<HealthRecord> getRecordList() throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(HEALTH_DATA_KEY);
+    private static List<HealthRecord> castRecords(Object data) {
         return data == null ? new ArrayList<>() : (List<HealthRecord>) data;
     }
-}
\ No newline at end of file
+}
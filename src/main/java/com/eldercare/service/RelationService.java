@@ -0,0 +1,378 @@
+package com.eldercare.service;
+
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.model.Elder;
+import com.eldercare.util.ChangeEventBus;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.IdDictionary;
+import com.eldercare.util.InputValidator;
+import com.eldercare.util.IntHashSet;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 家属-老人关系业务逻辑类：维护双向关系索引、批量查询家属关联的老人、向家属推送通知
+ * 内部以IdDictionary代理键的int集合保存关系（家属 -> 老人、老人 -> 家属），
+ * 持久化格式仍为Map<家属账号, List<老人ID>>，兼容已有family_elder_relations.ser
+ */
+public class RelationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelationService.class);
+    private static final RelationService INSTANCE = new RelationService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile RelationService remoteProxy;
+    private static final String RELATION_DATA_KEY = "family_elder_relations";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 家属账号 -> 通知监听器（家属界面打开时注册）
+    private final ConcurrentHashMap<String, List<Consumer<String>>> familyListeners = new ConcurrentHashMap<>();
+    // 双向索引；未加载或数据文件被其他实例修改后为null，在写锁内重新加载
+    private volatile RelationData data;
+
+    /**
+     * 双向关系索引（读写均需持有lock）
+     */
+    private static final class RelationData {
+        // 家属账号代理键 -> 老人ID代理键集合
+        final Map<Integer, IntHashSet> eldersByFamily = new HashMap<>();
+        // 老人ID代理键 -> 家属账号代理键集合
+        final Map<Integer, IntHashSet> familiesByElder = new HashMap<>();
+
+        boolean link(int familyCode, int elderCode) {
+            boolean added = eldersByFamily.computeIfAbsent(familyCode, k -> new IntHashSet()).add(elderCode);
+            if (added) {
+                familiesByElder.computeIfAbsent(elderCode, k -> new IntHashSet()).add(familyCode);
+            }
+            return added;
+        }
+
+        boolean unlink(int familyCode, int elderCode) {
+            IntHashSet elders = eldersByFamily.get(familyCode);
+            if (elders == null || !elders.remove(elderCode)) {
+                return false;
+            }
+            IntHashSet families = familiesByElder.get(elderCode);
+            if (families != null) {
+                families.remove(familyCode);
+                if (families.isEmpty()) {
+                    familiesByElder.remove(elderCode);
+                }
+            }
+            return true;
+        }
+    }
+
+    protected RelationService() {
+        DataStorageUtil.registerMergeable(RELATION_DATA_KEY, null);
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(RELATION_DATA_KEY), fileName -> reload());
+    }
+
+    public static RelationService getInstance() {
+        RelationService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
+        return INSTANCE;
+    }
+
+    public static void useRemoteProxy(RelationService proxy) {
+        remoteProxy = proxy;
+    }
+
+    /**
+     * 查询家属关联的老人ID（按关联先后顺序）
+     * @param familyUserId 家属账号
+     * @return 老人ID列表（无关联返回空列表）
+     */
+    public List<String> getElderIdsByFamily(String familyUserId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(familyUserId, "家属账号");
+        RelationData current = ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return decode(current.eldersByFamily.get(IdDictionary.lookup(familyUserId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询老人的所有家属账号（反向索引）
+     * @param elderId 老人ID
+     * @return 家属账号列表（无关联返回空列表）
+     */
+    public List<String> getFamilyUserIdsByElder(String elderId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(elderId, "老人ID");
+        RelationData current = ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return decode(current.familiesByElder.get(IdDictionary.lookup(elderId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 批量查询家属关联的老人（一次读取老人数据，不再逐个查询）
+     * @param familyUserId 家属账号
+     * @return 关联的老人列表（已删除的老人自动忽略）
+     */
+    public List<Elder> getEldersByFamily(String familyUserId) throws IOException, ClassNotFoundException {
+        List<String> elderIds = getElderIdsByFamily(familyUserId);
+        if (elderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return ElderService.getInstance().getEldersByIds(elderIds);
+    }
+
+    /**
+     * 判断家属是否已关联老人
+     */
+    public boolean isAssociated(String familyUserId, String elderId) throws IOException, ClassNotFoundException {
+        RelationData current = ensureLoaded();
+        lock.readLock().lock();
+        try {
+            IntHashSet elders = current.eldersByFamily.get(IdDictionary.lookup(familyUserId));
+            return elders != null && elders.contains(IdDictionary.lookup(elderId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关联家属与老人
+     * @return true-关联成功，false-已关联
+     */
+    public boolean addRelation(String familyUserId, String elderId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(familyUserId, "家属账号");
+        InputValidator.validateNotEmpty(elderId, "老人ID");
+        int familyCode = IdDictionary.encode(familyUserId.trim());
+        List<String> elderIds;
+        lock.writeLock().lock();
+        try {
+            RelationData current = loadLocked();
+            int elderCode = IdDictionary.encode(elderId.trim());
+            if (!current.link(familyCode, elderCode)) {
+                return false;
+            }
+            try {
+                persist(current);
+            } catch (IOException e) {
+                // 保存失败时撤销内存中的关联，避免查询报告磁盘上不存在的关系
+                current.unlink(familyCode, elderCode);
+                throw e;
+            }
+            elderIds = decode(current.eldersByFamily.get(familyCode));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        publishFamily(familyCode, elderIds);
+        LOGGER.info("家属{}关联老人成功：{}", familyUserId, elderId);
+        return true;
+    }
+
+    /**
+     * 解除家属与老人的关联
+     * @return true-解除成功，false-原本未关联
+     */
+    public boolean removeRelation(String familyUserId, String elderId) throws IOException, ClassNotFoundException {
+        int familyCode = IdDictionary.lookup(familyUserId);
+        int elderCode = IdDictionary.lookup(elderId);
+        List<String> elderIds;
+        lock.writeLock().lock();
+        try {
+            RelationData current = loadLocked();
+            if (!current.unlink(familyCode, elderCode)) {
+                return false;
+            }
+            try {
+                persist(current);
+            } catch (IOException e) {
+                current.link(familyCode, elderCode);
+                throw e;
+            }
+            elderIds = decode(current.eldersByFamily.get(familyCode));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        publishFamily(familyCode, elderIds);
+        LOGGER.info("家属{}解除关联老人：{}", familyUserId, elderId);
+        return true;
+    }
+
+    /**
+     * 内部方法：删除老人的全部家属关联（供ElderService删除老人时调用）
+     */
+    void removeElder(String elderId) throws IOException, ClassNotFoundException {
+        int elderCode = IdDictionary.lookup(elderId);
+        Map<Integer, List<String>> changed = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            RelationData current = loadLocked();
+            IntHashSet families = current.familiesByElder.remove(elderCode);
+            if (families == null) {
+                return;
+            }
+            families.forEach(familyCode -> {
+                IntHashSet elders = current.eldersByFamily.get(familyCode);
+                if (elders != null) {
+                    elders.remove(elderCode);
+                    changed.put(familyCode, decode(elders));
+                }
+            });
+            try {
+                persist(current);
+            } catch (IOException e) {
+                families.forEach(familyCode -> current.link(familyCode, elderCode));
+                throw e;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        changed.forEach(this::publishFamily);
+    }
+
+    /**
+     * 发布家属关联变更事件：实体为家属账号，快照为其关联的全部老人ID（与持久化格式一致）
+     */
+    private void publishFamily(int familyCode, List<String> elderIds) {
+        String familyUserId = IdDictionary.decode(familyCode);
+        ChangeEventBus.publish(ChangeEvent.RELATIONS, familyUserId, ChangeEvent.Operation.UPDATE, null, elderIds);
+    }
+
+    /**
+     * 注册家属通知监听器（家属界面打开时调用）
+     * @param familyUserId 家属账号
+     * @param listener 收到通知时的回调（在通知发送线程中执行，界面需自行切换到界面线程）
+     */
+    public void addFamilyListener(String familyUserId, Consumer<String> listener) {
+        familyListeners.computeIfAbsent(familyUserId, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 移除家属通知监听器（家属界面关闭时调用）
+     */
+    public void removeFamilyListener(String familyUserId, Consumer<String> listener) {
+        List<Consumer<String>> listeners = familyListeners.get(familyUserId);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * 向老人的所有家属推送通知（按反向索引直接定位，耗时与家属人数成正比）
+     * @param elderId 老人ID
+     * @param message 通知内容
+     * @return 收到通知的在线家属界面数量
+     */
+    public int notifyFamilies(String elderId, String message) {
+        List<String> familyUserIds;
+        try {
+            familyUserIds = getFamilyUserIdsByElder(elderId);
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.warn("读取家属关系失败，通知未发送：{}", e.getMessage());
+            return 0;
+        }
+        int delivered = 0;
+        for (String familyUserId : familyUserIds) {
+            List<Consumer<String>> listeners = familyListeners.get(familyUserId);
+            if (listeners == null) {
+                continue;
+            }
+            for (Consumer<String> listener : listeners) {
+                try {
+                    listener.accept(message);
+                    delivered++;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("通知家属{}失败：{}", familyUserId, e.getMessage());
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 关系数据文件被其他实例修改：丢弃双向索引，下次访问时重新加载（通知监听保留）
+     * 在写锁内置空，正在修改的调用方持有写锁，不会写入被丢弃的索引
+     */
+    private void reload() {
+        lock.writeLock().lock();
+        try {
+            data = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 首次访问时加载关系数据并建立双向索引
+     * @return 当前索引（查询方在读锁内使用；之后被重新加载替换时读到的仍是一致的旧数据）
+     */
+    private RelationData ensureLoaded() throws IOException, ClassNotFoundException {
+        RelationData current = data;
+        if (current != null) {
+            return current;
+        }
+        lock.writeLock().lock();
+        try {
+            return loadLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 调用方需持有写锁：修改方在同一写锁内加载并修改，重新加载无法插入其间
+    @SuppressWarnings("unchecked")
+    private RelationData loadLocked() throws IOException, ClassNotFoundException {
+        RelationData current = data;
+        if (current != null) {
+            return current;
+        }
+        Object stored = DataStorageUtil.getData(RELATION_DATA_KEY);
+        Map<String, List<String>> relations = stored == null ? new HashMap<>() : (Map<String, List<String>>) stored;
+        RelationData loadedData = new RelationData();
+        for (Map.Entry<String, List<String>> entry : relations.entrySet()) {
+            int familyCode = IdDictionary.encode(entry.getKey());
+            loadedData.eldersByFamily.computeIfAbsent(familyCode, k -> new IntHashSet());
+            if (entry.getValue() != null) {
+                for (String elderId : entry.getValue()) {
+                    if (elderId != null && !elderId.trim().isEmpty()) {
+                        loadedData.link(familyCode, IdDictionary.encode(elderId.trim()));
+                    }
+                }
+            }
+        }
+        data = loadedData;
+        LOGGER.info("已加载家属-老人关系：{}个家属", loadedData.eldersByFamily.size());
+        return loadedData;
+    }
+
+    // 调用方需持有写锁；保存为原有的Map<String, List<String>>格式
+    private static void persist(RelationData current) throws IOException {
+        HashMap<String, List<String>> relations = new HashMap<>();
+        for (Map.Entry<Integer, IntHashSet> entry : current.eldersByFamily.entrySet()) {
+            relations.put(IdDictionary.decode(entry.getKey()), decode(entry.getValue()));
+        }
+        DataStorageUtil.saveData(RELATION_DATA_KEY, relations);
+    }
+
+    private static List<String> decode(IntHashSet codes) {
+        if (codes == null || codes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>(codes.size());
+        codes.forEach(code -> ids.add(IdDictionary.decode(code)));
+        return ids;
+    }
+}
@@ -0,0 +1,388 @@
+package com.eldercare.service;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.DeferredSaver;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.StorageLocks;
+import com.eldercare.util.TimingWheel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 定时提醒业务逻辑类：活动开始提醒、服务申请超时升级、健康预警未处理升级
+ * 定时任务由分层时间轮驱动（添加、取消O(1)），并持久化到reminder_timers.ser，程序重启后自动恢复；
+ * 每个提醒以"类型:目标ID"为唯一标识，重复登记只会更新到期时间
+ * 多个实例（服务端、本地模式的界面程序）共用数据目录时，只有取得提醒锁（reminder_owner.lock）的实例执行提醒、保存提醒文件，
+ * 其他实例的登记和取消直接忽略；执行者定期按业务数据补登记提醒（包括其他实例新增的申请、预警），执行者退出后由其他实例接替
+ */
+public class ReminderService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReminderService.class);
+    private static final ReminderService INSTANCE = new ReminderService();
+    private static final String TIMER_DATA_KEY = "reminder_timers";
+    // 提醒执行者锁（数据目录下的锁文件，执行者进程退出时自动释放）
+    private static final String OWNER_LOCK_NAME = "reminder_owner";
+    // 检查执行者锁、补登记提醒的间隔（毫秒）
+    private static final long OWNER_CHECK_MILLIS = Long.getLong("eldercare.reminder.owner.check.ms", 60 * 1000L);
+
+    public static final String TYPE_ACTIVITY_REMINDER = "ACTIVITY_REMINDER";
+    public static final String TYPE_REQUEST_ESCALATION = "REQUEST_ESCALATION";
+    public static final String TYPE_ALERT_ESCALATION = "ALERT_ESCALATION";
+
+    // 活动开始前多久提醒（毫秒），可通过系统属性eldercare.reminder.activity.lead.ms调整
+    private static final long ACTIVITY_LEAD_MILLIS = Long.getLong("eldercare.reminder.activity.lead.ms", 30 * 60 * 1000L);
+    // 服务申请"待处理"超过多久升级（毫秒）
+    private static final long REQUEST_STALE_MILLIS = Long.getLong("eldercare.reminder.request.stale.ms", 2 * 60 * 60 * 1000L);
+    // 健康预警"未处理"超过多久升级（毫秒）
+    private static final long ALERT_STALE_MILLIS = Long.getLong("eldercare.reminder.alert.stale.ms", 30 * 60 * 1000L);
+    // 同一事项最多升级次数
+    private static final int MAX_ESCALATIONS = Integer.getInteger("eldercare.reminder.max.escalations", 3);
+
+    // 时间轮：最底层1秒一格，每层64格（64秒、约68分钟、约73小时……逐层放大）
+    private final TimingWheel timingWheel = new TimingWheel("eldercare-reminder", 1000L, 64);
+    // 提醒ID -> 提醒（持久化内容 + 时间轮句柄）
+    private final ConcurrentHashMap<String, Reminder> reminders = new ConcurrentHashMap<>();
+    // 护工/管理员界面的提醒监听器
+    private final List<Consumer<String>> staffListeners = new CopyOnWriteArrayList<>();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+    // 本实例持有执行者锁时非null（持有到进程退出）
+    private volatile StorageLocks.Handle ownership;
+
+    private ReminderService() {
+        MetricsRegistry.gauge("reminder.pending", reminders::size);
+    }
+
+    public static ReminderService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 启动提醒服务（程序启动时调用）：取得执行者锁时恢复持久化的提醒，并为已有数据补登记缺失的提醒；
+     * 未取得时定期重试，其他实例退出后接替
+     */
+    public void start() {
+        timingWheel.start();
+        checkOwnership();
+    }
+
+    /**
+     * 本实例是否为提醒执行者
+     */
+    public boolean isOwner() {
+        return ownership != null;
+    }
+
+    // 定期执行：非执行者尝试取锁，执行者补登记其他实例新增数据的提醒
+    private void checkOwnership() {
+        try {
+            if (ownership == null) {
+                StorageLocks.Handle handle = StorageLocks.tryExclusive(OWNER_LOCK_NAME);
+                if (handle == null) {
+                    LOGGER.debug("提醒由其他实例执行");
+                } else {
+                    ownership = handle;
+                    ensureLoaded();
+                    backfill(true);
+                    LOGGER.info("提醒服务已启动，待执行提醒：{}个", reminders.size());
+                }
+            } else {
+                backfill(false);
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.warn("提醒服务检查失败：{}", e.getMessage());
+        }
+        timingWheel.schedule(System.currentTimeMillis() + OWNER_CHECK_MILLIS, this::checkOwnership);
+    }
+
+    /**
+     * 登记活动开始提醒（活动开始前提醒已报名老人的家属）
+     * @param activity 活动
+     */
+    public void scheduleActivityReminder(Activity activity) {
+        if (activity == null || !activity.isScheduled() || activity.getEndMillis() <= CachedClock.currentTimeMillis()) {
+            return;
+        }
+        schedule(TYPE_ACTIVITY_REMINDER, activity.getActivityId(), activity.getStartMillis() - ACTIVITY_LEAD_MILLIS, 0);
+    }
+
+    /**
+     * 登记服务申请超时升级（申请仍为"待处理"时升级提醒）
+     * @param request 服务申请
+     */
+    public void scheduleRequestEscalation(ServiceRequest request) {
+        if (request == null || request.getServiceStatus() != ServiceStatus.PENDING) {
+            return;
+        }
+        schedule(TYPE_REQUEST_ESCALATION, request.getRequestId(), request.getRequestTimeMillis() + REQUEST_STALE_MILLIS, 0);
+    }
+
+    /**
+     * 登记健康预警未处理升级
+     * @param alertId 预警ID
+     * @param alertTime 预警时间（毫秒时间戳）
+     */
+    public void scheduleAlertEscalation(String alertId, long alertTime) {
+        schedule(TYPE_ALERT_ESCALATION, alertId, alertTime + ALERT_STALE_MILLIS, 0);
+    }
+
+    /**
+     * 取消提醒（如服务申请已处理、预警已确认）
+     * @param type 提醒类型
+     * @param targetId 目标ID
+     * @return true-取消成功，false-提醒不存在
+     */
+    public boolean cancel(String type, String targetId) {
+        if (!isOwner()) {
+            return false;
+        }
+        Reminder reminder = reminders.remove(reminderId(type, targetId));
+        if (reminder == null) {
+            return false;
+        }
+        reminder.cancelTimeout();
+        scheduleSave();
+        return true;
+    }
+
+    /**
+     * 待执行的提醒数量
+     */
+    public int getPendingCount() {
+        return reminders.size();
+    }
+
+    /**
+     * 注册护工/管理员提醒监听器（在时间轮工作线程中回调，界面需自行切换到界面线程）
+     */
+    public void addStaffListener(Consumer<String> listener) {
+        staffListeners.add(listener);
+    }
+
+    public void removeStaffListener(Consumer<String> listener) {
+        staffListeners.remove(listener);
+    }
+
+    private void schedule(String type, String targetId, long deadline, int attempt) {
+        // 非执行者不登记：执行者定期补登记时会按业务数据登记
+        if (!isOwner()) {
+            return;
+        }
+        try {
+            ensureLoaded();
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.warn("加载提醒数据失败：{}", e.getMessage());
+        }
+        Reminder reminder = new Reminder(type, targetId, deadline, attempt);
+        Reminder old = reminders.put(reminder.id, reminder);
+        if (old != null) {
+            old.cancelTimeout();
+        }
+        reminder.timeout = timingWheel.schedule(deadline, () -> fire(reminder));
+        scheduleSave();
+    }
+
+    /**
+     * 提醒到期（时间轮工作线程中执行）
+     */
+    private void fire(Reminder reminder) {
+        // 已被新的同名提醒替换或已取消
+        if (!reminders.remove(reminder.id, reminder)) {
+            return;
+        }
+        scheduleSave();
+        try {
+            switch (reminder.type) {
+                case TYPE_ACTIVITY_REMINDER:
+                    fireActivityReminder(reminder);
+                    break;
+                case TYPE_REQUEST_ESCALATION:
+                    fireRequestEscalation(reminder);
+                    break;
+                case TYPE_ALERT_ESCALATION:
+                    fireAlertEscalation(reminder);
+                    break;
+                default:
+                    LOGGER.warn("未知提醒类型：{}", reminder.type);
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.error("提醒处理失败：{}", reminder.id, e);
+        }
+    }
+
+    private void fireActivityReminder(Reminder reminder) throws IOException, ClassNotFoundException {
+        Activity activity = ActivityService.getInstance().getActivityById(reminder.targetId);
+        if (activity == null) {
+            return;
+        }
+        String message = "活动提醒：" + activity.getName() + "将于"
+                + DateFormatUtil.formatDateTime(activity.getStartMillis(), "MM-dd HH:mm") + "在" + activity.getLocation() + "开始";
+        for (String elderId : activity.getRegisteredElderIds()) {
+            RelationService.getInstance().notifyFamilies(elderId, message);
+        }
+        notifyStaff(message + "（已报名" + activity.getRegisteredCount() + "人）");
+    }
+
+    private void fireRequestEscalation(Reminder reminder) throws IOException, ClassNotFoundException {
+        ServiceRequest request = ServiceRequestService.getInstance().getRequestById(reminder.targetId);
+        if (request == null || request.getServiceStatus() != ServiceStatus.PENDING) {
+            return;
+        }
+        int attempt = reminder.attempt + 1;
+        String message = "服务申请超时未处理（第" + attempt + "次提醒）：" + request.getServiceType()
+                + "，申请时间" + DateFormatUtil.formatDateTime(request.getRequestTimeMillis()) + "，申请ID：" + request.getRequestId();
+        RelationService.getInstance().notifyFamilies(request.getElderId(), message);
+        notifyStaff(message);
+        if (attempt < MAX_ESCALATIONS) {
+            schedule(reminder.type, reminder.targetId, CachedClock.currentTimeMillis() + REQUEST_STALE_MILLIS, attempt);
+        }
+    }
+
+    private void fireAlertEscalation(Reminder reminder) throws IOException, ClassNotFoundException {
+        Map<String, Object> alert = HealthAlertService.getInstance().getAlertById(reminder.targetId);
+        if (alert == null || !"未处理".equals(alert.get("status"))) {
+            return;
+        }
+        int attempt = reminder.attempt + 1;
+        String elderId = (String) alert.get("elderId");
+        String message = "健康预警未处理（第" + attempt + "次提醒）：老人" + elderId + "，" + alert.get("alerts");
+        RelationService.getInstance().notifyFamilies(elderId, message);
+        notifyStaff(message);
+        if (attempt < MAX_ESCALATIONS) {
+            schedule(reminder.type, reminder.targetId, CachedClock.currentTimeMillis() + ALERT_STALE_MILLIS, attempt);
+        }
+    }
+
+    private void notifyStaff(String message) {
+        LOGGER.info("{}", message);
+        for (Consumer<String> listener : staffListeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                LOGGER.warn("提醒推送失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 为已有数据补登记提醒（成为执行者时，以及之后定期补登记其他实例新增的数据）
+     * @param includeOverdue 是否登记已到期的提醒（成为执行者时登记并立即执行；定期补登记时跳过，
+     *                       已到期又不在待执行中的提醒已执行过，不能重复提醒）
+     */
+    private void backfill(boolean includeOverdue) throws IOException, ClassNotFoundException {
+        long now = System.currentTimeMillis();
+        for (Activity activity : ActivityService.getInstance().getUpcomingActivities()) {
+            if (!reminders.containsKey(reminderId(TYPE_ACTIVITY_REMINDER, activity.getActivityId()))
+                    && (includeOverdue || activity.getStartMillis() - ACTIVITY_LEAD_MILLIS > now)) {
+                scheduleActivityReminder(activity);
+            }
+        }
+        for (ServiceRequest request : ServiceRequestService.getInstance().getRequestsByStatus(ServiceStatus.PENDING.getLabel())) {
+            if (!reminders.containsKey(reminderId(TYPE_REQUEST_ESCALATION, request.getRequestId()))
+                    && (includeOverdue || request.getRequestTimeMillis() + REQUEST_STALE_MILLIS > now)) {
+                scheduleRequestEscalation(request);
+            }
+        }
+        for (Map<String, Object> alert : HealthAlertService.getInstance().getAlertsByStatus("未处理")) {
+            String alertId = (String) alert.get("alertId");
+            long alertTime = HealthAlertService.toMillis(alert.get("alertTime"));
+            if (alertId != null && !reminders.containsKey(reminderId(TYPE_ALERT_ESCALATION, alertId))
+                    && (includeOverdue || alertTime + ALERT_STALE_MILLIS > now)) {
+                scheduleAlertEscalation(alertId, alertTime);
+            }
+        }
+    }
+
+    /**
+     * 成为执行者时恢复持久化的提醒（已过期的提醒立即执行）
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureLoaded() throws IOException, ClassNotFoundException {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            timingWheel.start();
+            Object data = DataStorageUtil.getData(TIMER_DATA_KEY);
+            if (data == null) {
+                return;
+            }
+            for (Map<String, Object> record : (List<Map<String, Object>>) data) {
+                Reminder reminder = new Reminder((String) record.get("type"), (String) record.get("targetId"),
+                        (Long) record.get("deadline"), (Integer) record.get("attempt"));
+                if (reminders.putIfAbsent(reminder.id, reminder) == null) {
+                    reminder.timeout = timingWheel.schedule(reminder.deadline, () -> fire(reminder));
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记保存提醒数据（合并写文件）
+     */
+    private void scheduleSave() {
+        DeferredSaver.schedule(TIMER_DATA_KEY, () -> {
+            ArrayList<Map<String, Object>> records = new ArrayList<>(reminders.size());
+            for (Reminder reminder : reminders.values()) {
+                HashMap<String, Object> record = new HashMap<>();
+                record.put("type", reminder.type);
+                record.put("targetId", reminder.targetId);
+                record.put("deadline", reminder.deadline);
+                record.put("attempt", reminder.attempt);
+                records.add(record);
+            }
+            return records;
+        });
+    }
+
+    private static String reminderId(String type, String targetId) {
+        return type + ":" + targetId;
+    }
+
+    /**
+     * 提醒
+     */
+    private static final class Reminder {
+        private final String id;
+        private final String type;
+        private final String targetId;
+        private final long deadline;
+        // 已升级次数
+        private final int attempt;
+        private volatile TimingWheel.Timeout timeout;
+
+        private Reminder(String type, String targetId, long deadline, int attempt) {
+            this.id = reminderId(type, targetId);
+            this.type = type;
+            this.targetId = targetId;
+            this.deadline = deadline;
+            this.attempt = attempt;
+        }
+
+        // 已过期的提醒可能在句柄赋值前就已执行，句柄可能为null
+        private void cancelTimeout() {
+            TimingWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
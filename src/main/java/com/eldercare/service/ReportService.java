@@ -48,7 +48,7 @@ public class ReportService {
             HealthRecord record = records.get(i);
             Row row = sheet.createRow(i + 1);
 
-            row.createCell(0).setCellValue(DateFormatUtil.formatDateTime(record.getRecordTime()));
+            row.createCell(0).setCellValue(DateFormatUtil.formatDateTime(record.getRecordTimeMillis()));
             row.createCell(1).setCellValue(record.getBloodPressure());
             row.createCell(2).setCellValue(record.getHeartRate());
 
@@ -105,7 +105,7 @@ public class ReportService {
             ServiceRequest request = requests.get(i);
             Row row = sheet.createRow(i + 1);
 
-            row.createCell(0).setCellValue(DateFormatUtil.formatDateTime(request.getRequestTime()));
+            row.createCell(0).setCellValue(DateFormatUtil.formatDateTime(request.getRequestTimeMillis()));
             row.createCell(1).setCellValue(request.getServiceType());
             row.createCell(2).setCellValue(request.getStatus());
 
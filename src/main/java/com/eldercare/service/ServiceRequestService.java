@@ -2,32 +2,112 @@ package com.eldercare.service;
 
 import com.eldercare.dao.ServiceRequestDao;
 import com.eldercare.dao.impl.ServiceRequestDaoImpl;
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.Elder;
 import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DeferredSaver;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.StorageLocks;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /**
  * 服务申请业务逻辑类：处理申请提交、状态更新、关联老人
+ * 申请数据首次访问时加载到内存并按ID建立索引，查询返回副本；派单、状态变更等高频写操作合并为一次写文件
+ * 状态变更按状态机校验，同时维护"状态 -> 申请ID集合"索引和各状态计数，按状态查询与统计无需遍历全部申请
  */
 public class ServiceRequestService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceRequestService.class);
     private static volatile ServiceRequestService INSTANCE;
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile ServiceRequestService remoteProxy;
     private static final String SERVICE_DATA_KEY = "service_requests";
+    // 接单锁（锁文件service_requests_claim.lock）：多个实例共用数据目录时，接单的检查与写入在此锁内完成
+    private static final String CLAIM_LOCK_NAME = "service_requests_claim";
+    // 运行指标
+    private static final MetricsRegistry.Timer SUBMIT_TIMER = MetricsRegistry.serviceTimer("ServiceRequestService", "submitRequest");
+    private static final MetricsRegistry.Timer UPDATE_STATUS_TIMER = MetricsRegistry.serviceTimer("ServiceRequestService", "updateRequestStatus");
+    private static final MetricsRegistry.CacheStats REQUEST_CACHE = MetricsRegistry.cache("service_requests");
     private ElderService elderService;
     private final ServiceRequestDao requestDao = new ServiceRequestDaoImpl();
 
+    // 申请列表写锁（保护申请的新增、删除、加载与重新加载）
+    private final Object writeLock = new Object();
+    // 重新加载锁：修改已有申请时持有读锁（查找、修改、登记保存一并完成），重新加载替换数据时持有写锁
+    private final ReentrantReadWriteLock reloadLock = new ReentrantReadWriteLock();
+    // 已加载的申请数据（未加载为null；重新加载时整体替换，不会置空）
+    private volatile RequestData data;
+
+    /**
+     * 申请列表及其索引、计数，作为整体加载和替换
+     */
+    private static final class RequestData {
+        // 申请列表（保持提交顺序，用于持久化；写时复制）
+        volatile List<ServiceRequest> list;
+        // 申请ID -> 申请 索引
+        final ConcurrentHashMap<String, ServiceRequest> index = new ConcurrentHashMap<>();
+        // 状态 -> 申请ID集合 索引（EnumMap创建后不再增删键，各集合本身线程安全）
+        final EnumMap<ServiceStatus, Set<String>> statusIndex = new EnumMap<>(ServiceStatus.class);
+        // 各状态申请数（每次状态变更时更新）
+        final EnumMap<ServiceStatus, AtomicInteger> statusCounts = new EnumMap<>(ServiceStatus.class);
+
+        RequestData() {
+            for (ServiceStatus status : ServiceStatus.values()) {
+                statusIndex.put(status, ConcurrentHashMap.newKeySet());
+                statusCounts.put(status, new AtomicInteger());
+            }
+        }
+
+        void indexStatus(String requestId, ServiceStatus status) {
+            if (statusIndex.get(status).add(requestId)) {
+                statusCounts.get(status).incrementAndGet();
+            }
+        }
+
+        void unindexStatus(String requestId, ServiceStatus status) {
+            if (statusIndex.get(status).remove(requestId)) {
+                statusCounts.get(status).decrementAndGet();
+            }
+        }
+
+        // 调用方需持有申请对象锁，保证同一申请的索引变更与状态变更顺序一致
+        void moveStatus(String requestId, ServiceStatus from, ServiceStatus to) {
+            unindexStatus(requestId, from);
+            indexStatus(requestId, to);
+        }
+    }
+
     protected ServiceRequestService() {
         this.elderService = ElderService.getInstance();
+        DataStorageUtil.registerMergeable(SERVICE_DATA_KEY, item -> ((ServiceRequest) item).getRequestId());
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(SERVICE_DATA_KEY), fileName -> reload());
     }
 
     public static ServiceRequestService getInstance() {
+        ServiceRequestService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         if (INSTANCE == null) {
             synchronized (ServiceRequestService.class) {
                 if (INSTANCE == null) {
@@ -38,6 +118,10 @@ public class ServiceRequestService {
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(ServiceRequestService proxy) {
+        remoteProxy = proxy;
+    }
+
     private ElderService getElderService() {
         if (elderService == null) {
             elderService = ElderService.getInstance();
@@ -50,70 +134,198 @@ public class ServiceRequestService {
      * @param request 服务申请对象（需包含老人ID、服务类型、申请内容）
      */
     public void submitRequest(ServiceRequest request) throws IOException, ClassNotFoundException {
-        // 1. 输入校验
-        InputValidator.validateNotEmpty(request.getElderId(), "关联老人ID");
-        InputValidator.validateNotEmpty(request.getServiceType(), "服务类型");
-        InputValidator.validateNotEmpty(request.getContent(), "申请内容");
+        MetricsRegistry.Sample sample = SUBMIT_TIMER.time();
+        try {
+            // 1. 输入校验
+            InputValidator.validateNotEmpty(request.getElderId(), "关联老人ID");
+            InputValidator.validateNotEmpty(request.getServiceType(), "服务类型");
+            InputValidator.validateNotEmpty(request.getContent(), "申请内容");
 
-        // 确保elderService已初始化
-        if (elderService == null) {
-            elderService = ElderService.getInstance();
+            // 确保elderService已初始化
             if (elderService == null) {
-                throw new RuntimeException("系统服务初始化失败，请重启系统");
+                elderService = ElderService.getInstance();
+                if (elderService == null) {
+                    throw new RuntimeException("系统服务初始化失败，请重启系统");
+                }
             }
-        }
 
-        // 2. 校验老人是否存在
-        Elder existElder = elderService.getElderById(request.getElderId());
-        if (existElder == null) {
-            throw new IllegalArgumentException("关联老人不存在（ID：" + request.getElderId() + "），无法提交服务申请");
-        }
+            // 2. 校验老人是否存在
+            Elder existElder = elderService.getElderById(request.getElderId());
+            if (existElder == null) {
+                throw new IllegalArgumentException("关联老人不存在（ID：" + request.getElderId() + "），无法提交服务申请");
+            }
 
-        // 3. 补全申请信息
-        request.setRequestId(IdGenerator.generateServiceRequestId());
-        if (request.getRequestTime() == null) {
-            request.setRequestTime(new Date());
-        }
-        if (request.getStatus() == null || !("待处理".equals(request.getStatus()) || "已完成".equals(request.getStatus()) || "已取消".equals(request.getStatus()))) {
-            request.setStatus("待处理"); // 默认状态：待处理
-        }
+            // 3. 补全申请信息
+            request.setRequestId(IdGenerator.generateServiceRequestId());
+            request.setStatus(ServiceStatus.PENDING.getLabel()); // 新提交的申请一律为待处理
 
-        // 4. 保存申请
-        List<ServiceRequest> requestList = getRequestList();
-        requestList.add(request);
-        DataStorageUtil.saveData(SERVICE_DATA_KEY, requestList);
-        System.out.println("[ServiceRequestService] 服务申请提交成功：老人" + existElder.getName() + "（类型：" + request.getServiceType() + "）");
+            // 4. 保存申请（保存副本，调用方后续修改传入对象不影响已保存的申请）
+            ServiceRequest stored = request.copy();
+            ensureLoaded();
+            synchronized (writeLock) {
+                RequestData current = data;
+                List<ServiceRequest> updated = new ArrayList<>(current.list);
+                updated.add(stored);
+                current.index.put(stored.getRequestId(), stored);
+                current.indexStatus(stored.getRequestId(), stored.getServiceStatus());
+                current.list = updated;
+                scheduleSave();
+            }
+            ChangeEventBus.publish(ChangeEvent.SERVICE_REQUESTS, stored.getRequestId(), ChangeEvent.Operation.CREATE, null, request.copy());
+            LOGGER.info("服务申请提交成功：老人{}（类型：{}）", existElder.getName(), request.getServiceType());
+            RelationService.getInstance().notifyFamilies(request.getElderId(),
+                    "老人" + existElder.getName() + "提交了" + request.getServiceType() + "服务申请");
+            ReminderService.getInstance().scheduleRequestEscalation(request);
+            DispatchService.getInstance().enqueue(request);
 
-        // 5. 预留数据库操作：插入服务申请到数据库
-        requestDao.insertServiceRequest(request);
+            // 5. 预留数据库操作：插入服务申请到数据库
+            requestDao.insertServiceRequest(request);
+        } finally {
+            sample.close();
+        }
     }
 
     /**
-     * 更新服务申请状态（如待处理→已完成）
+     * 更新服务申请状态（如待处理→已完成），按状态机校验：已完成、已取消的申请不能再变更
      * @param requestId 申请ID
-     * @param newStatus 新状态（仅允许：待处理/已完成/已取消）
-     * @return true：更新成功；false：申请不存在
+     * @param newStatus 新状态（待处理/处理中/已完成/已取消）
+     * @return true：更新成功（状态未变化也视为成功）；false：申请不存在
+     * @throws IllegalStateException 当前状态不允许变更为新状态
      */
     public boolean updateRequestStatus(String requestId, String newStatus) throws IOException, ClassNotFoundException {
-        InputValidator.validateNotEmpty(requestId, "申请ID");
-        InputValidator.validateNotEmpty(newStatus, "新状态");
-        // 校验状态合法性（在model层已校验，此处二次确认）
-        if (!("待处理".equals(newStatus) || "已完成".equals(newStatus) || "已取消".equals(newStatus))) {
-            throw new IllegalArgumentException("状态非法！仅允许：待处理/已完成/已取消");
+        MetricsRegistry.Sample sample = UPDATE_STATUS_TIMER.time();
+        try {
+            InputValidator.validateNotEmpty(requestId, "申请ID");
+            InputValidator.validateNotEmpty(newStatus, "新状态");
+            ServiceStatus next = ServiceStatus.fromLabel(newStatus);
+
+            ensureLoaded();
+            ServiceStatus oldStatus;
+            ServiceRequest before;
+            ServiceRequest snapshot;
+            reloadLock.readLock().lock();
+            try {
+                RequestData current = data;
+                ServiceRequest request = current.index.get(requestId.trim());
+                if (request == null) {
+                    return false; // 申请不存在
+                }
+                synchronized (request) {
+                    oldStatus = request.getServiceStatus();
+                    if (oldStatus == next) {
+                        return true;
+                    }
+                    before = request.copy();
+                    request.transitionTo(next);
+                    current.moveStatus(request.getRequestId(), oldStatus, next);
+                    snapshot = request.copy();
+                }
+                scheduleSave();
+            } finally {
+                reloadLock.readLock().unlock();
+            }
+            ChangeEventBus.publish(ChangeEvent.SERVICE_REQUESTS, snapshot.getRequestId(), ChangeEvent.Operation.UPDATE, before, snapshot.copy());
+            LOGGER.info("申请状态更新：{}（{}→{}）", requestId, oldStatus, next);
+            RelationService.getInstance().notifyFamilies(snapshot.getElderId(),
+                    snapshot.getServiceType() + "服务申请状态更新：" + oldStatus + "→" + next);
+            if (next == ServiceStatus.PENDING) {
+                ReminderService.getInstance().scheduleRequestEscalation(snapshot);
+            } else {
+                ReminderService.getInstance().cancel(ReminderService.TYPE_REQUEST_ESCALATION, snapshot.getRequestId());
+            }
+            if (next.isTerminal()) {
+                DispatchService.getInstance().complete(snapshot.getRequestId());
+            } else {
+                DispatchService.getInstance().updateStatus(snapshot);
+            }
+            return true;
+        } finally {
+            sample.close();
         }
+    }
 
-        List<ServiceRequest> requestList = getRequestList();
-        // 查找申请并更新状态
-        for (ServiceRequest request : requestList) {
-            if (request.getRequestId().equals(requestId.trim())) {
-                String oldStatus = request.getStatus();
-                request.setStatus(newStatus);
-                DataStorageUtil.saveData(SERVICE_DATA_KEY, requestList);
-                System.out.println("[ServiceRequestService] 申请状态更新：" + requestId + "（" + oldStatus + "→" + newStatus + "）");
-                return true;
+    /**
+     * 内部方法：设置申请的处理人（供DispatchService派单、退单、重新分配时调用）
+     * @param requestId 申请ID
+     * @param assigneeId 护工用户ID，为空表示退回待派单
+     * @return true：设置成功；false：申请不存在
+     */
+    boolean assignRequest(String requestId, String assigneeId) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        ServiceRequest before;
+        ServiceRequest after;
+        reloadLock.readLock().lock();
+        try {
+            ServiceRequest request = data.index.get(requestId);
+            if (request == null) {
+                return false;
             }
+            synchronized (request) {
+                before = request.copy();
+                request.setAssigneeId(assigneeId);
+                after = request.copy();
+            }
+            scheduleSave();
+        } finally {
+            reloadLock.readLock().unlock();
         }
-        return false; // 申请不存在
+        ChangeEventBus.publish(ChangeEvent.SERVICE_REQUESTS, requestId, ChangeEvent.Operation.UPDATE, before, after);
+        return true;
+    }
+
+    /**
+     * 内部方法：护工接下待派单的申请（供DispatchService调用）
+     * 多个实例共用数据目录时各实例都有自己的待派单池，同一申请可能在两个实例中同时被接走：
+     * 在接单锁内读取数据文件，确认申请在其他实例中仍未派单、未结束，设置处理人后立即写出，再释放锁
+     * @param requestId 申请ID
+     * @param assigneeId 护工用户ID
+     * @return true：接单成功；false：申请不存在，或已被其他实例接走、已结束
+     * @throws IOException 读取数据文件失败，或处理人未能写出（已撤销本次设置）
+     */
+    boolean claimRequest(String requestId, String assigneeId) throws IOException, ClassNotFoundException {
+        StorageLocks.Handle lock = StorageLocks.exclusive(CLAIM_LOCK_NAME);
+        try {
+            ServiceRequest stored = readStoredRequest(requestId);
+            if (stored != null && (stored.getAssigneeId() != null || stored.getServiceStatus().isTerminal())) {
+                LOGGER.info("申请{}已被其他实例接走或已结束（处理人：{}，状态：{}）", requestId,
+                        stored.getAssigneeId(), stored.getServiceStatus());
+                return false;
+            }
+            if (!assignRequest(requestId, assigneeId)) {
+                return false;
+            }
+            // 写出后其他实例才能在接单锁内看到处理人
+            if (!DeferredSaver.flush(SERVICE_DATA_KEY)) {
+                assignRequest(requestId, null);
+                throw new IOException("接单未能保存，请稍后重试：" + requestId);
+            }
+            return true;
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * 读取数据文件中的申请（不经过内存数据，也不改变合并基准），文件不存在或没有该申请返回null
+     */
+    @SuppressWarnings("unchecked")
+    private ServiceRequest readStoredRequest(String requestId) throws IOException, ClassNotFoundException {
+        String fileName = DataStorageUtil.fileNameOf(SERVICE_DATA_KEY);
+        List<ServiceRequest> stored;
+        StorageLocks.Handle lock = StorageLocks.shared(fileName);
+        try {
+            stored = (List<ServiceRequest>) DataStorageUtil.readDataFile(DataStorageUtil.getDataFile(fileName));
+        } finally {
+            lock.close();
+        }
+        if (stored != null) {
+            for (ServiceRequest request : stored) {
+                if (request.getRequestId().equals(requestId)) {
+                    return request;
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -123,32 +335,208 @@ public class ServiceRequestService {
      */
     public List<ServiceRequest> getRequestsByElderId(String elderId) throws IOException, ClassNotFoundException {
         InputValidator.validateNotEmpty(elderId, "老人ID");
-        List<ServiceRequest> requestList = getRequestList();
-        return requestList.stream()
+        return getRequestList().stream()
                 .filter(request -> request.getElderId().equals(elderId.trim()))
-                .sorted((r1, r2) -> r2.getRequestTime().compareTo(r1.getRequestTime())) // 时间倒序
+                .map(this::snapshotOf)
+                .sorted((r1, r2) -> Long.compare(r2.getRequestTimeMillis(), r1.getRequestTimeMillis())) // 时间倒序
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 批量查询多位老人的服务申请（一次遍历全部申请，不必每位老人遍历一次；远程模式下一次往返）
+     * @param elderIds 老人ID集合
+     * @return 老人ID -> 服务申请列表（时间倒序），按传入顺序排列，没有申请的老人对应空列表
+     */
+    public Map<String, List<ServiceRequest>> getRequestsByElderIds(Collection<String> elderIds) throws IOException, ClassNotFoundException {
+        Map<String, List<ServiceRequest>> result = new LinkedHashMap<>();
+        if (elderIds == null || elderIds.isEmpty()) {
+            return result;
+        }
+        for (String elderId : elderIds) {
+            InputValidator.validateNotEmpty(elderId, "老人ID");
+            result.put(elderId.trim(), new ArrayList<>());
+        }
+        for (ServiceRequest request : getRequestList()) {
+            List<ServiceRequest> requests = result.get(request.getElderId());
+            if (requests != null) {
+                requests.add(snapshotOf(request));
+            }
+        }
+        for (List<ServiceRequest> requests : result.values()) {
+            requests.sort((r1, r2) -> Long.compare(r2.getRequestTimeMillis(), r1.getRequestTimeMillis())); // 时间倒序
+        }
+        return result;
+    }
+
+    /**
+     * 根据ID查询服务申请
+     * @param requestId 申请ID
+     * @return 服务申请；不存在返回null
+     */
+    public ServiceRequest getRequestById(String requestId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(requestId, "申请ID");
+        ServiceRequest request = ensureLoaded().index.get(requestId.trim());
+        return request == null ? null : snapshotOf(request);
+    }
+
+    /**
+     * 查询指定状态的服务申请（按申请时间正序，最早的在前），通过状态索引直接取出，不遍历其他状态的申请
+     * @param status 状态（待处理/处理中/已完成/已取消）
+     * @return 服务申请列表
+     */
+    public List<ServiceRequest> getRequestsByStatus(String status) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(status, "状态");
+        ServiceStatus target = ServiceStatus.fromLabel(status);
+        RequestData current = ensureLoaded();
+        return current.statusIndex.get(target).stream()
+                .map(current.index::get)
+                .filter(request -> request != null)
+                .map(this::snapshotOf)
+                .filter(request -> request.getServiceStatus() == target) // 读取期间状态可能已变更
+                .sorted((r1, r2) -> Long.compare(r1.getRequestTimeMillis(), r2.getRequestTimeMillis()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查询指定状态的申请数（实时计数，O(1)）
+     * @param status 状态（待处理/处理中/已完成/已取消）
+     */
+    public int getStatusCount(String status) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(status, "状态");
+        ServiceStatus target = ServiceStatus.fromLabel(status);
+        return ensureLoaded().statusCounts.get(target).get();
+    }
+
+    /**
+     * 查询各状态的申请数
+     * @return 状态名称 -> 申请数，按待处理、处理中、已完成、已取消排列
+     */
+    public Map<String, Integer> getStatusCounts() throws IOException, ClassNotFoundException {
+        RequestData current = ensureLoaded();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (ServiceStatus status : ServiceStatus.values()) {
+            counts.put(status.getLabel(), current.statusCounts.get(status).get());
+        }
+        return counts;
+    }
+
     /**
      * 内部方法：根据老人ID删除关联服务申请（供ElderService调用）
      */
     void deleteRequestsByElderId(String elderId) throws IOException, ClassNotFoundException {
-        List<ServiceRequest> requestList = getRequestList();
-        List<ServiceRequest> remainingRequests = requestList.stream()
-                .filter(request -> !request.getElderId().equals(elderId.trim()))
-                .collect(Collectors.toList());
-        DataStorageUtil.saveData(SERVICE_DATA_KEY, remainingRequests);
-        int deleteCount = requestList.size() - remainingRequests.size();
-        System.out.println("[ServiceRequestService] 同步删除老人" + elderId + "的服务申请：" + deleteCount + "条");
+        ensureLoaded();
+        List<ServiceRequest> deleted = new ArrayList<>();
+        synchronized (writeLock) {
+            RequestData current = data;
+            List<ServiceRequest> remainingRequests = new ArrayList<>(current.list.size());
+            for (ServiceRequest request : current.list) {
+                if (request.getElderId().equals(elderId.trim())) {
+                    current.index.remove(request.getRequestId());
+                    synchronized (request) {
+                        current.unindexStatus(request.getRequestId(), request.getServiceStatus());
+                        deleted.add(request.copy());
+                    }
+                } else {
+                    remainingRequests.add(request);
+                }
+            }
+            current.list = remainingRequests;
+            scheduleSave();
+        }
+        for (ServiceRequest request : deleted) {
+            ReminderService.getInstance().cancel(ReminderService.TYPE_REQUEST_ESCALATION, request.getRequestId());
+            DispatchService.getInstance().complete(request.getRequestId());
+            ChangeEventBus.publish(ChangeEvent.SERVICE_REQUESTS, request.getRequestId(), ChangeEvent.Operation.DELETE, request, null);
+        }
+        int deleteCount = deleted.size();
+        LOGGER.info("同步删除老人{}的服务申请：{}条", elderId, deleteCount);
     }
 
     /**
-     * 私有辅助方法：统一读取服务申请列表
+     * 私有辅助方法：统一读取服务申请列表（内存中的列表，遍历时不可修改其中的申请）
      */
-    @SuppressWarnings("unchecked")
     private List<ServiceRequest> getRequestList() throws IOException, ClassNotFoundException {
-        Object data = DataStorageUtil.getData(SERVICE_DATA_KEY);
-        return data == null ? new ArrayList<>() : (List<ServiceRequest>) data;
+        return ensureLoaded().list;
+    }
+
+    /**
+     * 申请数据文件被其他实例修改：先写出本实例未保存的修改，再把申请数据整体替换为重新加载的数据；
+     * 写出失败时推迟到DeferredSaver重试写出成功后再重新加载
+     * 替换期间持有写锁和重新加载锁的写锁，进行中的新增、删除、状态变更要么已登记保存并在此写出，要么等替换后基于新数据进行
+     */
+    private void reload() {
+        synchronized (writeLock) {
+            if (data == null) {
+                return;
+            }
+            reloadLock.writeLock().lock();
+            try {
+                // 后台写文件只需申请对象锁，持有重新加载锁写出不会互相等待
+                if (!DeferredSaver.flush(SERVICE_DATA_KEY)) {
+                    LOGGER.warn("服务申请数据尚未写出，暂不重新加载，写出后再重新加载");
+                    DeferredSaver.whenSaved(SERVICE_DATA_KEY, this::reload);
+                    return;
+                }
+                data = load();
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("重新加载服务申请数据失败，继续使用内存数据：{}", e.getMessage());
+            } finally {
+                reloadLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 首次访问时加载申请数据并建立索引
+     * @return 当前申请数据
+     */
+    private RequestData ensureLoaded() throws IOException, ClassNotFoundException {
+        RequestData current = data;
+        if (current != null) {
+            REQUEST_CACHE.hit();
+            return current;
+        }
+        synchronized (writeLock) {
+            if (data != null) {
+                REQUEST_CACHE.hit();
+                return data;
+            }
+            REQUEST_CACHE.miss();
+            data = load();
+            return data;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RequestData load() throws IOException, ClassNotFoundException {
+        Object stored = DataStorageUtil.getData(SERVICE_DATA_KEY);
+        RequestData loaded = new RequestData();
+        loaded.list = stored == null ? new ArrayList<>() : (List<ServiceRequest>) stored;
+        for (ServiceRequest request : loaded.list) {
+            loaded.index.put(request.getRequestId(), request);
+            loaded.indexStatus(request.getRequestId(), request.getServiceStatus());
+        }
+        return loaded;
+    }
+
+    private ServiceRequest snapshotOf(ServiceRequest request) {
+        synchronized (request) {
+            return request.copy();
+        }
+    }
+
+    /**
+     * 登记保存申请数据（后台合并写文件）
+     * 调用方需持有writeLock或重新加载锁的读锁，重新加载据此保证登记过的修改先写出
+     */
+    private void scheduleSave() {
+        DeferredSaver.schedule(SERVICE_DATA_KEY, () -> {
+            List<ServiceRequest> current = data.list;
+            ArrayList<ServiceRequest> snapshot = new ArrayList<>(current.size());
+            for (ServiceRequest request : current) {
+                snapshot.add(snapshotOf(request));
+            }
+            return snapshot;
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,354 @@
+package com.eldercare.service;
+
+import com.eldercare.model.Activity;
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.model.Elder;
+import com.eldercare.model.ServiceRequest;
+import com.eldercare.model.ServiceStatus;
+import com.eldercare.model.User;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.ChangeEventBus;
+import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.MetricsRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 统计业务逻辑类：为管理员概览提供预先汇总的统计数据
+ * 首次访问时全量统计一次，之后订阅数据变更事件增量更新（变更前快照减一、变更后快照加一），
+ * 查询只复制已汇总的结果，与数据总量无关
+ * 统计项：各角色用户数、老人年龄段与健康状况分布、活动报名率、未完成服务申请按类型分布、每日健康预警数
+ */
+public class StatisticsService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsService.class);
+    private static final StatisticsService INSTANCE = new StatisticsService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile StatisticsService remoteProxy;
+    private static final MetricsRegistry.Timer REBUILD_TIMER = MetricsRegistry.serviceTimer("StatisticsService", "rebuild");
+    // 年龄段（下限，名称），按下限升序
+    private static final int[] AGE_BAND_LOWER = {0, 60, 70, 80, 90};
+    private static final String[] AGE_BAND_NAMES = {"60岁以下", "60-69岁", "70-79岁", "80-89岁", "90岁及以上"};
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    private volatile boolean loaded;
+    // 以下统计数据均由本对象锁保护
+    private final Map<String, Integer> usersByRole = new TreeMap<>();
+    private final Map<String, Integer> eldersByAgeBand = new HashMap<>();
+    private final Map<String, Integer> eldersByHealthStatus = new TreeMap<>();
+    // 活动ID -> 报名情况（保持创建顺序）
+    private final Map<String, ActivityFill> activityFills = new LinkedHashMap<>();
+    // 服务类型 -> 未完成（待处理、处理中）申请数
+    private final Map<String, Integer> requestBacklogByType = new TreeMap<>();
+    // 日期 -> 当日健康预警数（按日期升序）
+    private final TreeMap<String, Integer> alertsByDay = new TreeMap<>();
+    private int pendingAlertCount;
+
+    protected StatisticsService() {
+        ChangeEventBus.subscribe(this::onChange);
+    }
+
+    public static StatisticsService getInstance() {
+        StatisticsService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
+        return INSTANCE;
+    }
+
+    public static void useRemoteProxy(StatisticsService proxy) {
+        remoteProxy = proxy;
+    }
+
+    /**
+     * 重新全量统计（数据文件被外部修改后可调用）
+     * 数据在锁外读取，读取期间恰好发生的变更可能未计入，再次重建即可校正
+     */
+    public void rebuild() throws IOException, ClassNotFoundException {
+        MetricsRegistry.Sample sample = REBUILD_TIMER.time();
+        try {
+            // 先在锁外读取数据，避免统计期间阻塞事件发布方
+            List<User> users = new ArrayList<>(UserService.getInstance().getAllUsers());
+            List<Elder> elders = ElderService.getInstance().queryElders(null);
+            List<Activity> activities = ActivityService.getInstance().getAllActivities();
+            List<ServiceRequest> openRequests = new ArrayList<>(
+                    ServiceRequestService.getInstance().getRequestsByStatus(ServiceStatus.PENDING.getLabel()));
+            openRequests.addAll(ServiceRequestService.getInstance().getRequestsByStatus(ServiceStatus.IN_PROGRESS.getLabel()));
+            List<Map<String, Object>> alerts = HealthAlertService.getInstance().getAllAlerts();
+
+            synchronized (this) {
+                usersByRole.clear();
+                eldersByAgeBand.clear();
+                eldersByHealthStatus.clear();
+                activityFills.clear();
+                requestBacklogByType.clear();
+                alertsByDay.clear();
+                pendingAlertCount = 0;
+
+                for (User user : users) {
+                    applyUser(user, 1);
+                }
+                for (Elder elder : elders) {
+                    applyElder(elder, 1);
+                }
+                for (Activity activity : activities) {
+                    applyActivity(activity.getActivityId(), activity);
+                }
+                for (ServiceRequest request : openRequests) {
+                    applyRequest(request, 1);
+                }
+                for (Map<String, Object> alert : alerts) {
+                    applyAlert(alert, 1);
+                }
+                loaded = true;
+            }
+            LOGGER.info("统计数据已重建：用户{}，老人{}，活动{}，未完成申请{}，预警{}",
+                    users.size(), elders.size(), activities.size(), openRequests.size(), alerts.size());
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 各角色用户数（角色 -> 人数）
+     */
+    public Map<String, Integer> getUsersByRole() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            return new LinkedHashMap<>(usersByRole);
+        }
+    }
+
+    /**
+     * 老人年龄段分布（年龄段 -> 人数，按年龄升序）
+     */
+    public Map<String, Integer> getEldersByAgeBand() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (String band : AGE_BAND_NAMES) {
+                result.put(band, eldersByAgeBand.getOrDefault(band, 0));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 老人健康状况分布（健康状况 -> 人数）
+     */
+    public Map<String, Integer> getEldersByHealthStatus() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            return new LinkedHashMap<>(eldersByHealthStatus);
+        }
+    }
+
+    /**
+     * 各活动报名情况（按活动创建顺序）
+     */
+    public List<ActivityFill> getActivityFills() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            return new ArrayList<>(activityFills.values());
+        }
+    }
+
+    /**
+     * 未完成（待处理、处理中）服务申请按服务类型分布
+     */
+    public Map<String, Integer> getRequestBacklogByType() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            return new LinkedHashMap<>(requestBacklogByType);
+        }
+    }
+
+    /**
+     * 最近若干天的每日健康预警数（日期 -> 预警数，按日期升序，只包含有预警的日期）
+     * @param days 天数（含今天）
+     */
+    public Map<String, Integer> getAlertsByDay(int days) throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            long from = CachedClock.currentTimeMillis() - (days - 1L) * 24 * 60 * 60 * 1000;
+            return new LinkedHashMap<>(alertsByDay.tailMap(DateFormatUtil.formatDateTime(from, DATE_PATTERN), true));
+        }
+    }
+
+    /**
+     * 未处理的健康预警数
+     */
+    public int getPendingAlertCount() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (this) {
+            return pendingAlertCount;
+        }
+    }
+
+    private void ensureLoaded() throws IOException, ClassNotFoundException {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 处理数据变更事件（在发布线程中执行，只做内存计数更新）
+     */
+    private synchronized void onChange(ChangeEvent event) {
+        if (!loaded) {
+            return; // 尚未统计，首次查询时全量统计会包含本次变更
+        }
+        if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            loaded = false; // 数据被其他实例整体修改，下次查询时全量重新统计
+            return;
+        }
+        switch (event.getEntityType()) {
+            case ChangeEvent.USERS:
+                applyUser((User) event.getBefore(), -1);
+                applyUser((User) event.getAfter(), 1);
+                break;
+            case ChangeEvent.ELDERS:
+                applyElder((Elder) event.getBefore(), -1);
+                applyElder((Elder) event.getAfter(), 1);
+                break;
+            case ChangeEvent.ACTIVITIES:
+                applyActivity(event.getEntityId(), (Activity) event.getAfter());
+                break;
+            case ChangeEvent.SERVICE_REQUESTS:
+                applyRequest((ServiceRequest) event.getBefore(), -1);
+                applyRequest((ServiceRequest) event.getAfter(), 1);
+                break;
+            case ChangeEvent.HEALTH_ALERTS:
+                applyAlert(castAlert(event.getBefore()), -1);
+                applyAlert(castAlert(event.getAfter()), 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void applyUser(User user, int delta) {
+        if (user != null) {
+            add(usersByRole, user.getRole(), delta);
+        }
+    }
+
+    private void applyElder(Elder elder, int delta) {
+        if (elder != null) {
+            add(eldersByAgeBand, ageBandOf(elder.getAge()), delta);
+            add(eldersByHealthStatus, elder.getHealthStatus() == null ? "未填写" : elder.getHealthStatus(), delta);
+        }
+    }
+
+    private void applyActivity(String activityId, Activity activity) {
+        if (activity == null) {
+            activityFills.remove(activityId);
+        } else {
+            activityFills.put(activityId, new ActivityFill(activity.getActivityId(), activity.getName(), activity.getTime(),
+                    activity.getRegisteredCount(), activity.getCapacity(), activity.getWaitlistCount()));
+        }
+    }
+
+    private void applyRequest(ServiceRequest request, int delta) {
+        if (request != null && !request.getServiceStatus().isTerminal()) {
+            add(requestBacklogByType, request.getServiceType(), delta);
+        }
+    }
+
+    private void applyAlert(Map<String, Object> alert, int delta) {
+        if (alert == null) {
+            return;
+        }
+        long alertTime = HealthAlertService.toMillis(alert.get("alertTime"));
+        add(alertsByDay, DateFormatUtil.formatDateTime(alertTime, DATE_PATTERN), delta);
+        if ("未处理".equals(alert.get("status"))) {
+            pendingAlertCount += delta;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castAlert(Object alert) {
+        return (Map<String, Object>) alert;
+    }
+
+    private static void add(Map<String, Integer> counts, String key, int delta) {
+        int value = counts.getOrDefault(key, 0) + delta;
+        if (value > 0) {
+            counts.put(key, value);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private static String ageBandOf(int age) {
+        for (int i = AGE_BAND_LOWER.length - 1; i >= 0; i--) {
+            if (age >= AGE_BAND_LOWER[i]) {
+                return AGE_BAND_NAMES[i];
+            }
+        }
+        return AGE_BAND_NAMES[0];
+    }
+
+    /**
+     * 活动报名情况（不可变快照）
+     */
+    public static final class ActivityFill {
+        private final String activityId;
+        private final String name;
+        private final String time;
+        private final int registeredCount;
+        private final int capacity;
+        private final int waitlistCount;
+
+        private ActivityFill(String activityId, String name, String time, int registeredCount, int capacity, int waitlistCount) {
+            this.activityId = activityId;
+            this.name = name;
+            this.time = time;
+            this.registeredCount = registeredCount;
+            this.capacity = capacity;
+            this.waitlistCount = waitlistCount;
+        }
+
+        public String getActivityId() {
+            return activityId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        public int getRegisteredCount() {
+            return registeredCount;
+        }
+
+        /**
+         * 名额上限（0表示不限）
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public int getWaitlistCount() {
+            return waitlistCount;
+        }
+
+        /**
+         * 报名率（0~1）；不限名额时返回-1
+         */
+        public double getFillRate() {
+            return capacity > 0 ? (double) registeredCount / capacity : -1;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.eldercare.service;
+
+import com.eldercare.model.ChangeEvent;
+import com.eldercare.util.ChangeEventBus;
+import com.eldercare.util.InputValidator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 增量同步业务类：为每类数据维护单调递增的变更版本号
+ * 订阅数据变更事件，每类数据记录各实体最近一次变更；调用方保存上次同步到的版本号，
+ * getChangesSince只返回此后新增、修改的实体和删除的实体ID（墓碑），同一实体多次变更只返回最终状态，
+ * 界面刷新和远程客户端只传输变化的部分，不必重新读取全部数据
+ * 版本号以启动时间（微秒）为起点，重启后仍比之前的大；每类数据只保留最近若干个实体的变更，
+ * 调用方的版本号早于保留范围（含服务重启前的版本号）时返回reset，需全量重新加载
+ */
+public class SyncService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncService.class);
+
+    /**
+     * 支持增量同步的数据（存储key）
+     */
+    public static final List<String> STORES = List.of(ChangeEvent.USERS, ChangeEvent.ELDERS, ChangeEvent.HEALTH_RECORDS,
+            ChangeEvent.SERVICE_REQUESTS, ChangeEvent.ACTIVITIES, ChangeEvent.COMMUNITY_MESSAGES,
+            ChangeEvent.RELATIONS, ChangeEvent.HEALTH_ALERTS);
+    // 每类数据保留的实体变更数上限
+    private static final int MAX_ENTRIES_PER_STORE = Integer.getInteger("eldercare.sync.maxEntries", 10_000);
+    private static final SyncService INSTANCE = new SyncService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile SyncService remoteProxy;
+
+    // 存储key -> 变更记录（创建后不再增删键）
+    private final Map<String, StoreLog> logs = new HashMap<>();
+
+    protected SyncService() {
+        long initialVersion = System.currentTimeMillis() * 1000;
+        for (String store : STORES) {
+            logs.put(store, new StoreLog(initialVersion, MAX_ENTRIES_PER_STORE));
+        }
+        ChangeEventBus.subscribe(this::onChange);
+    }
+
+    public static SyncService getInstance() {
+        SyncService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
+        return INSTANCE;
+    }
+
+    public static void useRemoteProxy(SyncService proxy) {
+        remoteProxy = proxy;
+    }
+
+    /**
+     * 查询指定数据的当前版本号（全量加载前先取版本号，之后从该版本增量同步，加载期间的变更会再次返回，按ID覆盖即可）
+     * @param store 存储key（见STORES）
+     */
+    public long getVersion(String store) {
+        return logOf(store).currentVersion();
+    }
+
+    /**
+     * 查询全部数据的当前版本号
+     * @return 存储key -> 版本号，按STORES顺序
+     */
+    public Map<String, Long> getVersions() {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (String store : STORES) {
+            versions.put(store, logs.get(store).currentVersion());
+        }
+        return versions;
+    }
+
+    /**
+     * 查询指定版本之后的变更
+     * @param store 存储key（见STORES）
+     * @param version 调用方上次同步到的版本号
+     * @return 新增、修改的实体（最终状态）和删除的实体ID；版本号过旧时reset为true
+     */
+    public ChangeSet getChangesSince(String store, long version) {
+        return logOf(store).changesSince(store, version);
+    }
+
+    private StoreLog logOf(String store) {
+        InputValidator.validateNotEmpty(store, "数据类型");
+        StoreLog log = logs.get(store);
+        if (log == null) {
+            throw new IllegalArgumentException("不支持增量同步的数据类型：" + store + "（可选：" + STORES + "）");
+        }
+        return log;
+    }
+
+    /**
+     * 记录变更事件（在发布线程中执行，只做内存更新）
+     */
+    private void onChange(ChangeEvent event) {
+        StoreLog log = logs.get(event.getEntityType());
+        if (log == null) {
+            LOGGER.debug("未纳入增量同步的变更：{}", event);
+        } else if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            // 数据被其他实例整体修改，无法给出增量：之前的版本号都需全量重新加载
+            log.reset();
+        } else {
+            log.record(event);
+        }
+    }
+
+    /**
+     * 增量变更
+     */
+    public static final class ChangeSet {
+        private final String store;
+        private final long fromVersion;
+        private final long toVersion;
+        private final boolean reset;
+        private final List<Object> inserts;
+        private final List<Object> updates;
+        private final List<String> tombstones;
+
+        public ChangeSet(String store, long fromVersion, long toVersion, boolean reset,
+                         List<Object> inserts, List<Object> updates, List<String> tombstones) {
+            this.store = store;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.reset = reset;
+            this.inserts = inserts;
+            this.updates = updates;
+            this.tombstones = tombstones;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public long getFromVersion() {
+            return fromVersion;
+        }
+
+        /**
+         * 本次同步到的版本号（下次以此调用getChangesSince）
+         */
+        public long getToVersion() {
+            return toVersion;
+        }
+
+        /**
+         * 版本号过旧，无法给出增量，需全量重新加载
+         */
+        public boolean isReset() {
+            return reset;
+        }
+
+        /**
+         * 调用方版本之后新建的实体
+         */
+        public List<Object> getInserts() {
+            return inserts;
+        }
+
+        /**
+         * 调用方版本之前已存在、之后被修改的实体
+         */
+        public List<Object> getUpdates() {
+            return updates;
+        }
+
+        /**
+         * 调用方版本之前已存在、之后被删除的实体ID
+         */
+        public List<String> getTombstones() {
+            return tombstones;
+        }
+
+        public boolean isEmpty() {
+            return !reset && inserts.isEmpty() && updates.isEmpty() && tombstones.isEmpty();
+        }
+    }
+
+    /**
+     * 某实体最近一次变更
+     */
+    private static final class Entry {
+        final String entityId;
+        final long version;
+        // 实体创建时的版本号（创建早于记录范围时为0）
+        final long createdVersion;
+        final boolean deleted;
+        final Object snapshot;
+
+        Entry(String entityId, long version, long createdVersion, boolean deleted, Object snapshot) {
+            this.entityId = entityId;
+            this.version = version;
+            this.createdVersion = createdVersion;
+            this.deleted = deleted;
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * 一类数据的变更记录：每个实体只保留最近一次变更，按版本号排序；超过上限时淘汰最早的，并提高可增量同步的起点
+     */
+    private static final class StoreLog {
+        private final int maxEntries;
+        private long version;
+        // 早于此版本号的调用方无法增量同步（之间的变更可能已被淘汰）
+        private long floor;
+        private final Map<String, Entry> latestById = new HashMap<>();
+        private final TreeMap<Long, Entry> byVersion = new TreeMap<>();
+
+        StoreLog(long initialVersion, int maxEntries) {
+            this.version = initialVersion;
+            this.floor = initialVersion;
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized long currentVersion() {
+            return version;
+        }
+
+        synchronized void record(ChangeEvent event) {
+            version++;
+            Entry previous = latestById.get(event.getEntityId());
+            long createdVersion;
+            if (event.getOperation() == ChangeEvent.Operation.CREATE) {
+                createdVersion = version;
+            } else {
+                createdVersion = previous == null ? 0 : previous.createdVersion;
+            }
+            if (previous != null) {
+                byVersion.remove(previous.version);
+            }
+            Entry entry = new Entry(event.getEntityId(), version, createdVersion,
+                    event.getOperation() == ChangeEvent.Operation.DELETE, event.getAfter());
+            latestById.put(entry.entityId, entry);
+            byVersion.put(entry.version, entry);
+            while (byVersion.size() > maxEntries) {
+                Entry evicted = byVersion.pollFirstEntry().getValue();
+                latestById.remove(evicted.entityId);
+                floor = evicted.version;
+            }
+        }
+
+        /**
+         * 丢弃全部变更记录并提高起点：此前的版本号都无法增量同步
+         */
+        synchronized void reset() {
+            version++;
+            floor = version;
+            latestById.clear();
+            byVersion.clear();
+        }
+
+        synchronized ChangeSet changesSince(String store, long since) {
+            if (since < floor || since > version) {
+                return new ChangeSet(store, since, version, true, List.of(), List.of(), List.of());
+            }
+            List<Object> inserts = new ArrayList<>();
+            List<Object> updates = new ArrayList<>();
+            List<String> tombstones = new ArrayList<>();
+            for (Entry entry : byVersion.tailMap(since, false).values()) {
+                boolean createdAfter = entry.createdVersion > since;
+                if (entry.deleted) {
+                    // 调用方版本之后创建又删除的实体，调用方从未见过，无需返回
+                    if (!createdAfter) {
+                        tombstones.add(entry.entityId);
+                    }
+                } else if (createdAfter) {
+                    inserts.add(entry.snapshot);
+                } else {
+                    updates.add(entry.snapshot);
+                }
+            }
+            return new ChangeSet(store, since, version, false, inserts, updates, tombstones);
+        }
+    }
+}
@@ -2,39 +2,89 @@ package com.eldercare.service;
 
 import com.eldercare.dao.UserDao;
 import com.eldercare.dao.impl.UserDaoImpl;
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.User;
+import com.eldercare.util.CachedClock;
+import com.eldercare.util.ChangeEventBus;
 import com.eldercare.util.DataStorageUtil;
 import com.eldercare.util.IdGenerator;
 import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.PasswordHasher;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 用户业务逻辑类：处理登录、用户添加/查询等核心业务
  * 单例模式：确保全局唯一实例，避免重复创建
+ * 用户数据首次访问时加载到内存，按账号建立索引（O(1)查找）；密码以PBKDF2加盐哈希保存，
+ * 旧数据中的明文密码在后台自动迁移；登录成功后签发内存会话令牌，后续身份校验无需再次哈希
  */
 public class UserService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
     // 1. 单例模式实现（饿汉式，线程安全）
     private static final UserService INSTANCE = new UserService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile UserService remoteProxy;
+    // 运行指标
+    private static final MetricsRegistry.Timer LOGIN_TIMER = MetricsRegistry.serviceTimer("UserService", "login");
+    private static final MetricsRegistry.CacheStats USER_CACHE = MetricsRegistry.cache("users");
+    private static final MetricsRegistry.CacheStats SESSION_CACHE = MetricsRegistry.cache("sessions");
     // 数据存储key（与DataStorageUtil对应，存储用户列表）
     private static final String USER_DATA_KEY = "users";
+    // 会话有效期（毫秒，访问时顺延），可通过系统属性eldercare.session.ttl.ms调整
+    private static final long SESSION_TTL_MILLIS = Long.getLong("eldercare.session.ttl.ms", 8 * 60 * 60 * 1000L);
+    private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
     // 预留数据库接口：关联空实现，后续可替换为真实数据库实现
     private final UserDao userDao = new UserDaoImpl();
 
+    // 写操作锁（保护用户列表与持久化）
+    private final Object writeLock = new Object();
+    // 用户列表（保持原有顺序，用于持久化与列表展示；未加载为null，重新加载时与索引一起整体替换）
+    private volatile List<User> userList;
+    // 账号 -> 用户 索引（先于userList赋值，userList非null时索引已就绪）
+    private volatile ConcurrentHashMap<String, User> userIndex = new ConcurrentHashMap<>();
+    // 会话令牌 -> 会话
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 账号不存在时用于校验的假哈希，使两种失败情况耗时一致，避免账号枚举
+     * 首次用到时才计算（类加载时不做完整的PBKDF2，避免阻塞界面线程）
+     */
+    private static final class DummyHash {
+        static final String VALUE = PasswordHasher.hash("dummy-password");
+    }
+
     // 私有构造：禁止外部new实例
-    private UserService() {}
+    protected UserService() {
+        DataStorageUtil.registerMergeable(USER_DATA_KEY, item -> ((User) item).getUserId());
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(USER_DATA_KEY), fileName -> reload());
+    }
 
     // 全局获取实例方法
     public static UserService getInstance() {
+        UserService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
         return INSTANCE;
     }
 
+    public static void useRemoteProxy(UserService proxy) {
+        remoteProxy = proxy;
+    }
+
     /**
      * 用户登录：校验账号密码，返回登录成功的用户对象
      * @param userId 账号
@@ -42,29 +92,43 @@ public class UserService {
      * @return 登录成功的User对象；失败返回null
      */
     public User login(String userId, String password) throws IOException, ClassNotFoundException {
-        // 1. 输入校验
-        InputValidator.validateNotEmpty(userId, "账号");
-        InputValidator.validateNotEmpty(password, "密码");
-        if (!InputValidator.isUserIdValid(userId)) {
-            throw new IllegalArgumentException("账号格式非法！请输入4-20位字母/数字/下划线");
-        }
+        MetricsRegistry.Sample sample = LOGIN_TIMER.time();
+        try {
+            // 1. 输入校验
+            InputValidator.validateNotEmpty(userId, "账号");
+            InputValidator.validateNotEmpty(password, "密码");
+            if (!InputValidator.isUserIdValid(userId)) {
+                throw new IllegalArgumentException("账号格式非法！请输入4-20位字母/数字/下划线");
+            }
 
-        // 2. 读取所有用户
-        List<User> userList = getUserList();
-        if (userList.isEmpty()) {
-            throw new RuntimeException("暂无用户数据，请联系管理员初始化账号");
-        }
+            // 2. 读取所有用户
+            ensureLoaded();
+            if (userIndex.isEmpty()) {
+                throw new RuntimeException("暂无用户数据，请联系管理员初始化账号");
+            }
 
-        // 3. 校验账号密码（遍历匹配，简化逻辑）
-        for (User user : userList) {
-            if (user.getUserId().equals(userId.trim()) && user.getPassword().equals(password)) {
-                System.out.println("[UserService] 用户登录成功：" + userId + "（角色：" + user.getRole() + "）");
-                return user;
+            // 3. 按索引查找并校验密码（账号不存在时同样计算一次哈希，保持耗时一致）
+            User user = userIndex.get(userId.trim());
+            String stored = (user == null) ? null : user.getPassword();
+            boolean matched = PasswordHasher.verify(password, stored == null ? DummyHash.VALUE : stored) && user != null;
+            if (!matched) {
+                // 4. 登录失败
+                throw new IllegalArgumentException("账号或密码错误，请重新输入");
+            }
+
+            // 5. 旧版明文或低成本哈希：透明升级为当前配置的哈希
+            if (PasswordHasher.needsRehash(stored)) {
+                replacePasswordIfUnchanged(user, stored, PasswordHasher.hash(password));
             }
-        }
 
-        // 4. 登录失败
-        throw new IllegalArgumentException("账号或密码错误，请重新输入");
+            // 6. 签发会话令牌（令牌设置在返回的副本上，同一账号的多个会话互不覆盖；副本不含密码哈希）
+            User loggedIn = user.copyWithoutPassword();
+            loggedIn.setSessionToken(issueSession(user.getUserId()));
+            LOGGER.info("用户登录成功：{}（角色：{}）", userId, user.getRole());
+            return loggedIn;
+        } finally {
+            sample.close();
+        }
     }
 
     /**
@@ -81,11 +145,9 @@ public class UserService {
         }
 
         // 2. 校验账号唯一性（避免重复添加）
-        List<User> userList = getUserList();
-        for (User existUser : userList) {
-            if (existUser.getUserId().equals(user.getUserId().trim())) {
-                throw new IllegalArgumentException("账号已存在：" + user.getUserId() + "，请更换账号");
-            }
+        ensureLoaded();
+        if (userIndex.containsKey(user.getUserId().trim())) {
+            throw new IllegalArgumentException("账号已存在：" + user.getUserId() + "，请更换账号");
         }
 
         // 3. 生成用户ID（可选：若用自定义账号则无需此步，此处兼容两种场景）
@@ -93,10 +155,12 @@ public class UserService {
             user.setUserId(IdGenerator.generateUserId());
         }
 
-        // 4. 保存用户数据到本地文件
-        userList.add(user);
-        DataStorageUtil.saveData(USER_DATA_KEY, userList);
-        System.out.println("[UserService] 用户添加成功：" + user.getUserId() + "（角色：" + user.getRole() + "）");
+        // 4. 哈希密码后保存用户数据到本地文件
+        if (!PasswordHasher.isHashed(user.getPassword())) {
+            user.setPasswordHash(PasswordHasher.hash(user.getPassword()));
+        }
+        insertUser(user);
+        LOGGER.info("用户添加成功：{}（角色：{}）", user.getUserId(), user.getRole());
 
         // 5. 预留数据库操作：调用UserDao空实现，标记数据库插入位置
         userDao.insertUser(user);
@@ -104,11 +168,11 @@ public class UserService {
 
     /**
      * 查询所有用户（用于管理员管理账号）
-     * @return 用户列表（无数据返回空列表）
+     * @return 用户列表的副本（无数据返回空列表），修改返回的对象不影响已保存的用户
      */
     public List<User> getAllUsers() throws IOException, ClassNotFoundException {
         List<User> userList = getUserList();
-        System.out.println("[UserService] 查询到用户总数：" + userList.size());
+        LOGGER.debug("查询到用户总数：{}", userList.size());
         return userList;
     }
 
@@ -132,37 +196,262 @@ public class UserService {
         }
 
         // 4. 检查账号是否已存在
-        List<User> users = getUserList();
-        for (User u : users) {
-            if (u.getUserId().equals(userId)) {
-                throw new IllegalArgumentException("账号已存在");
-            }
+        ensureLoaded();
+        if (userIndex.containsKey(userId)) {
+            throw new IllegalArgumentException("账号已存在");
         }
 
-        // 5. 创建新用户并保存
-        users.add(new User(userId, password, role));
-        saveUserList(users);
+        // 5. 创建新用户并保存（密码哈希后存储）
+        User user = new User(userId, password, role);
+        user.setPasswordHash(PasswordHasher.hash(password));
+        insertUser(user);
+    }
+
+    /**
+     * 校验账号密码是否正确（不签发会话，用于敏感操作前的二次确认）
+     * @param userId 账号
+     * @param password 明文密码
+     * @return true-正确，false-账号不存在或密码错误
+     */
+    public boolean verifyPassword(String userId, String password) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(userId, "账号");
+        ensureLoaded();
+        User user = userIndex.get(userId.trim());
+        String stored = (user == null) ? DummyHash.VALUE : user.getPassword();
+        return PasswordHasher.verify(password, stored) && user != null;
+    }
+
+    /**
+     * 根据会话令牌获取当前登录用户（O(1)，不做密码哈希）
+     * @param sessionToken 登录时签发的会话令牌
+     * @return 会话有效时返回用户的副本（不含密码哈希）；令牌无效或已过期返回null
+     */
+    public User getSessionUser(String sessionToken) {
+        if (sessionToken == null) {
+            return null;
+        }
+        Session session = sessions.get(sessionToken);
+        if (session == null) {
+            SESSION_CACHE.miss();
+            return null;
+        }
+        long now = CachedClock.currentTimeMillis();
+        if (session.expiresAt < now) {
+            sessions.remove(sessionToken);
+            SESSION_CACHE.miss();
+            return null;
+        }
+        SESSION_CACHE.hit();
+        session.expiresAt = now + SESSION_TTL_MILLIS;
+        try {
+            ensureLoaded();
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.warn("加载用户数据失败：{}", e.getMessage());
+            return null;
+        }
+        User user = userIndex.get(session.userId);
+        return user == null ? null : user.copyWithoutPassword();
     }
 
-    private void saveUserList(List<User> userList) throws IOException {
-        // 确保 data 目录存在
-        File dir = new File("src/main/resources/data");
-        if (!dir.exists()) {
-            dir.mkdirs();
+    /**
+     * 注销会话
+     * @param sessionToken 会话令牌
+     */
+    public void logout(String sessionToken) {
+        if (sessionToken != null) {
+            sessions.remove(sessionToken);
         }
+    }
 
-        File file = new File(dir, "users.ser");
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-            oos.writeObject(userList);
+    /**
+     * 当前登录用户修改自己的密码：会话校验O(1)，仅对原密码做一次哈希校验
+     * @param sessionToken 登录时签发的会话令牌
+     * @param oldPassword 原密码
+     * @param newPassword 新密码
+     */
+    public void changePassword(String sessionToken, String oldPassword, String newPassword) throws IOException, ClassNotFoundException {
+        User user = getSessionUser(sessionToken);
+        if (user == null) {
+            throw new IllegalArgumentException("登录已过期，请重新登录");
         }
+        User stored = userIndex.get(user.getUserId());
+        if (stored == null || !PasswordHasher.verify(oldPassword, stored.getPassword())) {
+            throw new IllegalArgumentException("原密码错误");
+        }
+        updateUserPassword(user.getUserId(), newPassword);
+        // 当前会话保持有效
+        sessions.put(sessionToken, new Session(user.getUserId(), CachedClock.currentTimeMillis() + SESSION_TTL_MILLIS));
     }
+
     /**
-     * 私有辅助方法：统一读取用户列表（兼容空数据场景）
+     * 私有辅助方法：统一读取用户列表快照（兼容空数据场景），返回不含密码哈希的副本，调用方不能修改内存中的用户
      */
-    @SuppressWarnings("unchecked")
     private List<User> getUserList() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        synchronized (writeLock) {
+            List<User> copies = new ArrayList<>(userList.size());
+            for (User user : userList) {
+                copies.add(user.copyWithoutPassword());
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * 用户数据文件被其他实例修改：重新加载后整体替换用户列表和索引（已登录会话保留）
+     * 用户数据每次修改都在写锁内同步保存，替换时没有未写出的修改；加载失败时继续使用内存数据
+     */
+    private void reload() {
+        synchronized (writeLock) {
+            if (userList == null) {
+                return;
+            }
+            try {
+                load();
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("重新加载用户数据失败，继续使用内存数据：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 首次访问时加载用户数据并建立账号索引
+     */
+    private void ensureLoaded() throws IOException, ClassNotFoundException {
+        if (userList != null) {
+            USER_CACHE.hit();
+            return;
+        }
+        synchronized (writeLock) {
+            if (userList != null) {
+                USER_CACHE.hit();
+                return;
+            }
+            USER_CACHE.miss();
+            load();
+        }
+    }
+
+    /**
+     * 读取用户数据，建立新的索引后替换（调用方需持有writeLock）；存在明文密码时启动后台迁移
+     */
+    @SuppressWarnings("unchecked")
+    private void load() throws IOException, ClassNotFoundException {
         Object data = DataStorageUtil.getData(USER_DATA_KEY);
-        return data == null ? new ArrayList<>() : (List<User>) data;
+        List<User> loaded = data == null ? new ArrayList<>() : (List<User>) data;
+        ConcurrentHashMap<String, User> index = new ConcurrentHashMap<>();
+        boolean hasLegacy = false;
+        for (User user : loaded) {
+            index.put(user.getUserId(), user);
+            hasLegacy |= !PasswordHasher.isHashed(user.getPassword());
+        }
+        userIndex = index;
+        userList = loaded;
+        if (hasLegacy) {
+            startLegacyMigration();
+        }
+    }
+
+    /**
+     * 后台线程将旧版明文密码批量迁移为哈希（不在界面线程执行，全部完成后只保存一次）
+     */
+    private void startLegacyMigration() {
+        Thread migration = new Thread(() -> {
+            // 已迁移的用户 -> [原明文, 新哈希]（保存失败时恢复，内存与文件保持一致，下次启动再迁移）
+            Map<User, String[]> migrated = new HashMap<>();
+            List<User> snapshot;
+            synchronized (writeLock) {
+                snapshot = new ArrayList<>(userList);
+            }
+            for (User user : snapshot) {
+                String stored = user.getPassword();
+                if (stored != null && !PasswordHasher.isHashed(stored)) {
+                    String newHash = PasswordHasher.hash(stored);
+                    if (replacePasswordInMemory(user, stored, newHash)) {
+                        migrated.put(user, new String[]{stored, newHash});
+                    }
+                }
+            }
+            if (!migrated.isEmpty()) {
+                try {
+                    persist();
+                    LOGGER.info("已将{}个明文密码迁移为哈希存储", migrated.size());
+                } catch (IOException e) {
+                    synchronized (writeLock) {
+                        // 迁移后又被修改过的密码不恢复
+                        migrated.forEach((user, change) -> {
+                            if (change[1].equals(user.getPassword())) {
+                                user.setPasswordHash(change[0]);
+                            }
+                        });
+                    }
+                    LOGGER.warn("密码迁移保存失败：{}", e.getMessage());
+                }
+            }
+        }, "eldercare-password-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    // 仅当密码未被并发修改时替换（避免迁移覆盖用户刚修改的新密码），成功后持久化；保存失败时恢复原密码
+    private void replacePasswordIfUnchanged(User user, String expected, String newHash) throws IOException {
+        synchronized (writeLock) {
+            if (replacePasswordInMemory(user, expected, newHash)) {
+                try {
+                    persist();
+                } catch (IOException e) {
+                    user.setPasswordHash(expected);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean replacePasswordInMemory(User user, String expected, String newHash) {
+        synchronized (writeLock) {
+            // 用户数据已重新加载时不再修改旧对象（下次登录时再升级）
+            if (userIndex.get(user.getUserId()) != user || !expected.equals(user.getPassword())) {
+                return false;
+            }
+            user.setPasswordHash(newHash);
+            return true;
+        }
+    }
+
+    private void insertUser(User user) throws IOException {
+        synchronized (writeLock) {
+            if (userIndex.putIfAbsent(user.getUserId(), user) != null) {
+                throw new IllegalArgumentException("账号已存在：" + user.getUserId() + "，请更换账号");
+            }
+            userList.add(user);
+            try {
+                persist();
+            } catch (IOException e) {
+                // 保存失败时撤销，避免未保存的账号可以登录
+                userList.remove(user);
+                userIndex.remove(user.getUserId(), user);
+                throw e;
+            }
+        }
+        ChangeEventBus.publish(ChangeEvent.USERS, user.getUserId(), ChangeEvent.Operation.CREATE, null, user.copy());
+    }
+
+    private void persist() throws IOException {
+        synchronized (writeLock) {
+            DataStorageUtil.saveData(USER_DATA_KEY, new ArrayList<>(userList));
+        }
+    }
+
+    private String issueSession(String userId) {
+        byte[] bytes = new byte[24];
+        TOKEN_RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userId, CachedClock.currentTimeMillis() + SESSION_TTL_MILLIS));
+        return token;
+    }
+
+    private void invalidateSessions(String userId) {
+        sessions.values().removeIf(session -> session.userId.equals(userId));
     }
 
     /**
@@ -178,27 +467,38 @@ public class UserService {
             throw new IllegalArgumentException("密码长度不能少于6位");
         }
 
-        // 2. 查找用户并更新密码
-        List<User> userList = getUserList();
-        boolean found = false;
-        for (User user : userList) {
-            if (user.getUserId().equals(userId.trim())) {
-                user.setPassword(newPassword); // User类已实现密码长度校验
-                found = true;
-                break;
-            }
-        }
-
-        if (!found) {
+        // 2. 查找用户并更新密码（哈希在锁外计算，在锁内查找，修改的总是当前数据中的用户）
+        ensureLoaded();
+        if (!userIndex.containsKey(userId.trim())) {
             throw new IllegalArgumentException("用户不存在：" + userId);
         }
-
-        // 3. 保存更新后的用户列表
-        saveUserList(userList);
-        System.out.println("[UserService] 用户密码更新成功：" + userId);
+        String newHash = PasswordHasher.hash(newPassword);
+        User user;
+        User before;
+        User after;
+        synchronized (writeLock) {
+            user = userIndex.get(userId.trim());
+            if (user == null) {
+                throw new IllegalArgumentException("用户不存在：" + userId);
+            }
+            before = user.copy();
+            user.setPasswordHash(newHash);
+            after = user.copy();
+            // 3. 保存更新后的用户列表（失败时恢复原密码）
+            try {
+                persist();
+            } catch (IOException e) {
+                user.setPasswordHash(before.getPassword());
+                throw e;
+            }
+        }
+        ChangeEventBus.publish(ChangeEvent.USERS, userId.trim(), ChangeEvent.Operation.UPDATE, before, after);
+        // 密码变更后原有会话全部失效
+        invalidateSessions(user.getUserId());
+        LOGGER.info("用户密码更新成功：{}", userId);
 
         // 4. 预留数据库操作
-        userDao.updateUserPassword(userId, newPassword);
+        userDao.updateUserPassword(userId, newHash);
     }
 
     /**
@@ -216,29 +516,34 @@ public class UserService {
         }
 
         // 2. 查找用户并更新角色
-        List<User> userList = getUserList();
-        boolean found = false;
-        for (User user : userList) {
-            if (user.getUserId().equals(userId.trim())) {
-                user.setRole(newRole); // User类已实现角色合法性校验
-                found = true;
-                break;
+        ensureLoaded();
+        User user;
+        User before;
+        User after;
+        synchronized (writeLock) {
+            user = userIndex.get(userId.trim());
+            if (user == null) {
+                throw new IllegalArgumentException("用户不存在：" + userId);
+            }
+            before = user.copy();
+            user.setRole(newRole); // User类已实现角色合法性校验
+            after = user.copy();
+            // 3. 保存更新后的用户列表（失败时恢复原角色）
+            try {
+                persist();
+            } catch (IOException e) {
+                user.setRole(before.getRole());
+                throw e;
             }
         }
-
-        if (!found) {
-            throw new IllegalArgumentException("用户不存在：" + userId);
-        }
-
-        // 3. 保存更新后的用户列表
-        saveUserList(userList);
-        System.out.println("[UserService] 用户角色更新成功：" + userId + " -> " + newRole);
+        ChangeEventBus.publish(ChangeEvent.USERS, user.getUserId(), ChangeEvent.Operation.UPDATE, before, after);
+        LOGGER.info("用户角色更新成功：{} -> {}", userId, newRole);
     }
 
     /**
      * 根据用户ID查询用户信息
      * @param userId 用户账号（唯一标识）
-     * @return 匹配的用户对象；无匹配时返回null
+     * @return 匹配的用户对象的副本（不含密码哈希）；无匹配时返回null
      */
     public User getUserById(String userId) throws IOException, ClassNotFoundException {
         // 1. 输入校验
@@ -247,17 +552,16 @@ public class UserService {
             throw new IllegalArgumentException("账号格式非法！请输入4-20位字母/数字/下划线");
         }
 
-        // 2. 查找用户
-        List<User> userList = getUserList();
-        for (User user : userList) {
-            if (user.getUserId().equals(userId.trim())) {
-                System.out.println("[UserService] 查询到用户：" + userId + "（角色：" + user.getRole() + "）");
-                return user;
-            }
+        // 2. 按索引查找用户
+        ensureLoaded();
+        User user = userIndex.get(userId.trim());
+        if (user != null) {
+            LOGGER.debug("查询到用户：{}（角色：{}）", userId, user.getRole());
+            return user.copyWithoutPassword();
         }
 
         // 3. 未找到用户
-        System.out.println("[UserService] 未查询到用户：" + userId);
+        LOGGER.debug("未查询到用户：{}", userId);
         return null;
     }
 
@@ -275,33 +579,48 @@ public class UserService {
         }
         String targetUserId = userId.trim();
 
-        // 2. 获取现有用户列表
-        List<User> userList = getUserList(); // 复用原有获取用户列表的方法
-        boolean isDeleted = false;
-
-        // 3. 遍历删除指定用户（迭代器避免并发修改异常）
-        Iterator<User> iterator = userList.iterator();
-        while (iterator.hasNext()) {
-            User user = iterator.next();
-            if (targetUserId.equals(user.getUserId())) {
-                iterator.remove(); // 安全删除元素
-                isDeleted = true;
-                break; // 唯一ID，找到后直接退出
+        // 2. 按索引删除指定用户
+        ensureLoaded();
+        User removed;
+        synchronized (writeLock) {
+            removed = userIndex.remove(targetUserId);
+
+            // 3. 未找到用户则抛异常
+            if (removed == null) {
+                throw new IllegalArgumentException("删除失败：用户ID【" + targetUserId + "】不存在！");
+            }
+            int position = userList.indexOf(removed);
+            userList.remove(removed);
+
+            // 4. 保存删除后的用户列表（持久化；失败时恢复，文件中仍存在的用户在内存中同样存在）
+            try {
+                persist();
+            } catch (IOException e) {
+                userList.add(position < 0 ? userList.size() : position, removed);
+                userIndex.put(targetUserId, removed);
+                throw e;
             }
         }
+        invalidateSessions(targetUserId);
+        ChangeEventBus.publish(ChangeEvent.USERS, targetUserId, ChangeEvent.Operation.DELETE, removed.copy(), null);
+        LOGGER.info("成功删除用户：{}", targetUserId);
 
-        // 4. 未找到用户则抛异常
-        if (!isDeleted) {
-            throw new IllegalArgumentException("删除失败：用户ID【" + targetUserId + "】不存在！");
+        // 5. 预留数据库操作（若已对接DAO层）
+        if (userDao != null) {
+            userDao.deleteUserById(targetUserId); // 需确保UserDao中有此方法
         }
+    }
 
-        // 5. 保存删除后的用户列表（持久化）
-        saveUserList(userList); // 复用原有保存用户列表的方法
-        System.out.println("[UserService] 成功删除用户：" + targetUserId);
+    /**
+     * 登录会话（仅保存在内存中）
+     */
+    private static final class Session {
+        private final String userId;
+        private volatile long expiresAt;
 
-        // 6. 预留数据库操作（若已对接DAO层）
-        if (userDao != null) {
-            userDao.deleteUserById(targetUserId); // 需确保UserDao中有此方法
+        private Session(String userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,451 @@
+package com.eldercare.service;
+
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.InputValidator;
+import com.eldercare.util.MetricsRegistry;
+import com.eldercare.util.ReplicationLog;
+import com.eldercare.util.StorageLocks;
+import com.eldercare.util.StorageWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 护工工作日志业务逻辑类：按"护工 + 日期"保存工作日志
+ * 存储方式：快照文件（work_logs.ser）+ 追加日志文件（work_logs.journal）
+ * 保存时只有内容发生变化的日志条目才追加到journal，内容未变直接返回，不写文件；
+ * journal超过阈值后在后台合并进快照并清空，保存开销不随历史日志增长
+ */
+public class WorkLogService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkLogService.class);
+    private static final WorkLogService INSTANCE = new WorkLogService();
+    // 远程客户端模式下的代理（见com.eldercare.client.RemoteServices），设置后getInstance返回代理
+    private static volatile WorkLogService remoteProxy;
+    // 快照数据key：Map<护工ID, Map<日期, 日志内容>>
+    private static final String SNAPSHOT_DATA_KEY = "work_logs";
+    // 旧版数据key：Map<日期, 日志内容>（不区分护工，首次加载时迁移）
+    private static final String LEGACY_DATA_KEY = "caregiver_work_logs";
+    private static final String JOURNAL_FILE = "work_logs.journal";
+    private static final String COMPACTING_JOURNAL_FILE = "work_logs.journal.compacting";
+    // journal超过该大小（字节）时触发合并，可通过系统属性eldercare.worklog.compact.bytes调整
+    private static final long COMPACT_THRESHOLD_BYTES = Long.getLong("eldercare.worklog.compact.bytes", 1024 * 1024L);
+    // 旧版日志中从模板"护工：xxx"一行识别护工
+    private static final Pattern LEGACY_CAREGIVER_PATTERN = Pattern.compile("护工：(\\S+)");
+    private static final String UNKNOWN_CAREGIVER = "unknown";
+    // 单条记录字段的最大字节数（超过视为损坏）
+    private static final int MAX_FIELD_BYTES = 64 * 1024 * 1024;
+
+    private final Object lock = new Object();
+    // 护工ID -> (日期 -> 日志内容)
+    private final Map<String, TreeMap<String, String>> logs = new HashMap<>();
+    private final ExecutorService compactExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "eldercare-worklog-compact");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private DataOutputStream journalOut;
+    private long journalBytes;
+    private boolean compacting;
+    private volatile boolean loaded;
+
+    protected WorkLogService() {
+        // 其他实例追加journal时只重放新增的部分；快照被改写（合并）时全部重新加载
+        StorageWatcher.addListener(JOURNAL_FILE, fileName -> replayExternalJournal());
+        DataStorageUtil.registerMergeable(SNAPSHOT_DATA_KEY, null);
+        StorageWatcher.addListener(DataStorageUtil.fileNameOf(SNAPSHOT_DATA_KEY), fileName -> reload());
+    }
+
+    public static WorkLogService getInstance() {
+        WorkLogService proxy = remoteProxy;
+        if (proxy != null) {
+            return proxy;
+        }
+        return INSTANCE;
+    }
+
+    public static void useRemoteProxy(WorkLogService proxy) {
+        remoteProxy = proxy;
+    }
+
+    /**
+     * 查询护工某天的工作日志
+     * @param caregiverId 护工账号
+     * @param date 日期（yyyy-MM-dd）
+     * @return 日志内容；不存在返回null
+     */
+    public String getLog(String caregiverId, String date) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(caregiverId, "护工账号");
+        InputValidator.validateNotEmpty(date, "日期");
+        ensureLoaded();
+        synchronized (lock) {
+            TreeMap<String, String> byDate = logs.get(caregiverId.trim());
+            return byDate == null ? null : byDate.get(date.trim());
+        }
+    }
+
+    /**
+     * 查询护工的全部工作日志
+     * @param caregiverId 护工账号
+     * @return 日期 -> 日志内容（按日期升序的副本）
+     */
+    public SortedMap<String, String> getLogsByCaregiver(String caregiverId) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(caregiverId, "护工账号");
+        ensureLoaded();
+        synchronized (lock) {
+            TreeMap<String, String> byDate = logs.get(caregiverId.trim());
+            return byDate == null ? Collections.emptySortedMap() : new TreeMap<>(byDate);
+        }
+    }
+
+    /**
+     * 保存护工某天的工作日志（内容未变化时不写文件）
+     * @param caregiverId 护工账号
+     * @param date 日期（yyyy-MM-dd）
+     * @param content 日志内容
+     * @return true-已保存，false-内容未变化
+     */
+    public boolean saveLog(String caregiverId, String date, String content) throws IOException, ClassNotFoundException {
+        InputValidator.validateNotEmpty(caregiverId, "护工账号");
+        InputValidator.validateNotEmpty(date, "日期");
+        if (content == null) {
+            throw new IllegalArgumentException("日志内容不能为null");
+        }
+        ensureLoaded();
+        String trimmedCaregiverId = caregiverId.trim();
+        String trimmedDate = date.trim();
+        synchronized (lock) {
+            TreeMap<String, String> byDate = logs.computeIfAbsent(trimmedCaregiverId, k -> new TreeMap<>());
+            if (content.equals(byDate.get(trimmedDate))) {
+                return false;
+            }
+            appendToJournal(trimmedCaregiverId, trimmedDate, content);
+            byDate.put(trimmedDate, content);
+            if (journalBytes >= COMPACT_THRESHOLD_BYTES && !compacting) {
+                compacting = true;
+                compactExecutor.execute(this::compactQuietly);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 立即把journal合并进快照（通常由后台自动触发）
+     */
+    public void compact() throws IOException, ClassNotFoundException {
+        ensureLoaded();
+        HashMap<String, HashMap<String, String>> snapshot;
+        long lsn;
+        Path journal = DataStorageUtil.getDataFile(JOURNAL_FILE);
+        Path compactingJournal = DataStorageUtil.getDataFile(COMPACTING_JOURNAL_FILE);
+        synchronized (lock) {
+            StorageLocks.Handle fileLock = StorageLocks.exclusive(JOURNAL_FILE);
+            try {
+                // 1. 在锁内复制内存数据并切换journal：之后的保存写入新的journal
+                snapshot = copyLogs();
+                closeJournal();
+                if (Files.exists(journal)) {
+                    if (Files.exists(compactingJournal)) {
+                        // 上次合并未完成：把当前journal接在其后，两部分都要保留到快照写入成功
+                        Files.write(compactingJournal, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+                        Files.delete(journal);
+                    } else {
+                        Files.move(journal, compactingJournal, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                journalBytes = 0;
+                StorageWatcher.recordLocalWrite(journal);
+                if (Files.exists(compactingJournal)) {
+                    ReplicationLog.recordPut(COMPACTING_JOURNAL_FILE, compactingJournal);
+                }
+                lsn = ReplicationLog.recordDelete(JOURNAL_FILE);
+            } finally {
+                fileLock.close();
+            }
+        }
+        ReplicationLog.awaitCommit(lsn);
+        // 2. 锁外写快照；写入成功后才删除旧journal（中途崩溃时重新加载会重放旧journal，结果不变）
+        DataStorageUtil.saveData(SNAPSHOT_DATA_KEY, snapshot);
+        StorageLocks.Handle fileLock = StorageLocks.exclusive(JOURNAL_FILE);
+        try {
+            Files.deleteIfExists(compactingJournal);
+            lsn = ReplicationLog.recordDelete(COMPACTING_JOURNAL_FILE);
+        } finally {
+            fileLock.close();
+        }
+        ReplicationLog.awaitCommit(lsn);
+        LOGGER.info("工作日志合并完成：{}位护工", snapshot.size());
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.warn("工作日志合并失败：{}", e.getMessage());
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+        }
+    }
+
+    // 调用方需持有lock；持journal排他锁写入，先重放其他实例追加的记录，保证journalBytes与文件长度一致
+    private void appendToJournal(String caregiverId, String date, String content) throws IOException {
+        Path journal = DataStorageUtil.getDataFile(JOURNAL_FILE);
+        long lsn;
+        StorageLocks.Handle fileLock = StorageLocks.exclusive(JOURNAL_FILE);
+        try {
+            long size = Files.exists(journal) ? Files.size(journal) : 0;
+            if (size > journalBytes) {
+                journalBytes += replayJournal(journal, journalBytes, false);
+            } else if (size < journalBytes) {
+                // journal已被其他实例合并进快照：在新文件末尾继续追加（快照变化时会全部重新加载）
+                closeJournal();
+                journalBytes = size;
+            }
+            long offset = journalBytes;
+            writeJournalRecord(journal, caregiverId, date, content);
+            lsn = ReplicationLog.recordAppend(JOURNAL_FILE, journal, offset, (int) (journalBytes - offset));
+        } finally {
+            fileLock.close();
+        }
+        ReplicationLog.awaitCommit(lsn);
+    }
+
+    // 调用方需持有lock和journal排他锁
+    private void writeJournalRecord(Path journal, String caregiverId, String date, String content) throws IOException {
+        if (journalOut == null) {
+            OutputStream out = Files.newOutputStream(journal,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalOut = new DataOutputStream(new BufferedOutputStream(out));
+        }
+        int before = journalOut.size();
+        try {
+            writeString(journalOut, caregiverId);
+            writeString(journalOut, date);
+            writeString(journalOut, content);
+            journalOut.flush();
+        } catch (IOException e) {
+            // 写入失败：丢弃半条记录，避免后续追加的记录无法读取
+            try {
+                closeJournal();
+            } catch (IOException closeError) {
+                journalOut = null;
+                e.addSuppressed(closeError);
+            }
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(journalBytes);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+        journalBytes += journalOut.size() - before;
+        StorageWatcher.recordLocalWrite(journal);
+        MetricsRegistry.counter("storage." + JOURNAL_FILE + ".write.bytes").add(journalOut.size() - before);
+    }
+
+    // 调用方需持有lock
+    private void closeJournal() throws IOException {
+        if (journalOut != null) {
+            journalOut.close();
+            journalOut = null;
+        }
+    }
+
+    // 调用方需持有lock
+    private HashMap<String, HashMap<String, String>> copyLogs() {
+        HashMap<String, HashMap<String, String>> copy = new HashMap<>();
+        for (Map.Entry<String, TreeMap<String, String>> entry : logs.entrySet()) {
+            copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * 首次访问时加载：快照 -> 合并中的journal -> 当前journal（依次重放，后写覆盖先写）
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureLoaded() throws IOException, ClassNotFoundException {
+        if (loaded) {
+            return;
+        }
+        synchronized (lock) {
+            if (loaded) {
+                return;
+            }
+            Object data = DataStorageUtil.getData(SNAPSHOT_DATA_KEY);
+            if (data != null) {
+                for (Map.Entry<String, Map<String, String>> entry : ((Map<String, Map<String, String>>) data).entrySet()) {
+                    logs.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+                }
+            } else {
+                migrateLegacyLogs();
+            }
+            // 可能截断journal末尾，取排他锁
+            StorageLocks.Handle fileLock = StorageLocks.exclusive(JOURNAL_FILE);
+            try {
+                replayJournal(DataStorageUtil.getDataFile(COMPACTING_JOURNAL_FILE), 0, false);
+                journalBytes = replayJournal(DataStorageUtil.getDataFile(JOURNAL_FILE), 0, true);
+            } finally {
+                fileLock.close();
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * journal被其他实例追加：从本实例已读到的位置重放新增记录；journal变短（已被其他实例合并）时全部重新加载
+     */
+    private void replayExternalJournal() {
+        synchronized (lock) {
+            if (!loaded) {
+                return;
+            }
+            StorageLocks.Handle fileLock = null;
+            try {
+                fileLock = StorageLocks.shared(JOURNAL_FILE);
+                Path journal = DataStorageUtil.getDataFile(JOURNAL_FILE);
+                if (Files.exists(journal) && Files.size(journal) >= journalBytes) {
+                    journalBytes += replayJournal(journal, journalBytes, false);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("重放其他实例追加的journal失败，全部重新加载：{}", e.getMessage());
+            } finally {
+                if (fileLock != null) {
+                    fileLock.close();
+                }
+            }
+            unloadLocked();
+        }
+    }
+
+    /**
+     * 快照被其他实例改写：丢弃内存数据，下次访问时重新加载
+     */
+    private void reload() {
+        synchronized (lock) {
+            unloadLocked();
+        }
+    }
+
+    // 调用方需持有lock
+    private void unloadLocked() {
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            journalOut = null;
+            LOGGER.warn("关闭journal失败：{}", e.getMessage());
+        }
+        logs.clear();
+        journalBytes = 0;
+        loaded = false;
+    }
+
+    /**
+     * 迁移旧版按日期保存的日志：按日志中的"护工：xxx"归属到对应护工，写入新快照（旧文件保留不动）
+     */
+    @SuppressWarnings("unchecked")
+    private void migrateLegacyLogs() throws IOException, ClassNotFoundException {
+        Object legacy = DataStorageUtil.getData(LEGACY_DATA_KEY);
+        if (!(legacy instanceof Map)) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : ((Map<String, String>) legacy).entrySet()) {
+            String content = entry.getValue();
+            if (content == null) {
+                continue;
+            }
+            Matcher matcher = LEGACY_CAREGIVER_PATTERN.matcher(content);
+            String caregiverId = matcher.find() ? matcher.group(1) : UNKNOWN_CAREGIVER;
+            logs.computeIfAbsent(caregiverId, k -> new TreeMap<>()).put(entry.getKey(), content);
+        }
+        DataStorageUtil.saveData(SNAPSHOT_DATA_KEY, copyLogs());
+        LOGGER.info("已迁移旧版工作日志：{}条", ((Map<String, String>) legacy).size());
+    }
+
+    /**
+     * 重放journal；末尾不完整的记录（写入中途崩溃）被忽略
+     * @param offset 从该位置开始重放（之前的记录已读取）
+     * @param truncateTail 是否截掉末尾不完整的记录，保证后续追加的记录可被正确读取
+     * @return 从offset起有效记录的字节数
+     */
+    private long replayJournal(Path journal, long offset, boolean truncateTail) throws IOException {
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+        long validBytes = 0;
+        int count = 0;
+        try (InputStream raw = Files.newInputStream(journal);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            raw.skipNBytes(offset);
+            while (true) {
+                String caregiverId;
+                String date;
+                String content;
+                try {
+                    caregiverId = readString(in);
+                    date = readString(in);
+                    content = readString(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                logs.computeIfAbsent(caregiverId, k -> new TreeMap<>()).put(date, content);
+                validBytes += recordBytes(caregiverId) + recordBytes(date) + recordBytes(content);
+                count++;
+            }
+        }
+        if (truncateTail && offset + validBytes < Files.size(journal)) {
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(offset + validBytes);
+            }
+            LOGGER.warn("journal末尾有不完整记录，已截断：{}", journal);
+        }
+        LOGGER.info("重放工作日志journal：{}条（{}）", count, journal.getFileName());
+        return validBytes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FIELD_BYTES) {
+            throw new EOFException("记录长度非法：" + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long recordBytes(String value) {
+        return 4L + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
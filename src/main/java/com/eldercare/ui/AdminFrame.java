@@ -5,12 +5,14 @@ import com.eldercare.model.Activity;
 import com.eldercare.model.Elder;
 import com.eldercare.model.User;
 import com.eldercare.service.*;
+import com.eldercare.util.JfrEvents;
 import com.eldercare.util.WindowUtil;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * 管理员用户主界面
@@ -43,6 +45,9 @@ public class AdminFrame extends JFrame {
     private JButton addElderButton;
     private JButton deleteElderButton;
 
+    // 数据概览组件
+    private JTextArea overviewArea;
+
     // 活动管理组件
     private JTable activityTable;
     private DefaultTableModel activityTableModel;
@@ -82,6 +87,9 @@ public class AdminFrame extends JFrame {
         tabbedPane = new JTabbedPane();
 
         // 创建各个功能面板
+        JPanel overviewPanel = createOverviewPanel();
+        tabbedPane.addTab("数据概览", overviewPanel);
+
         JPanel userPanel = createUserManagementPanel();
         tabbedPane.addTab("用户管理", userPanel);
 
@@ -276,6 +284,34 @@ public class AdminFrame extends JFrame {
         return panel;
     }
 
+    /**
+     * 创建数据概览面板（统计数据由StatisticsService预先汇总，打开时无需遍历全部数据）
+     * @return 数据概览面板
+     */
+    private JPanel createOverviewPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        overviewArea = new JTextArea();
+        overviewArea.setEditable(false);
+        overviewArea.setFont(new Font("微软雅黑", Font.PLAIN, 14));
+        panel.add(new JScrollPane(overviewArea), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton refreshButton = new JButton("刷新");
+        refreshButton.addActionListener(e -> loadOverview());
+        buttonPanel.add(refreshButton);
+        JButton rebuildButton = new JButton("重新统计");
+        rebuildButton.addActionListener(e -> WindowUtil.runInBackground(() -> {
+            StatisticsService.getInstance().rebuild();
+            return null;
+        }, result -> loadOverview(), ex -> WindowUtil.showErrorMsg(this, "重新统计失败: " + ex.getMessage())));
+        buttonPanel.add(rebuildButton);
+        panel.add(buttonPanel, BorderLayout.NORTH);
+
+        return panel;
+    }
+
     /**
      * 设置布局（各组件已在创建方法中设置）
      */
@@ -305,15 +341,77 @@ public class AdminFrame extends JFrame {
      * 加载初始数据
      */
     private void loadInitialData() {
+        loadOverview();
         loadUsers();
         loadElders();
         loadActivities();
     }
 
+    /**
+     * 加载数据概览
+     */
+    private void loadOverview() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("AdminFrame", "loadOverview");
+        try {
+            StatisticsService statisticsService = StatisticsService.getInstance();
+            StringBuilder text = new StringBuilder();
+
+            text.append("【用户】\n");
+            appendCounts(text, statisticsService.getUsersByRole());
+
+            text.append("\n【老人年龄分布】\n");
+            appendCounts(text, statisticsService.getEldersByAgeBand());
+            text.append("\n【老人健康状况】\n");
+            appendCounts(text, statisticsService.getEldersByHealthStatus());
+
+            text.append("\n【活动报名】\n");
+            for (StatisticsService.ActivityFill fill : statisticsService.getActivityFills()) {
+                text.append("  ").append(fill.getName()).append("（").append(fill.getTime()).append("）：");
+                if (fill.getCapacity() > 0) {
+                    text.append(fill.getRegisteredCount()).append("/").append(fill.getCapacity())
+                            .append("，报名率").append(Math.round(fill.getFillRate() * 100)).append("%");
+                } else {
+                    text.append(fill.getRegisteredCount()).append("人（不限名额）");
+                }
+                if (fill.getWaitlistCount() > 0) {
+                    text.append("，候补").append(fill.getWaitlistCount()).append("人");
+                }
+                text.append("\n");
+            }
+
+            text.append("\n【服务申请】\n");
+            appendCounts(text, ServiceRequestService.getInstance().getStatusCounts());
+            text.append("  未完成申请按类型：\n");
+            appendCounts(text, statisticsService.getRequestBacklogByType());
+
+            text.append("\n【健康预警（近7天）】\n");
+            text.append("  未处理：").append(statisticsService.getPendingAlertCount()).append("\n");
+            appendCounts(text, statisticsService.getAlertsByDay(7));
+
+            overviewArea.setText(text.toString());
+            overviewArea.setCaretPosition(0);
+        } catch (Exception e) {
+            WindowUtil.showErrorMsg(this, "加载数据概览失败: " + e.getMessage());
+        } finally {
+            trace.commit();
+        }
+    }
+
+    private void appendCounts(StringBuilder text, Map<String, Integer> counts) {
+        if (counts.isEmpty()) {
+            text.append("  暂无数据\n");
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            text.append("  ").append(entry.getKey()).append("：").append(entry.getValue()).append("\n");
+        }
+    }
+
     /**
      * 加载用户数据
      */
     private void loadUsers() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("AdminFrame", "loadUsers");
         try {
             userTableModel.setRowCount(0);
             var users = userService.getAllUsers();
@@ -327,6 +425,8 @@ public class AdminFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载用户失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -444,6 +544,7 @@ public class AdminFrame extends JFrame {
      * 加载老人数据
      */
     private void loadElders() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("AdminFrame", "loadElders");
         try {
             elderTableModel.setRowCount(0);
             var elders = elderService.queryElders(null);
@@ -459,6 +560,8 @@ public class AdminFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载老人信息失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -466,6 +569,7 @@ public class AdminFrame extends JFrame {
      * 加载活动数据
      */
     private void loadActivities() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("AdminFrame", "loadActivities");
         try {
             activityTableModel.setRowCount(0);
             var activities = activityService.getAllActivities();
@@ -475,7 +579,7 @@ public class AdminFrame extends JFrame {
                         activity.getName(),
                         activity.getTime(),
                         activity.getLocation(),
-                        activity.getRegisteredElderIds().size(),
+                        formatRegistration(activity),
                         activity.getDescription().length() > 30 ?
                                 activity.getDescription().substring(0, 30) + "..." :
                                 activity.getDescription()
@@ -484,6 +588,8 @@ public class AdminFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载活动失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -802,12 +908,25 @@ public class AdminFrame extends JFrame {
         }
     }
 
+    /**
+     * 报名人数显示文本：有名额上限时显示"已报名/上限"，有候补时附加候补人数
+     */
+    private String formatRegistration(Activity activity) {
+        String text = activity.getCapacity() > 0
+                ? activity.getRegisteredCount() + "/" + activity.getCapacity()
+                : String.valueOf(activity.getRegisteredCount());
+        if (activity.getWaitlistCount() > 0) {
+            text += "（候补" + activity.getWaitlistCount() + "）";
+        }
+        return text;
+    }
+
     /**
      * 显示创建活动对话框
      */
     private void showCreateActivityDialog() {
         JDialog dialog = new JDialog(this, "创建新活动", true);
-        dialog.setSize(450, 400);
+        dialog.setSize(450, 440);
         WindowUtil.centerWindow(dialog);
 
         JPanel panel = new JPanel(new GridBagLayout());
@@ -844,9 +963,19 @@ public class AdminFrame extends JFrame {
         gbc.gridx = 1;
         panel.add(locationField, gbc);
 
-        // 活动描述
+        // 名额上限（0表示不限人数）
         gbc.gridx = 0;
         gbc.gridy = 3;
+        panel.add(new JLabel("名额上限:"), gbc);
+
+        JSpinner capacitySpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10000, 1));
+        capacitySpinner.setToolTipText("0表示不限人数，名额满后报名者进入候补名单");
+        gbc.gridx = 1;
+        panel.add(capacitySpinner, gbc);
+
+        // 活动描述
+        gbc.gridx = 0;
+        gbc.gridy = 4;
         gbc.ipady = 60;
         panel.add(new JLabel("活动描述:"), gbc);
 
@@ -868,6 +997,7 @@ public class AdminFrame extends JFrame {
                 activity.setTime(timeField.getText().trim());
                 activity.setLocation(locationField.getText().trim());
                 activity.setDescription(descArea.getText().trim());
+                activity.setCapacity((Integer) capacitySpinner.getValue());
                 activity.setRegisteredElderIds(new ArrayList<>());
 
                 activityService.createActivity(activity);
@@ -3,9 +3,13 @@ package com.eldercare.ui;
 
 import com.eldercare.model.*;
 import com.eldercare.service.*;
+import com.eldercare.util.JfrEvents;
 import com.eldercare.util.WindowUtil;
+import com.eldercare.util.CachedClock;
 import com.eldercare.util.DateFormatUtil;
-import com.eldercare.util.DataStorageUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -13,11 +17,8 @@ import javax.swing.event.DocumentListener;
 import javax.swing.event.DocumentEvent;
 import java.awt.*;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Collections;
 
@@ -26,6 +27,7 @@ import java.util.Collections;
  * 功能：提供护工用户的各项功能，包括照护管理、健康记录、服务处理、工作日志等
  */
 public class CaregiverFrame extends JFrame {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaregiverFrame.class);
     // 当前登录用户
     private User currentUser;
 
@@ -37,16 +39,20 @@ public class CaregiverFrame extends JFrame {
     private ElderService elderService;
     private HealthRecordService healthRecordService;
     private ServiceRequestService serviceRequestService;
+    private final DispatchService dispatchService = DispatchService.getInstance();
 
     // UI组件
     private JTabbedPane tabbedPane;
     private DefaultTableModel careTableModel;
     private DefaultTableModel serviceTableModel;
+    private JLabel serviceSummaryLabel;
     private JComboBox<String> elderComboBox;
 
     // 工作日志相关字段
     private JTextArea logArea;
-    private static final String WORK_LOG_KEY = "caregiver_work_logs";
+    private final WorkLogService workLogService = WorkLogService.getInstance();
+    // 日志内容自上次保存后是否被修改（未修改时自动保存直接跳过）
+    private boolean logDirty;
     private Timer autoSaveTimer;
     private boolean isAutoSaveEnabled = true;
     private JButton autoSaveToggleBtn;
@@ -56,9 +62,9 @@ public class CaregiverFrame extends JFrame {
         try {
             // 触发 ElderService 初始化，确保数据加载
             ElderService elderService = ElderService.getInstance();
-            System.out.println("静态初始化: ElderService 已加载");
+            LOGGER.info("静态初始化: ElderService 已加载");
         } catch (Exception e) {
-            System.err.println("静态初始化 ElderService 失败: " + e.getMessage());
+            LOGGER.warn("静态初始化 ElderService 失败: {}", e.getMessage());
         }
     }
 
@@ -72,6 +78,13 @@ public class CaregiverFrame extends JFrame {
         // 初始化服务类
         initializeServices();
 
+        // 上班：可接单，其他护工下班时的申请会分配过来
+        try {
+            dispatchService.startShift(currentUser.getUserId());
+        } catch (Exception e) {
+            LOGGER.warn("护工上班登记失败: {}", e.getMessage());
+        }
+
         initComponents();
         setupLayout();
         loadInitialData();
@@ -100,6 +113,19 @@ public class CaregiverFrame extends JFrame {
         });
     }
 
+    /**
+     * 关闭窗口时下班，队列中未完成的申请重新分配给其他在班护工
+     */
+    @Override
+    public void dispose() {
+        try {
+            dispatchService.endShift(currentUser.getUserId());
+        } catch (Exception e) {
+            LOGGER.warn("护工下班登记失败: {}", e.getMessage());
+        }
+        super.dispose();
+    }
+
     /**
      * 初始化服务类实例
      */
@@ -107,26 +133,26 @@ public class CaregiverFrame extends JFrame {
         // 先初始化 ElderService（最基础的服务）
         try {
             elderService = ElderService.getInstance();
-            System.out.println("ElderService 已初始化，有 " + elderService.queryElders(null).size() + " 个老人");
+            LOGGER.debug("ElderService 已初始化，有 {} 个老人", elderService.queryElders(null).size());
         } catch (Exception e) {
-            System.err.println("ElderService 初始化失败: " + e.getMessage());
+            LOGGER.warn("ElderService 初始化失败: {}", e.getMessage());
             elderService = createMockElderService();
         }
 
         // 然后初始化依赖 ElderService 的其他服务
         try {
             healthRecordService = HealthRecordService.getInstance();
-            System.out.println("HealthRecordService 已初始化");
+            LOGGER.debug("HealthRecordService 已初始化");
         } catch (Exception e) {
-            System.err.println("HealthRecordService 初始化失败: " + e.getMessage());
+            LOGGER.warn("HealthRecordService 初始化失败: {}", e.getMessage());
             healthRecordService = createMockHealthRecordService();
         }
 
         try {
             serviceRequestService = ServiceRequestService.getInstance();
-            System.out.println("ServiceRequestService 已初始化");
+            LOGGER.debug("ServiceRequestService 已初始化");
         } catch (Exception e) {
-            System.err.println("ServiceRequestService 初始化失败: " + e.getMessage());
+            LOGGER.warn("ServiceRequestService 初始化失败: {}", e.getMessage());
             serviceRequestService = createMockServiceRequestService();
         }
     }
@@ -138,7 +164,7 @@ public class CaregiverFrame extends JFrame {
         return new ElderService() {
             @Override
             public List<Elder> queryElders(String keyword) {
-                System.out.println("调用模拟 queryElders");
+                LOGGER.debug("调用模拟 queryElders");
                 List<Elder> elders = new ArrayList<>();
                 elders.add(new Elder("E001", "USER_001", "张三", 75, "13800138000", "健康状况良好"));
                 elders.add(new Elder("E002", "USER_002", "李四", 80, "13800138001", "血压偏高"));
@@ -147,7 +173,7 @@ public class CaregiverFrame extends JFrame {
 
             @Override
             public Elder getElderById(String elderId) {
-                System.out.println("调用模拟 getElderById: " + elderId);
+                LOGGER.debug("调用模拟 getElderById: {}", elderId);
                 return new Elder(elderId, "USER_" + elderId.substring(1) + "", "模拟老人", 70, "00000000000", "良好");
             }
         };
@@ -160,12 +186,18 @@ public class CaregiverFrame extends JFrame {
         return new HealthRecordService() {
             @Override
             public void addHealthRecord(HealthRecord record) {
-                System.out.println("模拟添加健康记录: " + record.getElderId());
+                LOGGER.debug("模拟添加健康记录: {}", record.getElderId());
             }
 
             @Override
             public List<HealthRecord> getRecordsByElderId(String elderId) {
-                System.out.println("模拟获取健康记录: " + elderId);
+                LOGGER.debug("模拟获取健康记录: {}", elderId);
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<HealthRecord> getRecentRecordsByElderId(String elderId) {
+                LOGGER.debug("模拟获取近期健康记录: {}", elderId);
                 return new ArrayList<>();
             }
         };
@@ -178,7 +210,7 @@ public class CaregiverFrame extends JFrame {
         return new ServiceRequestService() {
             @Override
             public boolean updateRequestStatus(String requestId, String status) {
-                System.out.println("模拟更新申请状态: " + requestId + " -> " + status);
+                LOGGER.debug("模拟更新申请状态: {} -> {}", requestId, status);
                 return true;
             }
 
@@ -400,7 +432,7 @@ public class CaregiverFrame extends JFrame {
                 WindowUtil.showSuccessMsg(this, "健康记录提交成功！");
             } catch (Exception ex) {
                 WindowUtil.showErrorMsg(this, "提交失败: " + ex.getMessage());
-                ex.printStackTrace();
+                LOGGER.error("健康记录提交失败", ex);
             }
         });
         formPanel.add(submitButton, gbc);
@@ -427,20 +459,20 @@ public class CaregiverFrame extends JFrame {
         titleLabel.setFont(new Font("微软雅黑", Font.BOLD, 16));
         panel.add(titleLabel, BorderLayout.NORTH);
 
-        // 服务申请表格
-        String[] columns = {"申请ID", "老人", "服务类型", "申请时间", "状态", "操作"};
+        // 服务申请表格（默认显示我的工作队列 + 待派单申请，按优先级排序）
+        String[] columns = {"申请ID", "老人", "服务类型", "申请时间", "状态", "处理人", "操作"};
         serviceTableModel = new DefaultTableModel(columns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 // 只有操作列可编辑
-                return column == 5;
+                return column == 6;
             }
         };
         JTable table = new JTable(serviceTableModel);
 
         // 设置操作列的按钮
-        table.getColumnModel().getColumn(5).setCellRenderer(new ButtonRenderer());
-        table.getColumnModel().getColumn(5).setCellEditor(new ButtonEditor(new JCheckBox(), "处理") {
+        table.getColumnModel().getColumn(6).setCellRenderer(new ButtonRenderer());
+        table.getColumnModel().getColumn(6).setCellEditor(new ButtonEditor(new JCheckBox(), "处理") {
             @Override
             public void buttonClicked(int row) {
                 processServiceRequest(row);
@@ -450,6 +482,10 @@ public class CaregiverFrame extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         panel.add(scrollPane, BorderLayout.CENTER);
 
+        // 各状态申请数（实时计数）
+        serviceSummaryLabel = new JLabel(" ", SwingConstants.CENTER);
+        panel.add(serviceSummaryLabel, BorderLayout.SOUTH);
+
         // 状态筛选
         JPanel filterPanel = new JPanel(new FlowLayout());
         filterPanel.add(new JLabel("筛选状态:"));
@@ -458,6 +494,10 @@ public class CaregiverFrame extends JFrame {
         statusComboBox.addActionListener(e -> filterServiceRequests((String) statusComboBox.getSelectedItem()));
         filterPanel.add(statusComboBox);
 
+        JButton claimNextButton = new JButton("领取下一单");
+        claimNextButton.addActionListener(e -> claimNextServiceRequest());
+        filterPanel.add(claimNextButton);
+
         JButton refreshButton = new JButton("刷新");
         refreshButton.addActionListener(e -> loadServiceRequests());
         filterPanel.add(refreshButton);
@@ -505,6 +545,7 @@ public class CaregiverFrame extends JFrame {
             }
 
             private void autoSaveTriggered() {
+                logDirty = true;
                 if (isAutoSaveEnabled) {
                     autoSaveTimer.restart();
                 }
@@ -586,6 +627,7 @@ public class CaregiverFrame extends JFrame {
      * 加载照护老人列表
      */
     private void loadCaredElders() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("CaregiverFrame", "loadCaredElders");
         try {
             careTableModel.setRowCount(0);
             List<Elder> elders = elderService.queryElders(null);
@@ -602,6 +644,8 @@ public class CaregiverFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载老人信息失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -624,31 +668,76 @@ public class CaregiverFrame extends JFrame {
     }
 
     /**
-     * 加载服务申请列表
+     * 加载服务申请列表（我的工作队列在前，其后为待派单申请）
      */
     private void loadServiceRequests() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("CaregiverFrame", "loadServiceRequests");
         try {
             serviceTableModel.setRowCount(0);
-            // 获取所有服务申请
-            List<ServiceRequest> requests = getAllServiceRequests();
-            for (ServiceRequest request : requests) {
-                try {
-                    Elder elder = elderService.getElderById(request.getElderId());
-                    Object[] row = {
-                            request.getRequestId(),
-                            elder != null ? elder.getName() : "未知",
-                            request.getServiceType(),
-                            DateFormatUtil.formatDateTime(request.getRequestTime()),
-                            request.getStatus(),
-                            "处理"
-                    };
-                    serviceTableModel.addRow(row);
-                } catch (Exception ex) {
-                    // 跳过有问题的记录
-                }
-            }
+            List<ServiceRequest> requests = new ArrayList<>(dispatchService.getQueue(currentUser.getUserId()));
+            requests.addAll(dispatchService.getUnassignedRequests());
+            addServiceRequestRows(requests);
+            updateServiceSummary();
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载服务申请失败: " + e.getMessage());
+        } finally {
+            trace.commit();
+        }
+    }
+
+    /**
+     * 更新服务申请统计（各状态计数与我的队列长度）
+     */
+    private void updateServiceSummary() throws IOException, ClassNotFoundException {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : serviceRequestService.getStatusCounts().entrySet()) {
+            summary.append(entry.getKey()).append(": ").append(entry.getValue()).append("    ");
+        }
+        summary.append("我的队列: ").append(dispatchService.getQueueSize(currentUser.getUserId()))
+                .append("    待派单: ").append(dispatchService.getUnassignedCount());
+        serviceSummaryLabel.setText(summary.toString());
+    }
+
+    /**
+     * 将服务申请逐行加入表格
+     * @param requests 服务申请列表
+     */
+    private void addServiceRequestRows(List<ServiceRequest> requests) {
+        for (ServiceRequest request : requests) {
+            try {
+                Elder elder = elderService.getElderById(request.getElderId());
+                Object[] row = {
+                        request.getRequestId(),
+                        elder != null ? elder.getName() : "未知",
+                        request.getServiceType(),
+                        DateFormatUtil.formatDateTime(request.getRequestTimeMillis()),
+                        request.getStatus(),
+                        request.getAssigneeId() != null ? request.getAssigneeId() : "待派单",
+                        "处理"
+                };
+                serviceTableModel.addRow(row);
+            } catch (Exception ex) {
+                // 跳过有问题的记录
+            }
+        }
+    }
+
+    /**
+     * 领取优先级最高的待派单申请
+     */
+    private void claimNextServiceRequest() {
+        try {
+            ServiceRequest request = dispatchService.claimNext(currentUser.getUserId());
+            if (request == null) {
+                WindowUtil.showSuccessMsg(this, "暂无待派单的服务申请");
+                return;
+            }
+            Elder elder = elderService.getElderById(request.getElderId());
+            addServiceRequestToLog(elder != null ? elder.getName() : "未知", request.getServiceType(), "已接单");
+            loadServiceRequests();
+            WindowUtil.showSuccessMsg(this, "已领取申请：" + request.getRequestId() + "（" + request.getServiceType() + "）");
+        } catch (Exception e) {
+            WindowUtil.showErrorMsg(this, "领取失败: " + e.getMessage());
         }
     }
 
@@ -657,6 +746,7 @@ public class CaregiverFrame extends JFrame {
      * @param keyword 搜索关键词
      */
     private void searchElders(String keyword) {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("CaregiverFrame", "searchElders");
         try {
             careTableModel.setRowCount(0);
             List<Elder> elders = elderService.queryElders(keyword);
@@ -673,6 +763,8 @@ public class CaregiverFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "搜索失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -695,7 +787,7 @@ public class CaregiverFrame extends JFrame {
         record.setElderId(elderId);
         record.setBloodPressure(bloodPressure);
         record.setHeartRate(heartRateInt);
-        record.setRecordTime(new Date());
+        record.setRecordTimeMillis(CachedClock.currentTimeMillis());
 
         healthRecordService.addHealthRecord(record);
 
@@ -714,7 +806,7 @@ public class CaregiverFrame extends JFrame {
 
         try {
             Elder elder = elderService.getElderById(elderId);
-            List<HealthRecord> records = healthRecordService.getRecordsByElderId(elderId);
+            List<HealthRecord> records = healthRecordService.getRecentRecordsByElderId(elderId);
 
             StringBuilder details = new StringBuilder();
             details.append("老人详细信息\n");
@@ -731,7 +823,7 @@ public class CaregiverFrame extends JFrame {
             } else {
                 for (int i = 0; i < Math.min(3, records.size()); i++) {
                     HealthRecord record = records.get(i);
-                    details.append(DateFormatUtil.formatDateTime(record.getRecordTime()))
+                    details.append(DateFormatUtil.formatDateTime(record.getRecordTimeMillis()))
                             .append(" 血压: ").append(record.getBloodPressure())
                             .append(" 心率: ").append(record.getHeartRate())
                             .append("\n");
@@ -758,12 +850,16 @@ public class CaregiverFrame extends JFrame {
 
         String requestId = (String) serviceTableModel.getValueAt(rowIndex, 0);
         String currentStatus = (String) serviceTableModel.getValueAt(rowIndex, 4);
+        String assignee = (String) serviceTableModel.getValueAt(rowIndex, 5);
+        String caregiverId = currentUser.getUserId();
 
         String[] options;
-        if ("待处理".equals(currentStatus)) {
-            options = new String[]{"开始处理", "标记完成", "查看详情"};
-        } else if ("处理中".equals(currentStatus)) {
-            options = new String[]{"标记完成", "取消申请", "查看详情"};
+        if ("待处理".equals(currentStatus) && "待派单".equals(assignee)) {
+            options = new String[]{"接单", "查看详情"};
+        } else if ("待处理".equals(currentStatus) && caregiverId.equals(assignee)) {
+            options = new String[]{"开始处理", "标记完成", "退单", "查看详情"};
+        } else if ("处理中".equals(currentStatus) && caregiverId.equals(assignee)) {
+            options = new String[]{"标记完成", "取消申请", "退单", "查看详情"};
         } else {
             options = new String[]{"查看详情"};
         }
@@ -782,9 +878,30 @@ public class CaregiverFrame extends JFrame {
             try {
                 String newStatus = currentStatus;
                 switch (action) {
+                    case "接单":
+                        if (!dispatchService.claim(requestId, caregiverId)) {
+                            WindowUtil.showErrorMsg(this, "接单失败：该申请已被其他护工接单或已处理");
+                            loadServiceRequests();
+                            return;
+                        }
+                        logAndRefreshServiceRequest(rowIndex, "已接单");
+                        return;
+                    case "退单":
+                        if (!dispatchService.release(requestId, caregiverId)) {
+                            WindowUtil.showErrorMsg(this, "退单失败：该申请已不在您的工作队列中");
+                            loadServiceRequests();
+                            return;
+                        }
+                        logAndRefreshServiceRequest(rowIndex, "已退单");
+                        return;
                     case "开始处理":
-                        newStatus = "处理中";
-                        break;
+                        if (!dispatchService.start(requestId, caregiverId)) {
+                            WindowUtil.showErrorMsg(this, "操作失败：该申请已不在您的工作队列中");
+                            loadServiceRequests();
+                            return;
+                        }
+                        logAndRefreshServiceRequest(rowIndex, "处理中");
+                        return;
                     case "标记完成":
                         newStatus = "已完成";
                         break;
@@ -796,17 +913,9 @@ public class CaregiverFrame extends JFrame {
                         return;
                 }
 
-                // 直接使用文件操作更新状态
-                boolean success = updateServiceRequestStatusInFile(requestId, newStatus);
+                boolean success = serviceRequestService.updateRequestStatus(requestId, newStatus);
                 if (success) {
-                    // 自动记录到工作日志
-                    String elderName = (String) serviceTableModel.getValueAt(rowIndex, 1);
-                    String serviceType = (String) serviceTableModel.getValueAt(rowIndex, 2);
-                    addServiceRequestToLog(elderName, serviceType, newStatus);
-
-                    // 刷新表格
-                    loadServiceRequests();
-                    WindowUtil.showSuccessMsg(this, "操作成功！状态已更新为: " + newStatus);
+                    logAndRefreshServiceRequest(rowIndex, newStatus);
                 } else {
                     WindowUtil.showErrorMsg(this, "操作失败：申请不存在");
                 }
@@ -816,21 +925,29 @@ public class CaregiverFrame extends JFrame {
         }
     }
 
+    /**
+     * 服务申请操作成功后记录工作日志并刷新表格
+     * @param rowIndex 表格行索引
+     * @param result 操作结果（新状态或接单/退单）
+     */
+    private void logAndRefreshServiceRequest(int rowIndex, String result) {
+        // 自动记录到工作日志
+        String elderName = (String) serviceTableModel.getValueAt(rowIndex, 1);
+        String serviceType = (String) serviceTableModel.getValueAt(rowIndex, 2);
+        addServiceRequestToLog(elderName, serviceType, result);
+
+        // 刷新表格
+        loadServiceRequests();
+        WindowUtil.showSuccessMsg(this, "操作成功！" + result);
+    }
+
     /**
      * 显示申请详情
      * @param requestId 申请ID
      */
     private void showRequestDetails(String requestId) {
         try {
-            List<ServiceRequest> requests = getServiceRequestsFromFile();
-            ServiceRequest targetRequest = null;
-
-            for (ServiceRequest request : requests) {
-                if (request.getRequestId().equals(requestId)) {
-                    targetRequest = request;
-                    break;
-                }
-            }
+            ServiceRequest targetRequest = serviceRequestService.getRequestById(requestId);
 
             if (targetRequest == null) {
                 JOptionPane.showMessageDialog(this,
@@ -849,8 +966,9 @@ public class CaregiverFrame extends JFrame {
             details.append("老人姓名: ").append(elder != null ? elder.getName() : "未知").append("\n");
             details.append("老人ID: ").append(targetRequest.getElderId()).append("\n");
             details.append("服务类型: ").append(targetRequest.getServiceType()).append("\n");
-            details.append("申请时间: ").append(DateFormatUtil.formatDateTime(targetRequest.getRequestTime())).append("\n");
-            details.append("当前状态: ").append(targetRequest.getStatus()).append("\n\n");
+            details.append("申请时间: ").append(DateFormatUtil.formatDateTime(targetRequest.getRequestTimeMillis())).append("\n");
+            details.append("当前状态: ").append(targetRequest.getStatus()).append("\n");
+            details.append("处理人: ").append(targetRequest.getAssigneeId() != null ? targetRequest.getAssigneeId() : "待派单").append("\n\n");
             details.append("申请内容:\n");
             details.append(targetRequest.getContent() != null ? targetRequest.getContent() : "无").append("\n");
 
@@ -878,30 +996,15 @@ public class CaregiverFrame extends JFrame {
             return;
         }
 
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("CaregiverFrame", "filterServiceRequests");
         try {
             serviceTableModel.setRowCount(0);
-            List<ServiceRequest> requests = getServiceRequestsFromFile();
-
-            for (ServiceRequest request : requests) {
-                if (status.equals(request.getStatus())) {
-                    try {
-                        Elder elder = elderService.getElderById(request.getElderId());
-                        Object[] row = {
-                                request.getRequestId(),
-                                elder != null ? elder.getName() : "未知",
-                                request.getServiceType(),
-                                DateFormatUtil.formatDateTime(request.getRequestTime()),
-                                request.getStatus(),
-                                "处理"
-                        };
-                        serviceTableModel.addRow(row);
-                    } catch (Exception ex) {
-                        // 跳过有问题的记录
-                    }
-                }
-            }
+            addServiceRequestRows(serviceRequestService.getRequestsByStatus(status));
+            updateServiceSummary();
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "筛选服务申请失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -926,7 +1029,7 @@ public class CaregiverFrame extends JFrame {
                 history.append("暂无健康记录\n");
             } else {
                 for (HealthRecord record : records) {
-                    history.append(DateFormatUtil.formatDateTime(record.getRecordTime()))
+                    history.append(DateFormatUtil.formatDateTime(record.getRecordTimeMillis()))
                             .append(" 血压: ").append(record.getBloodPressure())
                             .append(" 心率: ").append(record.getHeartRate())
                             .append("\n");
@@ -950,10 +1053,8 @@ public class CaregiverFrame extends JFrame {
      */
     private void initLogContent() {
         try {
-            // 尝试从文件加载今日日志
-            Map<String, String> logs = loadAllWorkLogs();
-            String today = DateFormatUtil.formatCurrentDate();
-            String todayLog = logs.get(today);
+            // 加载当前护工的今日日志
+            String todayLog = workLogService.getLog(currentUser.getUserId(), DateFormatUtil.formatCurrentDate());
 
             if (todayLog != null && !todayLog.trim().isEmpty()) {
                 logArea.setText(todayLog);
@@ -961,7 +1062,7 @@ public class CaregiverFrame extends JFrame {
                 logArea.setText(createDefaultLogTemplate());
             }
         } catch (Exception e) {
-            System.err.println("初始化日志失败: " + e.getMessage());
+            LOGGER.warn("初始化日志失败: {}", e.getMessage());
             logArea.setText(createDefaultLogTemplate());
         }
     }
@@ -1005,12 +1106,12 @@ public class CaregiverFrame extends JFrame {
      * 初始化自动保存定时器
      */
     private void initAutoSaveTimer() {
-        autoSaveTimer = new Timer(30000, e -> { // 30秒自动保存
-            if (isAutoSaveEnabled && logArea != null) {
+        autoSaveTimer = new Timer(30000, e -> { // 30秒自动保存（内容未修改时跳过）
+            if (isAutoSaveEnabled && logDirty && logArea != null) {
                 String content = logArea.getText().trim();
                 if (!content.isEmpty()) {
                     saveWorkLogToStorage(content);
-                    System.out.println("[" + DateFormatUtil.formatCurrentDateTime() + "] 工作日志自动保存完成");
+                    LOGGER.info("工作日志自动保存完成");
                 }
             }
         });
@@ -1032,7 +1133,7 @@ public class CaregiverFrame extends JFrame {
             return fullDateTime;
         } catch (Exception e) {
             // 如果出错，返回简单时间
-            return new SimpleDateFormat("HH:mm:ss").format(new Date());
+            return DateFormatUtil.formatCurrentDateTime("HH:mm:ss");
         }
     }
 
@@ -1069,52 +1170,20 @@ public class CaregiverFrame extends JFrame {
     }
 
     /**
-     * 保存工作日志到存储
+     * 保存工作日志到存储（按当前护工 + 今日保存，内容未变化时不写文件）
      * @param content 日志内容
      */
-    @SuppressWarnings("unchecked")
     private void saveWorkLogToStorage(String content) {
         try {
-            // 读取所有日志
-            Map<String, String> allLogs = new HashMap<>();
-            try {
-                Object data = DataStorageUtil.getData(WORK_LOG_KEY);
-                if (data != null) {
-                    allLogs = (Map<String, String>) data;
-                }
-            } catch (Exception e) {
-                System.err.println("读取日志数据失败: " + e.getMessage());
-            }
-
-            // 保存今日日志
-            String today = DateFormatUtil.formatCurrentDate();
-            allLogs.put(today, content);
-
-            // 保存到存储
-            DataStorageUtil.saveData(WORK_LOG_KEY, allLogs);
-
+            workLogService.saveLog(currentUser.getUserId(), DateFormatUtil.formatCurrentDate(), content);
+            logDirty = false;
         } catch (Exception e) {
-            System.err.println("保存工作日志失败: " + e.getMessage());
+            LOGGER.warn("保存工作日志失败: {}", e.getMessage());
             // 尝试备份到本地文件
             backupLogToFile(content);
         }
     }
 
-    /**
-     * 加载所有工作日志
-     * @return 日志映射表
-     */
-    @SuppressWarnings("unchecked")
-    private Map<String, String> loadAllWorkLogs() {
-        try {
-            Object data = DataStorageUtil.getData(WORK_LOG_KEY);
-            return data == null ? new HashMap<>() : (Map<String, String>) data;
-        } catch (Exception e) {
-            System.err.println("加载工作日志失败: " + e.getMessage());
-            return new HashMap<>();
-        }
-    }
-
     /**
      * 备份日志到本地文件
      * @param content 日志内容
@@ -1141,9 +1210,9 @@ public class CaregiverFrame extends JFrame {
                 writer.println(content);
             }
 
-            System.out.println("日志已备份到文件: " + file.getAbsolutePath());
+            LOGGER.info("日志已备份到文件: {}", file.getAbsolutePath());
         } catch (Exception e) {
-            System.err.println("备份日志到文件失败: " + e.getMessage());
+            LOGGER.warn("备份日志到文件失败: {}", e.getMessage());
         }
     }
 
@@ -1154,7 +1223,7 @@ public class CaregiverFrame extends JFrame {
      * @param heartRate 心率值
      */
     private void addHealthRecordToLog(String elderName, String bloodPressure, String heartRate) {
-        String currentTime = DateFormatUtil.formatDateTime(new Date());
+        String currentTime = DateFormatUtil.formatCurrentDateTime();
         String timePart = currentTime.substring(11); // 提取时间部分 "HH:mm:ss"
         String logEntry = "[" + timePart + "] " +
                 "为老人 " + elderName + " 记录健康数据：血压 " + bloodPressure + "，心率 " + heartRate;
@@ -1168,7 +1237,7 @@ public class CaregiverFrame extends JFrame {
      * @param newStatus 新状态
      */
     private void addServiceRequestToLog(String elderName, String serviceType, String newStatus) {
-        String currentTime = DateFormatUtil.formatDateTime(new Date());
+        String currentTime = DateFormatUtil.formatCurrentDateTime();
         String timePart = currentTime.substring(11); // 提取时间部分 "HH:mm:ss"
         String logEntry = "[" + timePart + "] " +
                 "处理 " + elderName + " 的 " + serviceType + " 申请，状态更新为：" + newStatus;
@@ -1209,7 +1278,7 @@ public class CaregiverFrame extends JFrame {
      */
     private void showLogHistory() {
         try {
-            Map<String, String> allLogs = loadAllWorkLogs();
+            Map<String, String> allLogs = workLogService.getLogsByCaregiver(currentUser.getUserId());
 
             if (allLogs.isEmpty()) {
                 JOptionPane.showMessageDialog(this,
@@ -1273,77 +1342,6 @@ public class CaregiverFrame extends JFrame {
         }
     }
 
-    /**
-     * 获取所有服务申请
-     * @return 服务申请列表
-     */
-    private List<ServiceRequest> getAllServiceRequests() {
-        return getServiceRequestsFromFile();
-    }
-
-    /**
-     * 从文件获取服务申请
-     * @return 服务申请列表
-     */
-    private List<ServiceRequest> getServiceRequestsFromFile() {
-        List<ServiceRequest> requests = new ArrayList<>();
-        try {
-            Object data = DataStorageUtil.getData("service_requests");
-            if (data != null) {
-                requests = (List<ServiceRequest>) data;
-                System.out.println("从文件读取了 " + requests.size() + " 个服务申请");
-            } else {
-                System.out.println("服务申请文件为空或不存在");
-            }
-        } catch (Exception e) {
-            System.err.println("从文件读取服务申请失败: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return requests;
-    }
-
-    /**
-     * 在文件中更新服务申请状态
-     * @param requestId 申请ID
-     * @param newStatus 新状态
-     * @return true-更新成功，false-更新失败
-     */
-    private boolean updateServiceRequestStatusInFile(String requestId, String newStatus) {
-        try {
-            // 读取所有服务申请
-            List<ServiceRequest> allRequests = getServiceRequestsFromFile();
-            System.out.println("从文件读取到 " + allRequests.size() + " 个申请");
-
-            // 查找并更新指定的申请
-            boolean found = false;
-            for (ServiceRequest request : allRequests) {
-                if (request.getRequestId().equals(requestId)) {
-                    System.out.println("找到申请: " + requestId +
-                            ", 旧状态: " + request.getStatus() +
-                            ", 新状态: " + newStatus);
-                    request.setStatus(newStatus);
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found) {
-                System.err.println("未找到申请: " + requestId);
-                return false;
-            }
-
-            // 保存回文件
-            DataStorageUtil.saveData("service_requests", allRequests);
-            System.out.println("申请状态已更新并保存到文件");
-
-            return true;
-        } catch (Exception e) {
-            System.err.println("文件操作更新状态失败: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
-
     /**
      * 显示修改密码对话框
      */
@@ -1395,159 +1393,32 @@ public class CaregiverFrame extends JFrame {
                 return;
             }
 
-            try {
-                // 调用用户服务验证并修改密码
-                boolean success = changePassword(currentUser.getUserId(), oldPassword, newPassword);
-
-                if (success) {
-                    WindowUtil.showSuccessMsg(this, "密码修改成功！请重新登录。");
-
-                    // 密码修改成功后，保存日志并退出
-                    if (logArea != null) {
-                        String content = logArea.getText().trim();
-                        if (!content.isEmpty()) {
-                            saveWorkLogToStorage(content);
-                        }
-                    }
+            // 调用用户服务验证并修改密码（会话校验 + 一次哈希，后台线程执行）
+            WindowUtil.runInBackground(() -> {
+                UserService.getInstance().changePassword(currentUser.getSessionToken(), oldPassword, newPassword);
+                return null;
+            }, ignored -> {
+                addPasswordChangeToLog();
+                WindowUtil.showSuccessMsg(this, "密码修改成功！请重新登录。");
 
-                    // 停止定时器
-                    if (autoSaveTimer != null) {
-                        autoSaveTimer.stop();
+                // 密码修改成功后，保存日志并退出
+                if (logArea != null) {
+                    String content = logArea.getText().trim();
+                    if (!content.isEmpty()) {
+                        saveWorkLogToStorage(content);
                     }
-
-                    // 返回登录界面
-                    dispose();
-                    new LoginFrame().setVisible(true);
-                } else {
-                    WindowUtil.showErrorMsg(this, "原密码错误或修改失败！");
                 }
-            } catch (Exception e) {
-                WindowUtil.showErrorMsg(this, "修改密码失败: " + e.getMessage());
-            }
-        }
-    }
 
-    /**
-     * 修改密码
-     * @param userId 用户ID
-     * @param oldPassword 原密码
-     * @param newPassword 新密码
-     * @return true-修改成功，false-修改失败
-     */
-    private boolean changePassword(String userId, String oldPassword, String newPassword) {
-        try {
-            // 获取 UserService 实例
-            UserService userService = UserService.getInstance();
-
-            // 先验证原密码（通过登录方式验证）
-            try {
-                User user = userService.login(userId, oldPassword);
-                if (user == null) {
-                    return false;
-                }
-            } catch (Exception e) {
-                System.err.println("原密码验证失败: " + e.getMessage());
-                return false;
-            }
-
-            // 更新密码
-            return updateUserPassword(userService, userId, newPassword);
-
-        } catch (Exception e) {
-            System.err.println("修改密码过程出错: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
-
-    /**
-     * 更新用户密码
-     * @param userService 用户服务实例
-     * @param userId 用户ID
-     * @param newPassword 新密码
-     * @return true-更新成功，false-更新失败
-     */
-    private boolean updateUserPassword(UserService userService, String userId, String newPassword) {
-        try {
-            // 读取所有用户
-            List<User> allUsers = userService.getAllUsers();
-
-            // 查找当前用户并更新密码
-            boolean found = false;
-            for (User user : allUsers) {
-                if (user.getUserId().equals(userId)) {
-                    user.setPassword(newPassword);
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found) {
-                WindowUtil.showErrorMsg(this, "用户不存在！");
-                return false;
-            }
-
-            // 保存用户数据
-            saveUsersToFile(allUsers);
-
-            // 记录到工作日志
-            addPasswordChangeToLog();
-
-            return true;
-
-        } catch (Exception e) {
-            System.err.println("更新用户密码失败: " + e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * 保存用户数据到文件
-     * @param users 用户列表
-     */
-    private void saveUsersToFile(List<User> users) {
-        try {
-            // 使用 DataStorageUtil 保存用户数据
-            DataStorageUtil.saveData("users", users);
-            System.out.println("用户密码已更新并保存");
-        } catch (Exception e) {
-            System.err.println("保存用户数据失败: " + e.getMessage());
-            // 尝试备用方法
-            saveUsersToBackupFile(users);
-        }
-    }
-
-    /**
-     * 保存用户数据到备份文件
-     * @param users 用户列表
-     */
-    private void saveUsersToBackupFile(List<User> users) {
-        try {
-            // 创建备份目录
-            java.io.File backupDir = new java.io.File("user_backup");
-            if (!backupDir.exists()) {
-                backupDir.mkdirs();
-            }
-
-            // 生成文件名
-            String filename = "users_backup_" + DateFormatUtil.formatCurrentDate() + ".txt";
-            java.io.File file = new java.io.File(backupDir, filename);
-
-            // 写入文件（注意：实际项目中应该加密存储）
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(file)) {
-                writer.println("用户数据备份 - " + DateFormatUtil.formatCurrentDateTime());
-                writer.println("==========================");
-                for (User user : users) {
-                    writer.println("用户ID: " + user.getUserId() + ", 角色: " + user.getRole());
-                    // 注意：实际项目中不应该明文存储密码
-                    writer.println("密码: [已加密]");
-                    writer.println("---");
+                // 停止定时器
+                if (autoSaveTimer != null) {
+                    autoSaveTimer.stop();
                 }
-            }
 
-            System.out.println("用户数据已备份到文件: " + file.getAbsolutePath());
-        } catch (Exception e) {
-            System.err.println("备份用户数据失败: " + e.getMessage());
+                // 返回登录界面
+                UserService.getInstance().logout(currentUser.getSessionToken());
+                dispose();
+                new LoginFrame().setVisible(true);
+            }, e -> WindowUtil.showErrorMsg(this, "修改密码失败: " + e.getMessage()));
         }
     }
 
@@ -10,8 +10,12 @@ import com.eldercare.service.ReportService;
 import com.eldercare.service.ServiceRequestService;
 import com.eldercare.service.UserService;
 import com.eldercare.util.DateFormatUtil;
+import com.eldercare.util.JfrEvents;
 import com.eldercare.util.WindowUtil;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellEditor;
@@ -28,6 +32,7 @@ import java.io.IOException;
  * 功能：提供老人用户的各项功能，包括健康记录查看、服务申请、活动报名等
  */
 public class ElderFrame extends JFrame {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElderFrame.class);
     // 当前登录用户
     private User currentUser;
 
@@ -189,6 +194,7 @@ public class ElderFrame extends JFrame {
      * @param listModel 列表模型
      */
     private void loadCommunityMessages(DefaultListModel<CommunityMessage> listModel) {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("ElderFrame", "loadCommunityMessages");
         try {
             listModel.clear();
             List<CommunityMessage> messages = CommunityService.getInstance().getAllMessages();
@@ -197,6 +203,8 @@ public class ElderFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载消息失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -241,7 +249,7 @@ public class ElderFrame extends JFrame {
             contentArea.setText(message.getContent());
             contentArea.setFont(new Font("微软雅黑", Font.PLAIN, 14));
 
-            timeLabel.setText(DateFormatUtil.formatDateTime(message.getCreateTime()));
+            timeLabel.setText(DateFormatUtil.formatDateTime(message.getCreateTimeMillis()));
             timeLabel.setFont(new Font("微软雅黑", Font.PLAIN, 10));
             timeLabel.setForeground(Color.GRAY);
 
@@ -269,7 +277,7 @@ public class ElderFrame extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        JLabel titleLabel = new JLabel("我的健康记录", SwingConstants.CENTER);
+        JLabel titleLabel = new JLabel("我的近期健康记录（完整记录请导出）", SwingConstants.CENTER);
         titleLabel.setFont(new Font("微软雅黑", Font.BOLD, 16));
         panel.add(titleLabel, BorderLayout.NORTH);
 
@@ -281,7 +289,7 @@ public class ElderFrame extends JFrame {
 
         // 加载健康记录数据
         try {
-            var records = healthRecordService.getRecordsByElderId(currentUser.getUserId());
+            var records = healthRecordService.getRecentRecordsByElderId(currentUser.getUserId());
             for (var record : records) {
                 Object[] row = {
                         record.getRecordTime(),
@@ -397,31 +405,41 @@ public class ElderFrame extends JFrame {
      * 加载活动数据到表格
      */
     private void loadActivities() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("ElderFrame", "loadActivities");
         try {
             DefaultTableModel model = (DefaultTableModel) activityTable.getModel();
             model.setRowCount(0);
 
-            var activities = activityService.getAllActivities();
+            // 只显示尚未结束的活动（按开始时间排序）
+            var activities = activityService.getUpcomingActivities();
             // 获取当前老人信息
             Elder currentElder = getCurrentElder();
             String elderId = currentElder != null ? currentElder.getElderId() : currentUser.getUserId();
             
             for (var activity : activities) {
-                // 检查当前老人是否已报名
-                boolean isRegistered = activity.getRegisteredElderIds().contains(elderId);
-                String buttonText = isRegistered ? "取消报名" : "报名";
+                // 检查当前老人是否已报名/候补
+                String buttonText = activity.isRegistered(elderId) ? "取消报名"
+                        : activity.isWaitlisted(elderId) ? "取消候补" : "报名";
+                String registeredText = activity.getCapacity() > 0
+                        ? activity.getRegisteredCount() + "/" + activity.getCapacity()
+                        : String.valueOf(activity.getRegisteredCount());
+                if (activity.getWaitlistCount() > 0) {
+                    registeredText += "（候补" + activity.getWaitlistCount() + "）";
+                }
 
                 Object[] row = {
                         activity.getName(),
                         activity.getTime(),
                         activity.getLocation(),
-                        activity.getRegisteredElderIds().size(),
+                        registeredText,
                         buttonText
                 };
                 model.addRow(row);
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载活动失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -675,15 +693,28 @@ public class ElderFrame extends JFrame {
             return;
         }
 
-        // 检查是否已报名
+        // 检查是否已报名（含候补）
         if (isAlreadyRegistered(activityId, currentElder.getElderId())) {
             // 已报名则询问是否取消
             if (WindowUtil.showConfirmMsg(this, "您已报名该活动，是否取消报名？", "取消报名确认")) {
                 cancelActivityRegistration(activityId, currentElder.getElderId());
             }
         } else {
-            // 未报名则询问是否报名
-            if (WindowUtil.showConfirmMsg(this, "确定要报名参加 " + activityName + " 吗？", "报名确认")) {
+            // 未报名则询问是否报名（与已报名活动时间冲突时一并提示）
+            String confirmText = "确定要报名参加 " + activityName + " 吗？";
+            try {
+                List<Activity> conflicts = activityService.findScheduleConflicts(currentElder.getElderId(), activityId);
+                if (!conflicts.isEmpty()) {
+                    StringBuilder sb = new StringBuilder("注意：该活动与您已报名的以下活动时间冲突：\n");
+                    for (Activity conflict : conflicts) {
+                        sb.append("• ").append(conflict.getName()).append("（").append(conflict.getTime()).append("）\n");
+                    }
+                    confirmText = sb.append("\n").append(confirmText).toString();
+                }
+            } catch (Exception e) {
+                LOGGER.warn("检查活动时间冲突失败: {}", e.getMessage());
+            }
+            if (WindowUtil.showConfirmMsg(this, confirmText, "报名确认")) {
                 registerForActivity(activityId, currentElder.getElderId());
             }
         }
@@ -696,12 +727,13 @@ public class ElderFrame extends JFrame {
      */
     private void registerForActivity(String activityId, String elderId) {
         try {
-            boolean success = activityService.registerActivity(activityId, elderId);
-            if (success) {
-                WindowUtil.showSuccessMsg(this, "活动报名成功！");
+            ActivityService.RegistrationResult result = activityService.register(activityId, elderId);
+            if (result == ActivityService.RegistrationResult.REGISTERED
+                    || result == ActivityService.RegistrationResult.WAITLISTED) {
+                WindowUtil.showSuccessMsg(this, "活动" + result.getMessage() + "！");
                 loadActivities();  // 刷新活动列表
             } else {
-                WindowUtil.showErrorMsg(this, "报名失败，可能已满或已报名");
+                WindowUtil.showErrorMsg(this, "报名失败：" + result.getMessage());
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "报名失败: " + e.getMessage());
@@ -741,7 +773,7 @@ public class ElderFrame extends JFrame {
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("根据活动名称查询活动ID失败：{}", activityName, e);
         }
         return null;
     }
@@ -752,31 +784,30 @@ public class ElderFrame extends JFrame {
      */
     private Elder getCurrentElder() {
         try {
-            System.out.println("[Debug-ElderFrame] 开始获取当前老人信息");
-            System.out.println("[Debug-ElderFrame] currentUser是否为null: " + (currentUser == null));
+            LOGGER.debug("开始获取当前老人信息");
+            LOGGER.debug("currentUser是否为null: {}", currentUser == null);
             if (currentUser != null) {
-                System.out.println("[Debug-ElderFrame] currentUser的用户ID: '" + currentUser.getUserId() + "'");
-                System.out.println("[Debug-ElderFrame] currentUser的角色: '" + currentUser.getRole() + "'");
+                LOGGER.debug("currentUser的用户ID: '{}'", currentUser.getUserId());
+                LOGGER.debug("currentUser的角色: '{}'", currentUser.getRole());
                 
                 String userId = currentUser.getUserId();
-                System.out.println("[Debug-ElderFrame] userId是否为null: " + (userId == null));
+                LOGGER.debug("userId是否为null: {}", userId == null);
                 if (userId != null) {
-                    System.out.println("[Debug-ElderFrame] userId内容: '" + userId + "'");
-                    System.out.println("[Debug-ElderFrame] userId长度: " + userId.length());
-                    System.out.println("[Debug-ElderFrame] userId.trim()后内容: '" + userId.trim() + "'");
-                    System.out.println("[Debug-ElderFrame] userId.trim()后长度: " + userId.trim().length());
+                    LOGGER.debug("userId内容: '{}'", userId);
+                    LOGGER.debug("userId长度: {}", userId.length());
+                    LOGGER.debug("userId.trim()后内容: '{}'", userId.trim());
+                    LOGGER.debug("userId.trim()后长度: {}", userId.trim().length());
                 }
                 
                 Elder elder = ElderService.getInstance().getElderByUserId(currentUser.getUserId());
-                System.out.println("[Debug-ElderFrame] 获取老人信息结果: " + (elder != null ? elder.getName() : "null"));
+                LOGGER.debug("获取老人信息结果: {}", elder != null ? elder.getName() : "null");
                 return elder;
             } else {
-                System.err.println("[Debug-ElderFrame] currentUser为null");
+                LOGGER.warn("currentUser为null");
                 return null;
             }
         } catch (Exception e) {
-            System.err.println("[Debug-ElderFrame] 获取老人信息失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("获取老人信息失败", e);
             return null;
         }
     }
@@ -785,12 +816,12 @@ public class ElderFrame extends JFrame {
      * 检查老人是否已报名活动
      * @param activityId 活动ID
      * @param elderId 老人ID
-     * @return true-已报名，false-未报名
+     * @return true-已报名或已候补，false-未报名
      */
     private boolean isAlreadyRegistered(String activityId, String elderId) {
         try {
             Activity activity = activityService.getActivityById(activityId);
-            return activity != null && activity.getRegisteredElderIds().contains(elderId);
+            return activity != null && (activity.isRegistered(elderId) || activity.isWaitlisted(elderId));
         } catch (Exception e) {
             return false;
         }
@@ -869,20 +900,14 @@ public class ElderFrame extends JFrame {
                 return;
             }
 
-            try {
-                // 验证原密码是否正确
-                User user = UserService.getInstance().login(currentUser.getUserId(), oldPassword);
-                if (user != null) {
-                    // 修改密码
-                    UserService.getInstance().updateUserPassword(currentUser.getUserId(), newPassword);
-                    WindowUtil.showSuccessMsg(this, "密码修改成功");
-                    dialog.dispose();
-                } else {
-                    WindowUtil.showErrorMsg(dialog, "原密码错误");
-                }
-            } catch (Exception ex) {
-                WindowUtil.showErrorMsg(dialog, "修改密码失败: " + ex.getMessage());
-            }
+            // 通过会话令牌校验身份，仅对原密码做一次哈希校验（后台线程执行）
+            WindowUtil.runInBackground(() -> {
+                UserService.getInstance().changePassword(currentUser.getSessionToken(), oldPassword, newPassword);
+                return null;
+            }, ignored -> {
+                WindowUtil.showSuccessMsg(this, "密码修改成功");
+                dialog.dispose();
+            }, ex -> WindowUtil.showErrorMsg(dialog, "修改密码失败: " + ex.getMessage()));
         });
 
         cancelBtn.addActionListener(e -> dialog.dispose());
@@ -1185,7 +1210,7 @@ public class ElderFrame extends JFrame {
     private void updateElderInfo(Elder elder) throws IOException, ClassNotFoundException {
         ElderService elderService = ElderService.getInstance();
         elderService.updateElder(elder);
-        System.out.println("[ElderFrame] 老人信息更新成功：" + elder.getElderId());
+        LOGGER.info("老人信息更新成功：{}", elder.getElderId());
     }
     
     /**
@@ -5,35 +5,38 @@ import com.eldercare.model.Elder;
 import com.eldercare.model.ServiceRequest;
 import com.eldercare.model.User;
 import com.eldercare.model.Activity;
+import com.eldercare.model.ChangeEvent;
 import com.eldercare.model.HealthRecord;
 import com.eldercare.service.*;
+import com.eldercare.util.ChangeEventBus;
+import com.eldercare.util.JfrEvents;
 import com.eldercare.util.WindowUtil;
 import com.eldercare.util.InputValidator;
-import com.eldercare.util.DataStorageUtil;
 import com.eldercare.util.DateFormatUtil;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Map;
 
 /**
  * 家属用户主界面
  * 功能：提供家属用户的各项功能，包括关联老人管理、服务申请、消息通知、活动报名等
  */
 public class FamilyFrame extends JFrame {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FamilyFrame.class);
     // 当前登录用户
     private User currentUser;
     // 关联老人统计标签
     private JLabel elderCountLabel;
-    // 家属-老人关系存储键
-    private static final String FAMILY_ELDER_RELATIONS_KEY = "family_elder_relations";
     
     // 窗口默认大小
     private static final int DEFAULT_WIDTH = 900;
@@ -45,6 +48,7 @@ public class FamilyFrame extends JFrame {
     private HealthRecordService healthRecordService;
     private ActivityService activityService;
     private UserService userService;
+    private RelationService relationService;
 
     // UI组件
     private JTabbedPane tabbedPane;
@@ -63,8 +67,10 @@ public class FamilyFrame extends JFrame {
     private JButton refreshMessagesButton;
     private JButton clearMessagesButton;
 
-    // 家属-老人关系映射
-    private java.util.Map<String, List<String>> familyElderRelations = new java.util.HashMap<>();
+    // 老人健康预警、服务申请更新等通知的监听器（窗口关闭时注销）
+    private final java.util.function.Consumer<String> familyNotificationListener = this::onFamilyNotification;
+    // 数据被其他程序实例修改时刷新对应列表（窗口关闭时注销）
+    private final java.util.function.Consumer<ChangeEvent> reloadListener = this::onDataReloaded;
 
     // 活动相关组件
     private JTable activityTable;
@@ -81,12 +87,14 @@ public class FamilyFrame extends JFrame {
         healthRecordService = HealthRecordService.getInstance();
         activityService = ActivityService.getInstance();
         userService = UserService.getInstance();
+        relationService = RelationService.getInstance();
 
         // 调试信息
-        System.out.println("创建FamilyFrame，用户: " + currentUser.getUserId());
+        LOGGER.debug("创建FamilyFrame，用户: {}", currentUser.getUserId());
 
-        // 初始化家庭-老人关系
-        initFamilyElderRelations();
+        // 订阅关联老人的通知
+        relationService.addFamilyListener(currentUser.getUserId(), familyNotificationListener);
+        ChangeEventBus.subscribe(reloadListener);
 
         initComponents();
         setupLayout();
@@ -100,53 +108,44 @@ public class FamilyFrame extends JFrame {
     }
 
     /**
-     * 初始化家属-老人关系
+     * 收到关联老人的通知（可能在后台线程中调用，切换到界面线程追加消息）
+     * @param message 通知内容
      */
-    private void initFamilyElderRelations() {
-        try {
-            // 从文件加载家属-老人关系
-            Object data = DataStorageUtil.getData(FAMILY_ELDER_RELATIONS_KEY);
-            if (data != null) {
-                familyElderRelations = (java.util.Map<String, List<String>>) data;
-                System.out.println("已加载家属-老人关系: " + familyElderRelations);
-            } else {
-                familyElderRelations = new java.util.HashMap<>();
-                System.out.println("创建新的家属-老人关系映射");
-                
-                // 初始化示例数据
-                List<String> sampleElderIds = new ArrayList<>();
-                sampleElderIds.add("ELDER_001");
-                sampleElderIds.add("ELDER_002");
-                familyElderRelations.put("wzx1234", sampleElderIds); 
-            }
-            
-            // 确保当前用户有对应的条目
-            if (!familyElderRelations.containsKey(currentUser.getUserId())) {
-                familyElderRelations.put(currentUser.getUserId(), new ArrayList<>());
-                saveFamilyElderRelations();
-            }
-            
-        } catch (Exception e) {
-            System.err.println("加载家属-老人关系失败: " + e.getMessage());
-            familyElderRelations = new java.util.HashMap<>();
-            // 初始化当前用户
-            familyElderRelations.put(currentUser.getUserId(), new ArrayList<>());
-        }
+    private void onFamilyNotification(String message) {
+        SwingUtilities.invokeLater(() ->
+                messageArea.append("\n" + DateFormatUtil.formatCurrentDateTime() + " " + message + "\n"));
     }
 
     /**
-     * 保存家属-老人关系到文件
+     * 数据文件被其他实例修改并重新加载后刷新相关列表（在监视线程中调用，切换到界面线程刷新）
      */
-    private void saveFamilyElderRelations() {
-        try {
-            DataStorageUtil.saveData(FAMILY_ELDER_RELATIONS_KEY, familyElderRelations);
-            System.out.println("家属-老人关系已保存: " + familyElderRelations);
-        } catch (IOException e) {
-            System.err.println("保存家属-老人关系失败: " + e.getMessage());
-            e.printStackTrace();
+    private void onDataReloaded(ChangeEvent event) {
+        if (event.getOperation() != ChangeEvent.Operation.RELOAD) {
+            return;
+        }
+        switch (event.getEntityType()) {
+            case ChangeEvent.ELDERS:
+            case ChangeEvent.RELATIONS:
+                SwingUtilities.invokeLater(this::loadElders);
+                break;
+            case ChangeEvent.SERVICE_REQUESTS:
+                SwingUtilities.invokeLater(this::loadServiceRequests);
+                break;
+            case ChangeEvent.ACTIVITIES:
+                SwingUtilities.invokeLater(this::refreshActivityPanel);
+                break;
+            default:
+                break;
         }
     }
 
+    @Override
+    public void dispose() {
+        relationService.removeFamilyListener(currentUser.getUserId(), familyNotificationListener);
+        ChangeEventBus.unsubscribe(reloadListener);
+        super.dispose();
+    }
+
     /**
      * 初始化所有组件
      */
@@ -159,15 +158,12 @@ public class FamilyFrame extends JFrame {
             @Override
             public void windowClosing(java.awt.event.WindowEvent windowEvent) {
                 try {
-                    // 保存所有数据
-                    saveFamilyElderRelations();
-                    System.out.println("窗口关闭，数据已保存");
-                    
+                    // 家属-老人关系在变更时已由RelationService保存
                     // 返回登录界面
                     dispose();
                     new LoginFrame().setVisible(true);
                 } catch (Exception e) {
-                    System.err.println("保存数据失败: " + e.getMessage());
+                    LOGGER.warn("保存数据失败: {}", e.getMessage());
                 }
             }
         });
@@ -490,12 +486,14 @@ public class FamilyFrame extends JFrame {
      * @param activityTableModel 活动表格模型
      */
     private void loadActivityData(DefaultTableModel activityTableModel) {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("FamilyFrame", "loadActivityData");
         try {
             activityTableModel.setRowCount(0); // 清空现有数据
             List<Elder> myElders = getMyElders();
-            List<Activity> activities = activityService.getAllActivities();
+            // 只显示尚未结束的活动（按开始时间排序）
+            List<Activity> activities = activityService.getUpcomingActivities();
             
-            System.out.println("加载活动数据 - 关联老人数: " + myElders.size() + ", 活动数: " + activities.size());
+            LOGGER.debug("加载活动数据 - 关联老人数: {}, 活动数: {}", myElders.size(), activities.size());
             
             if (myElders.isEmpty()) {
                 messageArea.append("您还没有关联任何老人，无法查看活动\n");
@@ -508,12 +506,13 @@ public class FamilyFrame extends JFrame {
             }
             
             for (Activity activity : activities) {
-                System.out.println("活动: " + activity.getName() + ", 已报名老人: " + activity.getRegisteredElderIds());
+                LOGGER.debug("活动: {}, 已报名老人: {}", activity.getName(), activity.getRegisteredElderIds());
                 for (Elder elder : myElders) {
-                    boolean isRegistered = activity.getRegisteredElderIds().contains(elder.getElderId());
-                    System.out.println("老人 " + elder.getName() + " 是否报名: " + isRegistered);
+                    boolean isRegistered = activity.isRegistered(elder.getElderId());
+                    LOGGER.debug("老人 {} 是否报名: {}", elder.getName(), isRegistered);
                     
-                    String registrationStatus = isRegistered ? "已报名" : "未报名";
+                    String registrationStatus = isRegistered ? "已报名"
+                            : activity.isWaitlisted(elder.getElderId()) ? "候补中" : "未报名";
                     
                     Object[] row = {
                         activity.getActivityId(),
@@ -522,7 +521,7 @@ public class FamilyFrame extends JFrame {
                         activity.getLocation(),
                         elder.getName(),
                         registrationStatus,
-                        registrationStatus.equals("已报名") ? "取消报名" : "报名"
+                        registrationStatus.equals("未报名") ? "报名" : "取消报名"
                     };
                     activityTableModel.addRow(row);
                 }
@@ -532,7 +531,9 @@ public class FamilyFrame extends JFrame {
         } catch (Exception e) {
             messageArea.append("加载活动失败: " + e.getMessage() + "\n");
             JOptionPane.showMessageDialog(this, "加载活动失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("加载活动失败", e);
+        } finally {
+            trace.commit();
         }
     }
 
@@ -557,7 +558,7 @@ public class FamilyFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "刷新活动失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("刷新活动失败", e);
         }
     }
 
@@ -618,44 +619,35 @@ public class FamilyFrame extends JFrame {
      * @return 关联的老人列表
      */
     private List<Elder> getMyElders() {
-        List<Elder> myElders = new ArrayList<>();
         try {
-            List<String> elderIds = familyElderRelations.get(currentUser.getUserId());
-            System.out.println("当前用户ID: " + currentUser.getUserId()); // 调试
-            System.out.println("关联的老人ID列表: " + elderIds); // 调试
-            
-            if (elderIds != null) {
-                for (String elderId : elderIds) {
-                    System.out.println("正在加载老人: " + elderId); // 调试
-                    Elder elder = elderService.getElderById(elderId);
-                    if (elder != null) {
-                        System.out.println("找到老人: " + elder.getName()); // 调试
-                        myElders.add(elder);
-                    } else {
-                        System.out.println("未找到老人: " + elderId); // 调试
-                    }
-                }
-            } else {
-                System.out.println("elderIds为null"); // 调试
-            }
-            
-            System.out.println("最终返回老人数量: " + myElders.size()); // 调试
+            return relationService.getEldersByFamily(currentUser.getUserId());
         } catch (Exception e) {
-            System.err.println("获取关联老人失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("获取关联老人失败", e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 老人ID列表（批量查询用）
+     */
+    private static List<String> elderIdsOf(List<Elder> elders) {
+        List<String> elderIds = new ArrayList<>(elders.size());
+        for (Elder elder : elders) {
+            elderIds.add(elder.getElderId());
         }
-        return myElders;
+        return elderIds;
     }
 
     /**
      * 加载关联老人列表
      */
     private void loadElders() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("FamilyFrame", "loadElders");
         try {
             elderTableModel.setRowCount(0); // 清空表格
             List<Elder> myElders = getMyElders();
             
-            System.out.println("加载关联老人，数量: " + myElders.size()); // 调试信息
+            LOGGER.debug("加载关联老人，数量: {}", myElders.size());
             
             for (Elder elder : myElders) {
                 Object[] row = {
@@ -672,16 +664,18 @@ public class FamilyFrame extends JFrame {
             // 更新统计标签
             if (elderCountLabel != null) {
                 elderCountLabel.setText("关联老人总数: " + myElders.size());
-                System.out.println("已更新统计标签: " + myElders.size()); // 调试信息
+                LOGGER.debug("已更新统计标签: {}", myElders.size());
             } else {
-                System.out.println("elderCountLabel为null"); // 调试信息
+                LOGGER.debug("elderCountLabel为null");
             }
             
             WindowUtil.showSuccessMsg(this, "老人列表刷新成功，共" + myElders.size() + "位老人");
             
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载老人信息失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("加载老人信息失败", e);
+        } finally {
+            trace.commit();
         }
     }
 
@@ -689,13 +683,15 @@ public class FamilyFrame extends JFrame {
      * 加载服务申请列表
      */
     private void loadServiceRequests() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("FamilyFrame", "loadServiceRequests");
         try {
             requestTableModel.setRowCount(0);
             List<Elder> myElders = getMyElders();
             
             int totalCount = 0;
+            Map<String, List<ServiceRequest>> requestsByElder = serviceRequestService.getRequestsByElderIds(elderIdsOf(myElders));
             for (Elder elder : myElders) {
-                List<ServiceRequest> requests = serviceRequestService.getRequestsByElderId(elder.getElderId());
+                List<ServiceRequest> requests = requestsByElder.get(elder.getElderId());
                 for (ServiceRequest request : requests) {
                     String content = request.getContent();
                     // 内容过长时截断显示
@@ -708,9 +704,9 @@ public class FamilyFrame extends JFrame {
                         elder.getName(),
                         request.getServiceType(),
                         content,
-                        DateFormatUtil.formatDateTime(request.getRequestTime()),
+                        DateFormatUtil.formatDateTime(request.getRequestTimeMillis()),
                         request.getStatus(),
-                        "护工001" // 应从服务申请中获取处理人信息
+                        request.getAssigneeId() != null ? request.getAssigneeId() : "待派单"
                     };
                     requestTableModel.addRow(row);
                     totalCount++;
@@ -720,6 +716,8 @@ public class FamilyFrame extends JFrame {
             messageArea.append("加载了 " + totalCount + " 条服务申请记录\n");
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载服务申请失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -733,12 +731,14 @@ public class FamilyFrame extends JFrame {
             return;
         }
         
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("FamilyFrame", "filterRequestsByStatus");
         try {
             requestTableModel.setRowCount(0);
             List<Elder> myElders = getMyElders();
             
+            Map<String, List<ServiceRequest>> requestsByElder = serviceRequestService.getRequestsByElderIds(elderIdsOf(myElders));
             for (Elder elder : myElders) {
-                List<ServiceRequest> requests = serviceRequestService.getRequestsByElderId(elder.getElderId());
+                List<ServiceRequest> requests = requestsByElder.get(elder.getElderId());
                 for (ServiceRequest request : requests) {
                     if (status.equals(request.getStatus())) {
                         String content = request.getContent();
@@ -751,9 +751,9 @@ public class FamilyFrame extends JFrame {
                             elder.getName(),
                             request.getServiceType(),
                             content,
-                            DateFormatUtil.formatDateTime(request.getRequestTime()),
+                            DateFormatUtil.formatDateTime(request.getRequestTimeMillis()),
                             request.getStatus(),
-                            "护工001"
+                            request.getAssigneeId() != null ? request.getAssigneeId() : "待派单"
                         };
                         requestTableModel.addRow(row);
                     }
@@ -761,6 +761,8 @@ public class FamilyFrame extends JFrame {
             }
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "筛选服务申请失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -768,6 +770,7 @@ public class FamilyFrame extends JFrame {
      * 加载消息通知
      */
     private void loadMessages() {
+        JfrEvents.UiRefreshEvent trace = JfrEvents.beginUiRefresh("FamilyFrame", "loadMessages");
         try {
             messageArea.setText("");
             messageArea.append("=== 系统消息和通知 ===\n");
@@ -791,8 +794,9 @@ public class FamilyFrame extends JFrame {
             int pendingCount = 0;
             int completedCount = 0;
             
+            Map<String, List<ServiceRequest>> requestsByElder = serviceRequestService.getRequestsByElderIds(elderIdsOf(myElders));
             for (Elder elder : myElders) {
-                List<ServiceRequest> requests = serviceRequestService.getRequestsByElderId(elder.getElderId());
+                List<ServiceRequest> requests = requestsByElder.get(elder.getElderId());
                 for (ServiceRequest request : requests) {
                     if ("待处理".equals(request.getStatus())) {
                         pendingCount++;
@@ -806,9 +810,9 @@ public class FamilyFrame extends JFrame {
             messageArea.append("已完成申请: " + completedCount + " 条\n");
             
             // 加载活动通知
-            messageArea.append("\n=== 活动通知 ===\n");
+            messageArea.append("\n=== 活动通知（未来7天） ===\n");
             try {
-                List<Activity> activities = activityService.getAllActivities();
+                List<Activity> activities = activityService.getUpcomingActivities(7);
                 for (Activity activity : activities) {
                     messageArea.append("• " + activity.getName() + " (" + activity.getTime() + ")\n");
                 }
@@ -819,6 +823,8 @@ public class FamilyFrame extends JFrame {
             WindowUtil.showSuccessMsg(this, "消息刷新成功");
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "加载消息失败: " + e.getMessage());
+        } finally {
+            trace.commit();
         }
     }
 
@@ -958,25 +964,20 @@ public class FamilyFrame extends JFrame {
      * @return true-已关联，false-未关联
      */
     private boolean isElderAssociated(String elderId) {
-        List<String> myElderIds = familyElderRelations.get(currentUser.getUserId());
-        return myElderIds != null && myElderIds.contains(elderId);
+        try {
+            return relationService.isAssociated(currentUser.getUserId(), elderId);
+        } catch (Exception e) {
+            LOGGER.warn("查询关联关系失败: {}", e.getMessage());
+            return false;
+        }
     }
     
     /**
      * 关联老人
      * @param elderId 老人ID
      */
-    private void associateElder(String elderId) {
-        List<String> myElderIds = familyElderRelations.get(currentUser.getUserId());
-        if (myElderIds == null) {
-            myElderIds = new ArrayList<>();
-            familyElderRelations.put(currentUser.getUserId(), myElderIds);
-        }
-        
-        if (!myElderIds.contains(elderId)) {
-            myElderIds.add(elderId);
-            saveFamilyElderRelations(); // 保存到文件
-            
+    private void associateElder(String elderId) throws IOException, ClassNotFoundException {
+        if (relationService.addRelation(currentUser.getUserId(), elderId)) {
             // 记录到消息
             try {
                 Elder elder = elderService.getElderById(elderId);
@@ -1011,11 +1012,7 @@ public class FamilyFrame extends JFrame {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                List<String> myElderIds = familyElderRelations.get(currentUser.getUserId());
-                if (myElderIds != null) {
-                    myElderIds.remove(elderId);
-                    saveFamilyElderRelations(); // 保存到文件
-                    
+                if (relationService.removeRelation(currentUser.getUserId(), elderId)) {
                     WindowUtil.showSuccessMsg(this, "已成功解除关联");
                     loadElders();
                     
@@ -1057,12 +1054,10 @@ public class FamilyFrame extends JFrame {
         
         // 加载健康记录
         try {
-            List<HealthRecord> records = healthRecordService.getRecordsByElderId(elderId);
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            
+            List<HealthRecord> records = healthRecordService.getRecentRecordsByElderId(elderId);
             for (HealthRecord record : records) {
                 Object[] row = {
-                    sdf.format(record.getRecordTime()),
+                    DateFormatUtil.formatDateTime(record.getRecordTimeMillis()),
                     record.getBloodPressure(),
                     record.getHeartRate(),
                     getHealthRemark(record.getBloodPressure(), record.getHeartRate())
@@ -1081,7 +1076,7 @@ public class FamilyFrame extends JFrame {
         statsPanel.setBorder(BorderFactory.createTitledBorder("健康统计"));
         
         try {
-            List<HealthRecord> records = healthRecordService.getRecordsByElderId(elderId);
+            List<HealthRecord> records = healthRecordService.getRecentRecordsByElderId(elderId);
             int totalRecords = records.size();
             int normalCount = 0;
             int warningCount = 0;
@@ -1094,7 +1089,7 @@ public class FamilyFrame extends JFrame {
                 }
             }
             
-            statsPanel.add(new JLabel("总记录数: " + totalRecords, SwingConstants.CENTER));
+            statsPanel.add(new JLabel("近期记录数: " + totalRecords, SwingConstants.CENTER));
             statsPanel.add(new JLabel("正常记录: " + normalCount, SwingConstants.CENTER));
             statsPanel.add(new JLabel("异常记录: " + warningCount, SwingConstants.CENTER));
         } catch (Exception e) {
@@ -1243,7 +1238,7 @@ public class FamilyFrame extends JFrame {
                 request.setContent(content + " [紧急程度:" + urgency + "]");
                 
                 // 调试信息
-                System.out.println("提交服务申请 - 老人ID: " + elderId + ", 服务类型: " + serviceType);
+                LOGGER.debug("提交服务申请 - 老人ID: {}, 服务类型: {}", elderId, serviceType);
                 
                 // 检查elderService是否正常
                 if (elderService == null) {
@@ -1273,10 +1268,10 @@ public class FamilyFrame extends JFrame {
                 WindowUtil.showErrorMsg(dialog, "提交失败: " + ex.getMessage());
             } catch (NullPointerException ex) {
                 WindowUtil.showErrorMsg(dialog, "系统服务异常，请重启系统: " + ex.getMessage());
-                ex.printStackTrace();
+                LOGGER.error("提交服务申请时系统服务异常", ex);
             } catch (Exception ex) {
                 WindowUtil.showErrorMsg(dialog, "提交失败: " + ex.getMessage());
-                ex.printStackTrace();
+                LOGGER.error("提交服务申请失败", ex);
             }
         });
         
@@ -1360,7 +1355,7 @@ public class FamilyFrame extends JFrame {
             }
             
             String message;
-            if ("已报名".equals(currentStatus)) {
+            if ("已报名".equals(currentStatus) || "候补中".equals(currentStatus)) {
                 // 取消报名
                 int confirm = JOptionPane.showConfirmDialog(this,
                         "确定要取消 " + elderName + " 的活动报名吗？",
@@ -1392,15 +1387,18 @@ public class FamilyFrame extends JFrame {
                         JOptionPane.YES_NO_OPTION);
                 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    boolean success = activityService.registerActivity(activityId, targetElder.getElderId());
-                    if (success) {
+                    ActivityService.RegistrationResult result = activityService.register(activityId, targetElder.getElderId());
+                    if (result == ActivityService.RegistrationResult.REGISTERED
+                            || result == ActivityService.RegistrationResult.WAITLISTED) {
+                        boolean waitlisted = result == ActivityService.RegistrationResult.WAITLISTED;
                         // 更新UI
                         if (activityTableModel != null && row < activityTableModel.getRowCount()) {
-                            activityTableModel.setValueAt("已报名", row, 5);
+                            activityTableModel.setValueAt(waitlisted ? "候补中" : "已报名", row, 5);
                             activityTableModel.setValueAt("取消报名", row, 6);
                         }
                         
-                        message = "已为 " + elderName + " 成功报名活动";
+                        message = waitlisted ? "活动名额已满，" + elderName + " 已加入候补名单"
+                                : "已为 " + elderName + " 成功报名活动";
                         WindowUtil.showSuccessMsg(this, message);
                         messageArea.append("\n" + DateFormatUtil.formatCurrentDateTime() + " " + message + "\n");
                         
@@ -1409,14 +1407,14 @@ public class FamilyFrame extends JFrame {
                                             " 报名参加了活动: " + getActivityNameById(activityId);
                         messageArea.append("系统消息: " + notification + "\n");
                     } else {
-                        WindowUtil.showErrorMsg(this, "报名失败，可能已报满或已报名");
+                        WindowUtil.showErrorMsg(this, "报名失败：" + result.getMessage());
                     }
                 }
             }
             
         } catch (Exception e) {
             WindowUtil.showErrorMsg(this, "操作失败: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("活动报名操作失败", e);
         }
     }
 
@@ -1539,19 +1537,14 @@ public class FamilyFrame extends JFrame {
                 return;
             }
             
-            try {
-                // 验证当前密码
-                UserService userService = UserService.getInstance();
-                userService.login(currentUser.getUserId(), currentPassword);
-                
-                // 更新密码
-                userService.updateUserPassword(currentUser.getUserId(), newPassword);
-                
+            // 通过会话令牌校验身份，仅对当前密码做一次哈希校验（后台线程执行）
+            WindowUtil.runInBackground(() -> {
+                UserService.getInstance().changePassword(currentUser.getSessionToken(), currentPassword, newPassword);
+                return null;
+            }, ignored -> {
                 WindowUtil.showSuccessMsg(dialog, "密码修改成功");
                 dialog.dispose();
-            } catch (Exception ex) {
-                WindowUtil.showErrorMsg(dialog, "密码修改失败: " + ex.getMessage());
-            }
+            }, ex -> WindowUtil.showErrorMsg(dialog, "密码修改失败: " + ex.getMessage()));
         });
         
         cancelButton.addActionListener(e -> dialog.dispose());
@@ -1571,7 +1564,7 @@ public class FamilyFrame extends JFrame {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("导出家属数据");
         fileChooser.setSelectedFile(new java.io.File("家属数据_" + currentUser.getUserId() + "_" + 
-            new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".txt"));
+            DateFormatUtil.formatCurrentDateTime("yyyyMMdd") + ".txt"));
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             java.io.File file = fileChooser.getSelectedFile();
@@ -1595,14 +1588,15 @@ public class FamilyFrame extends JFrame {
                 
                 // 导出服务申请信息
                 writer.println("=== 服务申请记录 ===");
+                Map<String, List<ServiceRequest>> requestsByElder = serviceRequestService.getRequestsByElderIds(elderIdsOf(myElders));
                 for (Elder elder : myElders) {
-                    List<ServiceRequest> requests = serviceRequestService.getRequestsByElderId(elder.getElderId());
+                    List<ServiceRequest> requests = requestsByElder.get(elder.getElderId());
                     for (ServiceRequest request : requests) {
                         writer.println("申请ID: " + request.getRequestId());
                         writer.println("老人: " + elder.getName());
                         writer.println("服务类型: " + request.getServiceType());
                         writer.println("申请内容: " + request.getContent());
-                        writer.println("申请时间: " + DateFormatUtil.formatDateTime(request.getRequestTime()));
+                        writer.println("申请时间: " + DateFormatUtil.formatDateTime(request.getRequestTimeMillis()));
                         writer.println("状态: " + request.getStatus());
                         writer.println();
                     }
@@ -165,8 +165,10 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        try {
-            User user = userService.login(userId, password);
+        // 密码哈希校验较耗时，放到后台线程执行，避免界面卡顿
+        loginButton.setEnabled(false);
+        WindowUtil.runInBackground(() -> userService.login(userId, password), user -> {
+            loginButton.setEnabled(true);
             if (user != null) {
                 WindowUtil.showSuccessMsg(this, "登录成功！欢迎 " + user.getUserId() + " (" + getRoleChinese(user.getRole()) + ")");
                 dispose(); // 关闭登录窗口
@@ -176,9 +178,10 @@ public class LoginFrame extends JFrame {
             } else {
                 WindowUtil.showErrorMsg(this, "登录失败，请检查账号和密码");
             }
-        } catch (Exception ex) {
+        }, ex -> {
+            loginButton.setEnabled(true);
             WindowUtil.showErrorMsg(this, "登录失败: " + ex.getMessage());
-        }
+        });
     }
 
     /**
@@ -0,0 +1,590 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 备份库
+ * 功能：在备份目录中保存数据目录的在线备份和数据修改日志，可把全部数据恢复到任意时间点
+ * 目录结构：
+ * segments/SHA-256  数据文件按固定长度切分的分段（GZIP压缩），按内容命名：各次备份共用未变化的分段，增量备份只写入新分段
+ * backups/时间.manifest  一次备份的清单：完成时间、日志来源、备份开始时的日志序号、每个数据文件的长度和分段列表
+ * log/日志来源-起始序号.log.gz  ReplicationLog的修改记录（GZIP压缩，正在写入的段以.partial结尾，由ContinuousBackup写入）
+ * 备份时逐个文件取共享锁读取，只短暂阻塞同一文件的写入方；备份前先取日志序号，读取期间的修改在恢复时再次重放，结果不变
+ * 恢复：取目标时间之前完成的最近一次备份，还原数据文件后按序重放同一日志来源中该备份序号之后、目标时间之前的修改
+ */
+public class BackupArchive {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupArchive.class);
+    // 分段长度（字节），可通过系统属性eldercare.backup.segment.bytes调整
+    private static final int SEGMENT_BYTES = Integer.getInteger("eldercare.backup.segment.bytes", 1024 * 1024);
+    private static final String SEGMENT_DIR = "segments";
+    private static final String MANIFEST_DIR = "backups";
+    private static final String LOG_DIR = "log";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String LOG_SUFFIX = ".log.gz";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private static final String MANIFEST_NAME_PATTERN = "yyyyMMdd-HHmmss-SSS";
+
+    private final Path dir;
+
+    /**
+     * @param dir 备份目录（不存在时在第一次备份时创建）
+     */
+    public BackupArchive(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * 一次备份的清单
+     */
+    public static final class Manifest {
+        private final String name;
+        private final long time;
+        private final long historyId;
+        private final long lsn;
+        // 文件名 -> 文件长度和分段列表（按文件名排序）
+        private final Map<String, FileEntry> files;
+
+        Manifest(String name, long time, long historyId, long lsn, Map<String, FileEntry> files) {
+            this.name = name;
+            this.time = time;
+            this.historyId = historyId;
+            this.lsn = lsn;
+            this.files = files;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 备份完成时间（毫秒）
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return 备份时ReplicationLog的日志来源；未启用日志时为0，此备份只能原样恢复
+         */
+        public long getHistoryId() {
+            return historyId;
+        }
+
+        /**
+         * @return 备份开始时的日志序号
+         */
+        public long getLsn() {
+            return lsn;
+        }
+
+        public int getFileCount() {
+            return files.size();
+        }
+
+        public long getTotalBytes() {
+            long total = 0;
+            for (FileEntry entry : files.values()) {
+                total += entry.size;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 清单中的一个数据文件
+     */
+    static final class FileEntry {
+        final long size;
+        final List<String> segments;
+
+        FileEntry(long size, List<String> segments) {
+            this.size = size;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * 恢复结果
+     */
+    public static final class RestoreResult {
+        private final Manifest base;
+        private final int replayed;
+        private final long restoredTo;
+
+        RestoreResult(Manifest base, int replayed, long restoredTo) {
+            this.base = base;
+            this.replayed = replayed;
+            this.restoredTo = restoredTo;
+        }
+
+        public Manifest getBase() {
+            return base;
+        }
+
+        /**
+         * @return 重放的修改条数
+         */
+        public int getReplayed() {
+            return replayed;
+        }
+
+        /**
+         * @return 恢复后的数据对应的时间：最后一条重放修改的时间，未重放时为备份完成时间
+         */
+        public long getRestoredTo() {
+            return restoredTo;
+        }
+    }
+
+    /**
+     * 在线备份当前数据目录（不停止写入方；只写入备份库中还没有的分段）
+     * @return 本次备份的清单
+     */
+    public Manifest backup() throws IOException {
+        long historyId = ReplicationLog.isEnabled() ? ReplicationLog.getHistoryId() : 0;
+        long lsn = ReplicationLog.currentLsn();
+        Files.createDirectories(dir.resolve(SEGMENT_DIR));
+        Files.createDirectories(dir.resolve(MANIFEST_DIR));
+
+        List<String> fileNames = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DataStorageUtil.getDataDir())) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (ReplicationLog.isReplicated(fileName)) {
+                    fileNames.add(fileName);
+                }
+            }
+        }
+        Collections.sort(fileNames);
+
+        Map<String, FileEntry> entries = new LinkedHashMap<>();
+        int written = 0;
+        int reused = 0;
+        for (String fileName : fileNames) {
+            byte[] data;
+            StorageLocks.Handle lock = StorageLocks.shared(fileName);
+            try {
+                Path file = DataStorageUtil.getDataFile(fileName);
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                data = Files.readAllBytes(file);
+            } finally {
+                lock.close();
+            }
+            List<String> segments = new ArrayList<>();
+            for (int offset = 0; offset < data.length; offset += SEGMENT_BYTES) {
+                byte[] segment = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + SEGMENT_BYTES));
+                String hash = sha256(segment);
+                if (writeSegment(hash, segment)) {
+                    written++;
+                } else {
+                    reused++;
+                }
+                segments.add(hash);
+            }
+            entries.put(fileName, new FileEntry(data.length, segments));
+        }
+
+        long time = System.currentTimeMillis();
+        String name = DateFormatUtil.formatDateTime(time, MANIFEST_NAME_PATTERN);
+        Manifest manifest = new Manifest(name, time, historyId, lsn, entries);
+        writeManifest(manifest);
+        MetricsRegistry.counter("backup.count").increment();
+        MetricsRegistry.counter("backup.segments_written").add(written);
+        MetricsRegistry.counter("backup.segments_reused").add(reused);
+        LOGGER.info("备份完成：{}，{}个文件，新分段{}个，复用分段{}个，日志序号{}", name, entries.size(), written, reused, lsn);
+        return manifest;
+    }
+
+    /**
+     * 列出全部备份（按完成时间排序）
+     */
+    public List<Manifest> listBackups() throws IOException {
+        List<Manifest> manifests = new ArrayList<>();
+        Path manifestDir = dir.resolve(MANIFEST_DIR);
+        if (!Files.isDirectory(manifestDir)) {
+            return manifests;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(manifestDir, "*" + MANIFEST_SUFFIX)) {
+            for (Path file : files) {
+                manifests.add(readManifest(file));
+            }
+        }
+        manifests.sort((a, b) -> Long.compare(a.getTime(), b.getTime()));
+        return manifests;
+    }
+
+    /**
+     * 把全部数据恢复到指定时间点，写入目标目录（目标目录中不能已有数据文件）
+     * @param atMillis 目标时间（毫秒）；Long.MAX_VALUE表示恢复到日志中的最新状态
+     * @param targetDir 目标数据目录，不存在时创建
+     * @throws IOException 目标时间之前没有完成的备份、备份文件损坏或目标目录不为空时抛出
+     */
+    public RestoreResult restore(long atMillis, Path targetDir) throws IOException {
+        Manifest base = chooseBase(atMillis);
+        Files.createDirectories(targetDir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(targetDir)) {
+            for (Path file : files) {
+                if (ReplicationLog.isReplicated(file.getFileName().toString())) {
+                    throw new IOException("目标目录中已有数据文件，请指定空目录：" + targetDir.toAbsolutePath());
+                }
+            }
+        }
+
+        for (Map.Entry<String, FileEntry> entry : base.files.entrySet()) {
+            Path file = targetDir.resolve(entry.getKey());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (String hash : entry.getValue().segments) {
+                    out.write(readSegment(hash));
+                }
+            }
+            if (Files.size(file) != entry.getValue().size) {
+                throw new IOException("备份文件长度不一致：" + entry.getKey());
+            }
+        }
+        return replay(base, atMillis, targetDir);
+    }
+
+    /**
+     * 选择恢复起点：目标时间之前完成的最近一次带日志的备份；
+     * 之后还有不带日志的备份（BackupTool单独执行）且日志没有覆盖到它时，改用该备份
+     */
+    private Manifest chooseBase(long atMillis) throws IOException {
+        Manifest logged = null;
+        Manifest plain = null;
+        for (Manifest manifest : listBackups()) {
+            if (manifest.getTime() > atMillis) {
+                break;
+            }
+            if (manifest.getHistoryId() != 0) {
+                logged = manifest;
+            } else {
+                plain = manifest;
+            }
+        }
+        if (logged == null && plain == null) {
+            throw new IOException("目标时间之前没有完成的备份：" + DateFormatUtil.formatDateTime(atMillis));
+        }
+        if (logged == null) {
+            return plain;
+        }
+        if (plain == null || plain.getTime() <= logged.getTime()) {
+            return logged;
+        }
+        return replay(logged, atMillis, null).getRestoredTo() >= plain.getTime() ? logged : plain;
+    }
+
+    /**
+     * 按序重放备份序号之后、目标时间之前的修改，遇到日志中断时停止
+     * @param targetDir 目标目录；为null时只计算能恢复到的时间，不写文件
+     */
+    private RestoreResult replay(Manifest base, long atMillis, Path targetDir) throws IOException {
+        int replayed = 0;
+        long restoredTo = base.getTime();
+        if (base.getHistoryId() == 0) {
+            return new RestoreResult(base, replayed, restoredTo);
+        }
+        long expected = base.getLsn() + 1;
+        for (Path segment : logSegments(base.getHistoryId())) {
+            try (LogReader reader = new LogReader(segment)) {
+                ReplicationLog.Mutation mutation;
+                while ((mutation = reader.next()) != null) {
+                    if (mutation.getLsn() < expected) {
+                        continue;
+                    }
+                    if (mutation.getTimestamp() > atMillis) {
+                        return new RestoreResult(base, replayed, restoredTo);
+                    }
+                    if (mutation.getLsn() != expected) {
+                        LOGGER.warn("日志在序号{}处中断（下一条为{}），只能恢复到{}", expected, mutation.getLsn(),
+                                DateFormatUtil.formatDateTime(restoredTo));
+                        return new RestoreResult(base, replayed, restoredTo);
+                    }
+                    if (targetDir != null) {
+                        applyTo(targetDir, mutation);
+                    }
+                    replayed++;
+                    expected++;
+                    restoredTo = Math.max(restoredTo, mutation.getTimestamp());
+                }
+            }
+        }
+        return new RestoreResult(base, replayed, restoredTo);
+    }
+
+    /**
+     * 打开新的日志段（由ContinuousBackup持续写入）
+     * @param historyId ReplicationLog的日志来源
+     * @param firstLsn 段中第一条修改的序号
+     */
+    public LogWriter openLog(long historyId, long firstLsn) throws IOException {
+        Files.createDirectories(dir.resolve(LOG_DIR));
+        return new LogWriter(dir.resolve(LOG_DIR).resolve(String.format("%d-%020d%s", historyId, firstLsn, LOG_SUFFIX)));
+    }
+
+    /**
+     * 日志段写入器：先写到.partial文件，每批修改后刷新（已刷新的内容在进程退出后仍可读取），close时改为正式文件名
+     * 段内每条修改：序号、时间、类型、文件名、位置、数据长度、数据
+     */
+    public static final class LogWriter implements Closeable {
+        private final Path file;
+        private final Path partial;
+        private final DataOutputStream out;
+        private final long openedAt = System.currentTimeMillis();
+
+        LogWriter(Path file) throws IOException {
+            this.file = file;
+            this.partial = file.resolveSibling(file.getFileName() + PARTIAL_SUFFIX);
+            this.out = new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial)), 8192, true));
+        }
+
+        /**
+         * 写入一批修改并刷新到文件
+         */
+        public void write(List<ReplicationLog.Mutation> mutations) throws IOException {
+            for (ReplicationLog.Mutation mutation : mutations) {
+                out.writeLong(mutation.getLsn());
+                out.writeLong(mutation.getTimestamp());
+                out.writeByte(mutation.getOperation().ordinal());
+                out.writeUTF(mutation.getFileName());
+                out.writeLong(mutation.getOffset());
+                out.writeInt(mutation.getData().length);
+                out.write(mutation.getData());
+            }
+            out.flush();
+        }
+
+        /**
+         * @return 打开时间（毫秒），用于按时间切换日志段
+         */
+        public long getOpenedAt() {
+            return openedAt;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            move(partial, file);
+        }
+    }
+
+    /**
+     * 日志段读取器：读到文件末尾或未写完的尾部（进程退出时正在写入的段）时结束
+     */
+    private static final class LogReader implements Closeable {
+        private final Path file;
+        private final DataInputStream in;
+
+        LogReader(Path file) throws IOException {
+            this.file = file;
+            this.in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))));
+        }
+
+        ReplicationLog.Mutation next() throws IOException {
+            try {
+                long lsn = in.readLong();
+                long timestamp = in.readLong();
+                int operation = in.readByte();
+                if (operation < 0 || operation >= ReplicationLog.Operation.values().length) {
+                    throw new IOException("未知的修改类型：" + operation + "，日志段：" + file);
+                }
+                String fileName = in.readUTF();
+                if (!ReplicationLog.isReplicated(fileName) || fileName.contains("/") || fileName.contains("\\")) {
+                    throw new IOException("非法的文件名：" + fileName + "，日志段：" + file);
+                }
+                long offset = in.readLong();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                return new ReplicationLog.Mutation(lsn, ReplicationLog.Operation.values()[operation], fileName, offset,
+                        data, timestamp);
+            } catch (EOFException | ZipException e) {
+                // 段末尾（未写完的段在最后一次刷新处结束）
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 指定日志来源的全部日志段（含正在写入的段），按起始序号排序
+     */
+    private List<Path> logSegments(long historyId) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        Path logDir = dir.resolve(LOG_DIR);
+        if (!Files.isDirectory(logDir)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logDir, historyId + "-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(LOG_SUFFIX) || name.endsWith(LOG_SUFFIX + PARTIAL_SUFFIX)) {
+                    segments.add(file);
+                }
+            }
+        }
+        // 起始序号补齐为定长，按文件名排序即按序号排序
+        segments.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        return segments;
+    }
+
+    // 把一条修改应用到目标目录（恢复中的目录不与其他进程共用，不加锁）
+    private static void applyTo(Path targetDir, ReplicationLog.Mutation mutation) throws IOException {
+        Path file = targetDir.resolve(mutation.getFileName());
+        switch (mutation.getOperation()) {
+            case PUT:
+                Files.write(file, mutation.getData());
+                break;
+            case APPEND:
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    if (channel.size() < mutation.getOffset()) {
+                        throw new IOException("文件长度" + channel.size() + "小于追加位置" + mutation.getOffset()
+                                + "：" + mutation.getFileName());
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(mutation.getData());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, mutation.getOffset() + buffer.position());
+                    }
+                    channel.truncate(mutation.getOffset() + mutation.getData().length);
+                }
+                break;
+            case DELETE:
+                Files.deleteIfExists(file);
+                break;
+            default:
+                throw new IOException("未知的修改类型：" + mutation.getOperation());
+        }
+    }
+
+    /**
+     * 写入分段（已存在时跳过）
+     * @return 是否新写入
+     */
+    private boolean writeSegment(String hash, byte[] data) throws IOException {
+        Path file = dir.resolve(SEGMENT_DIR).resolve(hash);
+        if (Files.exists(file)) {
+            return false;
+        }
+        Path temp = file.resolveSibling(hash + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            out.write(data);
+        }
+        move(temp, file);
+        MetricsRegistry.counter("backup.bytes_written").add(Files.size(file));
+        return true;
+    }
+
+    private byte[] readSegment(String hash) throws IOException {
+        Path file = dir.resolve(SEGMENT_DIR).resolve(hash);
+        byte[] data;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            data = in.readAllBytes();
+        }
+        if (!hash.equals(sha256(data))) {
+            throw new IOException("备份分段已损坏：" + file);
+        }
+        return data;
+    }
+
+    private void writeManifest(Manifest manifest) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("time", String.valueOf(manifest.getTime()));
+        properties.setProperty("historyId", String.valueOf(manifest.getHistoryId()));
+        properties.setProperty("lsn", String.valueOf(manifest.getLsn()));
+        for (Map.Entry<String, FileEntry> entry : manifest.files.entrySet()) {
+            properties.setProperty("file." + entry.getKey(),
+                    entry.getValue().size + ":" + String.join(",", entry.getValue().segments));
+        }
+        Path file = dir.resolve(MANIFEST_DIR).resolve(manifest.getName() + MANIFEST_SUFFIX);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "eldercare backup " + DateFormatUtil.formatDateTime(manifest.getTime()));
+        }
+        move(temp, file);
+    }
+
+    private static Manifest readManifest(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        Map<String, FileEntry> files = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(properties.stringPropertyNames());
+        Collections.sort(names);
+        try {
+            for (String key : names) {
+                if (!key.startsWith("file.")) {
+                    continue;
+                }
+                String value = properties.getProperty(key);
+                int colon = value.indexOf(':');
+                String segments = value.substring(colon + 1);
+                files.put(key.substring("file.".length()), new FileEntry(Long.parseLong(value.substring(0, colon)),
+                        segments.isEmpty() ? Collections.emptyList() : Arrays.asList(segments.split(","))));
+            }
+            String name = file.getFileName().toString();
+            return new Manifest(name.substring(0, name.length() - MANIFEST_SUFFIX.length()),
+                    Long.parseLong(properties.getProperty("time")), Long.parseLong(properties.getProperty("historyId")),
+                    Long.parseLong(properties.getProperty("lsn")), files);
+        } catch (RuntimeException e) {
+            throw new IOException("备份清单格式错误：" + file, e);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
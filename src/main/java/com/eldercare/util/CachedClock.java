@@ -0,0 +1,40 @@
+package com.eldercare.util;
+
+/**
+ * 粗粒度缓存时钟工具类
+ * 功能：后台守护线程定期刷新当前毫秒时间，热路径（ID生成、记录打时间戳）读取volatile字段即可，
+ * 不再每次调用系统时钟；精度为刷新间隔（默认1毫秒），适用于对亚毫秒精度无要求的场景
+ * 刷新线程在首次使用时启动；只需启动时取一次的时间（如复制历史号）直接读系统时钟
+ */
+public class CachedClock {
+    // 刷新间隔（毫秒），可通过系统属性eldercare.clock.tick.ms调整
+    private static final long TICK_MILLIS = Long.getLong("eldercare.clock.tick.ms", 1L);
+
+    private static volatile long now = System.currentTimeMillis();
+
+    static {
+        Thread ticker = new Thread(() -> {
+            while (true) {
+                now = System.currentTimeMillis();
+                try {
+                    Thread.sleep(TICK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }, "eldercare-cached-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private CachedClock() {}
+
+    /**
+     * 获取缓存的当前时间
+     * @return 毫秒时间戳（最多落后系统时钟一个刷新间隔；系统时钟被回拨时同样回拨）
+     */
+    public static long currentTimeMillis() {
+        return now;
+    }
+}
@@ -0,0 +1,62 @@
+package com.eldercare.util;
+
+import com.eldercare.model.ChangeEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 数据变更事件总线工具类
+ * 功能：业务层发布实体变更事件，订阅方在发布线程中同步收到事件（发布返回时订阅方已处理完毕）
+ * 订阅方应只做轻量的内存更新，耗时操作自行转到后台线程；单个订阅方出错不影响其他订阅方和发布方
+ */
+public class ChangeEventBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeEventBus.class);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final List<Consumer<ChangeEvent>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private ChangeEventBus() {}
+
+    /**
+     * 订阅变更事件
+     */
+    public static void subscribe(Consumer<ChangeEvent> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void unsubscribe(Consumer<ChangeEvent> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * 发布变更事件
+     * @param entityType 实体类型（ChangeEvent中的常量）
+     * @param entityId 实体ID
+     * @param operation 变更类型
+     * @param before 变更前快照（新增时为null），发布后不应再修改
+     * @param after 变更后快照（删除时为null），发布后不应再修改
+     */
+    public static void publish(String entityType, String entityId, ChangeEvent.Operation operation, Object before, Object after) {
+        ChangeEvent event = new ChangeEvent(SEQUENCE.incrementAndGet(), entityType, entityId, operation,
+                before, after, CachedClock.currentTimeMillis());
+        for (Consumer<ChangeEvent> listener : LISTENERS) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                LOGGER.error("事件处理失败：{}", event, e);
+            }
+        }
+    }
+
+    /**
+     * 最近一次发布的事件序号
+     */
+    public static long currentSequence() {
+        return SEQUENCE.get();
+    }
+}
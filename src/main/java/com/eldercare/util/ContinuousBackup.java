@@ -0,0 +1,175 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连续备份
+ * 功能：配置备份目录（-Deldercare.backup.dir）后，在本进程内定期做在线增量备份（BackupArchive），
+ * 并把ReplicationLog中的每次数据文件修改持续写入备份目录的日志段，可恢复到任意时间点（com.eldercare.BackupTool）
+ * 启动时先做一次备份：日志来源在每次启动时更换，恢复需要同一来源的备份作为起点
+ * 备份间隔由eldercare.backup.interval.minutes指定（默认60分钟），日志段每eldercare.backup.log.roll.minutes（默认10分钟）换一个；
+ * 日志归档落后超出ReplicationLog的保留范围时立即补做一次备份
+ * 由ElderCareServer和本地模式的Main在启动时调用startFromSystemProperty；退出时写出延迟保存的数据并归档剩余修改
+ */
+public class ContinuousBackup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContinuousBackup.class);
+    // 备份目录的系统属性（未配置时不启动连续备份）
+    public static final String DIR_PROPERTY = "eldercare.backup.dir";
+    private static final long BACKUP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("eldercare.backup.interval.minutes", 60L));
+    private static final long LOG_ROLL_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("eldercare.backup.log.roll.minutes", 10L));
+    // 等待新修改的最长时间，也是检查备份、换段时间的间隔
+    private static final long POLL_MILLIS = 1_000L;
+    // 出错后重试的间隔
+    private static final long RETRY_MILLIS = 5_000L;
+
+    private static ContinuousBackup instance;
+
+    private final BackupArchive archive;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // 以下字段只由归档线程访问
+    private BackupArchive.LogWriter writer;
+    private long archivedLsn = -1;
+    private long nextBackupAt;
+
+    private ContinuousBackup(BackupArchive archive) {
+        this.archive = archive;
+        this.thread = new Thread(this::archiveLoop, "eldercare-continuous-backup");
+        thread.setDaemon(true);
+        MetricsRegistry.gauge("backup.log_lag", () -> {
+            long archived = archivedLsn;
+            return archived < 0 ? 0 : Math.max(0, ReplicationLog.currentLsn() - archived);
+        });
+    }
+
+    /**
+     * 系统属性配置了备份目录时启用修改日志并开始连续备份（重复调用无效果）
+     * @return 是否已启动
+     */
+    public static synchronized boolean startFromSystemProperty() throws IOException {
+        if (instance != null) {
+            return true;
+        }
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.trim().isEmpty()) {
+            return false;
+        }
+        ReplicationLog.enable(false);
+        instance = new ContinuousBackup(new BackupArchive(Paths.get(dir.trim())));
+        instance.thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // 先写出延迟保存的数据，使其修改也进入日志
+            DeferredSaver.flushAll();
+            stop();
+        }, "eldercare-continuous-backup-shutdown"));
+        LOGGER.info("连续备份已启动，备份目录：{}", Paths.get(dir.trim()).toAbsolutePath());
+        return true;
+    }
+
+    /**
+     * 归档剩余修改后停止
+     */
+    public static void stop() {
+        ContinuousBackup current;
+        synchronized (ContinuousBackup.class) {
+            current = instance;
+            instance = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.running = false;
+        try {
+            current.thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void archiveLoop() {
+        while (running) {
+            try {
+                if (archivedLsn < 0 || System.currentTimeMillis() >= nextBackupAt) {
+                    takeBackup();
+                }
+                archiveOnce(POLL_MILLIS);
+            } catch (IOException e) {
+                LOGGER.error("连续备份失败，{}毫秒后重新备份：{}", RETRY_MILLIS, e.getMessage());
+                closeWriter();
+                // 日志段可能不完整：重新备份作为新的起点
+                archivedLsn = -1;
+                sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            if (archivedLsn >= 0) {
+                archiveOnce(0);
+            }
+        } catch (IOException e) {
+            LOGGER.error("退出前归档剩余修改失败：{}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeWriter();
+    }
+
+    private void takeBackup() throws IOException {
+        BackupArchive.Manifest manifest = archive.backup();
+        // 第一次备份（或重新备份）后从备份序号开始归档；定期备份不跳过日志，以免从更早的备份恢复时日志中断
+        if (archivedLsn < 0) {
+            archivedLsn = manifest.getLsn();
+        }
+        nextBackupAt = System.currentTimeMillis() + BACKUP_INTERVAL_MILLIS;
+    }
+
+    private void archiveOnce(long timeoutMillis) throws IOException, InterruptedException {
+        List<ReplicationLog.Mutation> batch = ReplicationLog.awaitAfter(archivedLsn, timeoutMillis);
+        if (batch == null) {
+            MetricsRegistry.counter("backup.log_overruns").increment();
+            LOGGER.warn("日志归档落后超出保留范围（已归档序号{}），重新备份", archivedLsn);
+            closeWriter();
+            archivedLsn = -1;
+            return;
+        }
+        if (!batch.isEmpty()) {
+            if (writer == null) {
+                writer = archive.openLog(ReplicationLog.getHistoryId(), batch.get(0).getLsn());
+            }
+            writer.write(batch);
+            archivedLsn = batch.get(batch.size() - 1).getLsn();
+            MetricsRegistry.counter("backup.log_mutations").add(batch.size());
+        }
+        if (writer != null && System.currentTimeMillis() - writer.getOpenedAt() >= LOG_ROLL_MILLIS) {
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.warn("关闭日志段失败：{}", e.getMessage());
+        }
+        writer = null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,17 +1,70 @@
 package com.eldercare.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 数据存储工具类
  * 功能：基于本地文件序列化实现数据持久化
  * 支持对象保存、读取、删除，自动处理目录创建、流关闭，兼容空数据
+ * 读取取共享锁、写入和删除取排他锁（StorageLocks），多个程序实例共用数据目录时互不破坏；
+ * 写入先写临时文件并刷到磁盘（fsync）再整体替换数据文件，读方不会读到写了一半的文件，断电后不会留下空文件
+ * 登记为按条目合并的数据（registerMergeable），保存时在排他锁内检查文件自本实例上次读写后是否被其他实例修改，
+ * 被修改时按条目三方合并（StorageMerge）后保存，不会覆盖其他实例的修改；合并后的文件由StorageWatcher通知本实例重新加载
+ * 可选GZIP压缩保存（写入后很少修改的归档数据），读取时按文件头自动识别
+ * 主库模式下写入和删除记入ReplicationLog发送给备库（同步模式在释放文件锁后等待备库确认）
+ * 写入和删除登记到StorageWatcher，多实例共用数据目录时据此区分自己与其他实例的修改
+ * 读写同时产生JFR事件（JfrEvents.StorageEvent）；每个数据标识的读写耗时（storage.<key>.read/write，次数即操作数）和字节数（storage.<key>.read/write.bytes）记录在MetricsRegistry中
  */
 public class DataStorageUtil {
-    // 数据存储根路径（项目resources/data目录，确保开发环境可直接访问）
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataStorageUtil.class);
+    // 数据存储根路径（默认为项目resources/data目录，确保开发环境可直接访问）
     private static final String BASE_DATA_PATH = "src/main/resources/data/";
+    // 指定数据目录的系统属性（基准测试、压测等使用独立的数据目录，不影响开发数据）
+    public static final String DATA_DIR_PROPERTY = "eldercare.data.dir";
+    // 序列化数据文件的扩展名
+    public static final String DATA_FILE_SUFFIX = ".ser";
+    // 写入中的临时文件扩展名（写完后替换数据文件）
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    // 按条目合并的数据标识 -> 列表条目标识（Map数据为null）
+    private static final ConcurrentHashMap<String, Function<Object, ?>> MERGEABLE = new ConcurrentHashMap<>();
+    // 按条目合并的数据标识 -> 本实例上次读取或写入的内容（合并基准）
+    private static final ConcurrentHashMap<String, Base> BASES = new ConcurrentHashMap<>();
+    // ConcurrentHashMap不允许null值，Map数据用此占位
+    private static final Function<Object, ?> NO_ID = item -> {
+        throw new IllegalStateException("Map数据按键合并，不使用条目标识");
+    };
+
+    /**
+     * 登记按条目合并的数据：保存时文件已被其他实例修改则按条目三方合并，而不是整体覆盖
+     * 适用于业务类缓存在内存中、整体保存的列表或Map数据（在业务类构造方法中、首次读取前登记）
+     * @param key 数据标识
+     * @param idOf 列表条目的唯一标识（如老人ID）；Map数据按键合并，传null
+     */
+    public static void registerMergeable(String key, Function<Object, ?> idOf) {
+        MERGEABLE.put(key.trim(), idOf == null ? NO_ID : idOf);
+    }
 
     /**
      * 保存数据到本地文件（序列化）
@@ -20,6 +73,17 @@ public class DataStorageUtil {
      * @throws IOException 当文件写入失败（如权限不足）时抛出
      */
     public static void saveData(String key, Object data) throws IOException {
+        saveData(key, data, false);
+    }
+
+    /**
+     * 保存数据到本地文件（序列化），可选GZIP压缩（读取时自动识别，适合写入后很少修改的归档数据）
+     * @param key 数据标识
+     * @param data 要保存的对象，必须实现Serializable接口
+     * @param compress 是否压缩保存
+     * @throws IOException 当文件写入失败（如权限不足）时抛出
+     */
+    public static void saveData(String key, Object data, boolean compress) throws IOException {
         // 1. 参数合法性校验
         if (key == null || key.trim().isEmpty()) {
             throw new IllegalArgumentException("数据标识【key】不能为空");
@@ -31,16 +95,206 @@ public class DataStorageUtil {
             throw new IllegalArgumentException("数据对象未实现Serializable接口，无法序列化");
         }
 
-        // 2. 确保存储目录存在（不存在则自动创建）
-        Files.createDirectories(Paths.get(BASE_DATA_PATH));
+        // 2. 确保存储目录存在（不存在则自动创建），在锁外序列化
+        Files.createDirectories(getDataDir());
+        byte[] raw = StorageMerge.serialize(data);
+
+        // 3. 取排他锁，文件自上次读写后被其他实例修改时按条目合并，再写临时文件后替换数据文件
+        long lsn;
+        StorageLocks.Handle lock = StorageLocks.exclusive(fileNameOf(key));
+        try {
+            Function<Object, ?> idOf = MERGEABLE.get(key.trim());
+            if (idOf == null) {
+                lsn = writeLocked(key, raw, compress, true);
+            } else {
+                lsn = saveMergeable(key.trim(), data, raw, compress, idOf);
+            }
+        } finally {
+            lock.close();
+        }
+        ReplicationLog.awaitCommit(lsn);
+        String filePath = getDataDir().resolve(fileNameOf(key)).toString();
+        MetricsRegistry.counter("storage." + key.trim() + ".write.bytes").add(new File(filePath).length());
+        LOGGER.debug("数据保存成功：{}", filePath);
+    }
+
+    /**
+     * 在同一把排他锁内读取、修改并保存数据（读和写之间不会插入其他线程或实例的写入）
+     * 用于在线修改其他进程也在使用的数据文件，如按老人恢复备份数据
+     * @param key 数据标识
+     * @param update 修改函数：参数为当前数据（文件不存在时为null），返回要保存的数据（必须实现Serializable接口）
+     * @throws IOException 当文件读写失败时抛出
+     * @throws ClassNotFoundException 当序列化类不存在时抛出
+     */
+    public static void updateData(String key, UnaryOperator<Object> update) throws IOException, ClassNotFoundException {
+        updateData(key, false, update);
+    }
+
+    /**
+     * 在同一把排他锁内读取、修改并保存数据；已存在的文件保持原来的格式（压缩或不压缩）
+     * @param key 数据标识
+     * @param compress 文件不存在时是否压缩保存
+     * @param update 修改函数：参数为当前数据（文件不存在时为null），返回要保存的数据（必须实现Serializable接口）
+     * @throws IOException 当文件读写失败时抛出
+     * @throws ClassNotFoundException 当序列化类不存在时抛出
+     */
+    public static void updateData(String key, boolean compress, UnaryOperator<Object> update)
+            throws IOException, ClassNotFoundException {
+        if (key == null || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("数据标识【key】不能为空");
+        }
+        Files.createDirectories(getDataDir());
+        File dataFile = getDataDir().resolve(fileNameOf(key)).toFile();
+        long lsn;
+        StorageLocks.Handle lock = StorageLocks.exclusive(fileNameOf(key));
+        try {
+            Object current = null;
+            byte[] currentRaw = null;
+            boolean compressed = compress;
+            if (dataFile.exists()) {
+                compressed = isCompressed(dataFile);
+                currentRaw = readRaw(dataFile);
+                current = StorageMerge.deserialize(currentRaw);
+            }
+            Object updated = update.apply(current);
+            if (!(updated instanceof Serializable)) {
+                throw new IllegalArgumentException("数据对象为null或未实现Serializable接口，无法序列化");
+            }
+            boolean mergeable = MERGEABLE.containsKey(key.trim());
+            // 按条目合并的数据：缓存该数据的业务类需重新加载（不登记为本实例写入），其下次保存以修改前的内容为基准合并
+            lsn = writeLocked(key, StorageMerge.serialize(updated), compressed, !mergeable);
+            if (mergeable && currentRaw != null) {
+                BASES.put(key.trim(), new Base(null, currentRaw));
+            }
+        } finally {
+            lock.close();
+        }
+        ReplicationLog.awaitCommit(lsn);
+        MetricsRegistry.counter("storage." + key.trim() + ".write.bytes").add(dataFile.length());
+        LOGGER.debug("数据修改保存成功：{}", dataFile);
+    }
+
+    /**
+     * 保存按条目合并的数据（调用方需持有该文件的排他锁）
+     * 文件与本实例上次读写时一致则直接写入；否则读取文件，以上次读写的内容为基准按条目合并后写入
+     */
+    private static long saveMergeable(String key, Object data, byte[] raw, boolean compress, Function<Object, ?> idOf)
+            throws IOException {
+        File dataFile = getDataDir().resolve(fileNameOf(key)).toFile();
+        Object version = versionOf(dataFile);
+        Base base = BASES.get(key);
+        if (version == null || (base != null && version.equals(base.version))) {
+            long lsn = writeLocked(key, raw, compress, true);
+            BASES.put(key, new Base(versionOf(dataFile), raw));
+            return lsn;
+        }
+        StorageMerge.Result merged;
+        try {
+            merged = StorageMerge.merge(base == null ? null : StorageMerge.deserialize(base.raw), data,
+                    StorageMerge.deserialize(readRaw(dataFile)), idOf == NO_ID ? null : idOf);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("读取待合并的数据文件失败：" + dataFile, e);
+        }
+        // 合并结果含其他实例的修改：不登记为本实例写入，StorageWatcher据此通知业务类重新加载；
+        // 重新加载前本实例再次保存时仍以本次要保存的内容为基准合并
+        long lsn = writeLocked(key, StorageMerge.serialize(merged.data), compress, false);
+        BASES.put(key, new Base(null, raw));
+        MetricsRegistry.counter("storage." + key + ".merges").increment();
+        LOGGER.info("数据文件已被其他实例修改，按条目合并后保存：{}（保留其他实例的修改{}条）", fileNameOf(key), merged.taken);
+        return lsn;
+    }
+
+    /**
+     * 写入数据文件（调用方需持有该文件的排他锁）：写临时文件并刷到磁盘后替换数据文件，再刷新目录
+     * @param raw 序列化后的数据
+     * @param ownWrite 是否登记为本实例的写入（StorageWatcher不触发重新加载）
+     * @return 复制日志序号；未启用复制时为0
+     */
+    private static long writeLocked(String key, byte[] raw, boolean compress, boolean ownWrite) throws IOException {
+        String filePath = getDataDir().resolve(fileNameOf(key)).toString();
+        Path tempFile = Paths.get(filePath + TEMP_FILE_SUFFIX);
+        if (Files.exists(tempFile)) {
+            StorageLocks.removeStaleTemp(tempFile);
+        }
+        MetricsRegistry.Timer timer = MetricsRegistry.timer("storage." + key.trim() + ".write");
+        JfrEvents.StorageEvent trace = JfrEvents.beginStorage(key.trim(), "write");
+        long start = timer.start();
+        try {
+            byte[] content = compress ? gzip(raw) : raw;
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            replace(tempFile, Paths.get(filePath));
+            // 替换成功后才登记为本实例的写入：写入失败时文件的变化来自其他实例，须触发重新加载
+            if (ownWrite) {
+                StorageWatcher.recordLocalWrite(Paths.get(filePath));
+            }
+            forceDirectory(getDataDir());
+        } finally {
+            timer.stop(start);
+            commitStorageEvent(trace, new File(filePath));
+            Files.deleteIfExists(tempFile);
+        }
+        return ReplicationLog.recordPut(fileNameOf(key), Paths.get(filePath));
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(raw);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 替换后刷新目录项，断电后不会丢失替换；部分平台（如Windows）不支持打开目录，忽略
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("目录无法刷新到磁盘：{}（{}）", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取数据文件的序列化内容（压缩文件解压后返回）
+     */
+    private static byte[] readRaw(File dataFile) throws IOException {
+        byte[] content = Files.readAllBytes(dataFile.toPath());
+        if (content.length >= 2 && (content[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && (content[1] & 0xff) == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                return in.readAllBytes();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * 文件版本（文件标识、修改时间、大小），文件每次被替换都会变化；文件不存在返回null
+     */
+    private static Object versionOf(File dataFile) throws IOException {
+        if (!dataFile.exists()) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(dataFile.toPath(), BasicFileAttributes.class);
+        return List.of(Objects.toString(attributes.fileKey()), attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    /**
+     * 合并基准：本实例上次读取或写入的文件版本和序列化内容；版本为null表示文件含有本实例未加载的修改，下次保存必须合并
+     */
+    private static final class Base {
+        final Object version;
+        final byte[] raw;
 
-        // 3. 序列化对象到文件（try-with-resources自动关闭流，避免资源泄露）
-        String filePath = BASE_DATA_PATH + key.trim() + ".ser";
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(filePath)
-        )) {
-            oos.writeObject(data);
-            System.out.println("[DataStorageUtil] 数据保存成功：" + filePath);
+        Base(Object version, byte[] raw) {
+            this.version = version;
+            this.raw = raw;
         }
     }
 
@@ -57,22 +311,149 @@ public class DataStorageUtil {
             throw new IllegalArgumentException("数据标识【key】不能为空");
         }
 
-        // 2. 构建文件路径，判断文件是否存在
-        String filePath = BASE_DATA_PATH + key.trim() + ".ser";
+        // 2. 取共享锁（持锁期间其他实例不会写入或删除该文件）
+        String filePath = getDataDir().resolve(fileNameOf(key)).toString();
         File dataFile = new File(filePath);
-        if (!dataFile.exists()) {
-            System.out.println("[DataStorageUtil] 数据文件不存在：" + filePath + "，返回null");
+        StorageLocks.Handle lock = StorageLocks.shared(fileNameOf(key));
+        try {
+            // 3. 判断文件是否存在
+            if (!dataFile.exists()) {
+                LOGGER.debug("数据文件不存在：{}，返回null", filePath);
+                return null;
+            }
+
+            // 4. 反序列化读取对象
+            MetricsRegistry.Timer timer = MetricsRegistry.timer("storage." + key.trim() + ".read");
+            JfrEvents.StorageEvent trace = JfrEvents.beginStorage(key.trim(), "read");
+            long start = timer.start();
+            try (ObjectInputStream ois = openObjectInput(dataFile, key.trim())) {
+                Object data = ois.readObject();
+                MetricsRegistry.counter("storage." + key.trim() + ".read.bytes").add(dataFile.length());
+                LOGGER.debug("数据读取成功：{}，数据类型：{}", filePath, data.getClass().getSimpleName());
+                return data;
+            } finally {
+                timer.stop(start);
+                commitStorageEvent(trace, dataFile);
+            }
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * 读取数据目录以外的数据文件（如从备份恢复到临时目录的文件），不加锁，自动识别压缩
+     * @param file 数据文件路径
+     * @return 反序列化后的对象，文件不存在时返回null
+     * @throws IOException 当文件读取失败时抛出
+     * @throws ClassNotFoundException 当序列化类不存在时抛出
+     */
+    public static Object readDataFile(Path file) throws IOException, ClassNotFoundException {
+        if (!Files.exists(file)) {
             return null;
         }
+        try (ObjectInputStream ois = openObjectInput(file.toFile())) {
+            return ois.readObject();
+        }
+    }
+
+    /**
+     * 打开数据文件的反序列化流；按条目合并的数据先整体读入，同时记为合并基准（调用方需持有该文件的锁）
+     */
+    private static ObjectInputStream openObjectInput(File dataFile, String key) throws IOException {
+        if (!MERGEABLE.containsKey(key)) {
+            return openObjectInput(dataFile);
+        }
+        Object version = versionOf(dataFile);
+        byte[] raw = readRaw(dataFile);
+        BASES.put(key, new Base(version, raw));
+        return new ObjectInputStream(new ByteArrayInputStream(raw));
+    }
+
+    /**
+     * 打开数据文件的反序列化流（按文件头识别GZIP压缩）
+     */
+    private static ObjectInputStream openObjectInput(File dataFile) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(dataFile));
+        try {
+            in.mark(2);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+                in = new GZIPInputStream(in);
+            }
+            return new ObjectInputStream(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static boolean isCompressed(File dataFile) throws IOException {
+        try (InputStream in = new FileInputStream(dataFile)) {
+            return in.read() == (GZIPInputStream.GZIP_MAGIC & 0xff) && in.read() == (GZIPInputStream.GZIP_MAGIC >>> 8);
+        }
+    }
+
+    // 只在JFR录制中启用了该事件时才读取文件大小
+    private static void commitStorageEvent(JfrEvents.StorageEvent trace, File file) {
+        trace.end();
+        if (trace.shouldCommit()) {
+            trace.setBytes(file.length());
+            trace.commit();
+        }
+    }
+
+    /**
+     * 获取数据目录下的文件路径（用于日志文件等非序列化数据，目录不存在时自动创建）
+     * @param fileName 文件名，如"work_logs.journal"
+     * @return 文件路径
+     * @throws IOException 当目录创建失败时抛出
+     */
+    public static Path getDataFile(String fileName) throws IOException {
+        if (fileName == null || fileName.trim().isEmpty()) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        Files.createDirectories(getDataDir());
+        return getDataDir().resolve(fileName.trim());
+    }
+
+    /**
+     * 数据标识对应的数据文件名
+     * @param key 数据标识，如"elders"
+     * @return 文件名，如"elders.ser"
+     */
+    public static String fileNameOf(String key) {
+        return key.trim() + DATA_FILE_SUFFIX;
+    }
 
-        // 3. 反序列化读取对象
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(dataFile)
-        )) {
-            Object data = ois.readObject();
-            System.out.println("[DataStorageUtil] 数据读取成功：" + filePath + "，数据类型：" + data.getClass().getSimpleName());
-            return data;
+    /**
+     * 列出数据目录中以指定前缀开头的数据标识（如按月份分段保存的数据）
+     * @param prefix 数据标识前缀，如"health_records."
+     * @return 数据标识（不含扩展名），按名称排序；数据目录不存在时为空列表
+     * @throws IOException 当目录读取失败时抛出
+     */
+    public static List<String> listKeys(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        if (!Files.isDirectory(getDataDir())) {
+            return keys;
         }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getDataDir(), prefix + "*" + DATA_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                keys.add(fileName.substring(0, fileName.length() - DATA_FILE_SUFFIX.length()));
+            }
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * 获取数据目录（系统属性eldercare.data.dir指定时使用该目录，否则为项目resources/data目录）
+     * @return 数据目录路径（不保证已存在）
+     */
+    public static Path getDataDir() {
+        return Paths.get(System.getProperty(DATA_DIR_PROPERTY, BASE_DATA_PATH));
     }
 
     /**
@@ -82,19 +463,47 @@ public class DataStorageUtil {
      */
     public static boolean deleteData(String key) {
         if (key == null || key.trim().isEmpty()) {
-            System.err.println("[DataStorageUtil] 数据标识【key】不能为空，删除失败");
+            LOGGER.warn("数据标识【key】不能为空，删除失败");
             return false;
         }
 
-        String filePath = BASE_DATA_PATH + key.trim() + ".ser";
+        String filePath = getDataDir().resolve(fileNameOf(key)).toString();
         File dataFile = new File(filePath);
-        if (dataFile.exists()) {
-            boolean isDeleted = dataFile.delete();
-            System.out.println("[DataStorageUtil] 数据文件" + (isDeleted ? "删除成功" : "删除失败") + "：" + filePath);
-            return isDeleted;
-        } else {
-            System.out.println("[DataStorageUtil] 数据文件不存在：" + filePath + "，无需删除");
+        long lsn = 0;
+        StorageLocks.Handle lock = null;
+        try {
+            lock = StorageLocks.exclusive(fileNameOf(key));
+            if (dataFile.exists()) {
+                boolean isDeleted = dataFile.delete();
+                if (isDeleted) {
+                    StorageWatcher.recordLocalWrite(dataFile.toPath());
+                    lsn = ReplicationLog.recordDelete(fileNameOf(key));
+                }
+                LOGGER.info("数据文件{}：{}", isDeleted ? "删除成功" : "删除失败", filePath);
+                return isDeleted;
+            } else {
+                LOGGER.debug("数据文件不存在：{}，无需删除", filePath);
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("数据文件删除失败：{}（{}）", filePath, e.getMessage());
             return false;
+        } finally {
+            if (lock != null) {
+                lock.close();
+            }
+            ReplicationLog.awaitCommit(lsn);
+        }
+    }
+
+    /**
+     * 用写好的临时文件整体替换数据文件（文件系统不支持原子替换时退回普通替换）
+     */
+    private static void replace(Path tempFile, Path dataFile) throws IOException {
+        try {
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.eldercare.util;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 日期格式化工具类
@@ -10,23 +13,18 @@ import java.util.Locale;
  * 支持当前时间、指定时间的格式化，适配不同业务场景
  */
 public class DateFormatUtil {
-    // 线程安全：每个线程持有独立的SimpleDateFormat实例（避免多线程并发问题）
-    private static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER = ThreadLocal.withInitial(() ->
-            new SimpleDateFormat("yyyy-MM-dd", Locale.CHINA)
-    );
-    private static final ThreadLocal<SimpleDateFormat> DATETIME_FORMATTER = ThreadLocal.withInitial(() ->
-            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.CHINA)
-    );
-    private static final ThreadLocal<SimpleDateFormat> TIME_FORMATTER = ThreadLocal.withInitial(() ->
-            new SimpleDateFormat("HH:mm:ss", Locale.CHINA)
-    );
+    // 线程安全：DateTimeFormatter不可变，按格式模板缓存，全局共享同一实例
+    private static final ConcurrentHashMap<String, DateTimeFormatter> FORMATTER_CACHE = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter DATE_FORMATTER = getFormatter("yyyy-MM-dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = getFormatter("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter TIME_FORMATTER = getFormatter("HH:mm:ss");
 
     /**
      * 格式化当前日期（短日期：yyyy-MM-dd）
      * @return 当前日期，如2025-12-01
      */
     public static String formatCurrentDate() {
-        return formatCurrentDateTime("yyyy-MM-dd");
+        return format(CachedClock.currentTimeMillis(), DATE_FORMATTER);
     }
 
     /**
@@ -34,7 +32,7 @@ public class DateFormatUtil {
      * @return 当前时间，如2025-12-01 12:30:45
      */
     public static String formatCurrentDateTime() {
-        return formatCurrentDateTime("yyyy-MM-dd HH:mm:ss");
+        return format(CachedClock.currentTimeMillis(), DATETIME_FORMATTER);
     }
 
     /**
@@ -46,7 +44,7 @@ public class DateFormatUtil {
         if (date == null) {
             return "";
         }
-        return DATE_FORMATTER.get().format(date);
+        return format(date.getTime(), DATE_FORMATTER);
     }
 
     /**
@@ -58,7 +56,16 @@ public class DateFormatUtil {
         if (date == null) {
             return "";
         }
-        return DATETIME_FORMATTER.get().format(date);
+        return format(date.getTime(), DATETIME_FORMATTER);
+    }
+
+    /**
+     * 格式化指定时间（完整时间：yyyy-MM-dd HH:mm:ss）
+     * @param epochMillis 毫秒时间戳
+     * @return 格式化后的时间，如2025-12-01 12:30:45
+     */
+    public static String formatDateTime(long epochMillis) {
+        return format(epochMillis, DATETIME_FORMATTER);
     }
 
     /**
@@ -70,7 +77,7 @@ public class DateFormatUtil {
         if (date == null) {
             return "";
         }
-        return TIME_FORMATTER.get().format(date);
+        return format(date.getTime(), TIME_FORMATTER);
     }
 
     /**
@@ -79,10 +86,7 @@ public class DateFormatUtil {
      * @return 自定义格式的当前时间
      */
     public static String formatCurrentDateTime(String pattern) {
-        if (pattern == null || pattern.trim().isEmpty()) {
-            throw new IllegalArgumentException("日期格式模板【pattern】不能为空");
-        }
-        return new SimpleDateFormat(pattern, Locale.CHINA).format(new Date());
+        return format(CachedClock.currentTimeMillis(), getFormatter(pattern));
     }
 
     /**
@@ -95,18 +99,40 @@ public class DateFormatUtil {
         if (date == null) {
             return "";
         }
+        return format(date.getTime(), getFormatter(pattern));
+    }
+
+    /**
+     * 格式化指定时间（自定义格式）
+     * @param epochMillis 毫秒时间戳
+     * @param pattern 格式模板
+     * @return 自定义格式的时间
+     */
+    public static String formatDateTime(long epochMillis, String pattern) {
+        return format(epochMillis, getFormatter(pattern));
+    }
+
+    /**
+     * 获取指定格式模板的格式化器（首次使用时创建并缓存）
+     * @param pattern 格式模板
+     * @return 绑定系统时区的格式化器
+     */
+    public static DateTimeFormatter getFormatter(String pattern) {
         if (pattern == null || pattern.trim().isEmpty()) {
             throw new IllegalArgumentException("日期格式模板【pattern】不能为空");
         }
-        return new SimpleDateFormat(pattern, Locale.CHINA).format(date);
+        return FORMATTER_CACHE.computeIfAbsent(pattern, p ->
+                DateTimeFormatter.ofPattern(p, Locale.CHINA).withZone(ZoneId.systemDefault()));
     }
 
     /**
-     * 资源释放（避免内存泄露）
+     * 资源释放（格式化器已改为不可变共享实例，保留此方法仅为兼容旧调用）
      */
     public static void remove() {
-        DATE_FORMATTER.remove();
-        DATETIME_FORMATTER.remove();
-        TIME_FORMATTER.remove();
+        // 无需释放
+    }
+
+    private static String format(long epochMillis, DateTimeFormatter formatter) {
+        return formatter.format(Instant.ofEpochMilli(epochMillis));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 延迟合并保存工具类
+ * 功能：高频写操作（如活动报名高峰）只登记"需要保存"，由后台线程在短暂延迟后统一写一次文件，
+ * 延迟期间同一key的多次保存请求合并为一次；快照在真正写文件时才生成，因此总是写入最新状态
+ * 保存失败时保留待保存数据并按指数退避重试（最长间隔eldercare.save.retry.max.ms，默认30秒），
+ * 持续失败的数据标识可通过getFailures查询（服务端健康检查据此报告DEGRADED），次数记录在deferred_saver.failures
+ * 程序退出时（关闭钩子）会写出所有未保存的数据
+ */
+public class DeferredSaver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeferredSaver.class);
+    // 合并窗口（毫秒），可通过系统属性eldercare.save.delay.ms调整
+    private static final long DELAY_MILLIS = Long.getLong("eldercare.save.delay.ms", 50L);
+    // 保存失败后重试的最长间隔（毫秒）
+    private static final long MAX_RETRY_MILLIS = Long.getLong("eldercare.save.retry.max.ms", 30_000L);
+    // 等待写入的数据：key -> 快照生成器
+    private static final ConcurrentHashMap<String, Supplier<?>> PENDING = new ConcurrentHashMap<>();
+    // 保存失败的数据：key -> 连续失败情况（保存成功后移除）
+    private static final ConcurrentHashMap<String, Failure> FAILURES = new ConcurrentHashMap<>();
+    private static final MetricsRegistry.Counter FAILURE_COUNTER = MetricsRegistry.counter("deferred_saver.failures");
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "eldercare-deferred-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 写文件锁：保证同一时刻只有一个线程在写数据文件（后台线程与关闭钩子可能同时写）
+    private static final Object WRITE_LOCK = new Object();
+    // 写出后要执行的回调：key -> 回调列表（由WRITE_LOCK保护）
+    private static final Map<String, List<Runnable>> AFTER_SAVE = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DeferredSaver::flushAll, "eldercare-deferred-saver-shutdown"));
+        MetricsRegistry.gauge("deferred_saver.pending", PENDING::size);
+        MetricsRegistry.gauge("deferred_saver.failing", FAILURES::size);
+    }
+
+    private DeferredSaver() {}
+
+    /**
+     * 登记一次保存请求（立即返回，不阻塞调用方）
+     * @param key 数据标识，与DataStorageUtil的key一致
+     * @param snapshot 快照生成器，写文件时在后台线程调用，需自行保证线程安全
+     */
+    public static void schedule(String key, Supplier<?> snapshot) {
+        if (PENDING.put(key, snapshot) == null) {
+            EXECUTOR.schedule(() -> flush(key), DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 立即写出指定key的未保存数据（无待保存数据时直接返回）；失败时保留待保存数据，退避后自动重试
+     * @param key 数据标识
+     * @return 是否已写出（无待保存数据时也返回true）
+     */
+    public static boolean flush(String key) {
+        synchronized (WRITE_LOCK) {
+            Supplier<?> snapshot = PENDING.remove(key);
+            if (snapshot == null) {
+                return true;
+            }
+            try {
+                DataStorageUtil.saveData(key, snapshot.get());
+            } catch (IOException | RuntimeException e) {
+                retryLater(key, snapshot, e);
+                return false;
+            }
+            Failure recovered = FAILURES.remove(key);
+            if (recovered != null) {
+                LOGGER.info("数据保存已恢复：{}（此前连续失败{}次）", key, recovered.attempts);
+            }
+            List<Runnable> callbacks = AFTER_SAVE.remove(key);
+            if (callbacks != null) {
+                callbacks.forEach(EXECUTOR::execute);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 指定key的未保存数据写出后（包括失败后重试成功）在后台线程执行回调，如写出失败而推迟的重新加载；
+     * 当前没有未保存数据时立即在后台线程执行
+     * 回调在写文件锁之外执行，可以再调用flush
+     * @param key 数据标识
+     * @param callback 回调
+     */
+    public static void whenSaved(String key, Runnable callback) {
+        synchronized (WRITE_LOCK) {
+            if (PENDING.containsKey(key)) {
+                AFTER_SAVE.computeIfAbsent(key, k -> new ArrayList<>()).add(callback);
+            } else {
+                EXECUTOR.execute(callback);
+            }
+        }
+    }
+
+    // 调用方需持有WRITE_LOCK；期间已有新的保存请求时保留新的快照生成器（同样生成最新状态）
+    private static void retryLater(String key, Supplier<?> snapshot, Exception e) {
+        FAILURE_COUNTER.increment();
+        Failure failure = FAILURES.compute(key, (k, previous) ->
+                new Failure(previous == null ? 1 : previous.attempts + 1, String.valueOf(e.getMessage())));
+        long delay = Math.min(MAX_RETRY_MILLIS, DELAY_MILLIS << Math.min(failure.attempts, 20));
+        LOGGER.error("数据保存失败（第{}次），{}毫秒后重试：{}", failure.attempts, delay, key, e);
+        PENDING.putIfAbsent(key, snapshot);
+        EXECUTOR.schedule(() -> flush(key), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 当前保存失败、仍在等待重试的数据
+     * @return 数据标识 -> 连续失败次数和最近一次错误信息
+     */
+    public static Map<String, String> getFailures() {
+        Map<String, String> failures = new TreeMap<>();
+        FAILURES.forEach((key, failure) -> failures.put(key, "连续失败" + failure.attempts + "次：" + failure.message));
+        return failures;
+    }
+
+    /**
+     * 连续保存失败情况
+     */
+    private static final class Failure {
+        final int attempts;
+        final String message;
+
+        Failure(int attempts, String message) {
+            this.attempts = attempts;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 立即写出所有未保存数据；后台线程正在写出的数据同样等待写完（关闭钩子返回后进程即退出）
+     */
+    public static void flushAll() {
+        synchronized (WRITE_LOCK) {
+            for (String key : PENDING.keySet()) {
+                flush(key);
+            }
+        }
+    }
+}
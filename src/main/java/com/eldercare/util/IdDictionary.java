@@ -0,0 +1,99 @@
+package com.eldercare.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体ID字典工具类
+ * 功能：将外部字符串ID（如ELDER_20251201123045123_00030042）映射为稠密的int代理键
+ * 内部索引、报名集合、关系集合统一使用int代理键，每个引用只占4字节；
+ * 字符串ID仅在展示、持久化时解码，同一ID在内存中只保留一份实例
+ */
+public class IdDictionary {
+    // 字符串ID -> 代理键（代理键从1开始，0表示不存在）
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>();
+    // 代理键 -> 字符串ID（按代理键下标存放，扩容时整体替换后再发布）
+    private static volatile String[] values = new String[1024];
+    // 下一个待分配的代理键
+    private static int nextCode = 1;
+
+    private IdDictionary() {}
+
+    /**
+     * 编码字符串ID（不存在时分配新的代理键）
+     * @param id 外部字符串ID
+     * @return 代理键（大于0）
+     */
+    public static int encode(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("实体ID不能为空");
+        }
+        Integer code = CODES.get(id);
+        if (code != null) {
+            return code;
+        }
+        return register(id.trim());
+    }
+
+    /**
+     * 查询字符串ID的代理键（不存在时不分配）
+     * @param id 外部字符串ID
+     * @return 代理键；未登记或参数为空时返回0
+     */
+    public static int lookup(String id) {
+        if (id == null) {
+            return 0;
+        }
+        Integer code = CODES.get(id);
+        if (code == null) {
+            code = CODES.get(id.trim());
+        }
+        return code == null ? 0 : code;
+    }
+
+    /**
+     * 解码代理键
+     * @param code 代理键
+     * @return 字符串ID；代理键非法时返回null
+     */
+    public static String decode(int code) {
+        String[] snapshot = values;
+        return (code > 0 && code < snapshot.length) ? snapshot[code] : null;
+    }
+
+    /**
+     * 获取字符串ID在字典中的唯一实例（用于模型字段去重，避免同一ID保存多份字符串）
+     * @param id 外部字符串ID
+     * @return 字典中的实例；参数为空时原样返回
+     */
+    public static String canonical(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return id;
+        }
+        return decode(encode(id));
+    }
+
+    /**
+     * 已登记的ID数量
+     */
+    public static int size() {
+        return CODES.size();
+    }
+
+    // 慢路径：加锁分配代理键，先写入解码数组再发布到映射表，保证拿到代理键即可解码
+    private static synchronized int register(String id) {
+        Integer code = CODES.get(id);
+        if (code != null) {
+            return code;
+        }
+        int newCode = nextCode++;
+        String[] current = values;
+        if (newCode >= current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[newCode] = id;
+        values = current;
+        CODES.put(id, newCode);
+        return newCode;
+    }
+}
@@ -1,22 +1,51 @@
 package com.eldercare.util;
 
-import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 唯一ID生成工具类
  * 功能：生成业务唯一ID，格式可读性强、全局唯一
  * 支持老人、健康记录、服务申请、活动等模块的ID生成
+ *
+ * 实现：类Snowflake的64位单调ID（41位毫秒时间戳 + 10位节点号 + 12位序列号），
+ * 每个业务前缀独立维护序列，热路径仅一次CAS，无锁；可读字符串在需要时再渲染。
+ * 多个实例同时生成ID（主备复制、共用数据目录）时必须用系统属性eldercare.node.id为每个实例指定不同的节点号：
+ * 未指定时由主机名散列得到，不同主机可能散列到同一节点号而生成重复ID
  */
 public class IdGenerator {
-    // 随机数生成器（静态单例，避免频繁创建对象）
-    private static final Random RANDOM = new Random();
-    // 随机数位数（3位，确保同一毫秒内生成多个ID也不重复）
-    private static final int RANDOM_DIGITS = 3;
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdGenerator.class);
+    // 节点号的系统属性
+    public static final String NODE_ID_PROPERTY = "eldercare.node.id";
+    // 自定义纪元（2024-01-01 00:00:00 UTC），41位毫秒时间戳可使用约69年
+    private static final long CUSTOM_EPOCH = 1704067200000L;
+    // 节点号位数（最多1024个节点）与序列号位数（每毫秒每前缀4096个ID）
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    // 节点号：优先读取系统属性eldercare.node.id，否则由主机名散列得到
+    private static final boolean NODE_ID_CONFIGURED = System.getProperty(NODE_ID_PROPERTY, "").trim().length() > 0;
+    private static final long NODE_ID = resolveNodeId();
+    // 每个业务前缀最近一次生成的原始ID
+    private static final ConcurrentHashMap<String, AtomicLong> LAST_IDS = new ConcurrentHashMap<>();
+    // 渲染用时间格式（DateTimeFormatter不可变，线程安全）；按UTC渲染：本地时区在夏令时回拨时同一时刻会出现两次，渲染出的ID会重复
+    private static final DateTimeFormatter RENDER_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
 
     /**
      * 生成老人唯一ID（前缀ELDER_）
-     * 格式：ELDER_时间戳_随机数
-     * @return 老人ID，如ELDER_20251201123045_123
+     * 格式：ELDER_时间戳_节点号序列号
+     * @return 老人ID，如ELDER_20251201123045123_00030042
      */
     public static String generateElderId() {
         return generateBusinessId("ELDER");
@@ -24,7 +53,7 @@ public class IdGenerator {
 
     /**
      * 生成健康记录唯一ID（前缀HEALTH_）
-     * @return 健康记录ID，如HEALTH_20251201123045_123
+     * @return 健康记录ID，如HEALTH_20251201123045123_00030042
      */
     public static String generateHealthRecordId() {
         return generateBusinessId("HEALTH");
@@ -32,7 +61,7 @@ public class IdGenerator {
 
     /**
      * 生成服务申请唯一ID（前缀SERVICE_）
-     * @return 服务申请ID，如SERVICE_20251201123045_123
+     * @return 服务申请ID，如SERVICE_20251201123045123_00030042
      */
     public static String generateServiceRequestId() {
         return generateBusinessId("SERVICE");
@@ -40,7 +69,7 @@ public class IdGenerator {
 
     /**
      * 生成活动唯一ID（前缀ACTIVITY_）
-     * @return 活动ID，如ACTIVITY_20251201123045_123
+     * @return 活动ID，如ACTIVITY_20251201123045123_00030042
      */
     public static String generateActivityId() {
         return generateBusinessId("ACTIVITY");
@@ -48,23 +77,132 @@ public class IdGenerator {
 
     /**
      * 生成用户唯一ID（前缀USER_）
-     * @return 用户ID，如USER_20251201123045_123
+     * @return 用户ID，如USER_20251201123045123_00030042
      */
     public static String generateUserId() {
         return generateBusinessId("USER");
     }
 
     /**
-     * 生成通用业务ID（前缀+时间戳+随机数）
+     * 生成社区消息唯一ID（前缀MSG_）
+     * @return 消息ID，如MSG_20251201123045123_00030042
+     */
+    public static String generateMessageId() {
+        return generateBusinessId("MSG");
+    }
+
+    /**
+     * 生成健康预警唯一ID（前缀ALERT_）
+     * @return 预警ID，如ALERT_20251201123045123_00030042
+     */
+    public static String generateAlertId() {
+        return generateBusinessId("ALERT");
+    }
+
+    /**
+     * 生成原始64位ID（同一前缀内严格单调递增）
+     * 同一毫秒内序列号用尽时顺延到下一毫秒，不会重复也不会阻塞
+     * @param prefix 业务前缀，如ELDER、HEALTH
+     * @return 原始ID
+     */
+    public static long nextRawId(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new IllegalArgumentException("ID前缀【prefix】不能为空");
+        }
+        AtomicLong last = LAST_IDS.computeIfAbsent(prefix, p -> new AtomicLong());
+        long floor = ((CachedClock.currentTimeMillis() - CUSTOM_EPOCH) << TIMESTAMP_SHIFT) | (NODE_ID << SEQUENCE_BITS);
+        while (true) {
+            long prev = last.get();
+            long next = Math.max(prev + 1, floor);
+            // 序列号溢出时进位会改动节点位，此时跳到下一毫秒的起点
+            if (((next >>> SEQUENCE_BITS) & MAX_NODE_ID) != NODE_ID) {
+                next = (((prev >>> TIMESTAMP_SHIFT) + 1) << TIMESTAMP_SHIFT) | (NODE_ID << SEQUENCE_BITS);
+            }
+            if (last.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 将原始ID渲染为可读业务ID（前缀_UTC毫秒时间_节点号序列号）
+     * @param prefix 业务前缀
+     * @param rawId 原始ID
+     * @return 可读业务ID
+     */
+    public static String render(String prefix, long rawId) {
+        long node = (rawId >>> SEQUENCE_BITS) & MAX_NODE_ID;
+        long sequence = rawId & SEQUENCE_MASK;
+        StringBuilder sb = new StringBuilder(prefix.length() + 27);
+        sb.append(prefix).append('_');
+        RENDER_FORMATTER.formatTo(Instant.ofEpochMilli(extractTimestamp(rawId)), sb);
+        sb.append('_');
+        appendPadded(sb, node);
+        appendPadded(sb, sequence);
+        return sb.toString();
+    }
+
+    /**
+     * 从原始ID中解析出生成时间
+     * @param rawId 原始ID
+     * @return 毫秒时间戳
+     */
+    public static long extractTimestamp(long rawId) {
+        return (rawId >>> TIMESTAMP_SHIFT) + CUSTOM_EPOCH;
+    }
+
+    /**
+     * 生成通用业务ID（前缀+时间戳+节点号+序列号）
      * @param prefix 业务前缀，如ELDER、HEALTH
      * @return 业务唯一ID
      */
     private static String generateBusinessId(String prefix) {
-        // 1. 获取时间戳（yyyyMMddHHmmss，14位，如20251201123045）
-        String timestamp = DateFormatUtil.formatCurrentDateTime("yyyyMMddHHmmss");
-        // 2. 生成随机数（3位，000-999，不足3位补0）
-        String randomNum = String.format("%0" + RANDOM_DIGITS + "d", RANDOM.nextInt((int) Math.pow(10, RANDOM_DIGITS)));
-        // 3. 拼接ID（前缀_时间戳_随机数）
-        return String.format("%s_%s_%s", prefix, timestamp, randomNum);
+        return render(prefix, nextRawId(prefix));
+    }
+
+    // 固定4位十进制，不足补0（节点号最大1023，序列号最大4095）
+    private static void appendPadded(StringBuilder sb, long value) {
+        if (value < 1000) sb.append('0');
+        if (value < 100) sb.append('0');
+        if (value < 10) sb.append('0');
+        sb.append(value);
+    }
+
+    /**
+     * 是否通过系统属性eldercare.node.id指定了节点号
+     */
+    public static boolean isNodeIdConfigured() {
+        return NODE_ID_CONFIGURED;
+    }
+
+    /**
+     * 多实例运行前检查节点号：未指定时抛出异常
+     * @param mode 运行方式（用于错误信息），如"主备复制"
+     * @throws IllegalStateException 未通过系统属性eldercare.node.id指定节点号
+     */
+    public static void requireConfiguredNodeId(String mode) {
+        if (!NODE_ID_CONFIGURED) {
+            throw new IllegalStateException(mode + "时多个实例都会生成ID，请用-D" + NODE_ID_PROPERTY
+                    + "=0~" + MAX_NODE_ID + "为每个实例指定不同的节点号");
+        }
+    }
+
+    private static long resolveNodeId() {
+        if (NODE_ID_CONFIGURED) {
+            long nodeId = Long.parseLong(System.getProperty(NODE_ID_PROPERTY).trim());
+            if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+                throw new IllegalArgumentException("节点号必须在0-" + MAX_NODE_ID + "之间");
+            }
+            return nodeId;
+        }
+        long nodeId;
+        try {
+            nodeId = InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+        } catch (Exception e) {
+            nodeId = 0;
+        }
+        LOGGER.warn("未指定节点号（-D{}），由主机名散列得到{}；多个实例同时运行时不同主机可能得到相同节点号而生成重复ID",
+                NODE_ID_PROPERTY, nodeId);
+        return nodeId;
     }
-}
\ No newline at end of file
+}
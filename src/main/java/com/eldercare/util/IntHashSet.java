@@ -0,0 +1,182 @@
+package com.eldercare.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * int集合工具类
+ * 功能：开放寻址（线性探测）的原生int哈希集合，配合IdDictionary保存实体代理键
+ * 元素必须大于0（0用作空槽标记），非线程安全，由调用方负责同步
+ */
+public class IntHashSet {
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] slots;
+    private int size;
+    // 记录插入顺序，保证遍历顺序稳定（报名先后、候补顺序等场景需要）
+    private int[] order;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.slots = new int[capacity];
+        this.order = new int[Math.max(4, expectedSize)];
+    }
+
+    /**
+     * 添加元素
+     * @param value 元素（大于0）
+     * @return true-新增成功，false-已存在
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        if ((size + 1) > slots.length * LOAD_FACTOR) {
+            rehash(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (size == order.length) {
+            order = Arrays.copyOf(order, order.length << 1);
+        }
+        order[size++] = value;
+        return true;
+    }
+
+    /**
+     * 判断是否包含元素
+     */
+    public boolean contains(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 移除元素
+     * @return true-移除成功，false-不存在
+     */
+    public boolean remove(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                shiftBack(index, mask);
+                removeFromOrder(value);
+                size--;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * 按插入顺序遍历
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(order[i]);
+        }
+    }
+
+    /**
+     * 按插入顺序导出为数组
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(order, size);
+    }
+
+    /**
+     * 获取按插入顺序的第一个元素（集合为空时返回0）
+     */
+    public int first() {
+        return size == 0 ? EMPTY : order[0];
+    }
+
+    // 线性探测的删除：把后续同簇元素前移，避免使用墓碑标记
+    private void shiftBack(int index, int mask) {
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (slots[next] != EMPTY) {
+            int home = mix(slots[next]) & mask;
+            // 元素的理想位置不在(hole, next]区间内时，可以前移填洞
+            boolean movable = (hole <= next) ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = EMPTY;
+    }
+
+    private void removeFromOrder(int value) {
+        for (int i = 0; i < size; i++) {
+            if (order[i] == value) {
+                System.arraycopy(order, i + 1, order, i, size - i - 1);
+                return;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] newSlots = new int[newCapacity];
+        int mask = newCapacity - 1;
+        for (int i = 0; i < size; i++) {
+            int value = order[i];
+            int index = mix(value) & mask;
+            while (newSlots[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            newSlots[index] = value;
+        }
+        slots = newSlots;
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("集合元素必须大于0：" + value);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.eldercare.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 时间区间索引工具类
+ * 功能：按开始时间有序保存[开始, 结束)区间，查询与指定时间段重叠的区间
+ * 实现：跳表按开始时间排序，并记录最长区间长度；重叠查询只需扫描开始时间落在
+ * [查询开始 - 最长区间长度, 查询结束)内的区间，耗时为O(log n + 命中数)，适用于区间长度有上限的场景（如活动时段）
+ * 线程安全：查询无锁，写操作串行
+ * @param <K> 区间标识类型（如活动ID）
+ */
+public class IntervalIndex<K extends Comparable<K>> {
+    private final ConcurrentSkipListSet<Interval<K>> byStart = new ConcurrentSkipListSet<>(
+            Comparator.<Interval<K>>comparingLong(interval -> interval.start)
+                    .thenComparing(interval -> interval.key, Comparator.nullsFirst(Comparator.naturalOrder())));
+    private final ConcurrentHashMap<K, Interval<K>> byKey = new ConcurrentHashMap<>();
+    // 最长区间长度（只增不减，删除区间后查询范围略偏大，结果仍正确）
+    private volatile long maxLength;
+
+    /**
+     * 添加或更新区间
+     * @param key 区间标识
+     * @param start 开始时间（毫秒，包含）
+     * @param end 结束时间（毫秒，不包含），必须大于开始时间
+     */
+    public synchronized void put(K key, long start, long end) {
+        if (key == null) {
+            throw new IllegalArgumentException("区间标识不能为空");
+        }
+        if (end <= start) {
+            throw new IllegalArgumentException("区间结束时间必须晚于开始时间");
+        }
+        Interval<K> interval = new Interval<>(key, start, end);
+        Interval<K> old = byKey.put(key, interval);
+        if (old != null) {
+            byStart.remove(old);
+        }
+        byStart.add(interval);
+        if (end - start > maxLength) {
+            maxLength = end - start;
+        }
+    }
+
+    /**
+     * 删除区间
+     * @return true-删除成功，false-区间不存在
+     */
+    public synchronized boolean remove(K key) {
+        Interval<K> old = byKey.remove(key);
+        return old != null && byStart.remove(old);
+    }
+
+    /**
+     * 删除全部区间
+     */
+    public synchronized void clear() {
+        byKey.clear();
+        byStart.clear();
+    }
+
+    /**
+     * 查询与[from, to)重叠的区间
+     * @return 区间标识列表，按开始时间升序
+     */
+    public List<K> overlapping(long from, long to) {
+        List<K> result = new ArrayList<>();
+        if (to <= from) {
+            return result;
+        }
+        long lowerStart = from - maxLength;
+        if (lowerStart > from) {
+            lowerStart = Long.MIN_VALUE; // 溢出
+        }
+        for (Interval<K> interval : byStart.subSet(new Interval<>(null, lowerStart, 0), true, new Interval<>(null, to, 0), false)) {
+            if (interval.end > from) {
+                result.add(interval.key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询开始时间落在[from, to)内的区间
+     * @return 区间标识列表，按开始时间升序
+     */
+    public List<K> startingBetween(long from, long to) {
+        List<K> result = new ArrayList<>();
+        if (to <= from) {
+            return result;
+        }
+        for (Interval<K> interval : byStart.subSet(new Interval<>(null, from, 0), true, new Interval<>(null, to, 0), false)) {
+            result.add(interval.key);
+        }
+        return result;
+    }
+
+    public int size() {
+        return byKey.size();
+    }
+
+    private static final class Interval<K> {
+        private final K key;
+        private final long start;
+        private final long end;
+
+        private Interval(K key, long start, long end) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
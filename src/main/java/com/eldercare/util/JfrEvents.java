@@ -0,0 +1,130 @@
+package com.eldercare.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * JFR（Java Flight Recorder）自定义事件工具类
+ * 功能：在数据读写、业务方法、界面表格刷新处产生JFR事件，界面卡顿时可从录制文件中区分是反序列化、业务循环还是界面绘制耗时
+ * 未开启录制时事件不会被记录，开销可忽略；录制配置见resources/jfr/eldercare.jfc，分析工具见com.eldercare.JfrAnalyzer
+ * 业务方法调用事件由业务计时器统一产生（MetricsRegistry.serviceTimer，计时即记录事件），业务代码无需直接调用本类
+ */
+public class JfrEvents {
+    // 事件名称（分析工具按名称筛选）
+    public static final String STORAGE_EVENT = "com.eldercare.Storage";
+    public static final String SERVICE_CALL_EVENT = "com.eldercare.ServiceCall";
+    public static final String UI_REFRESH_EVENT = "com.eldercare.UiRefresh";
+
+    private JfrEvents() {}
+
+    /**
+     * 开始记录一次数据读写
+     * @param key 数据标识
+     * @param operation 操作（read/write）
+     */
+    public static StorageEvent beginStorage(String key, String operation) {
+        StorageEvent event = new StorageEvent();
+        event.key = key;
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 开始记录一次业务方法调用（由MetricsRegistry的业务计时器调用）
+     * @param service 业务类名
+     * @param method 方法名
+     */
+    public static ServiceCallEvent beginServiceCall(String service, String method) {
+        ServiceCallEvent event = new ServiceCallEvent();
+        event.service = service;
+        event.method = method;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 开始记录一次界面表格刷新
+     * @param frame 界面类名
+     * @param method 刷新方法名
+     */
+    public static UiRefreshEvent beginUiRefresh(String frame, String method) {
+        UiRefreshEvent event = new UiRefreshEvent();
+        event.frame = frame;
+        event.method = method;
+        event.eventDispatchThread = SwingUtilities.isEventDispatchThread();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 数据读写事件（DataStorageUtil的读取、保存）
+     */
+    @Name(STORAGE_EVENT)
+    @Label("数据读写")
+    @Description("序列化数据文件的读取或保存")
+    @Category({"Eldercare", "Storage"})
+    @StackTrace(false)
+    public static final class StorageEvent extends Event {
+        @Label("数据标识")
+        String key;
+
+        @Label("操作")
+        String operation;
+
+        @Label("字节数")
+        @DataAmount
+        long bytes;
+
+        private StorageEvent() {}
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 业务方法调用事件（带业务计时器的方法；业务方法互相调用时事件会嵌套）
+     */
+    @Name(SERVICE_CALL_EVENT)
+    @Label("业务方法调用")
+    @Description("业务层公开方法的一次调用")
+    @Category({"Eldercare", "Service"})
+    @StackTrace(false)
+    public static final class ServiceCallEvent extends Event {
+        @Label("业务类")
+        String service;
+
+        @Label("方法")
+        String method;
+
+        private ServiceCallEvent() {}
+    }
+
+    /**
+     * 界面表格刷新事件
+     */
+    @Name(UI_REFRESH_EVENT)
+    @Label("界面刷新")
+    @Description("界面重新加载表格数据")
+    @Category({"Eldercare", "UI"})
+    public static final class UiRefreshEvent extends Event {
+        @Label("界面")
+        String frame;
+
+        @Label("方法")
+        String method;
+
+        @Label("是否在界面线程")
+        boolean eventDispatchThread;
+
+        private UiRefreshEvent() {}
+    }
+}
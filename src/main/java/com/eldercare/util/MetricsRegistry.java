@@ -0,0 +1,434 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 运行指标工具类
+ * 功能：记录方法耗时（计时器，含延迟分布）、计数（如读写字节数）、缓存命中率和队列长度（度量值），
+ * 每个指标注册为JMX MBean（域名com.eldercare，可用JConsole/VisualVM查看），并由后台线程定期写入数据目录下的metrics.log
+ * 记录操作只做无锁累加，可放在热路径上；指标名称建议使用"模块.操作"格式，如"storage.users.read"
+ *
+ * 用法：
+ *   long start = MetricsRegistry.timer("storage.users.read").start();
+ *   try { ... } finally { MetricsRegistry.timer("storage.users.read").stop(start); }
+ * 业务方法使用业务计时器，计时的同时产生JFR业务方法调用事件（JfrEvents.ServiceCallEvent）：
+ *   private static final MetricsRegistry.Timer LOGIN_TIMER = MetricsRegistry.serviceTimer("UserService", "login");
+ *   MetricsRegistry.Sample sample = LOGIN_TIMER.time();
+ *   try { ... } finally { sample.close(); }
+ *
+ * 系统属性：eldercare.metrics.jmx（是否注册JMX，默认true）、eldercare.metrics.dump.seconds（写文件间隔秒数，0表示不写，默认60）
+ */
+public class MetricsRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+    private static final String JMX_DOMAIN = "com.eldercare";
+    private static final boolean JMX_ENABLED = Boolean.parseBoolean(System.getProperty("eldercare.metrics.jmx", "true"));
+    private static final long DUMP_SECONDS = Long.getLong("eldercare.metrics.dump.seconds", 60L);
+    private static final String DUMP_FILE_NAME = "metrics.log";
+    // 指标文件超过该大小时滚动为metrics.log.1（只保留一份旧文件）
+    private static final long DUMP_MAX_BYTES = 1024 * 1024;
+
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CacheStats> CACHES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> GAUGES = new ConcurrentHashMap<>();
+
+    static {
+        if (DUMP_SECONDS > 0) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "eldercare-metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(MetricsRegistry::dumpQuietly, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private MetricsRegistry() {}
+
+    /**
+     * 获取（不存在则创建）计时器
+     * @param name 指标名称
+     */
+    public static Timer timer(String name) {
+        Timer timer = TIMERS.get(name);
+        return timer != null ? timer : register(TIMERS, name, new Timer(), "Timer");
+    }
+
+    /**
+     * 获取（不存在则创建）业务方法计时器，指标名称为"业务类.方法"；通过time()计时时同时产生JFR业务方法调用事件
+     * @param service 业务类名
+     * @param method 方法名
+     */
+    public static Timer serviceTimer(String service, String method) {
+        Timer timer = timer(service + "." + method);
+        timer.service = service;
+        timer.method = method;
+        return timer;
+    }
+
+    /**
+     * 获取（不存在则创建）计数器
+     * @param name 指标名称
+     */
+    public static Counter counter(String name) {
+        Counter counter = COUNTERS.get(name);
+        return counter != null ? counter : register(COUNTERS, name, new Counter(), "Counter");
+    }
+
+    /**
+     * 获取（不存在则创建）缓存命中统计
+     * @param name 缓存名称
+     */
+    public static CacheStats cache(String name) {
+        CacheStats cache = CACHES.get(name);
+        return cache != null ? cache : register(CACHES, name, new CacheStats(), "Cache");
+    }
+
+    /**
+     * 注册度量值（如队列长度），读取指标时调用supplier取当前值；同名度量值重复注册时以最后一次为准
+     * @param name 指标名称
+     * @param supplier 当前值提供者，需线程安全且足够轻量
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        Gauge gauge = register(GAUGES, name, new Gauge(), "Gauge");
+        gauge.supplier = supplier;
+    }
+
+    private static <T> T register(ConcurrentHashMap<String, T> metrics, String name, T metric, String type) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("指标名称不能为空");
+        }
+        T existing = metrics.putIfAbsent(name, metric);
+        if (existing != null) {
+            return existing;
+        }
+        if (JMX_ENABLED) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(metric, objectName);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("JMX注册失败：{}，{}", name, e.getMessage());
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * 生成当前所有指标的文本快照（按类型、名称排序）
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("==== ").append(DateFormatUtil.formatDateTime(System.currentTimeMillis(), "yyyy-MM-dd HH:mm:ss")).append(" ====\n");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(TIMERS).entrySet()) {
+            Timer timer = entry.getValue();
+            text.append(String.format("timer   %-45s count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms%n",
+                    entry.getKey(), timer.getCount(), timer.getMeanMillis(), timer.getP50Millis(),
+                    timer.getP95Millis(), timer.getP99Millis(), timer.getMaxMillis()));
+        }
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            text.append(String.format("counter %-45s %d%n", entry.getKey(), entry.getValue().getCount()));
+        }
+        for (Map.Entry<String, CacheStats> entry : new TreeMap<>(CACHES).entrySet()) {
+            CacheStats cache = entry.getValue();
+            text.append(String.format("cache   %-45s hits=%d misses=%d hitRatio=%.4f%n",
+                    entry.getKey(), cache.getHits(), cache.getMisses(), cache.getHitRatio()));
+        }
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(GAUGES).entrySet()) {
+            text.append(String.format("gauge   %-45s %d%n", entry.getKey(), entry.getValue().getValue()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * 立即把指标快照追加写入数据目录下的metrics.log
+     * @throws IOException 当文件写入失败时抛出
+     */
+    public static void dump() throws IOException {
+        Path file = DataStorageUtil.getDataFile(DUMP_FILE_NAME);
+        if (Files.exists(file) && Files.size(file) > DUMP_MAX_BYTES) {
+            Files.move(file, DataStorageUtil.getDataFile(DUMP_FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(file, snapshot().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("指标写入失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计时器JMX接口
+     */
+    public interface TimerMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getMaxMillis();
+        double getP50Millis();
+        double getP95Millis();
+        double getP99Millis();
+    }
+
+    /**
+     * 计时器：记录次数、总耗时、最大耗时，以及按2的幂微秒分桶的延迟分布（分位数为所在桶的上界，误差不超过一倍）
+     */
+    public static final class Timer implements TimerMXBean {
+        // 第i个桶：耗时小于2^i微秒（第0个桶为小于1微秒），最后一个桶收纳更大的值
+        private static final int BUCKET_COUNT = 40;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        // 业务计时器对应的业务类和方法（serviceTimer创建时设置），普通计时器为null
+        private volatile String service;
+        private volatile String method;
+
+        private Timer() {}
+
+        /**
+         * 开始一次计时，配合try-with-resources使用，关闭时记录耗时；业务计时器同时记录JFR业务方法调用事件
+         */
+        public Sample time() {
+            JfrEvents.ServiceCallEvent event = service == null ? null : JfrEvents.beginServiceCall(service, method);
+            return new Sample(this, event);
+        }
+
+        /**
+         * 开始计时
+         * @return 开始时间（纳秒），传给stop
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * 结束计时并记录
+         * @param startNanos start返回的开始时间
+         */
+        public void stop(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * 记录一次耗时
+         * @param nanos 耗时（纳秒）
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentileMillis(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return percentileMillis(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentileMillis(0.99);
+        }
+
+        private double percentileMillis(double percentile) {
+            long[] snapshot = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    // 桶上界不超过实际最大值
+                    return Math.min((1L << i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+
+    /**
+     * 一次计时（Timer.time()返回），close时记录耗时并提交JFR事件
+     */
+    public static final class Sample implements AutoCloseable {
+        private final Timer timer;
+        private final JfrEvents.ServiceCallEvent event;
+        private final long startNanos = System.nanoTime();
+
+        private Sample(Timer timer, JfrEvents.ServiceCallEvent event) {
+            this.timer = timer;
+            this.event = event;
+        }
+
+        @Override
+        public void close() {
+            if (event != null) {
+                event.commit();
+            }
+            timer.stop(startNanos);
+        }
+    }
+
+    /**
+     * 计数器JMX接口
+     */
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    /**
+     * 计数器
+     */
+    public static final class Counter implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {}
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long delta) {
+            count.add(delta);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * 缓存命中统计JMX接口
+     */
+    public interface CacheStatsMXBean {
+        long getHits();
+        long getMisses();
+        double getHitRatio();
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public static final class CacheStats implements CacheStatsMXBean {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private CacheStats() {}
+
+        public void hit() {
+            hits.increment();
+        }
+
+        public void miss() {
+            misses.increment();
+        }
+
+        @Override
+        public long getHits() {
+            return hits.sum();
+        }
+
+        @Override
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * 命中率（0~1），无访问时为0
+         */
+        @Override
+        public double getHitRatio() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total == 0 ? 0 : (double) h / total;
+        }
+    }
+
+    /**
+     * 度量值JMX接口
+     */
+    public interface GaugeMXBean {
+        long getValue();
+    }
+
+    /**
+     * 度量值（如队列长度）：读取时才计算
+     */
+    public static final class Gauge implements GaugeMXBean {
+        private volatile LongSupplier supplier = () -> 0L;
+
+        private Gauge() {}
+
+        @Override
+        public long getValue() {
+            try {
+                return supplier.getAsLong();
+            } catch (RuntimeException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 数据复制日志工具类
+ * 功能：主库模式下记录每次已提交的数据文件修改（整文件写入、journal追加、删除），按日志序号（LSN）排列，
+ * 由复制服务（com.eldercare.server.ReplicationPrimary）发送给备库，由连续备份（ContinuousBackup）归档；备库用apply按顺序重放
+ * 同步模式下写入方在awaitCommit中等待至少一个备库确认，超时后不再等待（记录replication.sync_timeouts）
+ * 内存中只保留最近的修改（总字节数上限可配置），备库落后超出保留范围时改为发送全量快照
+ * 未启用时各记录方法直接返回0，不读取文件，不影响单机运行
+ */
+public class ReplicationLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationLog.class);
+    // 复制状态文件（纪元、日志来源、已应用的序号），不参与复制
+    public static final String STATE_FILE = "replication.state";
+    // 内存中保留的修改总字节数上限，可通过系统属性eldercare.replication.log.bytes调整
+    private static final long MAX_RETAINED_BYTES = Long.getLong("eldercare.replication.log.bytes", 64L * 1024 * 1024);
+    // 同步模式下等待备库确认的超时时间（毫秒），可通过系统属性eldercare.replication.sync.timeout.ms调整
+    private static final long SYNC_TIMEOUT_MILLIS = Long.getLong("eldercare.replication.sync.timeout.ms", 5_000L);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final Condition APPENDED = LOCK.newCondition();
+    private static final Condition ACKNOWLEDGED = LOCK.newCondition();
+    // 以下字段由LOCK保护
+    private static final ArrayDeque<Mutation> RECENT = new ArrayDeque<>();
+    private static long retainedBytes;
+    private static long lastLsn;
+    private static long ackedLsn;
+    private static int standbyCount;
+    private static boolean syncMode;
+    private static long historyId;
+    private static long epoch;
+    private static volatile boolean enabled;
+
+    static {
+        MetricsRegistry.gauge("replication.lsn", ReplicationLog::currentLsn);
+        MetricsRegistry.gauge("replication.lag", () -> {
+            LOCK.lock();
+            try {
+                return standbyCount == 0 ? 0 : lastLsn - ackedLsn;
+            } finally {
+                LOCK.unlock();
+            }
+        });
+    }
+
+    private ReplicationLog() {}
+
+    /**
+     * 修改类型
+     */
+    public enum Operation {
+        // 整文件写入（data为文件全部内容）
+        PUT,
+        // 在offset处写入data并截断到其末尾（journal追加）
+        APPEND,
+        // 删除文件
+        DELETE
+    }
+
+    /**
+     * 一次数据文件修改
+     */
+    public static final class Mutation {
+        private final long lsn;
+        private final Operation operation;
+        private final String fileName;
+        private final long offset;
+        private final byte[] data;
+        // 记录时间（毫秒），按时间点恢复时用于截止重放
+        private final long timestamp;
+
+        public Mutation(long lsn, Operation operation, String fileName, long offset, byte[] data) {
+            this(lsn, operation, fileName, offset, data, CachedClock.currentTimeMillis());
+        }
+
+        public Mutation(long lsn, Operation operation, String fileName, long offset, byte[] data, long timestamp) {
+            this.lsn = lsn;
+            this.operation = operation;
+            this.fileName = fileName;
+            this.offset = offset;
+            this.data = data;
+            this.timestamp = timestamp;
+        }
+
+        public long getLsn() {
+            return lsn;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * 开始记录修改（主库启动复制服务、启动连续备份时调用）
+     * 日志来源ID取启动时间：主库重启或备库提升后日志重新编号，备库据此判断需要全量快照
+     * 已启用时不重新编号，只在sync为true时切换为同步模式
+     * @param sync true-同步模式（写入等待备库确认），false-异步模式
+     */
+    public static void enable(boolean sync) throws IOException {
+        Properties state = readState();
+        LOCK.lock();
+        try {
+            if (enabled) {
+                syncMode |= sync;
+                return;
+            }
+            syncMode = sync;
+            epoch = Long.parseLong(state.getProperty("epoch", "0"));
+            historyId = System.currentTimeMillis();
+            lastLsn = 0;
+            ackedLsn = 0;
+            RECENT.clear();
+            retainedBytes = 0;
+            enabled = true;
+        } finally {
+            LOCK.unlock();
+        }
+        // 主库不再是任何库的备库：保存纪元和新的日志来源
+        state.setProperty("epoch", String.valueOf(epoch));
+        state.setProperty("historyId", String.valueOf(historyId));
+        state.setProperty("lsn", "0");
+        writeState(state);
+        LOGGER.info("数据复制日志已启用：{}模式，纪元{}", sync ? "同步" : "异步", epoch);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录整文件写入（调用方需持有该文件的排他锁，文件已写完）
+     * @return 日志序号；未启用时为0
+     */
+    public static long recordPut(String fileName, Path file) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        return append(Operation.PUT, fileName, 0, Files.readAllBytes(file));
+    }
+
+    /**
+     * 记录文件追加（调用方需持有该文件的排他锁，数据已写入文件）
+     * @param offset 追加前的文件长度
+     * @param length 追加的字节数
+     * @return 日志序号；未启用时为0
+     */
+    public static long recordAppend(String fileName, Path file, long offset, int length) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("文件长度不足，无法记录追加内容：" + fileName);
+                }
+            }
+        }
+        return append(Operation.APPEND, fileName, offset, buffer.array());
+    }
+
+    /**
+     * 记录文件删除
+     * @return 日志序号；未启用时为0
+     */
+    public static long recordDelete(String fileName) {
+        if (!enabled) {
+            return 0;
+        }
+        return append(Operation.DELETE, fileName, 0, new byte[0]);
+    }
+
+    private static long append(Operation operation, String fileName, long offset, byte[] data) {
+        LOCK.lock();
+        try {
+            Mutation mutation = new Mutation(++lastLsn, operation, fileName, offset, data);
+            RECENT.addLast(mutation);
+            retainedBytes += data.length;
+            while (retainedBytes > MAX_RETAINED_BYTES && RECENT.size() > 1) {
+                retainedBytes -= RECENT.removeFirst().getData().length;
+            }
+            APPENDED.signalAll();
+            return mutation.getLsn();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 同步模式下等待至少一个备库确认该序号（写入方在释放文件锁后调用）；异步模式或没有已连接的备库时直接返回
+     * @param lsn record*返回的日志序号
+     */
+    public static void awaitCommit(long lsn) {
+        if (lsn == 0) {
+            return;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(SYNC_TIMEOUT_MILLIS);
+        LOCK.lock();
+        try {
+            if (!syncMode) {
+                return;
+            }
+            while (ackedLsn < lsn && standbyCount > 0) {
+                if (remaining <= 0) {
+                    MetricsRegistry.counter("replication.sync_timeouts").increment();
+                    LOGGER.warn("等待备库确认超时（{}毫秒），序号{}按异步提交", SYNC_TIMEOUT_MILLIS, lsn);
+                    return;
+                }
+                remaining = ACKNOWLEDGED.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 查询指定序号之后的修改；暂无修改时最多等待timeoutMillis毫秒
+     * @param afterLsn 备库已收到的序号
+     * @return 修改列表（可能为空）；afterLsn之后的修改已不在内存中（或afterLsn大于当前序号）时返回null，需发送全量快照
+     */
+    public static List<Mutation> awaitAfter(long afterLsn, long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        LOCK.lock();
+        try {
+            while (lastLsn == afterLsn && remaining > 0) {
+                remaining = APPENDED.awaitNanos(remaining);
+            }
+            if (afterLsn > lastLsn) {
+                return null;
+            }
+            List<Mutation> result = new ArrayList<>();
+            if (afterLsn == lastLsn) {
+                return result;
+            }
+            if (RECENT.isEmpty() || RECENT.peekFirst().getLsn() > afterLsn + 1) {
+                return null;
+            }
+            for (Mutation mutation : RECENT) {
+                if (mutation.getLsn() > afterLsn) {
+                    result.add(mutation);
+                }
+            }
+            return result;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 备库确认已应用到lsn
+     */
+    public static void acknowledge(long lsn) {
+        LOCK.lock();
+        try {
+            if (lsn > ackedLsn) {
+                ackedLsn = lsn;
+                ACKNOWLEDGED.signalAll();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 备库连接、断开时调用（没有已连接的备库时同步模式不等待）
+     * @param delta 1-连接，-1-断开
+     */
+    public static void standbyConnected(int delta) {
+        LOCK.lock();
+        try {
+            standbyCount += delta;
+            ACKNOWLEDGED.signalAll();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static long currentLsn() {
+        LOCK.lock();
+        try {
+            return lastLsn;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static long getHistoryId() {
+        LOCK.lock();
+        try {
+            return historyId;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static long getEpoch() {
+        LOCK.lock();
+        try {
+            return epoch;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 是否为参与复制的数据文件（序列化数据、journal及合并中的journal；锁文件、临时文件、状态文件等除外）
+     */
+    public static boolean isReplicated(String fileName) {
+        return fileName.endsWith(DataStorageUtil.DATA_FILE_SUFFIX) || fileName.endsWith(".journal")
+                || fileName.endsWith(".journal.compacting");
+    }
+
+    /**
+     * 备库应用一次修改（按文件取排他锁，与共用该目录的其他实例互斥）
+     */
+    public static void apply(Mutation mutation) throws IOException {
+        Path file = DataStorageUtil.getDataFile(mutation.getFileName());
+        StorageLocks.Handle lock = StorageLocks.exclusive(mutation.getFileName());
+        try {
+            switch (mutation.getOperation()) {
+                case PUT:
+                    writeAtomically(file, mutation.getData());
+                    break;
+                case APPEND:
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                        if (channel.size() < mutation.getOffset()) {
+                            throw new IOException("备库文件长度" + channel.size() + "小于追加位置" + mutation.getOffset()
+                                    + "：" + mutation.getFileName());
+                        }
+                        ByteBuffer buffer = ByteBuffer.wrap(mutation.getData());
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer, mutation.getOffset() + buffer.position());
+                        }
+                        channel.truncate(mutation.getOffset() + mutation.getData().length);
+                    }
+                    break;
+                case DELETE:
+                    Files.deleteIfExists(file);
+                    break;
+                default:
+                    throw new IOException("未知的修改类型：" + mutation.getOperation());
+            }
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * 读取复制状态（epoch、historyId、lsn），文件不存在时为空
+     */
+    public static Properties readState() throws IOException {
+        Properties state = new Properties();
+        Path file = DataStorageUtil.getDataFile(STATE_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                state.load(in);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 保存复制状态（先写临时文件再替换）
+     */
+    public static void writeState(Properties state) throws IOException {
+        Path file = DataStorageUtil.getDataFile(STATE_FILE);
+        Path temp = DataStorageUtil.getDataFile(STATE_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            state.store(out, "eldercare replication state");
+        }
+        replace(temp, file);
+    }
+
+    private static void writeAtomically(Path file, byte[] data) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, data);
+        replace(temp, file);
+    }
+
+    private static void replace(Path temp, Path file) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
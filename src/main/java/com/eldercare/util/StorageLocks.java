@@ -0,0 +1,346 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 数据文件跨进程锁工具类
+ * 功能：多个程序实例（可能在不同电脑上，共用本地或网络共享的数据目录）读写同一数据文件时互斥：
+ * 读取取共享锁，写入取排他锁；锁加在单独的锁文件（数据文件名.lock）上，数据文件本身可被整体替换
+ * 进程内先取读写锁再取文件锁（同一JVM不能对同一文件重复加锁，进程内的多个读者共用一把共享文件锁）
+ * 等待超过超时时间抛出LockTimeoutException，异常信息包含锁持有者（排他锁持有者把"进程@主机 时间"写入锁文件）；
+ * 持有者所在进程已退出仍无法取得锁时判定为失效锁（常见于网络文件系统的锁服务异常），在日志中提示
+ * 每个文件的等待耗时记录在MetricsRegistry中（storage.<文件名>.lock.wait），超时次数为storage.<文件名>.lock.timeouts
+ */
+public class StorageLocks {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageLocks.class);
+    // 锁文件扩展名
+    public static final String LOCK_FILE_SUFFIX = ".lock";
+    // 等待锁的超时时间（毫秒），可通过系统属性eldercare.storage.lock.timeout.ms调整
+    private static final long TIMEOUT_MILLIS = Long.getLong("eldercare.storage.lock.timeout.ms", 10_000L);
+    // 文件锁只锁第一个字节，持有者信息写在其后（部分系统的文件锁是强制锁，锁住的区域其他进程无法读取）
+    private static final long OWNER_OFFSET = 1;
+    private static final int MAX_OWNER_BYTES = 256;
+    // 本进程标识：进程号@主机名
+    private static final String PROCESS_ID = ManagementFactory.getRuntimeMXBean().getName();
+    // 文件名 -> 锁（创建后不删除，锁文件通道在进程内一直打开：关闭通道会释放本进程在该文件上的全部锁）
+    private static final ConcurrentHashMap<String, StoreLock> LOCKS = new ConcurrentHashMap<>();
+
+    private StorageLocks() {}
+
+    /**
+     * 等待锁超时
+     */
+    public static class LockTimeoutException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LockTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 已取得的锁，close时释放（在finally中调用；重复调用只释放一次）
+     */
+    public interface Handle extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * 只释放一次的锁句柄
+     */
+    private static final class HeldLock implements Handle {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Runnable release;
+
+        HeldLock(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * 取共享锁（读取数据文件前调用）
+     * @param fileName 数据目录下的文件名，如"users.ser"
+     * @throws LockTimeoutException 超时仍未取得锁
+     * @throws IOException 锁文件无法创建或打开
+     */
+    public static Handle shared(String fileName) throws IOException {
+        return lockOf(fileName).acquire(true);
+    }
+
+    /**
+     * 取排他锁（写入、删除数据文件前调用）
+     * @param fileName 数据目录下的文件名，如"users.ser"
+     * @throws LockTimeoutException 超时仍未取得锁
+     * @throws IOException 锁文件无法创建或打开
+     */
+    public static Handle exclusive(String fileName) throws IOException {
+        return lockOf(fileName).acquire(false);
+    }
+
+    /**
+     * 尝试取排他锁，不等待（用于在多个实例中选出唯一的执行者，如定时提醒）
+     * @param fileName 数据目录下的文件名
+     * @return 取得时返回锁；其他线程或实例正持有时返回null
+     * @throws IOException 锁文件无法创建或打开
+     */
+    public static Handle tryExclusive(String fileName) throws IOException {
+        return lockOf(fileName).tryAcquire();
+    }
+
+    private static StoreLock lockOf(String fileName) {
+        return LOCKS.computeIfAbsent(fileName, StoreLock::new);
+    }
+
+    /**
+     * 一个数据文件的锁
+     */
+    private static final class StoreLock {
+        private final String fileName;
+        private final ReentrantReadWriteLock localLock = new ReentrantReadWriteLock();
+        private final MetricsRegistry.Timer waitTimer;
+        private final MetricsRegistry.Counter timeouts;
+        // 进程内同一时间只有一个读者去取共享文件锁（取锁时轮询等待，不占用本对象锁）
+        private final ReentrantLock sharedAcquire = new ReentrantLock();
+        // 以下字段由本对象锁保护
+        private FileChannel channel;
+        private FileLock sharedFileLock;
+        private int sharedHolders;
+
+        StoreLock(String fileName) {
+            this.fileName = fileName;
+            this.waitTimer = MetricsRegistry.timer("storage." + fileName + ".lock.wait");
+            this.timeouts = MetricsRegistry.counter("storage." + fileName + ".lock.timeouts");
+        }
+
+        Handle acquire(boolean shared) throws IOException {
+            long start = waitTimer.start();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+            Lock local = shared ? localLock.readLock() : localLock.writeLock();
+            try {
+                if (!local.tryLock(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    waitTimer.stop(start);
+                    throw timeout(shared, "本进程内的其他线程");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待数据锁时被中断：" + fileName, e);
+            }
+            try {
+                if (shared) {
+                    acquireSharedFileLock(deadline);
+                    waitTimer.stop(start);
+                    return new HeldLock(() -> {
+                        releaseSharedFileLock();
+                        local.unlock();
+                    });
+                }
+                FileLock fileLock = acquireFileLock(false, deadline);
+                waitTimer.stop(start);
+                writeOwner();
+                return new HeldLock(() -> {
+                    release(fileLock);
+                    local.unlock();
+                });
+            } catch (IOException | RuntimeException e) {
+                local.unlock();
+                waitTimer.stop(start);
+                throw e;
+            }
+        }
+
+        Handle tryAcquire() throws IOException {
+            Lock local = localLock.writeLock();
+            if (!local.tryLock()) {
+                return null;
+            }
+            try {
+                FileLock fileLock = channel().tryLock(0, OWNER_OFFSET, false);
+                if (fileLock == null) {
+                    local.unlock();
+                    return null;
+                }
+                writeOwner();
+                return new HeldLock(() -> {
+                    release(fileLock);
+                    local.unlock();
+                });
+            } catch (IOException | RuntimeException e) {
+                local.unlock();
+                throw e;
+            }
+        }
+
+        // 进程内第一个读者取共享文件锁，最后一个读者释放；其他读者在截止时间前等待第一个读者取得
+        private void acquireSharedFileLock(long deadline) throws IOException {
+            try {
+                if (!sharedAcquire.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    throw timeout(true, "本进程内正在取锁的其他线程");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待数据锁时被中断：" + fileName, e);
+            }
+            try {
+                synchronized (this) {
+                    if (sharedHolders > 0) {
+                        sharedHolders++;
+                        return;
+                    }
+                }
+                FileLock fileLock = acquireFileLock(true, deadline);
+                synchronized (this) {
+                    sharedFileLock = fileLock;
+                    sharedHolders = 1;
+                }
+            } finally {
+                sharedAcquire.unlock();
+            }
+        }
+
+        private synchronized void releaseSharedFileLock() {
+            if (--sharedHolders == 0) {
+                release(sharedFileLock);
+                sharedFileLock = null;
+            }
+        }
+
+        // FileChannel.lock不支持超时，用tryLock轮询（间隔逐渐加长，最长10毫秒）
+        private FileLock acquireFileLock(boolean shared, long deadline) throws IOException {
+            FileChannel fileChannel = channel();
+            long sleepMillis = 1;
+            while (true) {
+                FileLock fileLock = fileChannel.tryLock(0, OWNER_OFFSET, shared);
+                if (fileLock != null) {
+                    return fileLock;
+                }
+                if (System.nanoTime() >= deadline) {
+                    throw timeout(shared, readOwner());
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("等待数据锁时被中断：" + fileName, e);
+                }
+                sleepMillis = Math.min(sleepMillis * 2, 10);
+            }
+        }
+
+        private void release(FileLock fileLock) {
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                LOGGER.warn("释放数据锁失败：{}（{}）", fileName, e.getMessage());
+            }
+        }
+
+        private synchronized FileChannel channel() throws IOException {
+            if (channel == null || !channel.isOpen()) {
+                Path lockFile = DataStorageUtil.getDataFile(fileName + LOCK_FILE_SUFFIX);
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+
+        /**
+         * 排他锁持有者写入"进程@主机 取锁时间"，供等待超时的其他实例诊断
+         */
+        private void writeOwner() {
+            byte[] owner = (PROCESS_ID + " " + DateFormatUtil.formatCurrentDateTime()).getBytes(StandardCharsets.UTF_8);
+            try {
+                FileChannel fileChannel = channel();
+                fileChannel.truncate(OWNER_OFFSET);
+                fileChannel.write(ByteBuffer.wrap(owner), OWNER_OFFSET);
+            } catch (IOException e) {
+                LOGGER.debug("写入锁持有者失败：{}（{}）", fileName, e.getMessage());
+            }
+        }
+
+        private String readOwner() {
+            try {
+                FileChannel fileChannel = channel();
+                ByteBuffer buffer = ByteBuffer.allocate(MAX_OWNER_BYTES);
+                fileChannel.read(buffer, OWNER_OFFSET);
+                String owner = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+                return owner.isEmpty() ? "未知" : owner;
+            } catch (IOException e) {
+                return "未知（" + e.getMessage() + "）";
+            }
+        }
+
+        private LockTimeoutException timeout(boolean shared, String owner) {
+            timeouts.increment();
+            String message = "等待数据" + (shared ? "读" : "写") + "锁超时（" + TIMEOUT_MILLIS + "毫秒）：" + fileName
+                    + "，最近的写入方：" + owner;
+            if (isStale(owner)) {
+                LOGGER.error("{}；该进程已退出，锁未被释放，请检查共享目录的文件锁服务", message);
+            } else {
+                LOGGER.warn(message);
+            }
+            return new LockTimeoutException(message);
+        }
+    }
+
+    /**
+     * 持有者是本机上已退出的进程时视为失效锁（其他主机上的进程无法判断）
+     * @param owner 锁文件中的持有者信息："进程号@主机名 时间"
+     */
+    static boolean isStale(String owner) {
+        int at = owner.indexOf('@');
+        int space = owner.indexOf(' ');
+        if (at <= 0 || space <= at) {
+            return false;
+        }
+        String host = owner.substring(at + 1, space);
+        if (!host.equals(PROCESS_ID.substring(PROCESS_ID.indexOf('@') + 1))) {
+            return false;
+        }
+        try {
+            long pid = Long.parseLong(owner.substring(0, at));
+            return pid != ProcessHandle.current().pid() && !ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 删除写入中途退出遗留的临时文件（调用方需持有该数据文件的排他锁，此时存在的临时文件不可能还在写入）
+     * @param tempFile 临时文件路径
+     */
+    static void removeStaleTemp(Path tempFile) {
+        try {
+            if (Files.deleteIfExists(tempFile)) {
+                MetricsRegistry.counter("storage.stale_temp_removed").increment();
+                LOGGER.warn("删除上次写入中断遗留的临时文件：{}", tempFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("删除遗留临时文件失败：{}（{}）", tempFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.eldercare.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 数据文件按条目三方合并（供DataStorageUtil在保存时发现文件已被其他实例修改后使用）
+ * 以本实例上次读取或写入的内容为基准：本实例修改过（含新增）的条目以本实例为准，本实例未修改的条目以文件中的为准；
+ * 本实例删除的条目删除，其他实例删除且本实例未修改的条目删除，其他实例新增的条目保留
+ * 条目是否修改按序列化后的字节比较，列表数据按条目标识（如老人ID）对应，Map数据按键对应
+ */
+final class StorageMerge {
+    private StorageMerge() {}
+
+    /**
+     * 合并结果
+     */
+    static final class Result {
+        final Object data;
+        // 以文件中版本为准的条目数（其他实例新增或修改且本实例未修改）
+        final int taken;
+
+        Result(Object data, int taken) {
+            this.data = data;
+            this.taken = taken;
+        }
+    }
+
+    /**
+     * 三方合并
+     * @param base 本实例上次读取或写入的数据（没有时为null，视为全部条目都由本实例新增）
+     * @param ours 本实例要保存的数据
+     * @param theirs 当前文件中的数据
+     * @param idOf 列表条目的标识（Map数据不使用）
+     * @throws IOException 条目无法序列化时抛出
+     */
+    @SuppressWarnings("unchecked")
+    static Result merge(Object base, Object ours, Object theirs, Function<Object, ?> idOf) throws IOException {
+        if (ours instanceof Map && (theirs == null || theirs instanceof Map) && (base == null || base instanceof Map)) {
+            Map<Object, Object> merged = new HashMap<>();
+            int taken = mergeEntries((Map<Object, Object>) base, (Map<Object, Object>) ours, (Map<Object, Object>) theirs, merged);
+            return new Result(merged, taken);
+        }
+        if (ours instanceof List && (theirs == null || theirs instanceof List) && (base == null || base instanceof List)
+                && idOf != null) {
+            Map<Object, Object> merged = new LinkedHashMap<>();
+            int taken = mergeEntries(index((List<Object>) base, idOf), index((List<Object>) ours, idOf),
+                    index((List<Object>) theirs, idOf), merged);
+            return new Result(new ArrayList<>(merged.values()), taken);
+        }
+        throw new IllegalArgumentException("数据类型不支持按条目合并：" + ours.getClass().getName());
+    }
+
+    // 结果保持本实例的顺序，其他实例新增的条目排在最后
+    private static int mergeEntries(Map<Object, Object> base, Map<Object, Object> ours, Map<Object, Object> theirs,
+                                    Map<Object, Object> merged) throws IOException {
+        Map<Object, Object> baseEntries = base == null ? new HashMap<>() : base;
+        Map<Object, Object> theirEntries = theirs == null ? new HashMap<>() : theirs;
+        int taken = 0;
+        for (Map.Entry<Object, Object> entry : ours.entrySet()) {
+            Object id = entry.getKey();
+            boolean unchanged = baseEntries.containsKey(id) && sameBytes(baseEntries.get(id), entry.getValue());
+            if (!unchanged) {
+                merged.put(id, entry.getValue());
+            } else if (theirEntries.containsKey(id)) {
+                Object their = theirEntries.get(id);
+                if (!sameBytes(their, entry.getValue())) {
+                    taken++;
+                }
+                merged.put(id, their);
+            }
+        }
+        for (Map.Entry<Object, Object> entry : theirEntries.entrySet()) {
+            if (!ours.containsKey(entry.getKey()) && !baseEntries.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), entry.getValue());
+                taken++;
+            }
+        }
+        return taken;
+    }
+
+    private static Map<Object, Object> index(List<Object> items, Function<Object, ?> idOf) {
+        if (items == null) {
+            return null;
+        }
+        Map<Object, Object> indexed = new LinkedHashMap<>();
+        for (Object item : items) {
+            indexed.put(idOf.apply(item), item);
+        }
+        return indexed;
+    }
+
+    private static boolean sameBytes(Object a, Object b) throws IOException {
+        return a == b || (a != null && b != null && Arrays.equals(serialize(a), serialize(b)));
+    }
+
+    static byte[] serialize(Object data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] raw) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(raw))) {
+            return ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.eldercare.util;
+
+import com.eldercare.model.ChangeEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 数据目录监视工具类
+ * 功能：多个程序实例共用同一数据目录时，监视其他实例对数据文件（*.ser、*.journal）的修改，
+ * 调用该文件登记的重新加载方法（业务类只丢弃这一类数据的内存缓存），
+ * 再发布RELOAD变更事件通知订阅方（统计、增量同步、远程客户端缓存、界面刷新）
+ * 本进程写文件后登记文件指纹（修改时间+大小），监视到的修改与指纹一致时视为自己写入，不触发重新加载；
+ * 同一文件的连续修改合并为一次，文件静止一段时间后才处理，避免读到写了一半的文件
+ */
+public class StorageWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageWatcher.class);
+    // 关闭监视的系统属性（默认开启）
+    public static final String WATCH_PROPERTY = "eldercare.storage.watch";
+    // 文件静止多久（毫秒）后才处理修改，可通过系统属性eldercare.storage.watch.quiet.ms调整
+    private static final long QUIET_MILLIS = Long.getLong("eldercare.storage.watch.quiet.ms", 200L);
+    // 文件名 -> 重新加载方法
+    private static final ConcurrentHashMap<String, List<Consumer<String>>> LISTENERS = new ConcurrentHashMap<>();
+    // 文件名 -> 本进程最近一次写入（或已处理的外部修改）后的文件指纹
+    private static final ConcurrentHashMap<String, Fingerprint> KNOWN = new ConcurrentHashMap<>();
+    private static WatchService watchService;
+    private static Path watchedDir;
+    // 只在监视线程中访问
+    private static boolean nodeIdWarned;
+
+    private StorageWatcher() {}
+
+    /**
+     * 开始监视数据目录（重复调用无效果；系统属性eldercare.storage.watch=false时不监视）
+     */
+    public static synchronized void start() {
+        if (watchService != null || !Boolean.parseBoolean(System.getProperty(WATCH_PROPERTY, "true"))) {
+            return;
+        }
+        try {
+            Path dir = DataStorageUtil.getDataDir();
+            Files.createDirectories(dir);
+            WatchService service = dir.getFileSystem().newWatchService();
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchService = service;
+            watchedDir = dir;
+        } catch (IOException e) {
+            LOGGER.warn("数据目录监视启动失败，其他实例的修改需重启后才能看到：{}", e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(StorageWatcher::run, "eldercare-storage-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("开始监视数据目录：{}", watchedDir.toAbsolutePath());
+    }
+
+    /**
+     * 停止监视
+     */
+    public static synchronized void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.debug("关闭数据目录监视失败：{}", e.getMessage());
+        }
+        watchService = null;
+    }
+
+    /**
+     * 登记数据文件被其他实例修改后的重新加载方法（在监视线程中调用，应只丢弃内存缓存，下次访问时再读取）
+     * @param fileName 数据目录下的文件名，如DataStorageUtil.fileNameOf("users")、"work_logs.journal"
+     * @param listener 参数为被修改的文件名
+     */
+    public static void addListener(String fileName, Consumer<String> listener) {
+        LISTENERS.computeIfAbsent(fileName, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public static void removeListener(String fileName, Consumer<String> listener) {
+        List<Consumer<String>> listeners = LISTENERS.get(fileName);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * 登记本进程对数据文件的写入（写入完成后调用），此后监视到的该次修改不触发重新加载
+     * @param file 数据文件路径
+     */
+    public static void recordLocalWrite(Path file) {
+        KNOWN.put(file.getFileName().toString(), Fingerprint.of(file));
+    }
+
+    /**
+     * 数据文件对应的实体类型（存储key）：文件名第一个"."之前的部分
+     */
+    static String entityTypeOf(String fileName) {
+        int dot = fileName.indexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static boolean isDataFile(String fileName) {
+        return fileName.endsWith(DataStorageUtil.DATA_FILE_SUFFIX) || fileName.endsWith(".journal");
+    }
+
+    private static void run() {
+        WatchService service;
+        Path dir;
+        synchronized (StorageWatcher.class) {
+            service = watchService;
+            dir = watchedDir;
+        }
+        // 待处理的文件名 -> 处理时间（最后一次修改后QUIET_MILLIS）
+        Map<String, Long> pending = new HashMap<>();
+        try {
+            while (true) {
+                long wait = QUIET_MILLIS * 5;
+                long now = System.currentTimeMillis();
+                for (long due : pending.values()) {
+                    wait = Math.min(wait, Math.max(1, due - now));
+                }
+                WatchKey key = service.poll(wait, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    long due = System.currentTimeMillis() + QUIET_MILLIS;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // 事件丢失：检查所有已知的数据文件
+                            for (String fileName : KNOWN.keySet()) {
+                                pending.put(fileName, due);
+                            }
+                            for (String fileName : LISTENERS.keySet()) {
+                                pending.put(fileName, due);
+                            }
+                            continue;
+                        }
+                        String fileName = event.context().toString();
+                        if (isDataFile(fileName)) {
+                            pending.put(fileName, due);
+                        }
+                    }
+                    key.reset();
+                }
+                now = System.currentTimeMillis();
+                for (Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (entry.getValue() <= now) {
+                        it.remove();
+                        check(dir.resolve(entry.getKey()));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("数据目录监视已停止");
+        }
+    }
+
+    /**
+     * 文件指纹与已知的不同时视为外部修改：重新加载并通知订阅方
+     */
+    private static void check(Path file) {
+        String fileName = file.getFileName().toString();
+        Fingerprint current = Fingerprint.of(file);
+        if (current.equals(KNOWN.put(fileName, current))) {
+            return;
+        }
+        LOGGER.info("数据文件被其他实例修改，重新加载：{}", fileName);
+        MetricsRegistry.counter("storage.external_changes").increment();
+        if (!IdGenerator.isNodeIdConfigured() && !nodeIdWarned) {
+            nodeIdWarned = true;
+            LOGGER.warn("数据目录被多个实例共用，但本实例未指定节点号（-D{}），各实例可能生成重复ID",
+                    IdGenerator.NODE_ID_PROPERTY);
+        }
+        List<Consumer<String>> listeners = LISTENERS.get(fileName);
+        if (listeners != null) {
+            for (Consumer<String> listener : listeners) {
+                try {
+                    listener.accept(fileName);
+                } catch (RuntimeException e) {
+                    LOGGER.error("重新加载失败：{}", fileName, e);
+                }
+            }
+        }
+        ChangeEventBus.publish(entityTypeOf(fileName), null, ChangeEvent.Operation.RELOAD, null, null);
+    }
+
+    /**
+     * 文件指纹：修改时间+大小（文件不存在时均为-1）
+     */
+    private static final class Fingerprint {
+        final long modified;
+        final long size;
+
+        Fingerprint(long modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        static Fingerprint of(Path file) {
+            try {
+                return new Fingerprint(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+            } catch (IOException e) {
+                return new Fingerprint(-1, -1);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return modified == other.modified && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modified, size);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.eldercare.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层时间轮定时器工具类
+ * 功能：管理大量到期时间不同的定时任务，添加、取消均为O(1)
+ * 实现：每层时间轮有固定数量的槽位，每个槽位是一个双向链表；超出本层范围的任务放入上一层（槽位跨度更大），
+ * 上层槽位到期时任务逐层下移，最终在最底层到期执行。只有非空槽位进入延迟队列，空闲时不会逐格空转
+ * 到期任务在独立的工作线程中执行，不阻塞时间轮推进
+ */
+public class TimingWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+    private final String name;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Level rootLevel;
+    private final ExecutorService taskExecutor;
+    private volatile boolean running;
+
+    /**
+     * @param name 名称（用于线程命名）
+     * @param tickMillis 最底层槽位跨度（毫秒），即定时精度
+     * @param wheelSize 每层槽位数
+     */
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("时间轮参数非法：tickMillis=" + tickMillis + "，wheelSize=" + wheelSize);
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.rootLevel = new Level(tickMillis, System.currentTimeMillis());
+        this.taskExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动时间轮推进线程（重复调用无副作用）
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread driver = new Thread(this::drive, name + "-driver");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * 停止时间轮（未到期任务不再执行）
+     */
+    public void stop() {
+        running = false;
+        taskExecutor.shutdown();
+    }
+
+    /**
+     * 添加定时任务
+     * @param deadlineMillis 到期时间（毫秒时间戳），已过期的任务立即执行
+     * @param task 到期执行的任务
+     * @return 定时句柄，可用于取消
+     */
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        Timeout timeout = new Timeout(this, deadlineMillis, task);
+        pendingCount.incrementAndGet();
+        synchronized (this) {
+            addOrRun(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * 待执行的任务数
+     */
+    public int size() {
+        return pendingCount.get();
+    }
+
+    // 调用方需持有时间轮锁
+    private void addOrRun(Timeout timeout) {
+        if (timeout.cancelled) {
+            pendingCount.decrementAndGet();
+            return;
+        }
+        if (!rootLevel.add(timeout)) {
+            // 已到期：交给工作线程执行
+            pendingCount.decrementAndGet();
+            taskExecutor.execute(timeout::run);
+        }
+    }
+
+    private void drive() {
+        while (running) {
+            try {
+                Bucket bucket = delayQueue.poll(tickMillis * 10, TimeUnit.MILLISECONDS);
+                if (bucket == null) {
+                    continue;
+                }
+                synchronized (this) {
+                    while (bucket != null) {
+                        rootLevel.advanceClock(bucket.getExpiration());
+                        for (Timeout timeout : bucket.drain()) {
+                            addOrRun(timeout);
+                        }
+                        bucket = delayQueue.poll();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("{}推进失败", name, e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的一层
+     */
+    private final class Level {
+        private final long levelTickMillis;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long levelTickMillis, long startMillis) {
+            this.levelTickMillis = levelTickMillis;
+            this.interval = levelTickMillis * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMillis - (startMillis % levelTickMillis);
+        }
+
+        /**
+         * @return true-已放入槽位，false-已到期
+         */
+        private boolean add(Timeout timeout) {
+            long deadline = timeout.deadlineMillis;
+            if (deadline < currentTime + levelTickMillis) {
+                return false;
+            }
+            if (deadline < currentTime + interval) {
+                long virtualId = deadline / levelTickMillis;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                if (bucket.setExpiration(virtualId * levelTickMillis)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime);
+            }
+            return overflow.add(timeout);
+        }
+
+        private void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + levelTickMillis) {
+                currentTime = timeMillis - (timeMillis % levelTickMillis);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * 槽位：双向链表保存到期时间落在同一跨度内的任务
+     */
+    private static final class Bucket implements Delayed {
+        private final Timeout head = new Timeout(null, 0, null);
+        private final AtomicLong expiration = new AtomicLong(-1L);
+
+        private Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private synchronized void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = head.prev;
+            timeout.next = head;
+            head.prev.next = timeout;
+            head.prev = timeout;
+        }
+
+        private synchronized boolean remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return false;
+            }
+            timeout.prev.next = timeout.next;
+            timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return true;
+        }
+
+        private synchronized List<Timeout> drain() {
+            List<Timeout> timeouts = new ArrayList<>();
+            Timeout current = head.next;
+            while (current != head) {
+                Timeout next = current.next;
+                current.prev = null;
+                current.next = null;
+                current.bucket = null;
+                timeouts.add(current);
+                current = next;
+            }
+            head.prev = head;
+            head.next = head;
+            expiration.set(-1L);
+            return timeouts;
+        }
+
+        /**
+         * @return true-到期时间发生变化（槽位被复用，需要重新放入延迟队列）
+         */
+        private boolean setExpiration(long expirationMillis) {
+            return expiration.getAndSet(expirationMillis) != expirationMillis;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+
+    /**
+     * 定时句柄
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final long deadlineMillis;
+        private final Runnable task;
+        private volatile boolean cancelled;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, long deadlineMillis, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineMillis = deadlineMillis;
+            this.task = task;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 取消任务（O(1)从所在槽位摘除）
+         * @return true-取消成功，false-已取消或已到期
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                Bucket current = bucket;
+                if (current != null && current.remove(this)) {
+                    wheel.pendingCount.decrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        }
+
+        private void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("定时任务执行失败", e);
+            }
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.eldercare.util;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * 窗口工具类
@@ -151,4 +154,32 @@ public class WindowUtil {
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * 在后台线程执行耗时任务（如密码哈希、文件读写），完成后回到界面线程处理结果
+     * @param task 后台任务
+     * @param onSuccess 成功回调（在界面线程执行）
+     * @param onError 失败回调（在界面线程执行）
+     */
+    public static <T> void runInBackground(Callable<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    onSuccess.accept(get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onError.accept(cause instanceof Exception ? (Exception) cause : e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    onError.accept(e);
+                }
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,64 @@
+package com.eldercare.model;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * ServiceStatus测试：只允许文档中的状态流转，终态不能再变更，非法变更不修改申请状态
+ */
+public class ServiceStatusTest {
+
+    @Test
+    public void onlyDocumentedTransitionsAreAllowed() {
+        assertAllowed(ServiceStatus.PENDING, EnumSet.of(ServiceStatus.IN_PROGRESS, ServiceStatus.COMPLETED, ServiceStatus.CANCELLED));
+        assertAllowed(ServiceStatus.IN_PROGRESS, EnumSet.of(ServiceStatus.PENDING, ServiceStatus.COMPLETED, ServiceStatus.CANCELLED));
+        assertAllowed(ServiceStatus.COMPLETED, EnumSet.noneOf(ServiceStatus.class));
+        assertAllowed(ServiceStatus.CANCELLED, EnumSet.noneOf(ServiceStatus.class));
+    }
+
+    @Test
+    public void illegalTransitionLeavesRequestUnchanged() {
+        ServiceRequest request = new ServiceRequest();
+        request.transitionTo(ServiceStatus.IN_PROGRESS);
+        request.transitionTo(ServiceStatus.COMPLETED);
+        for (ServiceStatus next : ServiceStatus.values()) {
+            try {
+                request.transitionTo(next);
+                fail("已完成的申请不应变更为" + next.getLabel());
+            } catch (IllegalStateException expected) {
+                assertEquals(ServiceStatus.COMPLETED, request.getServiceStatus());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sameStatusIsNotATransition() {
+        new ServiceRequest().transitionTo(ServiceStatus.PENDING);
+    }
+
+    @Test
+    public void labelsRoundTrip() {
+        for (ServiceStatus status : ServiceStatus.values()) {
+            assertEquals(status, ServiceStatus.fromLabel(" " + status.getLabel() + " "));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownLabelIsRejected() {
+        ServiceStatus.fromLabel("已退回");
+    }
+
+    private static void assertAllowed(ServiceStatus from, Set<ServiceStatus> allowed) {
+        for (ServiceStatus next : ServiceStatus.values()) {
+            assertEquals(from.getLabel() + "→" + next.getLabel(), allowed.contains(next), from.canTransitionTo(next));
+        }
+        assertFalse(from.canTransitionTo(from));
+        assertEquals(allowed.isEmpty(), from.isTerminal());
+    }
+}
@@ -0,0 +1,161 @@
+package com.eldercare.service;
+
+import com.eldercare.model.Activity;
+import com.eldercare.util.DataStorageUtil;
+import com.eldercare.util.DeferredSaver;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ActivityService并发报名测试：名额满后进入候补，取消报名时候补按先后转正，并发下不丢失、不重复报名，老人活动索引与报名名单一致
+ */
+public class ActivityServiceTest {
+    private static final int THREADS = 16;
+    private static final int ELDERS_PER_THREAD = 50;
+    private static final int CAPACITY = 50;
+    private static final int CANCELLED_REGISTERED = 40;
+    private static final int CANCELLED_WAITLISTED = 200;
+    private static final String ACTIVITY_TIME = "2030-01-10 09:00-10:00";
+
+    @BeforeClass
+    public static void useTestDataDir() throws IOException {
+        if (System.getProperty(DataStorageUtil.DATA_DIR_PROPERTY) == null) {
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, Files.createTempDirectory("eldercare-test").toString());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentRegistrationAndCancellationKeepCapacityAndWaitlist() throws Exception {
+        ActivityService service = ActivityService.getInstance();
+        Activity activity = new Activity();
+        activity.setName("并发报名测试");
+        activity.setTime(ACTIVITY_TIME);
+        activity.setLocation("多功能厅");
+        activity.setCapacity(CAPACITY);
+        service.createActivity(activity);
+        String activityId = activity.getActivityId();
+
+        // 1. 并发报名：每位老人报名两次，第二次应提示已报名或已候补
+        Map<ActivityService.RegistrationResult, AtomicInteger> results = new ConcurrentHashMap<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < ELDERS_PER_THREAD; i++) {
+                String elderId = elderId(thread, i);
+                count(results, service.register(activityId, elderId));
+                ActivityService.RegistrationResult again = service.register(activityId, elderId);
+                assertTrue("重复报名：" + again, again == ActivityService.RegistrationResult.ALREADY_REGISTERED
+                        || again == ActivityService.RegistrationResult.ALREADY_WAITLISTED);
+            }
+        });
+        int elders = THREADS * ELDERS_PER_THREAD;
+        assertEquals(CAPACITY, countOf(results, ActivityService.RegistrationResult.REGISTERED));
+        assertEquals(elders - CAPACITY, countOf(results, ActivityService.RegistrationResult.WAITLISTED));
+
+        Activity afterRegister = service.getActivityById(activityId);
+        List<String> registered = afterRegister.getRegisteredElderIds();
+        List<String> waitlist = afterRegister.getWaitlistElderIds();
+        assertEquals(CAPACITY, registered.size());
+        assertEquals(elders - CAPACITY, waitlist.size());
+        Set<String> everyone = new HashSet<>(registered);
+        everyone.addAll(waitlist);
+        assertEquals("报名和候补名单应覆盖全部老人且不重复", elders, everyone.size());
+
+        // 2. 并发取消：部分已报名者（候补队首依次转正）和候补队尾的老人
+        List<String> cancelled = new ArrayList<>(registered.subList(0, CANCELLED_REGISTERED));
+        cancelled.addAll(waitlist.subList(waitlist.size() - CANCELLED_WAITLISTED, waitlist.size()));
+        AtomicInteger next = new AtomicInteger();
+        runConcurrently(thread -> {
+            int i;
+            while ((i = next.getAndIncrement()) < cancelled.size()) {
+                assertTrue(service.cancelRegistration(activityId, cancelled.get(i)));
+            }
+        });
+
+        Activity afterCancel = service.getActivityById(activityId);
+        Set<String> expectedRegistered = new HashSet<>(registered.subList(CANCELLED_REGISTERED, CAPACITY));
+        expectedRegistered.addAll(waitlist.subList(0, CANCELLED_REGISTERED));
+        assertEquals("候补队首应按先后转正", expectedRegistered, new HashSet<>(afterCancel.getRegisteredElderIds()));
+        List<String> expectedWaitlist = new ArrayList<>(waitlist.subList(CANCELLED_REGISTERED, waitlist.size() - CANCELLED_WAITLISTED));
+        assertEquals("候补名单应保持原有顺序", expectedWaitlist, afterCancel.getWaitlistElderIds());
+
+        // 3. 老人活动索引与名单一致
+        long from = afterCancel.getStartMillis();
+        long to = afterCancel.getEndMillis();
+        for (String elderId : everyone) {
+            boolean listed = !service.getActivitiesForElder(elderId, from, to).isEmpty();
+            assertEquals("老人" + elderId + "的活动索引", !cancelled.contains(elderId), listed);
+        }
+
+        // 4. 保存到文件的名单与内存一致
+        assertTrue(DeferredSaver.flush("activities"));
+        Activity saved = null;
+        for (Activity stored : (List<Activity>) DataStorageUtil.getData("activities")) {
+            if (stored.getActivityId().equals(activityId)) {
+                saved = stored;
+            }
+        }
+        assertFalse(saved == null);
+        assertEquals(new HashSet<>(afterCancel.getRegisteredElderIds()), new HashSet<>(saved.getRegisteredElderIds()));
+        assertEquals(afterCancel.getWaitlistElderIds(), saved.getWaitlistElderIds());
+    }
+
+    private static String elderId(int thread, int i) {
+        return "TEST_E" + thread + "_" + i;
+    }
+
+    private static void count(Map<ActivityService.RegistrationResult, AtomicInteger> results,
+                              ActivityService.RegistrationResult result) {
+        results.computeIfAbsent(result, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static int countOf(Map<ActivityService.RegistrationResult, AtomicInteger> results,
+                               ActivityService.RegistrationResult result) {
+        AtomicInteger count = results.get(result);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void runConcurrently(Work work) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,126 @@
+package com.eldercare.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * BackupArchive时间点恢复测试：从备份开始按序重放日志，停在目标时间或日志中断处
+ */
+public class BackupArchiveTest {
+    private static final String DATA_FILE = "pitr_test.ser";
+    private static final String JOURNAL_FILE = "pitr_test.journal";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String previousDataDir;
+    private BackupArchive archive;
+
+    @Before
+    public void useEmptyDataDir() throws IOException {
+        previousDataDir = System.getProperty(DataStorageUtil.DATA_DIR_PROPERTY);
+        System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, folder.newFolder("data").toString());
+        archive = new BackupArchive(folder.newFolder("backup").toPath());
+    }
+
+    @After
+    public void restoreDataDir() {
+        if (previousDataDir == null) {
+            System.clearProperty(DataStorageUtil.DATA_DIR_PROPERTY);
+        } else {
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, previousDataDir);
+        }
+    }
+
+    @Test
+    public void restoreReplaysLogUpToTargetTime() throws IOException {
+        Files.write(DataStorageUtil.getDataFile(DATA_FILE), bytes("v1"));
+        ReplicationLog.enable(false);
+        BackupArchive.Manifest manifest = archive.backup();
+        long time = manifest.getTime();
+        long lsn = manifest.getLsn();
+
+        try (BackupArchive.LogWriter log = archive.openLog(manifest.getHistoryId(), lsn + 1)) {
+            log.write(Arrays.asList(
+                    mutation(lsn + 1, ReplicationLog.Operation.PUT, DATA_FILE, 0, "v2", time + 1000),
+                    mutation(lsn + 2, ReplicationLog.Operation.APPEND, JOURNAL_FILE, 0, "abc", time + 2000),
+                    mutation(lsn + 3, ReplicationLog.Operation.DELETE, DATA_FILE, 0, "", time + 3000),
+                    // 序号不连续：之后的修改不能重放
+                    mutation(lsn + 5, ReplicationLog.Operation.PUT, DATA_FILE, 0, "lost", time + 4000)));
+        }
+
+        Path beforeLog = restore(time + 500, 0);
+        assertEquals("v1", read(beforeLog.resolve(DATA_FILE)));
+        assertFalse(Files.exists(beforeLog.resolve(JOURNAL_FILE)));
+
+        Path afterPut = restore(time + 1500, 1);
+        assertEquals("v2", read(afterPut.resolve(DATA_FILE)));
+        assertFalse(Files.exists(afterPut.resolve(JOURNAL_FILE)));
+
+        Path afterAppend = restore(time + 2500, 2);
+        assertEquals("v2", read(afterAppend.resolve(DATA_FILE)));
+        assertEquals("abc", read(afterAppend.resolve(JOURNAL_FILE)));
+
+        Path latest = folder.newFolder("latest").toPath();
+        BackupArchive.RestoreResult result = archive.restore(Long.MAX_VALUE, latest);
+        assertEquals("应停在日志中断处", 3, result.getReplayed());
+        assertEquals(time + 3000, result.getRestoredTo());
+        assertFalse(Files.exists(latest.resolve(DATA_FILE)));
+        assertEquals("abc", read(latest.resolve(JOURNAL_FILE)));
+    }
+
+    @Test
+    public void restoreRejectsTimeBeforeFirstBackupAndNonEmptyTarget() throws IOException {
+        Files.write(DataStorageUtil.getDataFile(DATA_FILE), bytes("v1"));
+        BackupArchive.Manifest manifest = archive.backup();
+
+        try {
+            archive.restore(manifest.getTime() - 1, folder.newFolder("early").toPath());
+            fail("目标时间之前没有备份时应抛出异常");
+        } catch (IOException expected) {
+            // 预期
+        }
+
+        Path target = folder.newFolder("occupied").toPath();
+        Files.write(target.resolve(DATA_FILE), bytes("other"));
+        try {
+            archive.restore(Long.MAX_VALUE, target);
+            fail("目标目录已有数据文件时应抛出异常");
+        } catch (IOException expected) {
+            assertEquals("other", read(target.resolve(DATA_FILE)));
+        }
+    }
+
+    private Path restore(long atMillis, int expectedReplayed) throws IOException {
+        Path target = folder.newFolder().toPath();
+        BackupArchive.RestoreResult result = archive.restore(atMillis, target);
+        assertEquals(expectedReplayed, result.getReplayed());
+        return target;
+    }
+
+    private static ReplicationLog.Mutation mutation(long lsn, ReplicationLog.Operation operation, String fileName,
+                                                    long offset, String data, long timestamp) {
+        return new ReplicationLog.Mutation(lsn, operation, fileName, offset, bytes(data), timestamp);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
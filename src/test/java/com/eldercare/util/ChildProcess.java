@@ -0,0 +1,82 @@
+package com.eldercare.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试辅助：在另一个JVM中运行测试类的main方法，模拟共享同一数据目录的其他实例
+ */
+final class ChildProcess {
+    private final Process process;
+    private final BufferedReader output;
+
+    private ChildProcess(Process process) {
+        this.process = process;
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 启动子进程（使用当前的类路径和数据目录）
+     * @param mainClass 含main方法的类
+     * @param args main方法参数
+     */
+    static ChildProcess start(Class<?> mainClass, String... args) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-D" + DataStorageUtil.DATA_DIR_PROPERTY + "=" + DataStorageUtil.getDataDir().toAbsolutePath());
+        command.add(mainClass.getName());
+        for (String arg : args) {
+            command.add(arg);
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        return new ChildProcess(builder.start());
+    }
+
+    /**
+     * 读取子进程输出，直到出现指定的一行（子进程退出仍未出现时返回false；日志等其他输出跳过）
+     */
+    boolean awaitLine(String expected) throws IOException {
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.trim().equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 向子进程标准输入写一行
+     */
+    void send(String line) throws IOException {
+        process.getOutputStream().write((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        process.getOutputStream().flush();
+    }
+
+    /**
+     * 等待子进程退出，超时时强制结束
+     * @return 退出码
+     */
+    int waitFor(long timeoutSeconds) throws InterruptedException {
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,78 @@
+package com.eldercare.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * IdGenerator测试：多线程并发生成的ID不重复，同一前缀内严格递增
+ */
+public class IdGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 20_000;
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = IdGenerator.nextRawId("TEST");
+                        if (id <= previous) {
+                            fail("同一线程内ID未递增：" + previous + " -> " + id);
+                        }
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    public void sequenceOverflowMovesToNextMillisecond() {
+        // 每毫秒每前缀最多4096个ID，连续生成远超此数时应顺延到后续毫秒而不重复
+        long previous = IdGenerator.nextRawId("OVERFLOW");
+        for (int i = 0; i < 50_000; i++) {
+            long id = IdGenerator.nextRawId("OVERFLOW");
+            assertTrue("ID未递增：" + previous + " -> " + id, id > previous);
+            assertEquals(IdGenerator.render("OVERFLOW", previous).substring(27, 31),
+                    IdGenerator.render("OVERFLOW", id).substring(27, 31));
+            previous = id;
+        }
+    }
+
+    @Test
+    public void renderedIdsAreUnique() {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(IdGenerator.generateElderId()));
+        }
+    }
+}
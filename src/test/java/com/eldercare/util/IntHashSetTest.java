@@ -0,0 +1,75 @@
+package com.eldercare.util;
+
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IntHashSet测试：删除后前移同簇元素，其余元素仍可查到，遍历顺序保持插入顺序
+ */
+public class IntHashSetTest {
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    public void randomAddRemoveMatchesLinkedHashSet() {
+        Random random = new Random(20260101L);
+        IntHashSet set = new IntHashSet(4);
+        Set<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            // 取值范围小、删除比例高，集合大小在几十个元素上下浮动，产生大量同簇和跨越数组末尾的探测链
+            int value = 1 + random.nextInt(96);
+            if (random.nextInt(100) < 55) {
+                assertEquals("add(" + value + ")", expected.add(value), set.add(value));
+            } else {
+                assertEquals("remove(" + value + ")", expected.remove(value), set.remove(value));
+            }
+            if (i % 97 == 0) {
+                assertSameContents(expected, set);
+            }
+        }
+        assertSameContents(expected, set);
+    }
+
+    @Test
+    public void removeKeepsRemainingElementsReachable() {
+        IntHashSet set = new IntHashSet(64);
+        for (int value = 1; value <= 40; value++) {
+            set.add(value);
+        }
+        for (int value = 1; value <= 40; value += 3) {
+            assertTrue(set.remove(value));
+            assertFalse(set.remove(value));
+        }
+        for (int value = 1; value <= 40; value++) {
+            assertEquals(String.valueOf(value), (value - 1) % 3 != 0, set.contains(value));
+        }
+        assertEquals(26, set.size());
+        assertEquals(2, set.first());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveValues() {
+        new IntHashSet().add(0);
+    }
+
+    private static void assertSameContents(Set<Integer> expected, IntHashSet set) {
+        assertEquals(expected.size(), set.size());
+        int[] order = new int[expected.size()];
+        int i = 0;
+        for (int value : expected) {
+            order[i++] = value;
+            assertTrue("缺少元素" + value, set.contains(value));
+        }
+        assertArrayEquals("遍历顺序应与插入顺序一致", order, set.toArray());
+        for (int value = 1; value <= 100; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.eldercare.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IntervalIndex测试：按最长区间长度回退扫描时，边界上的区间不漏查、不多查
+ */
+public class IntervalIndexTest {
+
+    @Test
+    public void overlapAtMaxLengthBoundary() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        // 最长区间长度100
+        index.put("long", 1000, 1100);
+        index.put("short", 1090, 1095);
+
+        // 区间开始时间正好等于查询开始 - 最长长度：结束时间等于查询开始，不重叠
+        assertEquals(Collections.emptyList(), index.overlapping(1100, 1200));
+        // 查询开始前移1毫秒：最长区间的最后1毫秒重叠
+        assertEquals(Collections.singletonList("long"), index.overlapping(1099, 1200));
+        // 查询结束时间不包含：结束于区间开始时不重叠
+        assertEquals(Collections.emptyList(), index.overlapping(900, 1000));
+        assertEquals(Collections.singletonList("long"), index.overlapping(900, 1001));
+        assertEquals(Arrays.asList("long", "short"), index.overlapping(1094, 1095));
+    }
+
+    @Test
+    public void longerIntervalWidensScanRange() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.put("a", 0, 50);
+        index.put("b", 200, 300);
+        assertEquals(Collections.singletonList("b"), index.overlapping(250, 260));
+        assertEquals(Collections.emptyList(), index.overlapping(300, 500));
+
+        // 后加入的更长区间开始时间远早于查询开始，最长长度随之增大后仍能查到
+        index.put("c", 100, 400);
+        assertEquals(Collections.singletonList("c"), index.overlapping(399, 500));
+        assertEquals(Arrays.asList("c", "b"), index.overlapping(299, 300));
+        assertEquals(Collections.emptyList(), index.overlapping(400, 500));
+    }
+
+    @Test
+    public void updateAndRemoveKeepQueriesCorrect() {
+        IntervalIndex<String> index = new IntervalIndex<>();
+        index.put("a", 0, 1000);
+        index.put("b", 2000, 2010);
+        index.put("a", 3000, 3010);
+
+        assertEquals(Collections.singletonList("b"), index.overlapping(500, 2500));
+        assertEquals(Collections.singletonList("a"), index.overlapping(3005, 3006));
+
+        // 删除后最长长度不缩小，查询范围偏大但结果仍正确
+        assertTrue(index.remove("b"));
+        assertEquals(Collections.emptyList(), index.overlapping(1500, 2999));
+        assertEquals(Collections.singletonList("a"), index.overlapping(2000, 4000));
+        assertEquals(1, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyInterval() {
+        new IntervalIndex<String>().put("a", 10, 10);
+    }
+}
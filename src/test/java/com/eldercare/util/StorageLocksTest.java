@@ -0,0 +1,120 @@
+package com.eldercare.util;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StorageLocks测试：排他锁在线程之间、进程之间互斥，释放后可被其他持有者取得
+ */
+public class StorageLocksTest {
+    private static final String IN_PROCESS_FILE = "locks_test_local.ser";
+    private static final String CROSS_PROCESS_FILE = "locks_test_shared.ser";
+
+    @BeforeClass
+    public static void useTestDataDir() throws IOException {
+        if (System.getProperty(DataStorageUtil.DATA_DIR_PROPERTY) == null) {
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, Files.createTempDirectory("eldercare-test").toString());
+        }
+    }
+
+    @Test
+    public void exclusiveLockExcludesOtherThreadsUntilClosed() throws Exception {
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            StorageLocks.Handle held = StorageLocks.exclusive(IN_PROCESS_FILE);
+            assertNull("其他线程不应取得已被持有的排他锁", other.submit(() -> tryAndRelease(IN_PROCESS_FILE)).get(10, TimeUnit.SECONDS));
+
+            held.close();
+            // 重复释放不应影响之后的持有者
+            held.close();
+            StorageLocks.Handle again = other.submit(() -> StorageLocks.tryExclusive(IN_PROCESS_FILE)).get(10, TimeUnit.SECONDS);
+            assertNotNull("释放后其他线程应能取得排他锁", again);
+            held.close();
+            assertNull("重复释放不应释放其他线程持有的锁", StorageLocks.tryExclusive(IN_PROCESS_FILE));
+            other.submit(again::close).get(10, TimeUnit.SECONDS);
+        } finally {
+            other.shutdownNow();
+        }
+        StorageLocks.Handle last = StorageLocks.tryExclusive(IN_PROCESS_FILE);
+        assertNotNull(last);
+        last.close();
+    }
+
+    @Test
+    public void exclusiveLockExcludesOtherProcesses() throws Exception {
+        ChildProcess child = ChildProcess.start(LockHolder.class, CROSS_PROCESS_FILE);
+        try {
+            assertTrue("子进程未取得锁", child.awaitLine(LockHolder.LOCKED));
+            assertNull("其他进程持有时不应取得排他锁", StorageLocks.tryExclusive(CROSS_PROCESS_FILE));
+
+            child.send("release");
+            assertTrue("子进程未释放锁", child.awaitLine(LockHolder.RELEASED));
+            StorageLocks.Handle handle = StorageLocks.exclusive(CROSS_PROCESS_FILE);
+            handle.close();
+            assertEquals(0, child.waitFor(30));
+        } finally {
+            child.destroy();
+        }
+    }
+
+    @Test
+    public void otherProcessWaitsForExclusiveLock() throws Exception {
+        StorageLocks.Handle held = StorageLocks.exclusive(CROSS_PROCESS_FILE);
+        ChildProcess child = ChildProcess.start(LockHolder.class, CROSS_PROCESS_FILE);
+        try {
+            assertTrue(child.awaitLine(LockHolder.WAITING));
+            Thread.sleep(200);
+            held.close();
+            assertTrue("释放后子进程应取得锁", child.awaitLine(LockHolder.LOCKED));
+            child.send("release");
+            assertTrue(child.awaitLine(LockHolder.RELEASED));
+            assertEquals(0, child.waitFor(30));
+        } finally {
+            held.close();
+            child.destroy();
+        }
+    }
+
+    private static StorageLocks.Handle tryAndRelease(String fileName) throws IOException {
+        StorageLocks.Handle handle = StorageLocks.tryExclusive(fileName);
+        if (handle != null) {
+            handle.close();
+        }
+        return handle;
+    }
+
+    /**
+     * 子进程：取得排他锁后等待标准输入的一行再释放
+     */
+    public static final class LockHolder {
+        static final String WAITING = "WAITING";
+        static final String LOCKED = "LOCKED";
+        static final String RELEASED = "RELEASED";
+
+        public static void main(String[] args) throws IOException {
+            System.out.println(WAITING);
+            StorageLocks.Handle handle = StorageLocks.exclusive(args[0]);
+            System.out.println(LOCKED);
+            BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            input.readLine();
+            handle.close();
+            System.out.println(RELEASED);
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.eldercare.util;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 三方合并测试：本实例修改的条目以本实例为准，未修改的条目采用文件中的版本，其他实例新增的条目保留
+ */
+public class StorageMergeTest {
+    private static final String MERGE_KEY = "merge_test_notes";
+    // 条目格式"标识:版本"
+    private static final Function<Object, ?> ID_OF = item -> ((String) item).split(":")[0];
+
+    @BeforeClass
+    public static void useTestDataDir() throws IOException {
+        if (System.getProperty(DataStorageUtil.DATA_DIR_PROPERTY) == null) {
+            System.setProperty(DataStorageUtil.DATA_DIR_PROPERTY, Files.createTempDirectory("eldercare-test").toString());
+        }
+    }
+
+    @Test
+    public void listMergeKeepsBothInstancesChanges() throws IOException {
+        List<String> base = list("a:1", "b:1", "c:1", "x:1");
+        // 本实例：修改a，删除c，新增d
+        List<String> ours = list("a:2", "b:1", "d:1", "x:2");
+        // 其他实例：修改b，新增e，与本实例同时修改x
+        List<String> theirs = list("a:1", "b:2", "c:1", "e:1", "x:3");
+
+        StorageMerge.Result result = StorageMerge.merge(base, ours, theirs, ID_OF);
+
+        assertEquals(list("a:2", "b:2", "d:1", "x:2", "e:1"), result.data);
+        assertEquals("采用文件版本的条目应为b和e", 2, result.taken);
+    }
+
+    @Test
+    public void mapMergeWithoutBaseKeepsOursAndTheirAdditions() throws IOException {
+        Map<String, Integer> ours = new HashMap<>();
+        ours.put("a", 1);
+        ours.put("b", 1);
+        Map<String, Integer> theirs = new HashMap<>();
+        theirs.put("b", 2);
+        theirs.put("c", 1);
+
+        StorageMerge.Result result = StorageMerge.merge(null, ours, theirs, null);
+
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("a", 1);
+        expected.put("b", 1);
+        expected.put("c", 1);
+        assertEquals(expected, result.data);
+        assertEquals(1, result.taken);
+    }
+
+    @Test
+    public void saveMergesChangesWrittenByOtherProcess() throws Exception {
+        DataStorageUtil.registerMergeable(MERGE_KEY, ID_OF);
+        DataStorageUtil.saveData(MERGE_KEY, list("a:1", "b:1", "c:1"));
+
+        ChildProcess child = ChildProcess.start(OtherInstance.class);
+        try {
+            assertTrue("子进程未完成保存", child.awaitLine(OtherInstance.SAVED));
+            assertEquals(0, child.waitFor(30));
+        } finally {
+            child.destroy();
+        }
+
+        // 本实例仍以自己读写的内容为基准保存：修改a，删除c，新增d
+        DataStorageUtil.saveData(MERGE_KEY, list("a:2", "b:1", "d:1"));
+
+        assertEquals(list("a:2", "b:2", "d:1", "e:1"), DataStorageUtil.getData(MERGE_KEY));
+    }
+
+    private static List<String> list(String... items) {
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    /**
+     * 子进程：读取后修改b、新增e再保存
+     */
+    public static final class OtherInstance {
+        static final String SAVED = "SAVED";
+
+        @SuppressWarnings("unchecked")
+        public static void main(String[] args) throws Exception {
+            DataStorageUtil.registerMergeable(MERGE_KEY, ID_OF);
+            List<String> items = (List<String>) DataStorageUtil.getData(MERGE_KEY);
+            items.set(items.indexOf("b:1"), "b:2");
+            items.add("e:1");
+            DataStorageUtil.saveData(MERGE_KEY, items);
+            System.out.println(SAVED);
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.eldercare.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TimingWheel测试：落在上层时间轮的任务到期前逐层放回下层，按自己的到期时间执行而不是按上层槽位的跨度
+ */
+public class TimingWheelTest {
+    // 每层10毫秒 × 8槽：第一层80毫秒，第二层640毫秒，第三层5120毫秒
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8;
+    // 执行时间允许的延迟（调度线程、测试机负载）
+    private static final long LATE_TOLERANCE_MILLIS = 300;
+
+    private TimingWheel wheel;
+
+    @Before
+    public void startWheel() {
+        wheel = new TimingWheel("timing-wheel-test", TICK_MILLIS, WHEEL_SIZE);
+        wheel.start();
+    }
+
+    @After
+    public void stopWheel() {
+        wheel.stop();
+    }
+
+    @Test
+    public void overflowTasksFireAtTheirOwnDeadline() throws Exception {
+        Random random = new Random(42);
+        int tasks = 200;
+        long now = System.currentTimeMillis();
+        Map<Integer, Long> deadlines = new ConcurrentHashMap<>();
+        Map<Integer, Long> firedAt = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            int id = i;
+            // 覆盖三层时间轮：0 ~ 1.5秒
+            long deadline = now + random.nextInt(1500);
+            deadlines.put(id, deadline);
+            wheel.schedule(deadline, () -> {
+                firedAt.put(id, System.currentTimeMillis());
+                done.countDown();
+            });
+        }
+        assertTrue("任务未全部执行", done.await(10, TimeUnit.SECONDS));
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            long deadline = entry.getValue();
+            long fired = firedAt.get(entry.getKey());
+            // 最底层按槽位跨度对齐，最多提前一个跨度
+            assertTrue("任务提前执行：到期" + deadline + "，执行" + fired, fired >= deadline - TICK_MILLIS);
+            assertTrue("任务执行过晚：到期" + deadline + "，执行" + fired, fired <= deadline + LATE_TOLERANCE_MILLIS);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledOverflowTaskNeverRuns() throws Exception {
+        long now = System.currentTimeMillis();
+        List<String> ran = new ArrayList<>();
+        CountDownLatch later = new CountDownLatch(1);
+        TimingWheel.Timeout cancelled = wheel.schedule(now + 700, () -> {
+            synchronized (ran) {
+                ran.add("cancelled");
+            }
+        });
+        wheel.schedule(now + 900, later::countDown);
+        assertEquals(2, wheel.size());
+
+        assertTrue(cancelled.cancel());
+        assertFalse("重复取消应返回false", cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, wheel.size());
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        synchronized (ran) {
+            assertTrue("已取消的任务不应执行", ran.isEmpty());
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void expiredTaskRunsImmediately() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.schedule(System.currentTimeMillis() - 1000, ran::countDown);
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+    }
+}